@@ -27,7 +27,6 @@ import java.net.URL;
 import java.util.List;
 
 import static com.epam.reportportal.utils.MimeTypeDetector.detect;
-import static com.google.common.io.Files.asByteSource;
 import static com.google.common.io.Resources.getResource;
 
 /**
@@ -50,7 +49,7 @@ public class HashMarkSeparatedMessageParser implements MessageParser {
 				if (!file.exists()) {
 					return null;
 				}
-				return new TypeAwareByteSource(asByteSource(file), detect(file));
+				return new TypeAwareByteSource(new FileByteSource(file), detect(file));
 			}
 		},
 		BASE64 {
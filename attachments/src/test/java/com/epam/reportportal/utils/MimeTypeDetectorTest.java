@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Resources;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MimeTypeDetectorTest {
+
+	private static final byte[][] CONTENTS = { "{\"status\": \"PASSED\"}".getBytes(Charsets.UTF_8),
+			"<?xml version=\"1.0\"?><suite/>".getBytes(Charsets.UTF_8), "<!DOCTYPE html><html></html>".getBytes(Charsets.UTF_8),
+			"<HTML><body>failed</body></HTML>".getBytes(Charsets.UTF_8), "2018-01-01 INFO started\n".getBytes(Charsets.UTF_8),
+			{ 'P', 'K', 3, 4, 20, 0, 0, 0 }, { 0, 0, 0, 0x20, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm', 0, 0, 2, 0 },
+			{ (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13 },
+			{ (byte) 0xff, (byte) 0xd8, (byte) 0xff, (byte) 0xe0, 0, 16, 'J', 'F', 'I', 'F' }, "GIF89a\u0001\u0000".getBytes(Charsets.UTF_8),
+			{ 0, 1, 2, 3, 4, 5 }, {} };
+
+	private static final String[] NAMES = { null, "a.json", "a.xml", "a.html", "a.htm", "a.txt", "a.log", "a.csv", "a.zip", "a.docx",
+			"a.jar", "a.mp4", "a.png", "a.jpg", "a.bin", "A.JSON", "dir.v2/file" };
+
+	@Test
+	public void headerDetectionAgreesWithTika() throws Exception {
+		for (byte[] content : CONTENTS) {
+			for (String name : NAMES) {
+				String type = MimeTypeDetector.detectByHeader(content, name);
+				if (null != type) {
+					Assert.assertEquals("Content '" + new String(content, Charsets.UTF_8) + "', name " + name, tika(content, name), type);
+				}
+			}
+		}
+		Assert.assertEquals("application/json", MimeTypeDetector.detectByHeader(CONTENTS[0], "a.json"));
+		Assert.assertEquals("text/html", MimeTypeDetector.detectByHeader(CONTENTS[3], null));
+		Assert.assertEquals("video/mp4", MimeTypeDetector.detectByHeader(CONTENTS[6], "a.mp4"));
+		Assert.assertEquals("image/png", MimeTypeDetector.detectByHeader(CONTENTS[7], "a.bin"));
+	}
+
+	@Test
+	public void detectsResourcesOnBothPaths() throws Exception {
+		ByteSource photo = Resources.asByteSource(Resources.getResource("defaultUserPhoto.jpg"));
+		Assert.assertEquals("image/jpeg", MimeTypeDetector.detect(photo, "defaultUserPhoto.jpg"));
+
+		ByteSource binary = ByteSource.wrap(new byte[] { 0, 1, 2, 3, 4, 5 });
+		Assert.assertTrue(MimeTypeDetector.isDetectorAvailable());
+		Assert.assertNull(MimeTypeDetector.detectByHeader(binary.read(), "a.bin"));
+		Assert.assertEquals(tika(binary.read(), "a.bin"), MimeTypeDetector.detect(binary, "a.bin"));
+		//served by cache
+		Assert.assertEquals(tika(binary.read(), "a.bin"), MimeTypeDetector.detect(binary, "b.bin"));
+	}
+
+	private static String tika(byte[] content, String name) throws Exception {
+		return new TikaContentTypeDetector().detect(ByteSource.wrap(content), name);
+	}
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils.files;
+
+import com.epam.reportportal.exception.InternalReportPortalClientException;
+import com.epam.reportportal.message.TypeAwareByteSource;
+import com.google.common.io.ByteSource;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Converts images with ImageIO. Large images are downscaled while they are decoded, so full resolution
+ * pixels of 4K screenshots are never materialized
+ */
+public class RasterImageConverter implements ImageProcessor {
+
+	@Override
+	public TypeAwareByteSource convert(ByteSource source, ImageConverter.Options options) throws IOException {
+		return encode(toGray(read(source, options.getMaxDimension())), options);
+	}
+
+	/**
+	 * Decodes image skipping rows and columns, so the larger side is not more than the max dimension.
+	 * Subsampling is done by the decoder, which is much cheaper than scaling of decoded image
+	 */
+	private static BufferedImage read(ByteSource source, int maxDimension) throws IOException {
+		InputStream stream = source.openBufferedStream();
+		try {
+			ImageInputStream input = ImageIO.createImageInputStream(stream);
+			try {
+				Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+				if (!readers.hasNext()) {
+					throw new IOException("Image format is not supported");
+				}
+				ImageReader reader = readers.next();
+				try {
+					reader.setInput(input, true, true);
+					ImageReadParam param = reader.getDefaultReadParam();
+					int step = subsampling(reader.getWidth(0), reader.getHeight(0), maxDimension);
+					if (step > 1) {
+						param.setSourceSubsampling(step, step, 0, 0);
+					}
+					return reader.read(0, param);
+				} finally {
+					reader.dispose();
+				}
+			} finally {
+				input.close();
+			}
+		} finally {
+			stream.close();
+		}
+	}
+
+	static int subsampling(int width, int height, int maxDimension) {
+		int larger = Math.max(width, height);
+		if (maxDimension <= 0 || larger <= maxDimension) {
+			return 1;
+		}
+		return (larger + maxDimension - 1) / maxDimension;
+	}
+
+	/**
+	 * Converts pixels to luma directly on rasters of common layouts. Transparent pixels become black,
+	 * the same as when image is drawn on a black canvas
+	 */
+	static BufferedImage toGray(BufferedImage image) {
+		if (BufferedImage.TYPE_BYTE_GRAY == image.getType()) {
+			return image;
+		}
+		final int width = image.getWidth();
+		final int height = image.getHeight();
+		final BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+		final byte[] out = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+		final Raster raster = image.getRaster();
+		final boolean untranslated = 0 == raster.getSampleModelTranslateX() && 0 == raster.getSampleModelTranslateY();
+		final boolean rgb = image.getColorModel().getColorSpace().isCS_sRGB();
+
+		if (untranslated && rgb && raster.getDataBuffer() instanceof DataBufferInt
+				&& raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+			//TYPE_INT_RGB, TYPE_INT_ARGB
+			int[] pixels = ((DataBufferInt) raster.getDataBuffer()).getData();
+			int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+			boolean alpha = image.getColorModel().hasAlpha();
+			for (int y = 0; y < height; y++) {
+				for (int x = 0, i = y * stride, o = y * width; x < width; x++, i++, o++) {
+					int p = pixels[i];
+					out[o] = (byte) luma((p >> 16) & 0xff, (p >> 8) & 0xff, p & 0xff, alpha ? p >>> 24 : 0xff);
+				}
+			}
+		} else if (untranslated && rgb && raster.getDataBuffer() instanceof DataBufferByte
+				&& raster.getSampleModel() instanceof ComponentSampleModel && raster.getNumBands() >= 3) {
+			//TYPE_3BYTE_BGR, TYPE_4BYTE_ABGR and interleaved RGB(A) produced by decoders
+			ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+			byte[] pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+			int[] offsets = model.getBandOffsets();
+			int pixelStride = model.getPixelStride();
+			int stride = model.getScanlineStride();
+			boolean alpha = raster.getNumBands() > 3 && image.getColorModel().hasAlpha();
+			for (int y = 0; y < height; y++) {
+				for (int x = 0, i = y * stride, o = y * width; x < width; x++, i += pixelStride, o++) {
+					out[o] = (byte) luma(pixels[i + offsets[0]] & 0xff,
+							pixels[i + offsets[1]] & 0xff,
+							pixels[i + offsets[2]] & 0xff,
+							alpha ? pixels[i + offsets[3]] & 0xff : 0xff
+					);
+				}
+			}
+		} else {
+			//indexed, 16-bit and other color models are converted to ARGB row by row
+			int[] row = new int[width];
+			for (int y = 0; y < height; y++) {
+				image.getRGB(0, y, width, 1, row, 0, width);
+				for (int x = 0, o = y * width; x < width; x++, o++) {
+					int p = row[x];
+					out[o] = (byte) luma((p >> 16) & 0xff, (p >> 8) & 0xff, p & 0xff, p >>> 24);
+				}
+			}
+		}
+		return gray;
+	}
+
+	/* Rec. 601 luma in fixed point */
+	private static int luma(int r, int g, int b, int alpha) {
+		int luma = (77 * r + 150 * g + 29 * b + 128) >> 8;
+		return 0xff == alpha ? luma : luma * alpha / 0xff;
+	}
+
+	private static TypeAwareByteSource encode(BufferedImage image, ImageConverter.Options options) {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName(options.getFormat().getName()).next();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			ImageWriteParam param = writer.getDefaultWriteParam();
+			if (param.canWriteCompressed()) {
+				if (ImageConverter.Format.JPEG == options.getFormat()) {
+					param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+					param.setCompressionQuality(options.getQuality());
+				} else if (options.getCompressionLevel() >= 0) {
+					//PNG writer maps quality q to deflate level (int) (9 * (1 - q))
+					param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+					param.setCompressionQuality(Math.max(0f, (8.5f - options.getCompressionLevel()) / 9f));
+				}
+			}
+			ImageOutputStream output = ImageIO.createImageOutputStream(bytes);
+			try {
+				writer.setOutput(output);
+				writer.write(null, new IIOImage(image, null, null), param);
+			} finally {
+				output.close();
+			}
+		} catch (IOException e) {
+			throw new InternalReportPortalClientException("Unable to transform file to byte array.", e);
+		} finally {
+			writer.dispose();
+		}
+		return new TypeAwareByteSource(ByteSource.wrap(bytes.toByteArray()), options.getFormat().getMediaType().toString());
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils.files;
+
+import com.epam.reportportal.message.TypeAwareByteSource;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Resources;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+public class RasterImageConverterTest {
+
+	@Test
+	public void downscalesToMaxDimension() throws Exception {
+		final ByteSource byteSource = Resources.asByteSource(Resources.getResource("defaultUserPhoto.jpg"));
+		final BufferedImage original = ImageIO.read(byteSource.openStream());
+		final int maxDimension = Math.max(original.getWidth(), original.getHeight()) / 3;
+
+		TypeAwareByteSource converted = ImageConverter.convert(byteSource,
+				ImageConverter.Options.builder().maxDimension(maxDimension).format(ImageConverter.Format.JPEG).quality(0.5f).build()
+		);
+
+		Assert.assertEquals("image/jpeg", converted.getMediaType());
+		BufferedImage image = ImageIO.read(converted.openStream());
+		Assert.assertTrue(Math.max(image.getWidth(), image.getHeight()) <= maxDimension);
+		Assert.assertEquals(1, image.getRaster().getNumBands());
+	}
+
+	@Test
+	public void grayIsSameForAllRasterLayouts() {
+		final int[] colors = { 0xffff0000, 0xff00ff00, 0xff0000ff, 0xffffffff, 0xff123456, 0xff000000 };
+		final int[] types = { BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_3BYTE_BGR,
+				BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_USHORT_565_RGB };
+		byte[] expected = null;
+		for (int type : types) {
+			BufferedImage image = new BufferedImage(colors.length, 1, type);
+			for (int x = 0; x < colors.length; x++) {
+				image.setRGB(x, 0, colors[x]);
+			}
+			byte[] gray = ((DataBufferByte) RasterImageConverter.toGray(image).getRaster().getDataBuffer()).getData();
+			if (null == expected) {
+				expected = gray;
+				Assert.assertEquals(77, expected[0] & 0xff);
+				Assert.assertEquals(255, expected[3] & 0xff);
+			} else if (BufferedImage.TYPE_USHORT_565_RGB == type) {
+				//565 loses low bits of colors
+				for (int x = 0; x < colors.length; x++) {
+					Assert.assertEquals(expected[x] & 0xff, gray[x] & 0xff, 8);
+				}
+			} else {
+				Assert.assertArrayEquals("Type " + type, expected, gray);
+			}
+		}
+	}
+
+	@Test
+	public void defaultOptionsKeepSizeAndPng() throws Exception {
+		final ByteSource byteSource = Resources.asByteSource(Resources.getResource("defaultUserPhoto.jpg"));
+		final BufferedImage original = ImageIO.read(byteSource.openStream());
+
+		TypeAwareByteSource converted = ImageConverter.convert(byteSource);
+
+		Assert.assertEquals("image/png", converted.getMediaType());
+		BufferedImage image = ImageIO.read(converted.openStream());
+		Assert.assertEquals(original.getWidth(), image.getWidth());
+		Assert.assertEquals(original.getHeight(), image.getHeight());
+	}
+}
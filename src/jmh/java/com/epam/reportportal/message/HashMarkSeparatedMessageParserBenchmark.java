@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.message;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of RP_MESSAGE formatted log messages referencing a file or carrying base64 content.
+ * Both include detection of the attachment type
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class HashMarkSeparatedMessageParserBenchmark {
+
+	@Param({ "FILE", "BASE64" })
+	public String type;
+
+	private final MessageParser parser = new HashMarkSeparatedMessageParser();
+	private File file;
+	private String message;
+
+	@Setup(Level.Trial)
+	public void createMessage() throws IOException {
+		String content = Strings.repeat("2018-01-01 10:00:00 INFO step passed\n", 256);
+		file = File.createTempFile("rp-benchmark", ".log");
+		Files.write(content, file, Charsets.UTF_8);
+		String payload = "FILE".equals(type) ? file.getPath() : BaseEncoding.base64().encode(content.getBytes(Charsets.UTF_8));
+		message = "RP_MESSAGE#" + type + "#" + payload + "#Attached log";
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Benchmark
+	public ReportPortalMessage parse() throws IOException {
+		return parser.parse(message);
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.message.ReportPortalMessage;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import io.reactivex.Maybe;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link ReportPortal#emitLog} for a text log, a log with file and {@link ReportPortalMessage} built
+ * from a file. Launch is finished after every iteration, so logs emitted during the iteration are sent
+ * to the stand-in server before the next one starts
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EmitLogBenchmark {
+
+	@Param({ "text", "file", "message" })
+	public String kind;
+
+	private File file;
+	private Launch launch;
+	private Maybe<String> item;
+
+	@Setup(Level.Trial)
+	public void createFile() throws IOException {
+		file = File.createTempFile("rp-benchmark", ".log");
+		Files.write(Strings.repeat("2018-01-01 10:00:00 INFO step passed\n", 256), file, Charsets.UTF_8);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteFile() {
+		file.delete();
+	}
+
+	@Setup(Level.Iteration)
+	public void startItem() {
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setClientIds(true);
+
+		StartLaunchRQ launchRq = new StartLaunchRQ();
+		launchRq.setName("Emit log benchmark");
+		launchRq.setStartTime(Calendar.getInstance().getTime());
+		launch = ReportPortal.create(new StandInReportPortalClient(), parameters).newLaunch(launchRq);
+		launch.start();
+		Maybe<String> suite = launch.startTestItem(item("Suite", "SUITE"));
+		item = launch.startTestItem(suite, item("Step", "STEP"));
+	}
+
+	@TearDown(Level.Iteration)
+	public void finishLaunch() {
+		launch.finishTestItem(item, finish());
+		FinishExecutionRQ rq = new FinishExecutionRQ();
+		rq.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(rq);
+	}
+
+	@Benchmark
+	public boolean emitLog() throws IOException {
+		if ("file".equals(kind)) {
+			return ReportPortal.emitLog("Log with file", "INFO", new Date(), file);
+		}
+		if ("message".equals(kind)) {
+			return ReportPortal.emitLog(new ReportPortalMessage(file, "Log with message"), "INFO", new Date());
+		}
+		return ReportPortal.emitLog("Text log", "INFO", new Date());
+	}
+
+	private static StartTestItemRQ item(String name, String type) {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName(name);
+		rq.setType(type);
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static FinishTestItemRQ finish() {
+		FinishTestItemRQ rq = new FinishTestItemRQ();
+		rq.setStatus("PASSED");
+		rq.setEndTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+}
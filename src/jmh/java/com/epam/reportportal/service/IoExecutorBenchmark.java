@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.item.ItemCreatedRS;
+import io.reactivex.MaybeObserver;
+import io.reactivex.disposables.Disposable;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Calendar;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares fixed pool of rp-io threads with virtual thread per request. Each invocation keeps given count of
+ * requests in flight through {@link com.epam.reportportal.restendpoint.http.HttpClientRestEndpoint} against
+ * {@link StandInReportPortalServer} answering with given latency. Connection pool is sized to the count of requests
+ * in flight, so the executor is the only limit. Peak RSS and thread count of the forked JVM are printed at the end
+ * of each trial (Linux only). Virtual mode falls back to the fixed pool on JVMs older than 21
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class IoExecutorBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean virtualThreads;
+
+	@Param({ "1000" })
+	public int inFlight;
+
+	@Param({ "10" })
+	public long latencyMillis;
+
+	private StandInReportPortalServer server;
+	private ExecutorService executor;
+	private ReportPortalClient client;
+
+	@Setup(Level.Trial)
+	public void createClient() throws IOException {
+		server = StandInReportPortalServer.builder().latency(latencyMillis).start();
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setBaseUrl(server.getBaseUrl());
+		parameters.setProjectName(StandInReportPortalServer.PROJECT);
+		parameters.setUuid("io-executor-benchmark");
+		parameters.setIoVirtualThreads(virtualThreads);
+		parameters.setMaxConnectionsPerRoute(inFlight);
+		parameters.setMaxConnectionsTotal(inFlight);
+		client = new ReportPortal.Builder() {
+			@Override
+			protected ExecutorService buildExecutorService(ListenerParameters parameters) {
+				executor = super.buildExecutorService(parameters);
+				return executor;
+			}
+		}.withParameters(parameters).build().getClient();
+	}
+
+	@TearDown(Level.Trial)
+	public void closeClient() throws IOException {
+		client.close();
+		//threads of I/O pool are not daemons and keep forked JVM alive otherwise
+		executor.shutdownNow();
+		server.stop();
+		System.out.println();
+		System.out.println("Requests: " + server.getTotalRequests() + ", peak RSS: " + procStatus("VmHWM") + ", peak threads: "
+				+ ManagementFactory.getThreadMXBean().getPeakThreadCount());
+	}
+
+	@Benchmark
+	public long requests() throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(inFlight);
+		final AtomicLong failed = new AtomicLong();
+		for (int i = 0; i < inFlight; i++) {
+			client.startTestItem(item()).subscribe(new MaybeObserver<ItemCreatedRS>() {
+				@Override
+				public void onSubscribe(Disposable d) {
+				}
+
+				@Override
+				public void onSuccess(ItemCreatedRS rs) {
+					done.countDown();
+				}
+
+				@Override
+				public void onError(Throwable e) {
+					failed.incrementAndGet();
+					done.countDown();
+				}
+
+				@Override
+				public void onComplete() {
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		return failed.get();
+	}
+
+	private static StartTestItemRQ item() {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName("Benchmark");
+		rq.setType("STEP");
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static String procStatus(String key) throws IOException {
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader("/proc/self/status"));
+			String line;
+			while (null != (line = reader.readLine())) {
+				if (line.startsWith(key + ":")) {
+					return line.substring(key.length() + 1).trim();
+				}
+			}
+			return "n/a";
+		} catch (IOException e) {
+			return "n/a";
+		} finally {
+			if (null != reader) {
+				reader.close();
+			}
+		}
+	}
+}
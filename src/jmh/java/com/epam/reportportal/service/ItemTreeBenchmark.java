@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import io.reactivex.Maybe;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of bookkeeping of {@link LaunchImpl#startTestItem(Maybe, StartTestItemRQ)} and
+ * {@link LaunchImpl#finishTestItem(Maybe, FinishTestItemRQ)}: every operation starts and finishes a leaf of a suite.
+ * Requests are answered by the stand-in server without latency
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ItemTreeBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean clientIds;
+
+	private Launch launch;
+	private Maybe<String> suite;
+
+	@Setup(Level.Iteration)
+	public void startSuite() {
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setClientIds(clientIds);
+
+		StartLaunchRQ launchRq = new StartLaunchRQ();
+		launchRq.setName("Item tree benchmark");
+		launchRq.setStartTime(Calendar.getInstance().getTime());
+		launch = ReportPortal.create(new StandInReportPortalClient(), parameters).newLaunch(launchRq);
+		launch.start();
+		suite = launch.startTestItem(item("Suite", "SUITE"));
+	}
+
+	@TearDown(Level.Iteration)
+	public void finishLaunch() {
+		launch.finishTestItem(suite, finish());
+		FinishExecutionRQ rq = new FinishExecutionRQ();
+		rq.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(rq);
+	}
+
+	@Benchmark
+	public Maybe<String> startFinishLeaf() {
+		Maybe<String> leaf = launch.startTestItem(suite, item("Step", "STEP"));
+		launch.finishTestItem(leaf, finish());
+		return leaf;
+	}
+
+	private static StartTestItemRQ item(String name, String type) {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName(name);
+		rq.setType(type);
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static FinishTestItemRQ finish() {
+		FinishTestItemRQ rq = new FinishTestItemRQ();
+		rq.setStatus("PASSED");
+		rq.setEndTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import io.reactivex.Maybe;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link Launch#finish(FinishExecutionRQ)} takes for a launch with one suite of
+ * many leaves which are still being finished on the stand-in server. Finish concurrency
+ * of 1 is equal to sequential {@link io.reactivex.Completable#concat(Iterable)} of children
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LaunchFinishBenchmark {
+
+	@Param({ "1", "128" })
+	public int finishConcurrency;
+
+	@Param({ "10000" })
+	public int leaves;
+
+	@Param({ "5" })
+	public long latencyMillis;
+
+	@Param({ "20" })
+	public long jitterMillis;
+
+	private Launch launch;
+
+	@Setup(Level.Invocation)
+	public void reportItems() {
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setFinishConcurrency(finishConcurrency);
+
+		StartLaunchRQ launchRq = new StartLaunchRQ();
+		launchRq.setName("Launch finish benchmark");
+		launchRq.setStartTime(Calendar.getInstance().getTime());
+		launch = ReportPortal.create(new StandInReportPortalClient(latencyMillis, jitterMillis), parameters).newLaunch(launchRq);
+		launch.start();
+
+		Maybe<String> suite = launch.startTestItem(item("Suite", "SUITE"));
+		for (int i = 0; i < leaves; i++) {
+			Maybe<String> leaf = launch.startTestItem(suite, item("Step " + i, "STEP"));
+			launch.finishTestItem(leaf, finish());
+		}
+		launch.finishTestItem(suite, finish());
+	}
+
+	@Benchmark
+	public void finishLaunch() {
+		FinishExecutionRQ rq = new FinishExecutionRQ();
+		rq.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(rq);
+	}
+
+	private static StartTestItemRQ item(String name, String type) {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName(name);
+		rq.setType(type);
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static FinishTestItemRQ finish() {
+		FinishTestItemRQ rq = new FinishTestItemRQ();
+		rq.setStatus("PASSED");
+		rq.setEndTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+}
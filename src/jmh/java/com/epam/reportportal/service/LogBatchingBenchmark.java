@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Function;
+import io.reactivex.Maybe;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link LoggingContext} packing logs into batches. Every invocation emits logs of a test item
+ * and waits for all of them to be sent to the stand-in server
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@OperationsPerInvocation(LogBatchingBenchmark.LOGS)
+public class LogBatchingBenchmark {
+
+	static final int LOGS = 1000;
+
+	@Param({ "1", "10", "100" })
+	public int batchSize;
+
+	private ReportingSchedulers schedulers;
+	private ReportPortalClient client;
+
+	@Setup(Level.Trial)
+	public void createClient() {
+		schedulers = ReportingSchedulers.getDefault();
+		client = new StandInReportPortalClient();
+	}
+
+	@Benchmark
+	public void emitLogs() {
+		LogBatcher batcher = new LogBatcher(client,
+				batchSize,
+				LoggingContext.DEFAULT_BATCH_BYTES,
+				LoggingContext.DEFAULT_BATCH_LINGER,
+				schedulers.getLogs().getScheduler(),
+				null,
+				null
+		);
+		LoggingContext context = new LoggingContext(Maybe.just("item"), batcher, true, null, schedulers);
+		for (int i = 0; i < LOGS; i++) {
+			context.emit(LOG);
+		}
+		context.completed().blockingAwait();
+	}
+
+	private static final Function<String, SaveLogRQ> LOG = new Function<String, SaveLogRQ>() {
+		@Override
+		public SaveLogRQ apply(String itemId) {
+			SaveLogRQ rq = new SaveLogRQ();
+			rq.setTestItemId(itemId);
+			rq.setLevel("INFO");
+			rq.setLogTime(Calendar.getInstance().getTime());
+			rq.setMessage("Log batching benchmark message");
+			return rq;
+		}
+	};
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.restendpoint.serializer.Serializer;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of a batch of logs to JSON part of multipart request, with the object mapper
+ * configured by {@link ReportPortal.Builder}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LogSerializationBenchmark {
+
+	@Param({ "10", "100" })
+	public int batchSize;
+
+	private Serializer serializer;
+	private List<SaveLogRQ> batch;
+
+	@Setup(Level.Trial)
+	public void createBatch() {
+		serializer = new ReportPortal.Builder().buildJsonSerializer();
+		batch = new ArrayList<SaveLogRQ>(batchSize);
+		for (int i = 0; i < batchSize; i++) {
+			SaveLogRQ rq = new SaveLogRQ();
+			rq.setTestItemId("item-" + i);
+			rq.setLevel("INFO");
+			rq.setLogTime(Calendar.getInstance().getTime());
+			rq.setMessage("Step " + i + ": expected element to be visible within 10 seconds");
+			if (i % 5 == 0) {
+				SaveLogRQ.File file = new SaveLogRQ.File();
+				file.setName("screenshot-" + i);
+				file.setContentType("image/png");
+				rq.setFile(file);
+			}
+			batch.add(rq);
+		}
+	}
+
+	@Benchmark
+	public byte[] serialize() throws Exception {
+		return serializer.serialize(batch);
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the client in a fresh JVM: time until {@link ReportPortal#newLaunch(StartLaunchRQ)} returns
+ * to the test framework and time until the first request is answered by the stand-in server. Eager mode builds
+ * executor, HTTP client and serializer in {@link ReportPortal.Builder#build()} the way it was done before
+ * they were built on the first request
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+	@Param({ "lazy", "eager" })
+	public String mode;
+
+	private StandInReportPortalServer server;
+	private ListenerParameters parameters;
+	private ReportPortal reportPortal;
+	private volatile ExecutorService executor;
+
+	@Setup(Level.Trial)
+	public void startServer() throws IOException {
+		server = StandInReportPortalServer.builder().start();
+		parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setBaseUrl(server.getBaseUrl());
+		parameters.setProjectName(StandInReportPortalServer.PROJECT);
+		parameters.setUuid("startup-benchmark");
+	}
+
+	@TearDown(Level.Trial)
+	public void stopServer() throws IOException {
+		reportPortal.getClient().close();
+		//threads of I/O pool are not daemons and keep forked JVM alive otherwise
+		if (null != executor) {
+			executor.shutdownNow();
+		}
+		server.stop();
+	}
+
+	@Benchmark
+	public Launch newLaunch() {
+		return launch();
+	}
+
+	@Benchmark
+	public String firstRequest() {
+		return launch().start().blockingGet();
+	}
+
+	private Launch launch() {
+		reportPortal = new ReportPortal.Builder() {
+			@Override
+			protected ExecutorService buildExecutorService(ListenerParameters parameters) {
+				executor = super.buildExecutorService(parameters);
+				return executor;
+			}
+		}.withParameters(parameters).build();
+		if ("eager".equals(mode)) {
+			((LazyReportPortalClient) reportPortal.getClient()).build();
+		}
+		StartLaunchRQ rq = new StartLaunchRQ();
+		rq.setName("Startup benchmark");
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return reportPortal.newLaunch(rq);
+	}
+}
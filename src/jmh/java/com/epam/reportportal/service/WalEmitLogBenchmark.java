@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.io.Files;
+import io.reactivex.Maybe;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latency of {@link ReportPortal#emitLog(com.google.common.base.Function)} with and without write-ahead log.
+ * Log is materialized on the calling thread as soon as it is emitted, before the server responds to start of the item,
+ * and handed to the writer thread of the write-ahead log, which serializes it and copies it to the segment.
+ * Budget of the write-ahead log is 5 microseconds of p99 latency over the run without it, with and without attachment
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class WalEmitLogBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean wal;
+
+	@Param({ "0", "10240" })
+	public int attachmentSize;
+
+	private File walDir;
+	private Launch launch;
+	private Maybe<String> item;
+	private byte[] attachment;
+
+	@Setup(Level.Trial)
+	public void startItem() {
+		walDir = Files.createTempDir();
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setWal(wal);
+		parameters.setWalDir(walDir.getPath());
+
+		StartLaunchRQ launchRq = new StartLaunchRQ();
+		launchRq.setName("Write-ahead log benchmark");
+		launchRq.setStartTime(Calendar.getInstance().getTime());
+		launch = ReportPortal.create(new StandInReportPortalClient(), parameters).newLaunch(launchRq);
+		launch.start();
+		Maybe<String> suite = launch.startTestItem(item("Suite", "SUITE"));
+		item = launch.startTestItem(suite, item("Step", "STEP"));
+
+		attachment = new byte[attachmentSize];
+		Arrays.fill(attachment, (byte) 'a');
+	}
+
+	@TearDown(Level.Trial)
+	public void finishLaunch() {
+		launch.finishTestItem(item, finish());
+		FinishExecutionRQ rq = new FinishExecutionRQ();
+		rq.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(rq);
+	}
+
+	@Benchmark
+	public boolean emitLog() {
+		return ReportPortal.emitLog(new com.google.common.base.Function<String, SaveLogRQ>() {
+			@Override
+			public SaveLogRQ apply(String itemId) {
+				SaveLogRQ rq = new SaveLogRQ();
+				rq.setTestItemId(itemId);
+				rq.setLevel("INFO");
+				rq.setLogTime(Calendar.getInstance().getTime());
+				rq.setMessage("Write-ahead log benchmark message");
+				if (attachment.length > 0) {
+					SaveLogRQ.File file = new SaveLogRQ.File();
+					file.setName("attachment.txt");
+					file.setContentType("text/plain");
+					file.setContent(attachment);
+					rq.setFile(file);
+				}
+				return rq;
+			}
+		});
+	}
+
+	private static StartTestItemRQ item(String name, String type) {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName(name);
+		rq.setType(type);
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static FinishTestItemRQ finish() {
+		FinishTestItemRQ rq = new FinishTestItemRQ();
+		rq.setStatus("PASSED");
+		rq.setEndTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of detection of attachment type. Tika mode runs Tika detector the way every attachment was detected before
+ * the header fast path. First detection is measured in a fresh JVM, so it includes initialization of detectors.
+ * PDF is not recognized by header and is detected by Tika, then served by the cache
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MimeTypeDetectorBenchmark {
+
+	@Param({ "png", "json", "log", "pdf" })
+	public String type;
+
+	private ByteSource attachment;
+	private String name;
+	private final ContentTypeDetector tika = new TikaContentTypeDetector();
+
+	@Setup(Level.Trial)
+	public void createAttachment() {
+		byte[] content = new byte[256 * 1024];
+		new Random(42).nextBytes(content);
+		if ("png".equals(type)) {
+			System.arraycopy(new byte[] { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' }, 0, content, 0, 8);
+		} else if ("pdf".equals(type)) {
+			System.arraycopy("%PDF-1.4\n".getBytes(Charsets.US_ASCII), 0, content, 0, 9);
+		} else {
+			String line = "json".equals(type) ? "{\"name\": \"step\", \"status\": \"PASSED\"},\n" : "2018-01-01 10:00:00 INFO step passed\n";
+			content = Strings.repeat(line, content.length / line.length()).getBytes(Charsets.UTF_8);
+		}
+		attachment = ByteSource.wrap(content);
+		name = "attachment." + type;
+	}
+
+	@Benchmark
+	public String detect() throws IOException {
+		return MimeTypeDetector.detect(attachment, name);
+	}
+
+	@Benchmark
+	public String tika() throws IOException {
+		return tika.detect(attachment, name);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 0)
+	@Measurement(iterations = 1)
+	@Fork(5)
+	public String firstDetection() throws IOException {
+		return MimeTypeDetector.detect(attachment, name);
+	}
+}
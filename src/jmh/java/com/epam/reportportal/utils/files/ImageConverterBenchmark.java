@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils.files;
+
+import com.google.common.io.ByteSource;
+import org.openjdk.jmh.annotations.*;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts PNG screenshots of common sizes to black and white. Legacy mode draws decoded image on a gray
+ * canvas with {@link Graphics2D#drawImage(Image, int, int, java.awt.image.ImageObserver)}, the way converter
+ * did it before options were introduced. Average size of converted image is printed at the end of each trial
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImageConverterBenchmark {
+
+	@Param({ "1280x720", "1920x1080", "3840x2160" })
+	public String size;
+
+	@Param({ "legacy", "png", "png-fast", "jpeg", "jpeg-1280" })
+	public String mode;
+
+	private ByteSource screenshot;
+	private ImageConverter.Options options;
+	private long outputBytes;
+	private long conversions;
+
+	@Setup(Level.Trial)
+	public void createScreenshot() throws IOException {
+		String[] dimensions = size.split("x");
+		screenshot = ByteSource.wrap(png(screenshot(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]))));
+		if ("png".equals(mode)) {
+			options = ImageConverter.Options.DEFAULT;
+		} else if ("png-fast".equals(mode)) {
+			options = ImageConverter.Options.builder().compressionLevel(1).build();
+		} else if ("jpeg".equals(mode)) {
+			options = ImageConverter.Options.builder().format(ImageConverter.Format.JPEG).build();
+		} else if ("jpeg-1280".equals(mode)) {
+			options = ImageConverter.Options.builder().format(ImageConverter.Format.JPEG).maxDimension(1280).build();
+		}
+		outputBytes = 0;
+		conversions = 0;
+	}
+
+	@TearDown(Level.Trial)
+	public void printOutputSize() {
+		System.out.println();
+		System.out.println("Screenshot: " + screenshot.sizeIfKnown().get() + " bytes, converted: " + outputBytes / Math.max(1, conversions)
+				+ " bytes");
+	}
+
+	@Benchmark
+	public byte[] convert() throws IOException {
+		byte[] converted = null == options ? legacy(screenshot) : ImageConverter.convert(screenshot, options).read();
+		outputBytes += converted.length;
+		conversions++;
+		return converted;
+	}
+
+	private static byte[] legacy(ByteSource source) throws IOException {
+		BufferedImage image = ImageIO.read(source.openBufferedStream());
+		BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+		Graphics2D graphics = gray.createGraphics();
+		graphics.drawImage(image, 0, 0, null);
+		graphics.dispose();
+		return png(gray);
+	}
+
+	private static byte[] png(BufferedImage image) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", out);
+		return out.toByteArray();
+	}
+
+	/* flat UI: panels, buttons, lines of text and a photo-like area */
+	private static BufferedImage screenshot(int width, int height) {
+		Random random = new Random(width * 31 + height);
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setColor(new Color(0xf5f5f5));
+		graphics.fillRect(0, 0, width, height);
+		graphics.setColor(new Color(0x2b579a));
+		graphics.fillRect(0, 0, width, height / 16);
+		graphics.setColor(new Color(0xe0e0e0));
+		graphics.fillRect(0, height / 16, width / 6, height);
+		graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, Math.max(12, height / 60)));
+		int line = graphics.getFontMetrics().getHeight();
+		for (int y = height / 8; y < height; y += line) {
+			graphics.setColor(new Color(random.nextInt(0x808080)));
+			graphics.drawString("Step " + y + ": expected element to be visible within 10 seconds", width / 5, y);
+		}
+		for (int i = 0; i < 12; i++) {
+			graphics.setColor(new Color(random.nextInt(0xffffff)));
+			graphics.fillRoundRect(width / 5 + i * width / 16, height / 12, width / 20, height / 30, 8, 8);
+		}
+		int photoX = width * 2 / 3;
+		int photoY = height / 2;
+		for (int y = photoY; y < height - 10; y++) {
+			for (int x = photoX; x < width - 10; x++) {
+				image.setRGB(x, y, ((x * 7) & 0xff) << 16 | ((y * 3) & 0xff) << 8 | random.nextInt(64));
+			}
+		}
+		graphics.dispose();
+		return image;
+	}
+}
@@ -16,11 +16,17 @@
 package com.epam.reportportal.listeners;
 
 import com.epam.reportportal.service.LoggingContext;
+import com.epam.reportportal.service.transport.HttpTransport;
 import com.epam.reportportal.utils.TagsParser;
 import com.epam.reportportal.utils.properties.PropertiesLoader;
 import com.epam.ta.reportportal.ws.model.launch.Mode;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.util.Set;
 
 import static com.epam.reportportal.utils.properties.ListenerProperty.*;
@@ -30,14 +36,37 @@ import static com.epam.reportportal.utils.properties.ListenerProperty.*;
  */
 public class ListenerParameters {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(ListenerParameters.class);
+
 	private static final int DEFAULT_REPORTING_TIMEOUT = 5 * 60;
 	private static final int DEFAULT_IO_POOL_SIZE = 100;
+	private static final boolean DEFAULT_IO_VIRTUAL_THREADS = false;
+	private static final HttpTransport DEFAULT_HTTP_TRANSPORT = HttpTransport.SYNC;
 	private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 50;
 	private static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 100;
 	private static final boolean DEFAULT_ENABLE = true;
 	private static final boolean DEFAULT_SKIP_ISSUE = true;
 	private static final boolean DEFAULT_CONVERT_IMAGE = false;
 	private static final boolean DEFAULT_RETURN = false;
+	private static final boolean DEFAULT_CLIENT_IDS = false;
+	private static final int DEFAULT_FINISH_CONCURRENCY = 128;
+	private static final int DEFAULT_ITEMS_POOL_SIZE = 4;
+	private static final int DEFAULT_LOGS_POOL_SIZE = 4;
+	private static final int DEFAULT_PROCESSING_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+	private static final int DEFAULT_PROCESSING_QUEUE_SIZE = 100;
+	private static final boolean DEFAULT_COMPRESSION = false;
+	private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+	private static final int DEFAULT_COMPRESSION_CPU_BUDGET = 25;
+	private static final boolean DEFAULT_OFFLINE = false;
+	private static final String DEFAULT_OFFLINE_JOURNAL = "reportportal.journal";
+	private static final boolean DEFAULT_WAL = false;
+	private static final String DEFAULT_WAL_DIR = new File(System.getProperty("java.io.tmpdir"), "reportportal-wal").getPath();
+	private static final int DEFAULT_WAL_SYNC_INTERVAL = 10;
+	private static final int DEFAULT_ATTACHMENT_CACHE_SIZE = 32 * 1024 * 1024;
+	private static final int DEFAULT_CONVERT_IMAGE_MAX_DIMENSION = 0;
+	private static final String DEFAULT_CONVERT_IMAGE_FORMAT = "png";
+	private static final int DEFAULT_CONVERT_IMAGE_QUALITY = 85;
+	private static final int DEFAULT_CONVERT_IMAGE_COMPRESSION = -1;
 
 	private String description;
 	private String uuid;
@@ -49,28 +78,80 @@ public class ListenerParameters {
 	private Boolean enable;
 	private Boolean isSkippedAnIssue;
 	private Integer batchLogsSize;
+	private Integer batchLogsBytes;
+	private Integer batchLogsLinger;
 	private boolean convertImage;
 	private Integer reportingTimeout;
 	private String keystore;
 	private String keystorePassword;
 	private boolean rerun;
 	private Integer ioPoolSize;
+	private boolean ioVirtualThreads;
+	private HttpTransport httpTransport;
 	private Integer maxConnectionsPerRoute;
 	private Integer maxConnectionsTotal;
+	private boolean clientIds;
+	private int finishConcurrency;
+	private Integer itemsPoolSize;
+	private Integer logsPoolSize;
+	private Integer processingPoolSize;
+	private Integer processingQueueSize;
+	private boolean compression;
+	private Integer compressionThreshold;
+	private Integer compressionCpuBudget;
+	private boolean offline;
+	private String offlineJournal;
+	private boolean wal;
+	private String walDir;
+	private Integer walSyncInterval;
+	private Integer attachmentCacheSize;
+	private Integer convertImageMaxDimension;
+	private String convertImageFormat;
+	private Integer convertImageQuality;
+	private Integer convertImageCompression;
 
 	public ListenerParameters() {
 
 		this.isSkippedAnIssue = DEFAULT_SKIP_ISSUE;
 
 		this.batchLogsSize = LoggingContext.DEFAULT_BUFFER_SIZE;
+		this.batchLogsBytes = LoggingContext.DEFAULT_BATCH_BYTES;
+		this.batchLogsLinger = LoggingContext.DEFAULT_BATCH_LINGER;
 		this.convertImage = DEFAULT_CONVERT_IMAGE;
 		this.reportingTimeout = DEFAULT_REPORTING_TIMEOUT;
 
 		this.rerun = DEFAULT_RETURN;
 
 		this.ioPoolSize = DEFAULT_IO_POOL_SIZE;
+		this.ioVirtualThreads = DEFAULT_IO_VIRTUAL_THREADS;
+		this.httpTransport = DEFAULT_HTTP_TRANSPORT;
 		this.maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
 		this.maxConnectionsTotal = DEFAULT_MAX_CONNECTIONS_TOTAL;
+
+		this.clientIds = DEFAULT_CLIENT_IDS;
+		this.finishConcurrency = DEFAULT_FINISH_CONCURRENCY;
+
+		this.itemsPoolSize = DEFAULT_ITEMS_POOL_SIZE;
+		this.logsPoolSize = DEFAULT_LOGS_POOL_SIZE;
+		this.processingPoolSize = DEFAULT_PROCESSING_POOL_SIZE;
+		this.processingQueueSize = DEFAULT_PROCESSING_QUEUE_SIZE;
+
+		this.compression = DEFAULT_COMPRESSION;
+		this.compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+		this.compressionCpuBudget = DEFAULT_COMPRESSION_CPU_BUDGET;
+
+		this.offline = DEFAULT_OFFLINE;
+		this.offlineJournal = DEFAULT_OFFLINE_JOURNAL;
+
+		this.wal = DEFAULT_WAL;
+		this.walDir = DEFAULT_WAL_DIR;
+		this.walSyncInterval = DEFAULT_WAL_SYNC_INTERVAL;
+
+		this.attachmentCacheSize = DEFAULT_ATTACHMENT_CACHE_SIZE;
+		this.convertImageMaxDimension = DEFAULT_CONVERT_IMAGE_MAX_DIMENSION;
+		this.convertImageFormat = DEFAULT_CONVERT_IMAGE_FORMAT;
+		this.convertImageQuality = DEFAULT_CONVERT_IMAGE_QUALITY;
+		this.convertImageCompression = DEFAULT_CONVERT_IMAGE_COMPRESSION;
 	}
 
 	public ListenerParameters(PropertiesLoader properties) {
@@ -85,6 +166,8 @@ public class ListenerParameters {
 		this.isSkippedAnIssue = properties.getPropertyAsBoolean(SKIPPED_AS_ISSUE, DEFAULT_SKIP_ISSUE);
 
 		this.batchLogsSize = properties.getPropertyAsInt(BATCH_SIZE_LOGS, LoggingContext.DEFAULT_BUFFER_SIZE);
+		this.batchLogsBytes = properties.getPropertyAsInt(BATCH_SIZE_BYTES, LoggingContext.DEFAULT_BATCH_BYTES);
+		this.batchLogsLinger = properties.getPropertyAsInt(BATCH_LINGER, LoggingContext.DEFAULT_BATCH_LINGER);
 		this.convertImage = properties.getPropertyAsBoolean(IS_CONVERT_IMAGE, DEFAULT_CONVERT_IMAGE);
 		this.reportingTimeout = properties.getPropertyAsInt(REPORTING_TIMEOUT, DEFAULT_REPORTING_TIMEOUT);
 
@@ -93,8 +176,39 @@ public class ListenerParameters {
 		this.rerun = properties.getPropertyAsBoolean(RERUN, DEFAULT_RETURN);
 
 		this.ioPoolSize = properties.getPropertyAsInt(IO_POOL_SIZE, DEFAULT_IO_POOL_SIZE);
+		this.ioVirtualThreads = properties.getPropertyAsBoolean(IO_VIRTUAL_THREADS, DEFAULT_IO_VIRTUAL_THREADS);
+		this.httpTransport = HttpTransport.parse(properties.getProperty(HTTP_TRANSPORT));
 		this.maxConnectionsPerRoute = properties.getPropertyAsInt(MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
 		this.maxConnectionsTotal = properties.getPropertyAsInt(MAX_CONNECTIONS_TOTAL, DEFAULT_MAX_CONNECTIONS_TOTAL);
+
+		this.clientIds = properties.getPropertyAsBoolean(CLIENT_IDS, DEFAULT_CLIENT_IDS);
+		this.finishConcurrency = parseFinishConcurrency(properties.getPropertyAsInt(FINISH_CONCURRENCY, DEFAULT_FINISH_CONCURRENCY));
+
+		this.itemsPoolSize = properties.getPropertyAsInt(ITEMS_POOL_SIZE, DEFAULT_ITEMS_POOL_SIZE);
+		this.logsPoolSize = properties.getPropertyAsInt(LOGS_POOL_SIZE, DEFAULT_LOGS_POOL_SIZE);
+		this.processingPoolSize = properties.getPropertyAsInt(PROCESSING_POOL_SIZE, DEFAULT_PROCESSING_POOL_SIZE);
+		this.processingQueueSize = properties.getPropertyAsInt(PROCESSING_QUEUE_SIZE, DEFAULT_PROCESSING_QUEUE_SIZE);
+
+		this.compression = properties.getPropertyAsBoolean(COMPRESSION, DEFAULT_COMPRESSION);
+		this.compressionThreshold = properties.getPropertyAsInt(COMPRESSION_THRESHOLD, DEFAULT_COMPRESSION_THRESHOLD);
+		this.compressionCpuBudget = properties.getPropertyAsInt(COMPRESSION_CPU_BUDGET, DEFAULT_COMPRESSION_CPU_BUDGET);
+
+		this.offline = properties.getPropertyAsBoolean(OFFLINE, DEFAULT_OFFLINE);
+		this.offlineJournal = MoreObjects.firstNonNull(properties.getProperty(OFFLINE_JOURNAL), DEFAULT_OFFLINE_JOURNAL);
+
+		this.wal = properties.getPropertyAsBoolean(WAL, DEFAULT_WAL);
+		this.walDir = MoreObjects.firstNonNull(properties.getProperty(WAL_DIR), DEFAULT_WAL_DIR);
+		this.walSyncInterval = properties.getPropertyAsInt(WAL_SYNC_INTERVAL, DEFAULT_WAL_SYNC_INTERVAL);
+
+		this.attachmentCacheSize = properties.getPropertyAsInt(ATTACHMENT_CACHE_SIZE, DEFAULT_ATTACHMENT_CACHE_SIZE);
+		this.convertImageMaxDimension = properties.getPropertyAsInt(CONVERT_IMAGE_MAX_DIMENSION, DEFAULT_CONVERT_IMAGE_MAX_DIMENSION);
+		this.convertImageFormat = MoreObjects.firstNonNull(properties.getProperty(CONVERT_IMAGE_FORMAT), DEFAULT_CONVERT_IMAGE_FORMAT);
+		this.convertImageQuality = parseConvertImageQuality(properties.getPropertyAsInt(CONVERT_IMAGE_QUALITY,
+				DEFAULT_CONVERT_IMAGE_QUALITY
+		));
+		this.convertImageCompression = parseConvertImageCompression(properties.getPropertyAsInt(CONVERT_IMAGE_COMPRESSION,
+				DEFAULT_CONVERT_IMAGE_COMPRESSION
+		));
 	}
 
 	public String getDescription() {
@@ -177,6 +291,28 @@ public class ListenerParameters {
 		this.batchLogsSize = batchLogsSize;
 	}
 
+	/**
+	 * @return Max size of attachments and messages of a log batch in bytes. Single log of bigger size is sent alone
+	 */
+	public Integer getBatchLogsBytes() {
+		return batchLogsBytes;
+	}
+
+	public void setBatchLogsBytes(Integer batchLogsBytes) {
+		this.batchLogsBytes = batchLogsBytes;
+	}
+
+	/**
+	 * @return Max time in milliseconds the first log of a batch waits for the batch to fill. 0 to wait for count or size only
+	 */
+	public Integer getBatchLogsLinger() {
+		return batchLogsLinger;
+	}
+
+	public void setBatchLogsLinger(Integer batchLogsLinger) {
+		this.batchLogsLinger = batchLogsLinger;
+	}
+
 	public boolean isConvertImage() {
 		return convertImage;
 	}
@@ -225,6 +361,29 @@ public class ListenerParameters {
 		this.ioPoolSize = ioPoolSize;
 	}
 
+	/**
+	 * @return Whether HTTP requests should be executed on virtual threads instead of
+	 * fixed pool of {@link #getIoPoolSize()} threads. Requires JDK 21+, ignored on older JVMs
+	 */
+	public boolean isIoVirtualThreads() {
+		return ioVirtualThreads;
+	}
+
+	public void setIoVirtualThreads(boolean ioVirtualThreads) {
+		this.ioVirtualThreads = ioVirtualThreads;
+	}
+
+	/**
+	 * @return HTTP transport of ReportPortal client
+	 */
+	public HttpTransport getHttpTransport() {
+		return httpTransport;
+	}
+
+	public void setHttpTransport(HttpTransport httpTransport) {
+		this.httpTransport = httpTransport;
+	}
+
 	public Integer getMaxConnectionsPerRoute() {
 		return maxConnectionsPerRoute;
 	}
@@ -241,11 +400,257 @@ public class ListenerParameters {
 		this.maxConnectionsTotal = maxConnectionsTotal;
 	}
 
+	/**
+	 * @return TRUE if test item IDs are generated on client side, so item requests are not waiting for parent's response
+	 */
+	public boolean isClientIds() {
+		return clientIds;
+	}
+
+	public void setClientIds(boolean clientIds) {
+		this.clientIds = clientIds;
+	}
+
+	/**
+	 * @return Max count of children observed concurrently while item waits for them before finish
+	 */
+	public int getFinishConcurrency() {
+		return finishConcurrency;
+	}
+
+	public void setFinishConcurrency(int finishConcurrency) {
+		Preconditions.checkArgument(finishConcurrency > 0, "Finish concurrency should be positive");
+		this.finishConcurrency = finishConcurrency;
+	}
+
+	/**
+	 * @return Count of threads processing launch and test items lifecycle
+	 */
+	public Integer getItemsPoolSize() {
+		return itemsPoolSize;
+	}
+
+	public void setItemsPoolSize(Integer itemsPoolSize) {
+		this.itemsPoolSize = itemsPoolSize;
+	}
+
+	/**
+	 * @return Count of threads processing log uploads
+	 */
+	public Integer getLogsPoolSize() {
+		return logsPoolSize;
+	}
+
+	public void setLogsPoolSize(Integer logsPoolSize) {
+		this.logsPoolSize = logsPoolSize;
+	}
+
+	/**
+	 * @return Count of threads doing CPU work like image conversion and serialization
+	 */
+	public Integer getProcessingPoolSize() {
+		return processingPoolSize;
+	}
+
+	public void setProcessingPoolSize(Integer processingPoolSize) {
+		this.processingPoolSize = processingPoolSize;
+	}
+
+	/**
+	 * @return Max count of images waiting for processing. Threads emitting logs wait for room while the queue is full
+	 */
+	public Integer getProcessingQueueSize() {
+		return processingQueueSize;
+	}
+
+	public void setProcessingQueueSize(Integer processingQueueSize) {
+		this.processingQueueSize = processingQueueSize;
+	}
+
+	/**
+	 * @return Whether request bodies should be sent with gzip content encoding. Server (or proxy in front of it)
+	 * should be able to decode compressed requests
+	 */
+	public boolean isCompression() {
+		return compression;
+	}
+
+	public void setCompression(boolean compression) {
+		this.compression = compression;
+	}
+
+	/**
+	 * @return Minimal size in bytes of compressible content for request to be compressed
+	 */
+	public Integer getCompressionThreshold() {
+		return compressionThreshold;
+	}
+
+	public void setCompressionThreshold(Integer compressionThreshold) {
+		this.compressionThreshold = compressionThreshold;
+	}
+
+	/**
+	 * @return Percent of one CPU which may be spent on compression. Requests are sent as is when budget is exceeded
+	 */
+	public Integer getCompressionCpuBudget() {
+		return compressionCpuBudget;
+	}
+
+	public void setCompressionCpuBudget(Integer compressionCpuBudget) {
+		this.compressionCpuBudget = compressionCpuBudget;
+	}
+
+	/**
+	 * @return Whether launches should be recorded to local journal instead of reporting to the server
+	 */
+	public boolean isOffline() {
+		return offline;
+	}
+
+	public void setOffline(boolean offline) {
+		this.offline = offline;
+	}
+
+	/**
+	 * @return Path to journal of offline launches
+	 */
+	public String getOfflineJournal() {
+		return offlineJournal;
+	}
+
+	public void setOfflineJournal(String offlineJournal) {
+		this.offlineJournal = offlineJournal;
+	}
+
+	/**
+	 * @return Whether reporting events should be recorded to write-ahead log to be re-sent after crash of JVM
+	 */
+	public boolean isWal() {
+		return wal;
+	}
+
+	public void setWal(boolean wal) {
+		this.wal = wal;
+	}
+
+	/**
+	 * @return Directory of write-ahead logs
+	 */
+	public String getWalDir() {
+		return walDir;
+	}
+
+	public void setWalDir(String walDir) {
+		this.walDir = walDir;
+	}
+
+	/**
+	 * @return Interval in milliseconds between group commits of write-ahead log to the disk
+	 */
+	public Integer getWalSyncInterval() {
+		return walSyncInterval;
+	}
+
+	public void setWalSyncInterval(Integer walSyncInterval) {
+		this.walSyncInterval = walSyncInterval;
+	}
+
+	/**
+	 * @return Max total size in bytes of converted images cached by their content during a launch. 0 to disable the cache
+	 */
+	public Integer getAttachmentCacheSize() {
+		return attachmentCacheSize;
+	}
+
+	public void setAttachmentCacheSize(Integer attachmentCacheSize) {
+		this.attachmentCacheSize = attachmentCacheSize;
+	}
+
+	/**
+	 * @return Max width and height in pixels of converted images. Larger images are downscaled, 0 to keep the size
+	 */
+	public Integer getConvertImageMaxDimension() {
+		return convertImageMaxDimension;
+	}
+
+	public void setConvertImageMaxDimension(Integer convertImageMaxDimension) {
+		this.convertImageMaxDimension = convertImageMaxDimension;
+	}
+
+	/**
+	 * @return Format of converted images: png or jpeg
+	 */
+	public String getConvertImageFormat() {
+		return convertImageFormat;
+	}
+
+	public void setConvertImageFormat(String convertImageFormat) {
+		this.convertImageFormat = convertImageFormat;
+	}
+
+	/**
+	 * @return Quality of converted JPEG images in percent
+	 */
+	public Integer getConvertImageQuality() {
+		return convertImageQuality;
+	}
+
+	public void setConvertImageQuality(Integer convertImageQuality) {
+		Preconditions.checkArgument(isValidConvertImageQuality(convertImageQuality), "Convert image quality should be in range [0, 100]");
+		this.convertImageQuality = convertImageQuality;
+	}
+
+	/**
+	 * @return Deflate level of converted PNG images from 0 to 9. -1 for default level of the encoder
+	 */
+	public Integer getConvertImageCompression() {
+		return convertImageCompression;
+	}
+
+	public void setConvertImageCompression(Integer convertImageCompression) {
+		Preconditions.checkArgument(isValidConvertImageCompression(convertImageCompression),
+				"Convert image compression should be in range [-1, 9]"
+		);
+		this.convertImageCompression = convertImageCompression;
+	}
+
 	@VisibleForTesting
 	Mode parseLaunchMode(String mode) {
 		return Mode.isExists(mode) ? Mode.valueOf(mode.toUpperCase()) : Mode.DEFAULT;
 	}
 
+	@VisibleForTesting
+	int parseFinishConcurrency(int finishConcurrency) {
+		return finishConcurrency > 0 ? finishConcurrency : DEFAULT_FINISH_CONCURRENCY;
+	}
+
+	@VisibleForTesting
+	int parseConvertImageQuality(int quality) {
+		if (isValidConvertImageQuality(quality)) {
+			return quality;
+		}
+		LOGGER.warn("Ignoring {}={}, it should be in range [0, 100]", CONVERT_IMAGE_QUALITY.getPropertyName(), quality);
+		return DEFAULT_CONVERT_IMAGE_QUALITY;
+	}
+
+	@VisibleForTesting
+	int parseConvertImageCompression(int compression) {
+		if (isValidConvertImageCompression(compression)) {
+			return compression;
+		}
+		LOGGER.warn("Ignoring {}={}, it should be in range [-1, 9]", CONVERT_IMAGE_COMPRESSION.getPropertyName(), compression);
+		return DEFAULT_CONVERT_IMAGE_COMPRESSION;
+	}
+
+	private static boolean isValidConvertImageQuality(Integer quality) {
+		return null != quality && quality >= 0 && quality <= 100;
+	}
+
+	private static boolean isValidConvertImageCompression(Integer compression) {
+		return null != compression && compression >= -1 && compression <= 9;
+	}
+
 	@Override
 	public String toString() {
 		final StringBuilder sb = new StringBuilder("ListenerParameters{");
@@ -259,14 +664,37 @@ public class ListenerParameters {
 		sb.append(", enable=").append(enable);
 		sb.append(", isSkippedAnIssue=").append(isSkippedAnIssue);
 		sb.append(", batchLogsSize=").append(batchLogsSize);
+		sb.append(", batchLogsBytes=").append(batchLogsBytes);
+		sb.append(", batchLogsLinger=").append(batchLogsLinger);
 		sb.append(", convertImage=").append(convertImage);
 		sb.append(", reportingTimeout=").append(reportingTimeout);
 		sb.append(", keystore='").append(keystore).append('\'');
 		sb.append(", keystorePassword='").append(keystorePassword).append('\'');
 		sb.append(", rerun=").append(rerun);
 		sb.append(", ioPoolSize=").append(ioPoolSize);
+		sb.append(", ioVirtualThreads=").append(ioVirtualThreads);
+		sb.append(", httpTransport=").append(httpTransport);
 		sb.append(", maxConnectionsPerRoute=").append(maxConnectionsPerRoute);
 		sb.append(", maxConnectionsTotal=").append(maxConnectionsTotal);
+		sb.append(", clientIds=").append(clientIds);
+		sb.append(", finishConcurrency=").append(finishConcurrency);
+		sb.append(", itemsPoolSize=").append(itemsPoolSize);
+		sb.append(", logsPoolSize=").append(logsPoolSize);
+		sb.append(", processingPoolSize=").append(processingPoolSize);
+		sb.append(", processingQueueSize=").append(processingQueueSize);
+		sb.append(", compression=").append(compression);
+		sb.append(", compressionThreshold=").append(compressionThreshold);
+		sb.append(", compressionCpuBudget=").append(compressionCpuBudget);
+		sb.append(", offline=").append(offline);
+		sb.append(", offlineJournal=").append(offlineJournal);
+		sb.append(", wal=").append(wal);
+		sb.append(", walDir=").append(walDir);
+		sb.append(", walSyncInterval=").append(walSyncInterval);
+		sb.append(", attachmentCacheSize=").append(attachmentCacheSize);
+		sb.append(", convertImageMaxDimension=").append(convertImageMaxDimension);
+		sb.append(", convertImageFormat=").append(convertImageFormat);
+		sb.append(", convertImageQuality=").append(convertImageQuality);
+		sb.append(", convertImageCompression=").append(convertImageCompression);
 		sb.append('}');
 		return sb.toString();
 	}
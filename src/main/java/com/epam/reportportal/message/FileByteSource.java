@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.message;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * {@link ByteSource} of a file which is read only when the content is sent. Transports may copy the file
+ * to the socket with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so content never gets to the heap
+ */
+public class FileByteSource extends ByteSource {
+
+	private final File file;
+
+	public FileByteSource(File file) {
+		this.file = Preconditions.checkNotNull(file);
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @param source Source of content
+	 * @return File backing the source, including one wrapped into {@link TypeAwareByteSource}, or NULL if content is not a file
+	 */
+	public static FileByteSource unwrap(ByteSource source) {
+		if (source instanceof TypeAwareByteSource) {
+			return unwrap(((TypeAwareByteSource) source).getDelegate());
+		}
+		return source instanceof FileByteSource ? (FileByteSource) source : null;
+	}
+
+	@Override
+	public InputStream openStream() throws IOException {
+		return new FileInputStream(file);
+	}
+
+	@Override
+	public Optional<Long> sizeIfKnown() {
+		return file.isFile() ? Optional.of(file.length()) : Optional.<Long>absent();
+	}
+
+	@Override
+	public long size() throws IOException {
+		if (!file.isFile()) {
+			throw new IOException(file + " is not a file");
+		}
+		return file.length();
+	}
+
+	@Override
+	public long copyTo(OutputStream output) throws IOException {
+		return transferTo(Channels.newChannel(output));
+	}
+
+	/**
+	 * Copies the file to the channel. Kernel copies the file directly if the channel is a socket or a file
+	 *
+	 * @param target Channel to copy to
+	 * @return Count of copied bytes
+	 * @throws IOException In case the file cannot be read or the channel cannot be written
+	 */
+	public long transferTo(WritableByteChannel target) throws IOException {
+		FileInputStream stream = new FileInputStream(file);
+		try {
+			FileChannel channel = stream.getChannel();
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				position += channel.transferTo(position, size - position, target);
+			}
+			return position;
+		} finally {
+			stream.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FileByteSource(" + file + ")";
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.message;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Message parsers discovered with {@link ServiceLoader}. Parser of RP_MESSAGE format is provided by
+ * client-java-attachments module
+ */
+public class MessageParsers {
+
+	private MessageParsers() {
+		//statics only
+	}
+
+	/**
+	 * @return Parsers found on the classpath
+	 */
+	public static List<MessageParser> getParsers() {
+		return Holder.PARSERS;
+	}
+
+	/**
+	 * @param message Log message
+	 * @return First parser which supports the message or NULL if there is no such parser
+	 */
+	public static MessageParser forMessage(String message) {
+		for (MessageParser parser : Holder.PARSERS) {
+			if (parser.supports(message)) {
+				return parser;
+			}
+		}
+		return null;
+	}
+
+	private static class Holder {
+		private static final List<MessageParser> PARSERS = ImmutableList.copyOf(ServiceLoader.load(MessageParser.class,
+				MessageParser.class.getClassLoader()
+		));
+	}
+}
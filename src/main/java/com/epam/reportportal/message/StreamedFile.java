@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.message;
+
+import com.epam.reportportal.exception.InternalReportPortalClientException;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Closeables;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Attachment which keeps reference to its content instead of the content itself. Content is streamed
+ * to multipart request body when the log is sent. {@link #getContent()} reads content to memory for those
+ * who need it as byte array, e.g. to record it to a journal, and the array is used from then on
+ */
+public class StreamedFile extends SaveLogRQ.File {
+
+	/* guarded by this */
+	private ByteSource source;
+
+	/**
+	 * @param name        Name of the attachment
+	 * @param contentType Content type of the attachment
+	 * @param source      Content of the attachment
+	 */
+	public StreamedFile(String name, String contentType, ByteSource source) {
+		this.source = Preconditions.checkNotNull(source);
+		setName(name);
+		setContentType(contentType);
+	}
+
+	/**
+	 * @param file Attachment
+	 * @return Content of the attachment without reading it to memory if the attachment is streamed
+	 */
+	public static ByteSource sourceOf(SaveLogRQ.File file) {
+		if (file instanceof StreamedFile) {
+			return ((StreamedFile) file).getSource();
+		}
+		return null == file.getContent() ? ByteSource.empty() : ByteSource.wrap(file.getContent());
+	}
+
+	/**
+	 * Source which may be read only once, for content available as a stream only. If the stream is read to memory,
+	 * the array is read from then on. The stream is closed once it's read or {@link #release(SaveLogRQ.File)} is called
+	 *
+	 * @param stream Content
+	 * @return Source of the content
+	 */
+	public static ByteSource once(final InputStream stream) {
+		return new OnceByteSource(stream);
+	}
+
+	/**
+	 * @param source Content of an attachment
+	 * @return Whether the content may be read again, which is not the case for a stream read only once
+	 */
+	public static boolean isRepeatable(ByteSource source) {
+		if (source instanceof TypeAwareByteSource) {
+			return isRepeatable(((TypeAwareByteSource) source).getDelegate());
+		}
+		return !(source instanceof OnceByteSource);
+	}
+
+	/**
+	 * Closes stream of the attachment if it's read only once, so the stream is closed even if it has never been read
+	 * because the log is not sent. Does nothing for other attachments
+	 *
+	 * @param file Attachment. May be NULL
+	 */
+	public static void release(SaveLogRQ.File file) {
+		if (!(file instanceof StreamedFile)) {
+			return;
+		}
+		ByteSource source = ((StreamedFile) file).getSource();
+		while (source instanceof TypeAwareByteSource) {
+			source = ((TypeAwareByteSource) source).getDelegate();
+		}
+		if (source instanceof OnceByteSource) {
+			((OnceByteSource) source).close();
+		}
+	}
+
+	@JsonIgnore
+	public synchronized ByteSource getSource() {
+		return source;
+	}
+
+	@JsonIgnore
+	@Override
+	public synchronized byte[] getContent() {
+		byte[] content = super.getContent();
+		if (null == content) {
+			try {
+				content = source.read();
+			} catch (IOException e) {
+				throw new InternalReportPortalClientException("Unable to read attachment " + getName(), e);
+			}
+			setContent(content);
+		}
+		return content;
+	}
+
+	@JsonIgnore
+	@Override
+	public synchronized void setContent(byte[] content) {
+		super.setContent(content);
+		source = null == content ? ByteSource.empty() : ByteSource.wrap(content);
+	}
+
+	private static class OnceByteSource extends ByteSource {
+		private final InputStream stream;
+		private final AtomicBoolean opened = new AtomicBoolean();
+
+		OnceByteSource(InputStream stream) {
+			this.stream = Preconditions.checkNotNull(stream);
+		}
+
+		@Override
+		public InputStream openStream() throws IOException {
+			if (!opened.compareAndSet(false, true)) {
+				throw new IOException("Stream of the attachment has been read already");
+			}
+			return stream;
+		}
+
+		void close() {
+			opened.set(true);
+			Closeables.closeQuietly(stream);
+		}
+	}
+}
@@ -15,6 +15,7 @@
  */
 package com.epam.reportportal.message;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteSource;
 
@@ -41,6 +42,20 @@ public class TypeAwareByteSource extends ByteSource {
 		return delegate.openStream();
 	}
 
+	@Override
+	public Optional<Long> sizeIfKnown() {
+		return delegate.sizeIfKnown();
+	}
+
+	@Override
+	public long size() throws IOException {
+		return delegate.size();
+	}
+
+	public ByteSource getDelegate() {
+		return delegate;
+	}
+
 	public String getMediaType() {
 		return mediaType;
 	}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.message.StreamedFile;
+import com.epam.reportportal.utils.files.ImageConverter;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.epam.reportportal.utils.files.ImageConverter.isImage;
+
+/**
+ * Content-addressed cache of converted images of a launch. Images are identified by SHA-256 of their content,
+ * so the same logo or screenshot is converted once, and logs attaching it share a single array of the converted content.
+ * Attachments keep their names, since the name is what the log shows. Cache is bounded by total size of the content
+ * and evicts least recently used images. Attachments which are not converted, and streamed images larger than
+ * {@link #MAX_ATTACHMENT_SIZE}, are never read to memory, so they bypass the cache
+ */
+public class AttachmentCache {
+
+	/* larger attachments are not cached */
+	public static final int MAX_ATTACHMENT_SIZE = 4 * 1024 * 1024;
+
+	private final Cache<String, Attachment> cache;
+	private final Stats stats = new Stats();
+
+	/**
+	 * @param maxBytes Max total size of cached content in bytes
+	 */
+	public AttachmentCache(long maxBytes) {
+		this.cache = CacheBuilder.newBuilder().maximumWeight(maxBytes).weigher(new Weigher<String, Attachment>() {
+			@Override
+			public int weigh(String key, Attachment value) {
+				return value.content.length;
+			}
+		}).build();
+	}
+
+	/**
+	 * Replaces attached image with the cached converted one, converting the image to black and white
+	 * if it has not been cached yet. Other attachments are left as is
+	 *
+	 * @param rq     Log
+	 * @param images Options of image conversion. NULL if images should not be converted
+	 * @return The same log
+	 * @throws Exception In case attachment cannot be read or converted
+	 */
+	SaveLogRQ process(SaveLogRQ rq, final ImageConverter.Options images) throws Exception {
+		final SaveLogRQ.File file = rq.getFile();
+		if (null == file) {
+			return rq;
+		}
+		if (null == images || !isImage(file.getContentType())) {
+			return rq;
+		}
+		final ByteSource source = StreamedFile.sourceOf(file);
+		final Optional<Long> size = source.sizeIfKnown();
+		if (!size.isPresent() || size.get() > MAX_ATTACHMENT_SIZE) {
+			return LoggingContext.convertImage(rq, images);
+		}
+
+		final byte[] content = source.read();
+		final String hash = Hashing.sha256().hashBytes(content).toString();
+		final String key = hash + '|' + file.getContentType() + '|' + images;
+		final boolean[] loaded = new boolean[1];
+		final Attachment attachment;
+		try {
+			attachment = cache.get(key, new Callable<Attachment>() {
+				@Override
+				public Attachment call() throws Exception {
+					loaded[0] = true;
+					SaveLogRQ.File original = new SaveLogRQ.File();
+					original.setContentType(file.getContentType());
+					original.setContent(content);
+					SaveLogRQ converted = new SaveLogRQ();
+					converted.setFile(original);
+					LoggingContext.convertImage(converted, images);
+					return new Attachment(converted.getFile().getContentType(), converted.getFile().getContent());
+				}
+			});
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+		if (loaded[0]) {
+			stats.misses.incrementAndGet();
+		} else {
+			stats.hits.incrementAndGet();
+			stats.bytesSaved.addAndGet(content.length);
+		}
+
+		SaveLogRQ.File cached = new SaveLogRQ.File();
+		cached.setName(file.getName());
+		cached.setContentType(attachment.contentType);
+		cached.setContent(attachment.content);
+		rq.setFile(cached);
+		return rq;
+	}
+
+	/**
+	 * @return Statistics of the cache
+	 */
+	public Stats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Hits, misses and saved bytes of the cache
+	 */
+	public static class Stats {
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+		private final AtomicLong bytesSaved = new AtomicLong();
+
+		/**
+		 * @return Count of attachments found in the cache
+		 */
+		public long getHits() {
+			return hits.get();
+		}
+
+		/**
+		 * @return Count of attachments added to the cache
+		 */
+		public long getMisses() {
+			return misses.get();
+		}
+
+		/**
+		 * @return Total original size of attachments found in the cache, i.e. bytes which have not been converted again
+		 */
+		public long getBytesSaved() {
+			return bytesSaved.get();
+		}
+
+		/**
+		 * @return Ratio of hits to all the cached attachments or 0 if nothing has been cached yet
+		 */
+		public double getHitRatio() {
+			long total = hits.get() + misses.get();
+			return 0 == total ? 0 : (double) hits.get() / total;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"hits=%d, misses=%d, hitRatio=%.2f, bytesSaved=%d",
+					getHits(),
+					getMisses(),
+					getHitRatio(),
+					getBytesSaved()
+			);
+		}
+	}
+
+	private static class Attachment {
+		private final String contentType;
+		private final byte[] content;
+
+		Attachment(String contentType, byte[] content) {
+			this.contentType = contentType;
+			this.content = content;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * {@link StartTestItemRQ} with ID generated on client side. Server is expected to
+ * create item with provided ID, so children, logs and finish of the item can be
+ * reported without waiting for response
+ */
+public class ClientIdStartTestItemRQ extends StartTestItemRQ {
+
+	@JsonProperty(value = "uuid")
+	private String uuid;
+
+	public ClientIdStartTestItemRQ() {
+	}
+
+	public ClientIdStartTestItemRQ(StartTestItemRQ rq, String uuid) {
+		setName(rq.getName());
+		setDescription(rq.getDescription());
+		setTags(rq.getTags());
+		setStartTime(rq.getStartTime());
+		setParameters(rq.getParameters());
+		setUniqueId(rq.getUniqueId());
+		setLaunchId(rq.getLaunchId());
+		setType(rq.getType());
+		setRetry(rq.isRetry());
+		this.uuid = uuid;
+	}
+
+	public String getUuid() {
+		return uuid;
+	}
+
+	public void setUuid(String uuid) {
+		this.uuid = uuid;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import io.reactivex.Completable;
+import io.reactivex.CompletableObserver;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.subjects.CompletableSubject;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Countdown-style tracker of asynchronous operations. Keeps only counter of pending operations
+ * instead of references to them, so memory and time needed per operation do not depend on
+ * amount of operations tracked. Operations are counted as done regardless of result; errors are
+ * expected to be reported by operations themselves
+ */
+final class CompletionTracker {
+
+	private final AtomicInteger pending = new AtomicInteger();
+	private final CompletableSubject drained = CompletableSubject.create();
+	private volatile boolean sealed;
+
+	/**
+	 * Starts tracking of provided operation. Subscribes to it
+	 *
+	 * @param operation Operation to be tracked
+	 */
+	void track(Completable operation) {
+		pending.incrementAndGet();
+		operation.subscribe(new CompletableObserver() {
+			@Override
+			public void onSubscribe(Disposable d) {
+				//ignore
+			}
+
+			@Override
+			public void onComplete() {
+				done();
+			}
+
+			@Override
+			public void onError(Throwable e) {
+				done();
+			}
+		});
+	}
+
+	/**
+	 * @return Count of operations which are not completed yet
+	 */
+	int getPending() {
+		return pending.get();
+	}
+
+	/**
+	 * Stops waiting for new operations
+	 *
+	 * @return Completable which completes once all the tracked operations are done
+	 */
+	Completable drain() {
+		sealed = true;
+		if (0 == pending.get()) {
+			drained.onComplete();
+		}
+		return drained;
+	}
+
+	private void done() {
+		if (0 == pending.decrementAndGet() && sealed) {
+			drained.onComplete();
+		}
+	}
+}
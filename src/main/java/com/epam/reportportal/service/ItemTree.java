@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact storage of test items tree. Items are addressed by int handles,
+ * parent/child relations are kept in primitive arrays (first child, next and previous sibling)
+ * and item keys (ID promises) are looked up by identity through open-addressing index.
+ * Handles of removed items are reused, so memory is bounded by amount of items in progress
+ * rather than by size of the launch
+ */
+final class ItemTree {
+
+	static final int NO_ITEM = -1;
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	/* keys (ID promises) of items */
+	private Object[] keys;
+	/* completions parent should wait for. NULL means start of item */
+	private Completable[] completions;
+	private int[] parents;
+	private int[] firstChildren;
+	/* next sibling of item. For free handles - next free handle */
+	private int[] nextSiblings;
+	private int[] prevSiblings;
+
+	/* identity index: key -> handle + 1. Zero is empty slot */
+	private int[] index;
+
+	private int size;
+	private int allocated;
+	private int freeHead = NO_ITEM;
+
+	ItemTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	ItemTree(int capacity) {
+		int cap = Math.max(capacity, 2);
+		this.keys = new Object[cap];
+		this.completions = new Completable[cap];
+		this.parents = new int[cap];
+		this.firstChildren = new int[cap];
+		this.nextSiblings = new int[cap];
+		this.prevSiblings = new int[cap];
+		this.index = new int[Integer.highestOneBit(cap - 1) << 2];
+	}
+
+	/**
+	 * Registers new item
+	 *
+	 * @param parent Handle of parent or {@link #NO_ITEM} for root item
+	 * @param key    Item key
+	 * @return Handle of the item
+	 */
+	synchronized int add(int parent, Object key) {
+		final int handle = allocate();
+		keys[handle] = key;
+		completions[handle] = null;
+		parents[handle] = parent;
+		firstChildren[handle] = NO_ITEM;
+		prevSiblings[handle] = NO_ITEM;
+		if (NO_ITEM != parent) {
+			final int first = firstChildren[parent];
+			nextSiblings[handle] = first;
+			if (NO_ITEM != first) {
+				prevSiblings[first] = handle;
+			}
+			firstChildren[parent] = handle;
+		} else {
+			nextSiblings[handle] = NO_ITEM;
+		}
+		indexPut(key, handle);
+		size++;
+		return handle;
+	}
+
+	/**
+	 * @param key Item key
+	 * @return Handle of item or {@link #NO_ITEM} if there is no such item
+	 */
+	synchronized int find(Object key) {
+		final int mask = index.length - 1;
+		for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+			final int slot = index[i];
+			if (0 == slot) {
+				return NO_ITEM;
+			}
+			if (keys[slot - 1] == key) {
+				return slot - 1;
+			}
+		}
+	}
+
+	synchronized int getParent(int handle) {
+		return parents[handle];
+	}
+
+	/**
+	 * @param handle Item handle
+	 * @return Completion parent should wait for. NULL means start of item
+	 */
+	synchronized Completable getCompletion(int handle) {
+		return completions[handle];
+	}
+
+	/**
+	 * Sets completion which parent should wait for instead of start of the item
+	 *
+	 * @param handle     Item handle
+	 * @param key        Item key. Protects from update of handle which is already reused by another item
+	 * @param completion Completion of the item
+	 */
+	synchronized void setCompletion(int handle, Object key, Completable completion) {
+		if (keys[handle] == key) {
+			completions[handle] = completion;
+		}
+	}
+
+	/**
+	 * Collects completions of direct children of provided item. Children which are not
+	 * finished yet are represented by completion of their start. Start errors are ignored,
+	 * since they are already reported
+	 *
+	 * @param handle Item handle
+	 * @return Snapshot of children completions
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized List<Completable> getChildren(int handle) {
+		List<Completable> children = new ArrayList<Completable>();
+		for (int child = firstChildren[handle]; NO_ITEM != child; child = nextSiblings[child]) {
+			final Completable completion = completions[child];
+			children.add(null == completion ? ((Maybe<String>) keys[child]).ignoreElement().onErrorComplete() : completion);
+		}
+		return children;
+	}
+
+	/**
+	 * Removes item with the whole its subtree and reclaims handles
+	 *
+	 * @param handle Item handle
+	 * @param key    Item key. Protects from removal of handle which is already reused by another item
+	 * @return TRUE if item has been removed
+	 */
+	synchronized boolean remove(int handle, Object key) {
+		if (handle < 0 || handle >= allocated || keys[handle] != key || null == key) {
+			return false;
+		}
+		unlink(handle);
+
+		/* iterative depth-first removal of subtree */
+		int current = handle;
+		while (NO_ITEM != current) {
+			final int child = firstChildren[current];
+			if (NO_ITEM != child) {
+				firstChildren[current] = nextSiblings[child];
+				parents[child] = current;
+				current = child;
+				continue;
+			}
+			final int parent = current == handle ? NO_ITEM : parents[current];
+			release(current);
+			current = parent;
+		}
+		return true;
+	}
+
+	/**
+	 * @return Count of registered items
+	 */
+	synchronized int size() {
+		return size;
+	}
+
+	private void unlink(int handle) {
+		final int parent = parents[handle];
+		final int prev = prevSiblings[handle];
+		final int next = nextSiblings[handle];
+		if (NO_ITEM != prev) {
+			nextSiblings[prev] = next;
+		} else if (NO_ITEM != parent) {
+			firstChildren[parent] = next;
+		}
+		if (NO_ITEM != next) {
+			prevSiblings[next] = prev;
+		}
+	}
+
+	private void release(int handle) {
+		indexRemove(keys[handle]);
+		keys[handle] = null;
+		completions[handle] = null;
+		parents[handle] = NO_ITEM;
+		firstChildren[handle] = NO_ITEM;
+		prevSiblings[handle] = NO_ITEM;
+		nextSiblings[handle] = freeHead;
+		freeHead = handle;
+		size--;
+	}
+
+	private int allocate() {
+		if (NO_ITEM != freeHead) {
+			final int handle = freeHead;
+			freeHead = nextSiblings[handle];
+			return handle;
+		}
+		if (allocated == keys.length) {
+			grow();
+		}
+		return allocated++;
+	}
+
+	private void grow() {
+		final int capacity = keys.length << 1;
+		keys = Arrays.copyOf(keys, capacity);
+		completions = Arrays.copyOf(completions, capacity);
+		parents = Arrays.copyOf(parents, capacity);
+		firstChildren = Arrays.copyOf(firstChildren, capacity);
+		nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+		prevSiblings = Arrays.copyOf(prevSiblings, capacity);
+
+		/* keep load factor of index below 0.5 */
+		index = new int[index.length << 1];
+		for (int handle = 0; handle < allocated; handle++) {
+			if (null != keys[handle]) {
+				indexPut(keys[handle], handle);
+			}
+		}
+	}
+
+	private void indexPut(Object key, int handle) {
+		final int mask = index.length - 1;
+		int i = hash(key) & mask;
+		while (0 != index[i]) {
+			i = (i + 1) & mask;
+		}
+		index[i] = handle + 1;
+	}
+
+	private void indexRemove(Object key) {
+		final int mask = index.length - 1;
+		int i = hash(key) & mask;
+		while (keys[index[i] - 1] != key) {
+			i = (i + 1) & mask;
+		}
+		/* backward shift deletion to keep probe sequences valid without tombstones */
+		int gap = i;
+		for (int j = (gap + 1) & mask; 0 != index[j]; j = (j + 1) & mask) {
+			final int home = hash(keys[index[j] - 1]) & mask;
+			if (((j - home) & mask) >= ((j - gap) & mask)) {
+				index[gap] = index[j];
+				gap = j;
+			}
+		}
+		index[gap] = 0;
+	}
+
+	private static int hash(Object key) {
+		final int h = System.identityHashCode(key) * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
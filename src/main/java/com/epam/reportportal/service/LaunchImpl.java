@@ -18,29 +18,36 @@ package com.epam.reportportal.service;
 import com.epam.reportportal.exception.ReportPortalException;
 import com.epam.reportportal.listeners.ListenerParameters;
 import com.epam.reportportal.listeners.Statuses;
+import com.epam.reportportal.service.metrics.Gauge;
+import com.epam.reportportal.service.metrics.MetricsRegistry;
+import com.epam.reportportal.service.offline.JournalRecord;
+import com.epam.reportportal.service.wal.WriteAheadLog;
 import com.epam.reportportal.utils.LaunchFile;
 import com.epam.reportportal.utils.RetryWithDelay;
+import com.epam.reportportal.utils.files.ImageConverter;
 import com.epam.ta.reportportal.ws.model.*;
 import com.epam.ta.reportportal.ws.model.issue.Issue;
+import com.epam.ta.reportportal.ws.model.item.ItemCreatedRS;
 import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
 import com.epam.ta.reportportal.ws.model.launch.StartLaunchRS;
 import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import io.reactivex.*;
 import io.reactivex.functions.*;
 import io.reactivex.schedulers.Schedulers;
+import org.reactivestreams.Publisher;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.epam.reportportal.service.LoggingCallback.*;
 import static com.epam.reportportal.utils.SubscriptionUtils.logCompletableResults;
 import static com.epam.reportportal.utils.SubscriptionUtils.logMaybeResults;
-import static com.google.common.collect.Lists.newArrayList;
 
 /**
  * @author Andrei Varabyeu
@@ -61,7 +68,26 @@ public class LaunchImpl extends Launch {
 		}
 	};
 	private static final int ITEM_FINISH_MAX_RETRIES = 10;
+	private static final int ITEM_FINISH_RETRY_INITIAL_TIMEOUT = 1;
 	private static final int ITEM_FINISH_RETRY_TIMEOUT = 10;
+	private static final double ITEM_FINISH_RETRY_JITTER = 0.2;
+	/**
+	 * Retries finish of the item while server does not allow it. Retry state is tracked per subscription,
+	 * so instance is shared between items
+	 */
+	private static final RetryWithDelay ITEM_FINISH_RETRY = new RetryWithDelay(new Predicate<Throwable>() {
+		@Override
+		public boolean test(Throwable throwable) throws Exception {
+			return throwable instanceof ReportPortalException && ErrorType.FINISH_ITEM_NOT_ALLOWED.equals(((ReportPortalException) throwable).getError()
+					.getErrorType());
+		}
+	},
+			ITEM_FINISH_MAX_RETRIES,
+			TimeUnit.SECONDS.toMillis(ITEM_FINISH_RETRY_INITIAL_TIMEOUT),
+			TimeUnit.SECONDS.toMillis(ITEM_FINISH_RETRY_TIMEOUT),
+			ITEM_FINISH_RETRY_JITTER,
+			Schedulers.computation()
+	);
 	private static final String NOT_ISSUE = "NOT_ISSUE";
 
 	/**
@@ -70,23 +96,117 @@ public class LaunchImpl extends Launch {
 	private final ReportPortalClient rpClient;
 
 	/**
-	 * Messages queue to track items execution order
+	 * Items tree to track items execution order
+	 */
+	private final ItemTree tree = new ItemTree();
+
+	/**
+	 * Count of retries of item finish of the launch
+	 */
+	private final AtomicLong finishRetries = new AtomicLong();
+
+	/**
+	 * Retries finish of the item with {@link #ITEM_FINISH_RETRY} and counts retries of the launch
 	 */
-	private final LoadingCache<Maybe<String>, LaunchImpl.TreeItem> QUEUE = CacheBuilder.newBuilder()
-			.build(new CacheLoader<Maybe<String>, LaunchImpl.TreeItem>() {
+	private final Function<Flowable<Throwable>, Publisher<Long>> itemFinishRetry = new Function<Flowable<Throwable>, Publisher<Long>>() {
+		@Override
+		public Publisher<Long> apply(Flowable<Throwable> errors) throws Exception {
+			return Flowable.fromPublisher(ITEM_FINISH_RETRY.apply(errors)).doOnNext(new Consumer<Long>() {
 				@Override
-				public LaunchImpl.TreeItem load(Maybe<String> key) throws Exception {
-					return new LaunchImpl.TreeItem();
+				public void accept(Long retry) {
+					finishRetries.incrementAndGet();
 				}
 			});
+		}
+	};
+
+	/**
+	 * Tracks completion of logging contexts and items finish
+	 */
+	private final CompletionTracker completions = new CompletionTracker();
+
+	/**
+	 * Schedulers of reporting work
+	 */
+	private final ReportingSchedulers schedulers;
+
+	/**
+	 * Write-ahead log of reporting events. NULL if events are not recorded
+	 */
+	private final WriteAheadLog wal;
+
+	/**
+	 * Events are recorded to write-ahead log before the server assigns IDs, so they refer to the launch and items
+	 * by local IDs. Local ID is mapped to the server one by {@link JournalRecord.Type#CREATED} event
+	 */
+	private final String localLaunchId = UUID.randomUUID().toString();
+
+	/**
+	 * Local IDs of the items which are not finished yet. Empty if events are not recorded
+	 */
+	private final Map<Maybe<String>, String> localIds = new ConcurrentHashMap<Maybe<String>, String>();
+
+	/**
+	 * Sequence numbers of {@link JournalRecord.Type#CREATED} events by local ID. They are acknowledged once
+	 * the launch or item is finished, since events of its children and logs refer to it until then
+	 */
+	private final Map<String, Long> created = new ConcurrentHashMap<String, Long>();
+
+	/**
+	 * Cache of attachments of the launch. NULL if attachments are not cached
+	 */
+	private final AttachmentCache attachments;
+
+	/**
+	 * Options of conversion of attached images. NULL if images are not converted
+	 */
+	private final ImageConverter.Options images;
+
+	/**
+	 * Batcher of logs shared between all the items of the launch
+	 */
+	private final LogBatcher logs;
+
+	/**
+	 * Metrics of the launch, exported once the launch is finished
+	 */
+	private final MetricsRegistry metrics;
 
 	private Maybe<String> launch;
+	private final int root;
 	private boolean rerun;
 
 	LaunchImpl(final ReportPortalClient rpClient, ListenerParameters parameters, final StartLaunchRQ rq) {
+		this(rpClient, parameters, rq, ReportingSchedulers.getDefault());
+	}
+
+	LaunchImpl(final ReportPortalClient rpClient, ListenerParameters parameters, final StartLaunchRQ rq, final ReportingSchedulers schedulers) {
+		this(rpClient, parameters, rq, schedulers, null);
+	}
+
+	LaunchImpl(final ReportPortalClient rpClient, ListenerParameters parameters, final StartLaunchRQ rq, final ReportingSchedulers schedulers,
+			WriteAheadLog wal) {
+		this(rpClient, parameters, rq, schedulers, wal, new MetricsRegistry());
+	}
+
+	LaunchImpl(final ReportPortalClient rpClient, ListenerParameters parameters, final StartLaunchRQ rq, final ReportingSchedulers schedulers,
+			WriteAheadLog wal, MetricsRegistry metrics) {
 		super(parameters);
 		this.rpClient = Preconditions.checkNotNull(rpClient, "RestEndpoint shouldn't be NULL");
 		Preconditions.checkNotNull(parameters, "Parameters shouldn't be NULL");
+		this.schedulers = Preconditions.checkNotNull(schedulers, "Schedulers shouldn't be NULL");
+		this.wal = wal;
+		this.metrics = Preconditions.checkNotNull(metrics, "Metrics shouldn't be NULL");
+		this.attachments = parameters.getAttachmentCacheSize() > 0 ? new AttachmentCache(parameters.getAttachmentCacheSize()) : null;
+		this.images = imageOptions(parameters);
+		this.logs = new LogBatcher(rpClient,
+				parameters.getBatchLogsSize(),
+				parameters.getBatchLogsBytes(),
+				parameters.getBatchLogsLinger(),
+				schedulers.getLogs().getScheduler(),
+				wal,
+				attachments
+		);
 
 		if (!parameters.isRerun()) {
 
@@ -96,12 +216,16 @@ public class LaunchImpl extends Launch {
 				@Override
 				public void subscribe(final MaybeEmitter<String> emitter) throws Exception {
 
+					final long seq = record(JournalRecord.Type.START_LAUNCH, localLaunchId, null, rq);
 					Maybe<StartLaunchRS> launchPromise = Maybe.defer(new Callable<MaybeSource<? extends StartLaunchRS>>() {
 						@Override
 						public MaybeSource<? extends StartLaunchRS> call() throws Exception {
-							return rpClient.startLaunch(rq).doOnSuccess(LAUNCH_SUCCESS_CONSUMER).doOnError(LOG_ERROR);
+							return recordedStart(rpClient.startLaunch(rq).doOnSuccess(LAUNCH_SUCCESS_CONSUMER).doOnError(LOG_ERROR),
+									localLaunchId,
+									seq
+							);
 						}
-					}).subscribeOn(Schedulers.computation()).cache();
+					}).subscribeOn(schedulers.getItems().getScheduler()).cache();
 
 					LaunchFile.create(rq.getName(), launchPromise);
 
@@ -122,18 +246,49 @@ public class LaunchImpl extends Launch {
 			}).cache();
 		} else {
 			LOGGER.info("rerun!");
-			this.launch = LaunchFile.find(rq.getName());
+			final Maybe<String> found = LaunchFile.find(rq.getName());
+			this.launch = null == wal ? found : recordedStart(found, localLaunchId, WriteAheadLog.NO_SEQ).cache();
 			this.rerun = true;
 		}
-
+		this.root = tree.add(ItemTree.NO_ITEM, this.launch);
+		registerMetrics();
 	}
 
 	LaunchImpl(final ReportPortalClient rpClient, ListenerParameters parameters, Maybe<String> launch) {
+		this(rpClient, parameters, launch, ReportingSchedulers.getDefault());
+	}
+
+	LaunchImpl(final ReportPortalClient rpClient, ListenerParameters parameters, Maybe<String> launch, ReportingSchedulers schedulers) {
+		this(rpClient, parameters, launch, schedulers, null);
+	}
+
+	LaunchImpl(final ReportPortalClient rpClient, ListenerParameters parameters, Maybe<String> launch, ReportingSchedulers schedulers,
+			WriteAheadLog wal) {
+		this(rpClient, parameters, launch, schedulers, wal, new MetricsRegistry());
+	}
+
+	LaunchImpl(final ReportPortalClient rpClient, ListenerParameters parameters, Maybe<String> launch, ReportingSchedulers schedulers,
+			WriteAheadLog wal, MetricsRegistry metrics) {
 		super(parameters);
 		this.rpClient = Preconditions.checkNotNull(rpClient, "RestEndpoint shouldn't be NULL");
 		Preconditions.checkNotNull(parameters, "Parameters shouldn't be NULL");
-
-		this.launch = launch.subscribeOn(Schedulers.computation()).cache();
+		this.schedulers = Preconditions.checkNotNull(schedulers, "Schedulers shouldn't be NULL");
+		this.wal = wal;
+		this.metrics = Preconditions.checkNotNull(metrics, "Metrics shouldn't be NULL");
+		this.attachments = parameters.getAttachmentCacheSize() > 0 ? new AttachmentCache(parameters.getAttachmentCacheSize()) : null;
+		this.images = imageOptions(parameters);
+		this.logs = new LogBatcher(rpClient,
+				parameters.getBatchLogsSize(),
+				parameters.getBatchLogsBytes(),
+				parameters.getBatchLogsLinger(),
+				schedulers.getLogs().getScheduler(),
+				wal,
+				attachments
+		);
+
+		this.launch = recordedStart(launch, localLaunchId, WriteAheadLog.NO_SEQ).subscribeOn(schedulers.getItems().getScheduler()).cache();
+		this.root = tree.add(ItemTree.NO_ITEM, this.launch);
+		registerMetrics();
 	}
 
 	/**
@@ -155,15 +310,30 @@ public class LaunchImpl extends Launch {
 	 * @param rq Finish RQ
 	 */
 	public synchronized void finish(final FinishExecutionRQ rq) {
-		final Completable finish = Completable.concat(QUEUE.getUnchecked(this.launch).getChildren())
+		final long finishStart = System.nanoTime();
+		final long seq = record(JournalRecord.Type.FINISH_LAUNCH, localLaunchId, null, rq);
+		//partial batch is sent and late logs are not batched anymore, so logging contexts are able to complete
+		logs.close();
+		final Completable finish = completions.drain().doOnComplete(new Action() {
+			@Override
+			public void run() throws Exception {
+				metrics.histogram("launch.finish.drain_ms").record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - finishStart));
+			}
+		})
 				.andThen(this.launch.flatMap(new Function<String, Maybe<OperationCompletionRS>>() {
 					@Override
 					public Maybe<OperationCompletionRS> apply(String id) throws Exception {
-						return rpClient.finishLaunch(id, rq).doOnSuccess(LOG_SUCCESS).doOnError(LOG_ERROR);
+						return acknowledged(rpClient.finishLaunch(id, rq).doOnSuccess(LOG_SUCCESS).doOnError(LOG_ERROR),
+								seq,
+								createdSeq(localLaunchId)
+						);
 					}
 				})).doFinally(new Action() {
 					@Override
 					public void run() throws Exception {
+						if (null != attachments) {
+							LOGGER.info("Attachments of the launch: {}", attachments.getStats());
+						}
 						rpClient.close();
 					}
 				})
@@ -174,6 +344,7 @@ public class LaunchImpl extends Launch {
 		} catch (Exception e) {
 			LOGGER.error("Unable to finish launch in ReportPortal", e);
 		}
+		metrics.export();
 	}
 
 	/**
@@ -183,17 +354,25 @@ public class LaunchImpl extends Launch {
 	 * @return Test Item ID promise
 	 */
 	public Maybe<String> startTestItem(final StartTestItemRQ rq) {
+		if (getParameters().isClientIds()) {
+			return startTestItemWithClientId(null, rq);
+		}
 
-		final Maybe<String> testItem = this.launch.flatMap(new Function<String, Maybe<String>>() {
+		final String localId = null == wal ? null : UUID.randomUUID().toString();
+		final long seq = recordStart(localId, null, rq);
+		final Maybe<String> testItem = recordedStart(this.launch.flatMap(new Function<String, Maybe<String>>() {
 			@Override
 			public Maybe<String> apply(String id) throws Exception {
 				rq.setLaunchId(id);
 				return rpClient.startTestItem(rq).doOnSuccess(logCreated("item")).map(TO_ID);
 
 			}
-		}).cache();
-		testItem.subscribeOn(Schedulers.computation()).subscribe(logMaybeResults("Start test item"));
-		QUEUE.getUnchecked(testItem).addToQueue(testItem.ignoreElement());
+		}), localId, seq).cache();
+		if (null != wal) {
+			localIds.put(testItem, localId);
+		}
+		testItem.subscribeOn(schedulers.getItems().getScheduler()).subscribe(logMaybeResults("Start test item"));
+		tree.add(root, testItem);
 		return testItem;
 	}
 
@@ -216,7 +395,14 @@ public class LaunchImpl extends Launch {
 		if (null == parentId) {
 			return startTestItem(rq);
 		}
-		final Maybe<String> itemId = this.launch.flatMap(new Function<String, Maybe<String>>() {
+		if (getParameters().isClientIds()) {
+			final Maybe<String> itemId = startTestItemWithClientId(parentId, rq);
+			LoggingContext.init(itemId, logs, images, schedulers, localIds.get(itemId));
+			return itemId;
+		}
+		final String localId = null == wal ? null : UUID.randomUUID().toString();
+		final long seq = recordStart(localId, parentId, rq);
+		final Maybe<String> itemId = recordedStart(this.launch.flatMap(new Function<String, Maybe<String>>() {
 			@Override
 			public Maybe<String> apply(final String launchId) throws Exception {
 				return parentId.flatMap(new Function<String, MaybeSource<String>>() {
@@ -228,10 +414,13 @@ public class LaunchImpl extends Launch {
 					}
 				});
 			}
-		}).cache();
-		itemId.subscribeOn(Schedulers.computation()).subscribe(logMaybeResults("Start test item"));
-		QUEUE.getUnchecked(itemId).withParent(parentId).addToQueue(itemId.ignoreElement());
-		LoggingContext.init(itemId, this.rpClient, getParameters().getBatchLogsSize(), getParameters().isConvertImage());
+		}), localId, seq).cache();
+		if (null != wal) {
+			localIds.put(itemId, localId);
+		}
+		itemId.subscribeOn(schedulers.getItems().getScheduler()).subscribe(logMaybeResults("Start test item"));
+		tree.add(findOrAdd(parentId), itemId);
+		LoggingContext.init(itemId, logs, images, schedulers, localId);
 		return itemId;
 	}
 
@@ -251,51 +440,91 @@ public class LaunchImpl extends Launch {
 			rq.setIssue(issue);
 		}
 
-		QUEUE.getUnchecked(launch).addToQueue(LoggingContext.complete());
+		completions.track(LoggingContext.complete());
 
-		LaunchImpl.TreeItem treeItem = QUEUE.getIfPresent(itemId);
-		if (null == treeItem) {
-			treeItem = new LaunchImpl.TreeItem();
+		final String localId = null == wal ? null : localIds.get(itemId);
+		final long seq = null == localId ? WriteAheadLog.NO_SEQ : record(JournalRecord.Type.FINISH_ITEM, localId, null, rq);
+
+		int treeItem = tree.find(itemId);
+		if (ItemTree.NO_ITEM == treeItem) {
 			LOGGER.error("Item {} not found in the cache", itemId);
+			treeItem = tree.add(root, itemId);
 		}
+		final int handle = treeItem;
 
 		//wait for the children to complete
-		final Completable finishCompletion = Completable.concat(treeItem.getChildren())
+		final List<Completable> children = tree.getChildren(handle);
+		final Completable started = tree.getCompletion(handle);
+		if (null != started) {
+			//item has been started with client-side ID, so its start should be awaited explicitly
+			children.add(started);
+		}
+		final Completable finishCompletion = Completable.merge(Flowable.fromIterable(children), getParameters().getFinishConcurrency())
 				.andThen(itemId.flatMap(new Function<String, Maybe<OperationCompletionRS>>() {
 					@Override
 					public Maybe<OperationCompletionRS> apply(String itemId) throws Exception {
-						return rpClient.finishTestItem(itemId, rq)
-								.retry(new RetryWithDelay(new Predicate<Throwable>() {
-									@Override
-									public boolean test(Throwable throwable) throws Exception {
-										return throwable instanceof ReportPortalException
-												&& ErrorType.FINISH_ITEM_NOT_ALLOWED.equals(((ReportPortalException) throwable).getError()
-												.getErrorType());
-									}
-								}, ITEM_FINISH_MAX_RETRIES, TimeUnit.SECONDS.toMillis(ITEM_FINISH_RETRY_TIMEOUT)))
-								.doOnSuccess(LOG_SUCCESS)
-								.doOnError(LOG_ERROR);
+						//item started by another launch is recorded by its server ID
+						return acknowledged(rpClient.finishTestItem(itemId, rq)
+										.retryWhen(itemFinishRetry)
+										.doOnSuccess(LOG_SUCCESS)
+										.doOnError(LOG_ERROR),
+								null == localId ? record(JournalRecord.Type.FINISH_ITEM, itemId, null, rq) : seq,
+								createdSeq(localId)
+						);
 					}
 				}))
 				.doAfterSuccess(new Consumer<OperationCompletionRS>() {
 					@Override
 					public void accept(OperationCompletionRS operationCompletionRS) throws Exception {
-						//cleanup children
-						QUEUE.invalidate(itemId);
+						//cleanup item and its children
+						tree.remove(handle, itemId);
+						if (null != localId) {
+							localIds.remove(itemId);
+						}
 					}
 				})
 				.ignoreElement()
 				.cache();
-		finishCompletion.subscribeOn(Schedulers.computation()).subscribe(logCompletableResults("Finish test item"));
-		//find parent and add to its queue
-		final Maybe<String> parent = treeItem.getParent();
-		if (null != parent) {
-			QUEUE.getUnchecked(parent).addToQueue(finishCompletion);
-		} else {
-			//seems like this is root item
-			QUEUE.getUnchecked(this.launch).addToQueue(finishCompletion);
+		//parent waits for finish of the item instead of its start
+		tree.setCompletion(handle, itemId, finishCompletion);
+		finishCompletion.subscribeOn(schedulers.getItems().getScheduler()).subscribe(logCompletableResults("Finish test item"));
+		completions.track(finishCompletion);
+	}
+
+	/**
+	 * @return Statistics of log batches of the launch
+	 */
+	public LogBatcher.Stats getLogBatchStats() {
+		return logs.getStats();
+	}
+
+	/**
+	 * @return Metrics of the launch
+	 */
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @param parameters Listener parameters
+	 * @return Options of image conversion or NULL if images are not converted
+	 */
+	private static ImageConverter.Options imageOptions(ListenerParameters parameters) {
+		if (!parameters.isConvertImage()) {
+			return null;
 		}
+		if (!ImageConverter.isSupported()) {
+			LOGGER.warn("Images are not converted: client-java-images module is not on the classpath");
+			return null;
+		}
+		return ImageConverter.Options.from(parameters);
+	}
 
+	/**
+	 * @return Statistics of attachment cache of the launch or NULL if attachments are not cached
+	 */
+	public AttachmentCache.Stats getAttachmentStats() {
+		return null == attachments ? null : attachments.getStats();
 	}
 
 	public boolean isRerun() {
@@ -303,28 +532,202 @@ public class LaunchImpl extends Launch {
 	}
 
 	/**
-	 * Wrapper around TestItem entity to be able to track parent and children items
+	 * Registers state of the launch: items which are not finished yet, log batches, retries of item finish
+	 * of the launch and logs which are not reported
 	 */
-	static class TreeItem {
-		private Maybe<String> parent;
-		private List<Completable> children = new CopyOnWriteArrayList<Completable>();
+	private void registerMetrics() {
+		metrics.gauge("items.pending", new Gauge() {
+			@Override
+			public long getValue() {
+				//launch itself is not an item
+				return tree.size() - 1;
+			}
+		});
+		metrics.gauge("requests.retries.finishTestItem", new Gauge() {
+			@Override
+			public long getValue() {
+				return finishRetries.get();
+			}
+		});
+		metrics.gauge("logs.dropped", new Gauge() {
+			@Override
+			public long getValue() {
+				return logs.getStats().getDropped();
+			}
+		});
+		metrics.register("logs.batch.size", logs.getStats().getSize());
+		metrics.register("logs.batch.bytes", logs.getStats().getBytes());
+		metrics.register("logs.batch.linger_ms", logs.getStats().getLinger());
+		metrics.register("logs.queue_depth", logs.getStats().getQueueDepth());
+		if (null != attachments) {
+			metrics.gauge("attachments.cache.hits", new Gauge() {
+				@Override
+				public long getValue() {
+					return attachments.getStats().getHits();
+				}
+			});
+			metrics.gauge("attachments.cache.misses", new Gauge() {
+				@Override
+				public long getValue() {
+					return attachments.getStats().getMisses();
+				}
+			});
+			metrics.gauge("attachments.cache.bytes_saved", new Gauge() {
+				@Override
+				public long getValue() {
+					return attachments.getStats().getBytesSaved();
+				}
+			});
+		}
+	}
 
-		synchronized LaunchImpl.TreeItem withParent(Maybe<String> parent) {
-			this.parent = parent;
-			return this;
+	/**
+	 * Starts test item with ID generated on client side. ID promise is resolved immediately,
+	 * so children, logs and finish of the item do not wait for response of the server
+	 *
+	 * @param parentId Parent ID promise. NULL for root items
+	 * @param rq       Start RQ
+	 * @return Test Item ID promise
+	 */
+	private Maybe<String> startTestItemWithClientId(final Maybe<String> parentId, final StartTestItemRQ rq) {
+		final String uuid = UUID.randomUUID().toString();
+		final long seq = recordStart(uuid, parentId, rq);
+		final Completable started = recordedStart(this.launch.flatMap(new Function<String, Maybe<ItemCreatedRS>>() {
+			@Override
+			public Maybe<ItemCreatedRS> apply(String launchId) throws Exception {
+				rq.setLaunchId(launchId);
+				final StartTestItemRQ clientIdRq = new ClientIdStartTestItemRQ(rq, uuid);
+				if (null == parentId) {
+					return rpClient.startTestItem(clientIdRq).doOnSuccess(logCreated("item"));
+				}
+				return parentId.flatMap(new Function<String, Maybe<ItemCreatedRS>>() {
+					@Override
+					public Maybe<ItemCreatedRS> apply(String parentId) throws Exception {
+						return rpClient.startTestItem(parentId, clientIdRq).doOnSuccess(logCreated("item"));
+					}
+				});
+			}
+		}).map(TO_ID), uuid, seq).ignoreElement().cache();
+		started.subscribeOn(schedulers.getItems().getScheduler()).subscribe(logCompletableResults("Start test item"));
+
+		final Maybe<String> itemId = Maybe.just(uuid);
+		if (null != wal) {
+			localIds.put(itemId, uuid);
 		}
+		final int handle = tree.add(null == parentId ? root : findOrAdd(parentId), itemId);
+		tree.setCompletion(handle, itemId, started);
+		return itemId;
+	}
 
-		LaunchImpl.TreeItem addToQueue(Completable completable) {
-			this.children.add(completable);
-			return this;
+	/**
+	 * Records event to write-ahead log until the server acknowledges it. Failure of the write-ahead log does not affect reporting
+	 *
+	 * @param type     Type of event
+	 * @param id       Local ID of launch or item
+	 * @param parentId Local ID of parent item. NULL for root items and other events
+	 * @param rq       Request of the event
+	 * @return Sequence number of the event or {@link WriteAheadLog#NO_SEQ} if it is not recorded
+	 */
+	private long record(JournalRecord.Type type, String id, String parentId, Object rq) {
+		return null == wal ? WriteAheadLog.NO_SEQ : record(JournalRecord.of(type, id, parentId, rq));
+	}
+
+	private long record(JournalRecord record) {
+		try {
+			return wal.append(record);
+		} catch (IOException e) {
+			LOGGER.error("Unable to record event to write-ahead log", e);
+			return WriteAheadLog.NO_SEQ;
 		}
+	}
 
-		List<Completable> getChildren() {
-			return newArrayList(this.children);
+	/**
+	 * Records start of the item. Launch and parent are referred by local IDs, since the server may not have assigned theirs yet
+	 *
+	 * @param localId  Local ID of the item
+	 * @param parentId Parent ID promise. NULL for root items
+	 * @param rq       Start RQ
+	 * @return Sequence number of the event or {@link WriteAheadLog#NO_SEQ} if it is not recorded
+	 */
+	private long recordStart(String localId, Maybe<String> parentId, StartTestItemRQ rq) {
+		if (null == wal) {
+			return WriteAheadLog.NO_SEQ;
 		}
+		//replaced with ID of the launch once it's known
+		rq.setLaunchId(localLaunchId);
+		return record(JournalRecord.Type.START_ITEM, localId, null == parentId ? null : localIds.get(parentId), rq);
+	}
+
+	/**
+	 * Maps local ID to the server one once the launch or item is started. Start event is acknowledged after that,
+	 * so recovery does not start the launch or item again
+	 *
+	 * @param start   Start request
+	 * @param localId Local ID of launch or item
+	 * @param seq     Sequence number of start event
+	 * @param <T>     Type of response
+	 * @return Start request recording the mapping
+	 */
+	private <T> Maybe<T> recordedStart(Maybe<T> start, final String localId, final long seq) {
+		if (null == wal) {
+			return start;
+		}
+		return acknowledged(start.doOnSuccess(new Consumer<T>() {
+			@Override
+			public void accept(T rs) throws Exception {
+				final String serverId = rs instanceof EntryCreatedRS ? ((EntryCreatedRS) rs).getId() : String.valueOf(rs);
+				final long mapping = record(JournalRecord.created(localId, serverId));
+				if (WriteAheadLog.NO_SEQ != mapping) {
+					created.put(localId, mapping);
+				}
+			}
+		}), seq);
+	}
+
+	/**
+	 * @param localId Local ID of launch or item, may be NULL
+	 * @return Sequence number of mapping of the local ID to the server one or {@link WriteAheadLog#NO_SEQ} if there is no mapping
+	 */
+	private long createdSeq(String localId) {
+		final Long seq = null == localId ? null : created.remove(localId);
+		return null == seq ? WriteAheadLog.NO_SEQ : seq;
+	}
 
-		synchronized Maybe<String> getParent() {
-			return parent;
+	/**
+	 * Acknowledges events on response of the server, even if the server has rejected the request
+	 *
+	 * @param request Request of the events
+	 * @param seqs    Sequence numbers of the events
+	 * @param <T>     Type of response
+	 * @return Request acknowledging the events
+	 */
+	private <T> Maybe<T> acknowledged(Maybe<T> request, final long... seqs) {
+		if (null == wal) {
+			return request;
 		}
+		return request.doOnSuccess(new Consumer<T>() {
+			@Override
+			public void accept(T rs) throws Exception {
+				wal.ack(seqs);
+			}
+		}).doOnError(new Consumer<Throwable>() {
+			@Override
+			public void accept(Throwable throwable) throws Exception {
+				if (WriteAheadLog.isDelivered(throwable)) {
+					wal.ack(seqs);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Looks for the item in the tree. Unknown items are attached to the launch
+	 *
+	 * @param itemId Item ID promise
+	 * @return Handle of the item
+	 */
+	private int findOrAdd(Maybe<String> itemId) {
+		final int handle = tree.find(itemId);
+		return ItemTree.NO_ITEM == handle ? tree.add(root, itemId) : handle;
 	}
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.ta.reportportal.ws.model.*;
+import com.epam.ta.reportportal.ws.model.item.ItemCreatedRS;
+import com.epam.ta.reportportal.ws.model.launch.LaunchResource;
+import com.epam.ta.reportportal.ws.model.launch.MergeLaunchesRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRS;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Supplier;
+import io.reactivex.Maybe;
+
+import java.util.concurrent.Callable;
+
+/**
+ * {@link ReportPortalClient} which is built on the first request. Requests are deferred until subscription,
+ * so executor, HTTP client and serializer are built on a reporting thread rather than on the thread
+ * of the test which starts the launch. Short-living JVMs which do not report do not build them at all.
+ * Client is built once. If building fails, the failure is kept and every request fails with it, since building again
+ * would not fix the configuration and would leave resources of the failed attempt behind
+ */
+class LazyReportPortalClient implements ReportPortalClient {
+
+	private final Supplier<ReportPortalClient> factory;
+	/* written under this */
+	private volatile ReportPortalClient client;
+	/* guarded by this */
+	private RuntimeException failure;
+
+	/**
+	 * @param factory Builds client on the first request
+	 */
+	LazyReportPortalClient(Supplier<ReportPortalClient> factory) {
+		this.factory = factory;
+	}
+
+	@Override
+	public Maybe<StartLaunchRS> startLaunch(final StartLaunchRQ rq) {
+		return Maybe.defer(new Callable<Maybe<StartLaunchRS>>() {
+			@Override
+			public Maybe<StartLaunchRS> call() {
+				return build().startLaunch(rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<LaunchResource> mergeLaunches(final MergeLaunchesRQ rq) {
+		return Maybe.defer(new Callable<Maybe<LaunchResource>>() {
+			@Override
+			public Maybe<LaunchResource> call() {
+				return build().mergeLaunches(rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<OperationCompletionRS> finishLaunch(final String launch, final FinishExecutionRQ rq) {
+		return Maybe.defer(new Callable<Maybe<OperationCompletionRS>>() {
+			@Override
+			public Maybe<OperationCompletionRS> call() {
+				return build().finishLaunch(launch, rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<ItemCreatedRS> startTestItem(final StartTestItemRQ rq) {
+		return Maybe.defer(new Callable<Maybe<ItemCreatedRS>>() {
+			@Override
+			public Maybe<ItemCreatedRS> call() {
+				return build().startTestItem(rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<ItemCreatedRS> startTestItem(final String parent, final StartTestItemRQ rq) {
+		return Maybe.defer(new Callable<Maybe<ItemCreatedRS>>() {
+			@Override
+			public Maybe<ItemCreatedRS> call() {
+				return build().startTestItem(parent, rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<OperationCompletionRS> finishTestItem(final String itemId, final FinishTestItemRQ rq) {
+		return Maybe.defer(new Callable<Maybe<OperationCompletionRS>>() {
+			@Override
+			public Maybe<OperationCompletionRS> call() {
+				return build().finishTestItem(itemId, rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<EntryCreatedRS> log(final SaveLogRQ rq) {
+		return Maybe.defer(new Callable<Maybe<EntryCreatedRS>>() {
+			@Override
+			public Maybe<EntryCreatedRS> call() {
+				return build().log(rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<BatchSaveOperatingRS> log(final MultiPartRequest rq) {
+		return Maybe.defer(new Callable<Maybe<BatchSaveOperatingRS>>() {
+			@Override
+			public Maybe<BatchSaveOperatingRS> call() {
+				return build().log(rq);
+			}
+		});
+	}
+
+	@Override
+	public void close() {
+		//nothing to close if there has been no request
+		final ReportPortalClient built = client;
+		if (null != built) {
+			built.close();
+		}
+	}
+
+	/**
+	 * @return TRUE if the client has been built
+	 */
+	boolean isBuilt() {
+		return null != client;
+	}
+
+	/**
+	 * Builds the client right away if it has not been built yet
+	 *
+	 * @return Built client
+	 * @throws RuntimeException Failure of the build, the same one on every call
+	 */
+	ReportPortalClient build() {
+		final ReportPortalClient built = client;
+		if (null != built) {
+			return built;
+		}
+		synchronized (this) {
+			if (null == client && null == failure) {
+				try {
+					client = factory.get();
+				} catch (RuntimeException e) {
+					failure = e;
+				}
+			}
+			if (null != failure) {
+				throw failure;
+			}
+			return client;
+		}
+	}
+}
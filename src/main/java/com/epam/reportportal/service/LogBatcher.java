@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.message.StreamedFile;
+import com.epam.reportportal.service.offline.JournalRecord;
+import com.epam.reportportal.service.wal.WriteAheadLog;
+import com.epam.reportportal.utils.Histogram;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Supplier;
+import io.reactivex.Completable;
+import io.reactivex.CompletableSource;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.epam.reportportal.utils.SubscriptionUtils.logCompletableResults;
+
+/**
+ * Packs logs of many test items into batches, so short tests with few logs do not send requests on their own.
+ * Batch is sent on whichever comes first: count of logs, size of attachments and messages or linger time
+ * of the first log of the batch. Logging contexts are notified once their logs are sent,
+ * so completion of every item is still tracked separately. Partial batch is sent on {@link #flush()}.
+ * Once the batcher is closed, logs do not linger: late logs arriving together are sent by the next flush of the scheduler
+ */
+public class LogBatcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LogBatcher.class);
+
+	private final ReportPortalClient client;
+	private final int batchSize;
+	private final long batchBytes;
+	private final long lingerMillis;
+	private final Scheduler scheduler;
+	private final WriteAheadLog wal;
+	private final AttachmentCache attachments;
+	private final Stats stats = new Stats();
+
+	/* guarded by this */
+	private List<Entry> pending;
+	private long pendingBytes;
+	private long pendingSince;
+	/* incremented every time pending batch is taken, so linger timer of a sent batch does nothing */
+	private long generation;
+	/* linger timer of pending batch, cancelled once the batch is taken, so timers of sent batches do not pile up */
+	private Disposable lingerTimer;
+	private boolean closed;
+	private boolean flushScheduled;
+
+	/**
+	 * @param client       Client of ReportPortal
+	 * @param batchSize    Max count of logs in a batch
+	 * @param batchBytes   Max size of attachments and messages of a batch in bytes
+	 * @param lingerMillis Max time the first log of a batch waits for the batch to fill. 0 or less to disable
+	 * @param scheduler    Scheduler of log uploads and linger timers
+	 * @param wal          Write-ahead log logs are recorded to until they are sent. NULL if logs are not recorded
+	 * @param attachments  Cache of attachments of the launch. NULL if attachments are not cached
+	 */
+	LogBatcher(ReportPortalClient client, int batchSize, long batchBytes, long lingerMillis, Scheduler scheduler, WriteAheadLog wal,
+			AttachmentCache attachments) {
+		this.client = client;
+		this.batchSize = batchSize;
+		this.batchBytes = batchBytes;
+		this.lingerMillis = lingerMillis;
+		this.scheduler = scheduler;
+		this.wal = wal;
+		this.attachments = attachments;
+		this.pending = new ArrayList<Entry>(batchSize);
+	}
+
+	/**
+	 * Records log to write-ahead log and adds it to the current batch
+	 *
+	 * @param rq      Log
+	 * @param context Context the log is emitted to
+	 */
+	void add(SaveLogRQ rq, LoggingContext context) {
+		add(rq, writeAhead(rq), context);
+	}
+
+	/**
+	 * Adds log to the current batch. Batch is sent once it is full. Log which does not fit into the current batch
+	 * by size starts the next one
+	 *
+	 * @param rq      Log
+	 * @param seq     Sequence number the log is recorded to write-ahead log with, acknowledged once the log is sent
+	 * @param context Context the log is emitted to
+	 */
+	void add(SaveLogRQ rq, long seq, LoggingContext context) {
+		final long size = sizeOf(rq);
+		final Entry entry = new Entry(rq, seq, context);
+		List<Entry> overflow = null;
+		List<Entry> batch = null;
+		long lingerGeneration = -1;
+		boolean scheduleFlush = false;
+		synchronized (this) {
+			if (!pending.isEmpty() && pendingBytes + size > batchBytes) {
+				overflow = take();
+			}
+			if (pending.isEmpty()) {
+				pendingSince = System.nanoTime();
+				lingerGeneration = generation;
+			}
+			pending.add(entry);
+			pendingBytes += size;
+			if (pending.size() >= batchSize || pendingBytes >= batchBytes) {
+				batch = take();
+				lingerGeneration = -1;
+			} else if (closed) {
+				scheduleFlush = !flushScheduled;
+				flushScheduled = true;
+				lingerGeneration = -1;
+			}
+		}
+		if (null != overflow) {
+			send(overflow);
+		}
+		if (null != batch) {
+			send(batch);
+		}
+		if (scheduleFlush) {
+			scheduler.scheduleDirect(new Runnable() {
+				@Override
+				public void run() {
+					flush();
+				}
+			});
+		}
+		if (lingerGeneration >= 0 && lingerMillis > 0) {
+			final long expected = lingerGeneration;
+			final Disposable timer = scheduler.scheduleDirect(new Runnable() {
+				@Override
+				public void run() {
+					flush(expected);
+				}
+			}, lingerMillis, TimeUnit.MILLISECONDS);
+			synchronized (this) {
+				if (expected == generation) {
+					lingerTimer = timer;
+				} else {
+					timer.dispose();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends partial batch if there is any
+	 */
+	void flush() {
+		final List<Entry> batch;
+		synchronized (this) {
+			if (pending.isEmpty()) {
+				return;
+			}
+			batch = take();
+		}
+		send(batch);
+	}
+
+	/**
+	 * Sends partial batch. Logs added after that are sent without waiting for the batch to fill
+	 */
+	void close() {
+		synchronized (this) {
+			closed = true;
+		}
+		flush();
+	}
+
+	/**
+	 * @return Cache of attachments of the launch or NULL if attachments are not cached
+	 */
+	AttachmentCache getAttachments() {
+		return attachments;
+	}
+
+	/**
+	 * @return Statistics of sent batches
+	 */
+	public Stats getStats() {
+		return stats;
+	}
+
+	/* sends batch by linger timer if it has not been sent yet */
+	private void flush(long expected) {
+		final List<Entry> batch;
+		synchronized (this) {
+			if (expected != generation || pending.isEmpty()) {
+				return;
+			}
+			batch = take();
+		}
+		send(batch);
+	}
+
+	/* guarded by this */
+	private List<Entry> take() {
+		final List<Entry> batch = pending;
+		stats.record(batch.size(), pendingBytes, System.nanoTime() - pendingSince);
+		pending = new ArrayList<Entry>(batchSize);
+		pendingBytes = 0;
+		generation++;
+		flushScheduled = false;
+		if (null != lingerTimer) {
+			lingerTimer.dispose();
+			lingerTimer = null;
+		}
+		return batch;
+	}
+
+	/**
+	 * @param rq Log
+	 * @return Estimated size of the log in multipart request
+	 */
+	static long sizeOf(SaveLogRQ rq) {
+		final SaveLogRQ.File file = rq.getFile();
+		long size = null == rq.getMessage() ? 0 : rq.getMessage().length();
+		if (null != file) {
+			size += StreamedFile.sourceOf(file).sizeIfKnown().or(0L);
+		}
+		return size;
+	}
+
+	private void send(final List<Entry> batch) {
+		Completable.defer(new Callable<CompletableSource>() {
+			@Override
+			public CompletableSource call() throws Exception {
+				final List<SaveLogRQ> rqs = new ArrayList<SaveLogRQ>(batch.size());
+				for (Entry entry : batch) {
+					rqs.add(entry.rq);
+				}
+				return client.log(LoggingContext.toMultiPartRequest(rqs)).ignoreElement();
+			}
+		}).subscribeOn(scheduler).doOnComplete(new Action() {
+			@Override
+			public void run() throws Exception {
+				acknowledge(batch);
+			}
+		}).doOnError(new Consumer<Throwable>() {
+			@Override
+			public void accept(Throwable throwable) throws Exception {
+				stats.recordDropped(batch.size());
+				if (WriteAheadLog.isDelivered(throwable)) {
+					acknowledge(batch);
+				}
+			}
+		}).doFinally(new Action() {
+			@Override
+			public void run() throws Exception {
+				for (Entry entry : batch) {
+					StreamedFile.release(entry.rq.getFile());
+					entry.context.sent();
+				}
+			}
+		}).subscribe(logCompletableResults("Log batch"));
+	}
+
+	private void acknowledge(List<Entry> batch) {
+		if (null == wal) {
+			return;
+		}
+		final long[] seqs = new long[batch.size()];
+		for (int i = 0; i < seqs.length; i++) {
+			seqs[i] = batch.get(i).seq;
+		}
+		wal.ack(seqs);
+	}
+
+	/**
+	 * Records log to write-ahead log. Log is serialized and appended by the writer thread of the write-ahead log,
+	 * the calling thread only takes a copy of the log, since the log is changed once the item is started.
+	 * Failure of the write-ahead log does not affect reporting
+	 *
+	 * @param rq Log
+	 * @return Sequence number of the log or {@link WriteAheadLog#NO_SEQ} if it is not recorded
+	 */
+	long writeAhead(SaveLogRQ rq) {
+		if (null == wal) {
+			return WriteAheadLog.NO_SEQ;
+		}
+		final SaveLogRQ log = new SaveLogRQ();
+		log.setTestItemId(rq.getTestItemId());
+		log.setLogTime(rq.getLogTime());
+		log.setLevel(rq.getLevel());
+		log.setMessage(rq.getMessage());
+		//attachment is replaced rather than changed once the log is emitted, so it's safe to read it later
+		final SaveLogRQ.File file = rq.getFile();
+		if (null != file && !StreamedFile.isRepeatable(StreamedFile.sourceOf(file))) {
+			//stream may be read only once, so it's read to memory before it's sent
+			file.getContent();
+		}
+		log.setFile(file);
+		try {
+			return wal.appendAsync(new Supplier<JournalRecord>() {
+				@Override
+				public JournalRecord get() {
+					return JournalRecord.log(log);
+				}
+			});
+		} catch (IOException e) {
+			LOGGER.error("Unable to record log to write-ahead log", e);
+			return WriteAheadLog.NO_SEQ;
+		}
+	}
+
+	/**
+	 * Histograms of sent batches: count of logs, size in bytes and linger time of the first log in milliseconds.
+	 * Also count of logs of a context which are not sent yet, measured on emit of every log,
+	 * and count of logs which are not reported because of errors
+	 */
+	public static class Stats {
+		private final Histogram size = new Histogram();
+		private final Histogram bytes = new Histogram();
+		private final Histogram linger = new Histogram();
+		private final Histogram queue = new Histogram();
+		private final AtomicLong dropped = new AtomicLong();
+
+		void record(int count, long batchBytes, long lingerNanos) {
+			size.record(count);
+			bytes.record(batchBytes);
+			linger.record(TimeUnit.NANOSECONDS.toMillis(lingerNanos));
+		}
+
+		void recordQueueDepth(int depth) {
+			queue.record(depth);
+		}
+
+		void recordDropped(int count) {
+			dropped.addAndGet(count);
+		}
+
+		public Histogram getSize() {
+			return size;
+		}
+
+		public Histogram getBytes() {
+			return bytes;
+		}
+
+		public Histogram getLinger() {
+			return linger;
+		}
+
+		public Histogram getQueueDepth() {
+			return queue;
+		}
+
+		public long getDropped() {
+			return dropped.get();
+		}
+
+		@Override
+		public String toString() {
+			return "size={" + size + "}, bytes={" + bytes + "}, linger={" + linger + "}, queue={" + queue + "}, dropped=" + dropped.get();
+		}
+	}
+
+	/**
+	 * Log with its sequence number in write-ahead log and context it is emitted to
+	 */
+	private static class Entry {
+		private final SaveLogRQ rq;
+		private final long seq;
+		private final LoggingContext context;
+
+		Entry(SaveLogRQ rq, long seq, LoggingContext context) {
+			this.rq = rq;
+			this.seq = seq;
+			this.context = context;
+		}
+	}
+}
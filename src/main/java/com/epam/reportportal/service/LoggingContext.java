@@ -15,29 +15,35 @@
  */
 package com.epam.reportportal.service;
 
+import com.epam.reportportal.message.StreamedFile;
 import com.epam.reportportal.message.TypeAwareByteSource;
 import com.epam.reportportal.restendpoint.http.MultiPartRequest;
-import com.epam.ta.reportportal.ws.model.BatchSaveOperatingRS;
+import com.epam.reportportal.service.wal.WriteAheadLog;
+import com.epam.reportportal.utils.files.ImageConverter;
 import com.epam.ta.reportportal.ws.model.Constants;
 import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.net.MediaType;
-import io.reactivex.BackpressureStrategy;
 import io.reactivex.Completable;
-import io.reactivex.Flowable;
 import io.reactivex.Maybe;
+import io.reactivex.MaybeSource;
+import io.reactivex.functions.Action;
 import io.reactivex.functions.Consumer;
 import io.reactivex.functions.Function;
-import io.reactivex.schedulers.Schedulers;
-import io.reactivex.subjects.PublishSubject;
-import org.reactivestreams.Publisher;
+import io.reactivex.subjects.CompletableSubject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static com.epam.reportportal.utils.SubscriptionUtils.*;
 import static com.epam.reportportal.utils.files.ImageConverter.convert;
 import static com.epam.reportportal.utils.files.ImageConverter.isImage;
-import static com.google.common.io.ByteSource.wrap;
 
 /**
  * Logging context holds thread-local context for logging and converts
@@ -46,16 +52,24 @@ import static com.google.common.io.ByteSource.wrap;
  * After start some test item (suite/test/step) context should be initialized with observable of
  * item ID and ReportPortal client.
  * Before actual finish of test item, context should be closed/completed.
- * Context consists of {@link Flowable} with buffering back-pressure strategy to be able
- * to batch incoming log messages into one request
+ * Logs are packed into batches by {@link LogBatcher}, which is shared between all the items of a launch,
+ * so context only tracks whether its own logs are sent
  *
  * @author Andrei Varabyeu
  * @see #init(Maybe, ReportPortalClient)
  */
 public class LoggingContext {
 
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoggingContext.class);
+
 	/* default back-pressure buffer size */
 	public static final int DEFAULT_BUFFER_SIZE = 10;
+	/* default max size of a batch in bytes */
+	public static final int DEFAULT_BATCH_BYTES = 16 * 1024 * 1024;
+	/* default max time in milliseconds the first log of a batch waits for the batch to fill */
+	public static final int DEFAULT_BATCH_LINGER = 1000;
+	/* max time in milliseconds emitting thread waits for room on saturated processing lane before image is sent as is */
+	static final long PROCESSING_WAIT = 5000;
 
 	static final ThreadLocal<LoggingContext> CONTEXT_THREAD_LOCAL = new ThreadLocal<LoggingContext>();
 
@@ -80,7 +94,78 @@ public class LoggingContext {
 	 * @return New Logging Context
 	 */
 	public static LoggingContext init(Maybe<String> itemId, final ReportPortalClient client, int bufferSize, boolean convertImages) {
-		LoggingContext context = new LoggingContext(itemId, client, bufferSize, convertImages);
+		return init(itemId, client, bufferSize, convertImages, ReportingSchedulers.getDefault());
+	}
+
+	/**
+	 * Initializes new logging context and attaches it to current thread
+	 *
+	 * @param itemId        Test Item ID
+	 * @param client        Client of ReportPortal
+	 * @param bufferSize    Size of back-pressure buffer
+	 * @param convertImages Whether Image should be converted to BlackAndWhite
+	 * @param schedulers    Schedulers of log uploads and image conversion
+	 * @return New Logging Context
+	 */
+	public static LoggingContext init(Maybe<String> itemId, final ReportPortalClient client, int bufferSize, boolean convertImages,
+			ReportingSchedulers schedulers) {
+		return init(itemId, client, bufferSize, convertImages, schedulers, null);
+	}
+
+	/**
+	 * Initializes new logging context and attaches it to current thread
+	 *
+	 * @param itemId        Test Item ID
+	 * @param client        Client of ReportPortal
+	 * @param bufferSize    Size of back-pressure buffer
+	 * @param convertImages Whether Image should be converted to BlackAndWhite
+	 * @param schedulers    Schedulers of log uploads and image conversion
+	 * @param wal           Write-ahead log logs are recorded to until they are sent. NULL if logs are not recorded
+	 * @return New Logging Context
+	 */
+	public static LoggingContext init(Maybe<String> itemId, final ReportPortalClient client, int bufferSize, boolean convertImages,
+			ReportingSchedulers schedulers, WriteAheadLog wal) {
+		LogBatcher batcher = new LogBatcher(client,
+				bufferSize,
+				DEFAULT_BATCH_BYTES,
+				DEFAULT_BATCH_LINGER,
+				schedulers.getLogs().getScheduler(),
+				wal,
+				null
+		);
+		return init(new LoggingContext(itemId, null, batcher, true, convertImages && ImageConverter.isSupported() ? ImageConverter.Options.DEFAULT : null, schedulers));
+	}
+
+	/**
+	 * Initializes new logging context sharing batches of logs with other items and attaches it to current thread
+	 *
+	 * @param itemId     Test Item ID
+	 * @param batcher    Batcher of logs shared between items of the launch
+	 * @param images     Options of image conversion. NULL if images are not converted
+	 * @param schedulers Schedulers of image conversion
+	 * @return New Logging Context
+	 */
+	static LoggingContext init(Maybe<String> itemId, LogBatcher batcher, ImageConverter.Options images, ReportingSchedulers schedulers) {
+		return init(itemId, batcher, images, schedulers, null);
+	}
+
+	/**
+	 * Initializes new logging context sharing batches of logs with other items and attaches it to current thread
+	 *
+	 * @param itemId     Test Item ID
+	 * @param batcher    Batcher of logs shared between items of the launch
+	 * @param images     Options of image conversion. NULL if images are not converted
+	 * @param schedulers Schedulers of image conversion
+	 * @param localId    Local ID of the item logs are recorded to write-ahead log with as soon as they are emitted.
+	 *                   NULL if logs are recorded once ID of the item is known
+	 * @return New Logging Context
+	 */
+	static LoggingContext init(Maybe<String> itemId, LogBatcher batcher, ImageConverter.Options images, ReportingSchedulers schedulers,
+			String localId) {
+		return init(new LoggingContext(itemId, localId, batcher, false, images, schedulers));
+	}
+
+	private static LoggingContext init(LoggingContext context) {
 		CONTEXT_THREAD_LOCAL.set(context);
 		return context;
 	}
@@ -99,56 +184,62 @@ public class LoggingContext {
 		}
 	}
 
-	/* Log emitter */
-	private final PublishSubject<Maybe<SaveLogRQ>> emitter;
 	/* ID of TestItem in ReportPortal */
 	private final Maybe<String> itemId;
-	/* Whether Image should be converted to BlackAndWhite */
-	private final boolean convertImages;
+	/* Local ID of TestItem in write-ahead log. NULL if logs are recorded once ID of the item is known */
+	private final String localId;
+	/* Batcher logs are sent by */
+	private final LogBatcher batcher;
+	/* Whether partial batch should be sent on completion. TRUE if batcher is not shared with other contexts */
+	private final boolean flushOnComplete;
+	/* Options of conversion of images to BlackAndWhite. NULL if images are not converted */
+	private final ImageConverter.Options images;
+	/* Lane of CPU work like image conversion */
+	private final ReportingSchedulers.Lane processing;
+	/* Count of emitted logs which are not sent yet. Extra one is held until the context is completed */
+	private final AtomicInteger pending = new AtomicInteger(1);
+	private final AtomicBoolean completed = new AtomicBoolean();
+	/* Completes once all the emitted logs are sent */
+	private final CompletableSubject completion = CompletableSubject.create();
+
+	LoggingContext(Maybe<String> itemId, LogBatcher batcher, boolean flushOnComplete, ImageConverter.Options images,
+			ReportingSchedulers schedulers) {
+		this(itemId, null, batcher, flushOnComplete, images, schedulers);
+	}
 
-	LoggingContext(Maybe<String> itemId, final ReportPortalClient client, int bufferSize, boolean convertImages) {
+	LoggingContext(Maybe<String> itemId, String localId, LogBatcher batcher, boolean flushOnComplete, ImageConverter.Options images,
+			ReportingSchedulers schedulers) {
 		this.itemId = itemId;
-		this.emitter = PublishSubject.create();
-		this.convertImages = convertImages;
-		emitter.toFlowable(BackpressureStrategy.BUFFER)
-				.flatMap(new Function<Maybe<SaveLogRQ>, Publisher<SaveLogRQ>>() {
-					@Override
-					public Publisher<SaveLogRQ> apply(Maybe<SaveLogRQ> rq) throws Exception {
-						return rq.toFlowable();
-					}
-				})
-				.buffer(bufferSize)
-				.flatMap(new Function<List<SaveLogRQ>, Flowable<BatchSaveOperatingRS>>() {
-					@Override
-					public Flowable<BatchSaveOperatingRS> apply(List<SaveLogRQ> rqs) throws Exception {
-						MultiPartRequest.Builder builder = new MultiPartRequest.Builder();
-
-						builder.addSerializedPart(Constants.LOG_REQUEST_JSON_PART, rqs);
-
-						for (SaveLogRQ rq : rqs) {
-							final SaveLogRQ.File file = rq.getFile();
-							if (null != file) {
-								builder.addBinaryPart(Constants.LOG_REQUEST_BINARY_PART,
-										file.getName(),
-										Strings.isNullOrEmpty(file.getContentType()) ?
-												MediaType.OCTET_STREAM.toString() :
-												file.getContentType(),
-										wrap(file.getContent())
-								);
-							}
-						}
-						return client.log(builder.build()).toFlowable();
-					}
-				})
-				.doOnError(new Consumer<Throwable>() {
-					@Override
-					public void accept(Throwable throwable) throws Exception {
-						throwable.printStackTrace();
-					}
-				})
-				.observeOn(Schedulers.computation())
-				.subscribe(logFlowableResults("Logging context"));
+		this.localId = localId;
+		this.batcher = batcher;
+		this.flushOnComplete = flushOnComplete;
+		this.images = images;
+		this.processing = schedulers.getProcessing();
+	}
+
+	/**
+	 * Converts batch of logs to multipart request: JSON part with all the logs and binary part per attached file.
+	 * Streamed attachments are not read to memory, transport copies them to the request body
+	 *
+	 * @param rqs Batch of logs
+	 * @return Multipart request
+	 */
+	public static MultiPartRequest toMultiPartRequest(List<SaveLogRQ> rqs) {
+		MultiPartRequest.Builder builder = new MultiPartRequest.Builder();
 
+		builder.addSerializedPart(Constants.LOG_REQUEST_JSON_PART, rqs);
+
+		for (SaveLogRQ rq : rqs) {
+			final SaveLogRQ.File file = rq.getFile();
+			if (null != file) {
+				builder.addBinaryPart(Constants.LOG_REQUEST_BINARY_PART,
+						file.getName(),
+						Strings.isNullOrEmpty(file.getContentType()) ? MediaType.OCTET_STREAM.toString() : file.getContentType(),
+						StreamedFile.sourceOf(file)
+				);
+			}
+		}
+		return builder.build();
 	}
 
 	/**
@@ -157,20 +248,137 @@ public class LoggingContext {
 	 * @param logSupplier Log Message Factory. Key if the function is actual test item ID
 	 */
 	public void emit(final com.google.common.base.Function<String, SaveLogRQ> logSupplier) {
-		emitter.onNext(itemId.map(new Function<String, SaveLogRQ>() {
+		final Maybe<SaveLogRQ> rq;
+		final long seq;
+		final boolean convert;
+		if (null == localId) {
+			rq = itemId.map(new Function<String, SaveLogRQ>() {
+				@Override
+				public SaveLogRQ apply(String input) throws Exception {
+					return logSupplier.apply(input);
+				}
+			});
+			seq = WriteAheadLog.NO_SEQ;
+			//log is not known until the item is started, so emitting thread waits as if it had an image
+			convert = null != images && awaitProcessing();
+		} else {
+			//handed to write-ahead log right away, so the log survives crash even if the item has not been started by the server yet
+			final SaveLogRQ log;
+			try {
+				log = Preconditions.checkNotNull(logSupplier.apply(localId), "Log shouldn't be NULL");
+			} catch (RuntimeException e) {
+				LOGGER.error("Unable to emit log", e);
+				batcher.getStats().recordDropped(1);
+				return;
+			}
+			seq = batcher.writeAhead(log);
+			convert = null != images && hasImage(log) && awaitProcessing();
+			rq = itemId.map(new Function<String, SaveLogRQ>() {
+				@Override
+				public SaveLogRQ apply(String input) {
+					log.setTestItemId(input);
+					return log;
+				}
+			});
+		}
+		//extra one held until completion is not a log
+		batcher.getStats().recordQueueDepth(pending.incrementAndGet() - (completed.get() ? 0 : 1));
+		(convert ? process(rq) : rq).subscribe(new Consumer<SaveLogRQ>() {
 			@Override
-			public SaveLogRQ apply(String input) throws Exception {
-				final SaveLogRQ rq = logSupplier.apply(input);
-				SaveLogRQ.File file = rq.getFile();
-				if (convertImages && null != file && isImage(file.getContentType())) {
-					final TypeAwareByteSource source = convert(wrap(file.getContent()));
-					file.setContent(source.read());
-					file.setContentType(source.getMediaType());
+			public void accept(SaveLogRQ rq) throws Exception {
+				if (null == localId) {
+					batcher.add(rq, LoggingContext.this);
+				} else {
+					batcher.add(rq, seq, LoggingContext.this);
+				}
+				if (flushOnComplete && completed.get()) {
+					//log has been processed after completion of the context, so nothing else is going to flush it
+					batcher.flush();
 				}
-				return rq;
 			}
-		}));
+		}, new Consumer<Throwable>() {
+			@Override
+			public void accept(Throwable throwable) throws Exception {
+				LOGGER.error("Unable to emit log", throwable);
+				batcher.getStats().recordDropped(1);
+				sent();
+			}
+		}, new Action() {
+			@Override
+			public void run() throws Exception {
+				//item has not been started, so there is nothing to send
+				sent();
+			}
+		});
+	}
+
+	/**
+	 * Waits for room on the processing lane on the emitting thread, so images do not pile up in memory
+	 * while the lane is saturated and the emitting thread is slowed down instead
+	 *
+	 * @return FALSE if there is still no room once {@link #PROCESSING_WAIT} expires, so image is sent as is
+	 */
+	private boolean awaitProcessing() {
+		try {
+			return processing.awaitCapacity(PROCESSING_WAIT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
 
+	private static boolean hasImage(SaveLogRQ rq) {
+		return null != rq.getFile() && isImage(rq.getFile().getContentType());
+	}
+
+	/**
+	 * Moves conversion and caching of attached images to the processing lane, so they never run on test or HTTP threads
+	 * and images of many logs are processed in parallel. Logs without images are not moved.
+	 * Emitting thread has waited for room on the lane already, so images are queued even if the lane has filled up since then
+	 */
+	private Maybe<SaveLogRQ> process(Maybe<SaveLogRQ> rq) {
+		final AttachmentCache attachments = batcher.getAttachments();
+		return rq.flatMap(new Function<SaveLogRQ, MaybeSource<SaveLogRQ>>() {
+			@Override
+			public MaybeSource<SaveLogRQ> apply(final SaveLogRQ log) {
+				if (!hasImage(log)) {
+					return Maybe.just(log);
+				}
+				return Maybe.fromCallable(new Callable<SaveLogRQ>() {
+					@Override
+					public SaveLogRQ call() throws Exception {
+						return null == attachments ? convertImage(log, images) : attachments.process(log, images);
+					}
+				}).subscribeOn(processing.getScheduler()).doOnError(new Consumer<Throwable>() {
+					@Override
+					public void accept(Throwable throwable) {
+						StreamedFile.release(log.getFile());
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Converts attached image to black and white
+	 *
+	 * @param rq     Log
+	 * @param images Options of image conversion
+	 * @return The same log
+	 * @throws IOException In case image cannot be read
+	 */
+	static SaveLogRQ convertImage(SaveLogRQ rq, ImageConverter.Options images) throws IOException {
+		SaveLogRQ.File file = rq.getFile();
+		if (null != file && isImage(file.getContentType())) {
+			final TypeAwareByteSource source = convert(StreamedFile.sourceOf(file), images);
+			//attachment is replaced, since it may be read by write-ahead log at the same time
+			SaveLogRQ.File converted = new SaveLogRQ.File();
+			converted.setName(file.getName());
+			converted.setContentType(source.getMediaType());
+			converted.setContent(source.read());
+			rq.setFile(converted);
+		}
+		return rq;
 	}
 
 	/**
@@ -179,8 +387,22 @@ public class LoggingContext {
 	 * @return {@link Completable}
 	 */
 	public Completable completed() {
-		emitter.onComplete();
-		return emitter.ignoreElements();
+		if (completed.compareAndSet(false, true)) {
+			if (flushOnComplete) {
+				batcher.flush();
+			}
+			sent();
+		}
+		return completion;
+	}
+
+	/**
+	 * Called once emitted log is sent or cannot be sent
+	 */
+	void sent() {
+		if (0 == pending.decrementAndGet()) {
+			completion.onComplete();
+		}
 	}
 
 }
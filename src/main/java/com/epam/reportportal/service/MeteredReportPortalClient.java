@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.reportportal.service.metrics.Gauge;
+import com.epam.reportportal.service.metrics.MetricsRegistry;
+import com.epam.reportportal.utils.Histogram;
+import com.epam.ta.reportportal.ws.model.*;
+import com.epam.ta.reportportal.ws.model.item.ItemCreatedRS;
+import com.epam.ta.reportportal.ws.model.launch.LaunchResource;
+import com.epam.ta.reportportal.ws.model.launch.MergeLaunchesRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRS;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import io.reactivex.Maybe;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.BiConsumer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ReportPortalClient} recording requests of every endpoint to {@link MetricsRegistry}: requests in flight,
+ * latency in milliseconds and errors. Every attempt of a retried request is recorded separately.
+ * Endpoints are named after methods of the client, so both methods of item start are recorded as one endpoint
+ * as well as both methods of log
+ */
+class MeteredReportPortalClient implements ReportPortalClient {
+
+	private final ReportPortalClient client;
+	private final Endpoint startLaunch;
+	private final Endpoint mergeLaunches;
+	private final Endpoint finishLaunch;
+	private final Endpoint startTestItem;
+	private final Endpoint finishTestItem;
+	private final Endpoint log;
+
+	/**
+	 * @param client  Client requests are sent by
+	 * @param metrics Registry metrics of endpoints are registered to
+	 */
+	MeteredReportPortalClient(ReportPortalClient client, MetricsRegistry metrics) {
+		this.client = client;
+		this.startLaunch = new Endpoint("startLaunch", metrics);
+		this.mergeLaunches = new Endpoint("mergeLaunches", metrics);
+		this.finishLaunch = new Endpoint("finishLaunch", metrics);
+		this.startTestItem = new Endpoint("startTestItem", metrics);
+		this.finishTestItem = new Endpoint("finishTestItem", metrics);
+		this.log = new Endpoint("log", metrics);
+	}
+
+	@Override
+	public Maybe<StartLaunchRS> startLaunch(final StartLaunchRQ rq) {
+		return startLaunch.meter(new Callable<Maybe<StartLaunchRS>>() {
+			@Override
+			public Maybe<StartLaunchRS> call() {
+				return client.startLaunch(rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<LaunchResource> mergeLaunches(final MergeLaunchesRQ rq) {
+		return mergeLaunches.meter(new Callable<Maybe<LaunchResource>>() {
+			@Override
+			public Maybe<LaunchResource> call() {
+				return client.mergeLaunches(rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<OperationCompletionRS> finishLaunch(final String launch, final FinishExecutionRQ rq) {
+		return finishLaunch.meter(new Callable<Maybe<OperationCompletionRS>>() {
+			@Override
+			public Maybe<OperationCompletionRS> call() {
+				return client.finishLaunch(launch, rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<ItemCreatedRS> startTestItem(final StartTestItemRQ rq) {
+		return startTestItem.meter(new Callable<Maybe<ItemCreatedRS>>() {
+			@Override
+			public Maybe<ItemCreatedRS> call() {
+				return client.startTestItem(rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<ItemCreatedRS> startTestItem(final String parent, final StartTestItemRQ rq) {
+		return startTestItem.meter(new Callable<Maybe<ItemCreatedRS>>() {
+			@Override
+			public Maybe<ItemCreatedRS> call() {
+				return client.startTestItem(parent, rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<OperationCompletionRS> finishTestItem(final String itemId, final FinishTestItemRQ rq) {
+		return finishTestItem.meter(new Callable<Maybe<OperationCompletionRS>>() {
+			@Override
+			public Maybe<OperationCompletionRS> call() {
+				return client.finishTestItem(itemId, rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<EntryCreatedRS> log(final SaveLogRQ rq) {
+		return log.meter(new Callable<Maybe<EntryCreatedRS>>() {
+			@Override
+			public Maybe<EntryCreatedRS> call() {
+				return client.log(rq);
+			}
+		});
+	}
+
+	@Override
+	public Maybe<BatchSaveOperatingRS> log(final MultiPartRequest rq) {
+		return log.meter(new Callable<Maybe<BatchSaveOperatingRS>>() {
+			@Override
+			public Maybe<BatchSaveOperatingRS> call() {
+				return client.log(rq);
+			}
+		});
+	}
+
+	@Override
+	public void close() {
+		client.close();
+	}
+
+	/**
+	 * Metrics of an endpoint: {@code requests.in_flight.<name>}, {@code requests.latency_ms.<name>}
+	 * and {@code requests.errors.<name>}
+	 */
+	private static class Endpoint {
+		private final AtomicLong inFlight = new AtomicLong();
+		private final Histogram latency;
+		private final AtomicLong errors;
+
+		Endpoint(String name, MetricsRegistry metrics) {
+			this.latency = metrics.histogram("requests.latency_ms." + name);
+			this.errors = metrics.counter("requests.errors." + name);
+			metrics.gauge("requests.in_flight." + name, new Gauge() {
+				@Override
+				public long getValue() {
+					return inFlight.get();
+				}
+			});
+		}
+
+		/* request is measured from subscription, so time spent in queues of schedulers is not included.
+		 Metrics are recorded before downstream is notified, so they are up to date once the response is observed */
+		<T> Maybe<T> meter(final Callable<Maybe<T>> request) {
+			return Maybe.defer(new Callable<Maybe<T>>() {
+				@Override
+				public Maybe<T> call() throws Exception {
+					final long start = System.nanoTime();
+					final Maybe<T> rs = request.call();
+					final AtomicBoolean done = new AtomicBoolean();
+					inFlight.incrementAndGet();
+					return rs.doOnEvent(new BiConsumer<T, Throwable>() {
+						@Override
+						public void accept(T response, Throwable throwable) {
+							if (null != throwable) {
+								errors.incrementAndGet();
+							}
+							record(start, done);
+						}
+					}).doOnDispose(new Action() {
+						@Override
+						public void run() {
+							record(start, done);
+						}
+					});
+				}
+			});
+		}
+
+		/* request is recorded once, either on response or on cancellation */
+		private void record(long start, AtomicBoolean done) {
+			if (done.compareAndSet(false, true)) {
+				inFlight.decrementAndGet();
+				latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+			}
+		}
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.exception.InternalReportPortalClientException;
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.service.offline.Journal;
+import com.epam.reportportal.service.offline.JournalClient;
+import com.epam.reportportal.service.offline.JournalUploader;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import io.reactivex.Maybe;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Launch recorded to local journal instead of ReportPortal. Item tree, ordering and logging contexts
+ * are the same as of {@link LaunchImpl}, but all the requests are appended to {@link Journal}, so reporting
+ * does not depend on availability of the server. Journal is uploaded later by {@link JournalUploader}
+ */
+public class OfflineLaunch extends Launch {
+
+	private final LaunchImpl delegate;
+	private final JournalClient client;
+	private final File journal;
+	/* shut down once the launch is finished. NULL if lanes are shared */
+	private final ReportingSchedulers ownedSchedulers;
+
+	OfflineLaunch(ListenerParameters parameters, StartLaunchRQ rq, ReportingSchedulers schedulers) {
+		this(parameters, rq, schedulers, false);
+	}
+
+	/**
+	 * @param parameters     Listener parameters
+	 * @param rq             Start RQ
+	 * @param schedulers     Schedulers of reporting work
+	 * @param ownsSchedulers Whether schedulers are shut down once the launch is finished
+	 */
+	OfflineLaunch(ListenerParameters parameters, StartLaunchRQ rq, ReportingSchedulers schedulers, boolean ownsSchedulers) {
+		super(parameters);
+		this.ownedSchedulers = ownsSchedulers ? schedulers : null;
+		this.journal = new File(parameters.getOfflineJournal());
+		try {
+			this.client = new JournalClient(Journal.open(journal));
+			this.delegate = new LaunchImpl(client, parameters, rq, schedulers);
+		} catch (IOException e) {
+			throw new InternalReportPortalClientException("Unable to open journal " + journal, e);
+		}
+	}
+
+	@Override
+	public Maybe<String> start() {
+		return delegate.start();
+	}
+
+	/**
+	 * Finishes launch and closes the journal. Lanes created for the launch are shut down
+	 *
+	 * @param rq Finish RQ
+	 */
+	@Override
+	public void finish(FinishExecutionRQ rq) {
+		delegate.finish(rq);
+		//launch closes its client asynchronously, so the journal is closed explicitly to be complete on return
+		client.close();
+		if (null != ownedSchedulers) {
+			ownedSchedulers.shutdown();
+		}
+		LOGGER.info("Launch is recorded to {}. Use {} to upload it to ReportPortal", journal.getAbsolutePath(), JournalUploader.class.getName());
+	}
+
+	@Override
+	public Maybe<String> startTestItem(StartTestItemRQ rq) {
+		return delegate.startTestItem(rq);
+	}
+
+	@Override
+	public Maybe<String> startTestItem(Maybe<String> parentId, StartTestItemRQ rq) {
+		return delegate.startTestItem(parentId, rq);
+	}
+
+	@Override
+	public Maybe<String> startTestItem(Maybe<String> parentId, Maybe<String> retryOf, StartTestItemRQ rq) {
+		return delegate.startTestItem(parentId, retryOf, rq);
+	}
+
+	@Override
+	public void finishTestItem(Maybe<String> itemId, FinishTestItemRQ rq) {
+		delegate.finishTestItem(itemId, rq);
+	}
+
+	/**
+	 * @return Journal file the launch is recorded to
+	 */
+	public File getJournal() {
+		return journal;
+	}
+}
@@ -17,7 +17,9 @@ package com.epam.reportportal.service;
 
 import com.epam.reportportal.exception.InternalReportPortalClientException;
 import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.message.FileByteSource;
 import com.epam.reportportal.message.ReportPortalMessage;
+import com.epam.reportportal.message.StreamedFile;
 import com.epam.reportportal.message.TypeAwareByteSource;
 import com.epam.reportportal.restendpoint.http.HttpClientRestEndpoint;
 import com.epam.reportportal.restendpoint.http.RestEndpoint;
@@ -25,6 +27,17 @@ import com.epam.reportportal.restendpoint.http.RestEndpoints;
 import com.epam.reportportal.restendpoint.serializer.ByteArraySerializer;
 import com.epam.reportportal.restendpoint.serializer.Serializer;
 import com.epam.reportportal.restendpoint.serializer.json.JacksonSerializer;
+import com.epam.reportportal.service.metrics.Gauge;
+import com.epam.reportportal.service.metrics.MetricsRegistry;
+import com.epam.reportportal.service.transport.AsyncHttpClientRestEndpoint;
+import com.epam.reportportal.service.transport.GzipCompressor;
+import com.epam.reportportal.service.transport.GzipRequestInterceptor;
+import com.epam.reportportal.service.transport.HttpTransport;
+import com.epam.reportportal.service.transport.InterceptingHttpAsyncClient;
+import com.epam.reportportal.service.transport.InterceptingHttpClient;
+import com.epam.reportportal.service.transport.OkHttpRestEndpointFactory;
+import com.epam.reportportal.service.wal.WalRecovery;
+import com.epam.reportportal.service.wal.WriteAheadLog;
 import com.epam.reportportal.utils.SslUtils;
 import com.epam.reportportal.utils.properties.ListenerProperty;
 import com.epam.reportportal.utils.properties.PropertiesLoader;
@@ -36,14 +49,23 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.reactivex.Maybe;
 import org.apache.http.client.HttpClient;
 import org.apache.http.conn.ssl.TrustSelfSignedStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.text.SimpleDateFormat;
@@ -54,7 +76,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import static com.epam.reportportal.utils.MimeTypeDetector.detect;
-import static com.google.common.io.Files.toByteArray;
+import static com.epam.reportportal.utils.SubscriptionUtils.logCompletableResults;
 
 /**
  * Default ReportPortal Reporter implementation. Uses
@@ -69,14 +91,128 @@ public class ReportPortal {
 
 	private ReportPortalClient rpClient;
 	private ListenerParameters parameters;
+	private ReportingSchedulers schedulers;
+	/* whether lanes are created for this instance only, so they are shut down once reporting is done */
+	private boolean ownsSchedulers;
+	private WriteAheadLog wal;
+	private MetricsRegistry metrics;
+	/* client of launches, records requests to metrics */
+	private ReportPortalClient meteredClient;
 
 	/**
 	 * @param rpClient   ReportPortal client
 	 * @param parameters Listener Parameters
 	 */
 	ReportPortal(ReportPortalClient rpClient, ListenerParameters parameters) {
+		this(rpClient, parameters, ReportingSchedulers.getDefault());
+	}
+
+	/**
+	 * @param rpClient   ReportPortal client
+	 * @param parameters Listener Parameters
+	 * @param schedulers Schedulers of reporting work
+	 */
+	ReportPortal(ReportPortalClient rpClient, ListenerParameters parameters, ReportingSchedulers schedulers) {
+		this(rpClient, parameters, schedulers, false);
+	}
+
+	/**
+	 * @param rpClient       ReportPortal client
+	 * @param parameters     Listener Parameters
+	 * @param schedulers     Schedulers of reporting work
+	 * @param ownsSchedulers Whether schedulers are shut down once launch is finished and its client is closed
+	 */
+	ReportPortal(ReportPortalClient rpClient, ListenerParameters parameters, final ReportingSchedulers schedulers, boolean ownsSchedulers) {
 		this.rpClient = rpClient;
 		this.parameters = parameters;
+		this.schedulers = schedulers;
+		this.ownsSchedulers = ownsSchedulers;
+		this.metrics = new MetricsRegistry();
+		if (ownsSchedulers) {
+			//launch closes its client once it's finished
+			this.meteredClient = new MeteredReportPortalClient(rpClient, metrics) {
+				@Override
+				public void close() {
+					super.close();
+					schedulers.shutdown();
+				}
+			};
+		} else {
+			this.meteredClient = new MeteredReportPortalClient(rpClient, metrics);
+		}
+		registerLanes(metrics, schedulers);
+		if (parameters.isWal() && Boolean.TRUE == parameters.getEnable() && !parameters.isOffline()) {
+			this.wal = openWriteAheadLog(rpClient, parameters, schedulers);
+		}
+	}
+
+	/**
+	 * Registers queue size, bound of the queue, rejected and active tasks of every lane
+	 */
+	private static void registerLanes(MetricsRegistry metrics, ReportingSchedulers schedulers) {
+		for (final ReportingSchedulers.Lane lane : new ReportingSchedulers.Lane[] { schedulers.getItems(), schedulers.getLogs(),
+				schedulers.getProcessing() }) {
+			final String prefix = "lanes." + lane.getName() + ".";
+			metrics.gauge(prefix + "queue", new Gauge() {
+				@Override
+				public long getValue() {
+					return lane.getQueueSize();
+				}
+			});
+			metrics.gauge(prefix + "max_queue", new Gauge() {
+				@Override
+				public long getValue() {
+					return lane.getMaxQueueSize();
+				}
+			});
+			metrics.gauge(prefix + "waited", new Gauge() {
+				@Override
+				public long getValue() {
+					return lane.getWaitedCount();
+				}
+			});
+			metrics.gauge(prefix + "rejected", new Gauge() {
+				@Override
+				public long getValue() {
+					return lane.getRejectedCount();
+				}
+			});
+			metrics.gauge(prefix + "active", new Gauge() {
+				@Override
+				public long getValue() {
+					return lane.getActiveCount();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Opens write-ahead log of the current JVM and re-sends logs of crashed ones in background
+	 *
+	 * @return Write-ahead log or NULL if it cannot be opened
+	 */
+	private static WriteAheadLog openWriteAheadLog(ReportPortalClient rpClient, ListenerParameters parameters, ReportingSchedulers schedulers) {
+		final WriteAheadLog wal;
+		try {
+			wal = WriteAheadLog.open(new File(parameters.getWalDir()), parameters.getWalSyncInterval());
+		} catch (IOException e) {
+			LOGGER.error("Unable to open write-ahead log. Events are reported without it", e);
+			return null;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread("rp-wal-shutdown") {
+			@Override
+			public void run() {
+				try {
+					wal.close();
+				} catch (IOException e) {
+					LOGGER.error("Unable to close write-ahead log", e);
+				}
+			}
+		});
+		WalRecovery.recover(rpClient, wal, parameters.getBatchLogsSize())
+				.subscribeOn(schedulers.getItems().getScheduler())
+				.subscribe(logCompletableResults("Write-ahead log recovery"));
+		return wal;
 	}
 
 	/**
@@ -90,7 +226,11 @@ public class ReportPortal {
 			return Launch.NOOP_LAUNCH;
 		}
 
-		LaunchImpl service = new LaunchImpl(rpClient, parameters, rq);
+		if (parameters.isOffline()) {
+			return new OfflineLaunch(parameters, rq, schedulers, ownsSchedulers);
+		}
+
+		LaunchImpl service = new LaunchImpl(meteredClient, parameters, rq, schedulers, wal, metrics);
 		return service;
 	}
 
@@ -101,7 +241,7 @@ public class ReportPortal {
 	 * @return This instance for chaining
 	 */
 	public Launch withLaunch(Maybe<String> currentLaunchId) {
-		return new LaunchImpl(rpClient, parameters, currentLaunchId);
+		return new LaunchImpl(meteredClient, parameters, currentLaunchId, schedulers, wal, metrics);
 	}
 
 	/**
@@ -118,6 +258,28 @@ public class ReportPortal {
 		return this.rpClient;
 	}
 
+	/**
+	 * @return Schedulers of reporting work. Exposes queue metrics of each lane
+	 */
+	public ReportingSchedulers getSchedulers() {
+		return schedulers;
+	}
+
+	/**
+	 * @return Write-ahead log of reporting events or NULL if it is disabled
+	 */
+	public WriteAheadLog getWriteAheadLog() {
+		return wal;
+	}
+
+	/**
+	 * @return Metrics of reporting: requests of every endpoint, lanes and the latest launch.
+	 * Exported by {@link com.epam.reportportal.service.metrics.MetricsExporter} once a launch is finished
+	 */
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * Creates new builder for {@link ReportPortal}
 	 *
@@ -136,6 +298,15 @@ public class ReportPortal {
 		return new ReportPortal(client, params);
 	}
 
+	/**
+	 * Creates new ReportPortal based on already built dependencies
+	 *
+	 * @return builder for {@link ReportPortal}
+	 */
+	public static ReportPortal create(ReportPortalClient client, ListenerParameters params, ReportingSchedulers schedulers) {
+		return new ReportPortal(client, params, schedulers);
+	}
+
 	/**
 	 * Emits log message if there is any active context attached to the current thread
 	 *
@@ -168,6 +339,10 @@ public class ReportPortal {
 
 	}
 
+	/**
+	 * Emits log message with attached file if there is any active context attached to the current thread.
+	 * File is not read to memory, it's copied to the request when the log is sent, so it should not be deleted until then
+	 */
 	public static boolean emitLog(final String message, final String level, final Date time, final File file) {
 		return emitLog(new com.google.common.base.Function<String, SaveLogRQ>() {
 			@Override
@@ -179,12 +354,7 @@ public class ReportPortal {
 				rq.setMessage(message);
 
 				try {
-					SaveLogRQ.File f = new SaveLogRQ.File();
-					f.setContentType(detect(file));
-					f.setContent(toByteArray(file));
-
-					f.setName(UUID.randomUUID().toString());
-					rq.setFile(f);
+					rq.setFile(new StreamedFile(UUID.randomUUID().toString(), detect(file), new FileByteSource(file)));
 				} catch (IOException e) {
 					// seems like there is some problem. Do not report an file
 					LOGGER.error("Cannot send file to ReportPortal", e);
@@ -195,6 +365,34 @@ public class ReportPortal {
 		});
 	}
 
+	/**
+	 * Emits log message with attachment read from the stream if there is any active context attached to the current thread.
+	 * Stream is read when the log is sent, so it should not be read or closed by the caller. It's read only once and closed
+	 * once the log is sent or fails to be sent, or right away if there is no active context
+	 *
+	 * @param contentType Content type of the attachment
+	 */
+	public static boolean emitLog(final String message, final String level, final Date time, final InputStream stream,
+			final String contentType) {
+		final StreamedFile file = new StreamedFile(UUID.randomUUID().toString(), contentType, StreamedFile.once(stream));
+		boolean emitted = emitLog(new com.google.common.base.Function<String, SaveLogRQ>() {
+			@Override
+			public SaveLogRQ apply(String id) {
+				SaveLogRQ rq = new SaveLogRQ();
+				rq.setLevel(level);
+				rq.setLogTime(time);
+				rq.setTestItemId(id);
+				rq.setMessage(message);
+				rq.setFile(file);
+				return rq;
+			}
+		});
+		if (!emitted) {
+			StreamedFile.release(file);
+		}
+		return emitted;
+	}
+
 	public static boolean emitLog(final ReportPortalMessage message, final String level, final Date time) {
 		return emitLog(new com.google.common.base.Function<String, SaveLogRQ>() {
 			@Override
@@ -206,12 +404,7 @@ public class ReportPortal {
 				rq.setMessage(message.getMessage());
 				try {
 					final TypeAwareByteSource data = message.getData();
-					SaveLogRQ.File file = new SaveLogRQ.File();
-					file.setContent(data.read());
-
-					file.setContentType(data.getMediaType());
-					file.setName(UUID.randomUUID().toString());
-					rq.setFile(file);
+					rq.setFile(new StreamedFile(UUID.randomUUID().toString(), data.getMediaType(), data));
 
 				} catch (Exception e) {
 					// seems like there is some problem. Do not report an file
@@ -223,31 +416,92 @@ public class ReportPortal {
 		});
 	}
 
-	public static class Builder {
+	public static class Builder implements Cloneable {
 		public static final String API_BASE = "/api/v1";
 		private static final String HTTPS = "https";
 
 		private HttpClientBuilder httpClient;
+		private HttpAsyncClientBuilder asyncHttpClient;
+		/* built from the builders of the caller by build(), so the builders are not used afterwards */
+		private CloseableHttpClient builtHttpClient;
+		private CloseableHttpAsyncClient builtAsyncHttpClient;
 		private ListenerParameters parameters;
 		private ExecutorService executorService;
+		private ReportingSchedulers schedulers;
+		private GzipCompressor compressor;
 
 		public Builder withHttpClient(HttpClientBuilder client) {
 			this.httpClient = client;
 			return this;
 		}
 
+		/**
+		 * @param client Builder of HTTP client used with {@link HttpTransport#ASYNC} transport
+		 * @return This builder
+		 */
+		public Builder withAsyncHttpClient(HttpAsyncClientBuilder client) {
+			this.asyncHttpClient = client;
+			return this;
+		}
+
+		/**
+		 * @param schedulers Schedulers of reporting work. They are not shut down by the client. If not set, JVM-wide lanes
+		 *                   are used, unless parameters set other sizes of lanes. Such lanes are created for the client
+		 *                   and shut down once launch is finished
+		 * @return This builder
+		 */
+		public Builder withSchedulers(ReportingSchedulers schedulers) {
+			this.schedulers = schedulers;
+			return this;
+		}
+
+		/**
+		 * @param compressor Compressor of request bodies. Enables compression regardless of parameters,
+		 *                   may be used to get compression statistics
+		 * @return This builder
+		 */
+		public Builder withCompressor(GzipCompressor compressor) {
+			this.compressor = compressor;
+			return this;
+		}
+
 		public Builder withParameters(ListenerParameters parameters) {
 			this.parameters = parameters;
 			return this;
 		}
 
+		/**
+		 * Builds ReportPortal. Executor, HTTP client and serializer are built once on the first request,
+		 * so errors of their configuration are reported by failed requests. They are built from the state
+		 * of the builder at the time of this call, so the builder may be changed and reused afterwards.
+		 * HTTP client of the builder set by {@link #withHttpClient(HttpClientBuilder)} or
+		 * {@link #withAsyncHttpClient(HttpAsyncClientBuilder)} is built right away, so later changes
+		 * of that builder do not affect the client either. The builder itself is never changed
+		 *
+		 * @return ReportPortal
+		 */
 		public ReportPortal build() {
 			try {
-				ListenerParameters params = null == this.parameters ? new ListenerParameters(defaultPropertiesLoader()) : this.parameters;
-				executorService = Executors.newFixedThreadPool(params.getIoPoolSize(),
-						new ThreadFactoryBuilder().setNameFormat("rp-io-%s").build()
-				);
-				return new ReportPortal(buildClient(ReportPortalClient.class, params), params);
+				final ListenerParameters params = null == this.parameters ? new ListenerParameters(defaultPropertiesLoader()) : this.parameters;
+				final Builder snapshot = snapshot();
+				snapshot.buildUserHttpClient(params);
+				final ReportPortalClient client = new LazyReportPortalClient(new com.google.common.base.Supplier<ReportPortalClient>() {
+					@Override
+					public ReportPortalClient get() {
+						snapshot.executorService = snapshot.buildExecutorService(params);
+						try {
+							return snapshot.buildClient(ReportPortalClient.class, params);
+						} catch (RuntimeException e) {
+							snapshot.executorService.shutdown();
+							throw e;
+						}
+					}
+				});
+				if (null != this.schedulers) {
+					return new ReportPortal(client, params, this.schedulers);
+				}
+				final ReportingSchedulers schedulers = ReportingSchedulers.of(params);
+				return new ReportPortal(client, params, schedulers, ReportingSchedulers.getDefault() != schedulers);
 			} catch (Exception e) {
 				String errMsg = "Cannot build ReportPortal client";
 				LOGGER.error(errMsg, e);
@@ -256,11 +510,40 @@ public class ReportPortal {
 
 		}
 
+		/**
+		 * @return Copy of the builder of the same class, so state of the builder and of its subclass is not changed
+		 * by building the client
+		 */
+		private Builder snapshot() {
+			try {
+				return (Builder) clone();
+			} catch (CloneNotSupportedException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		private void buildUserHttpClient(ListenerParameters params) {
+			if (HttpTransport.ASYNC == params.getHttpTransport()) {
+				this.builtAsyncHttpClient = null == this.asyncHttpClient ? null : this.asyncHttpClient.build();
+			} else if (HttpTransport.HTTP2 != params.getHttpTransport()) {
+				this.builtHttpClient = null == this.httpClient ? null : this.httpClient.build();
+			}
+		}
+
 		public <T extends ReportPortalClient> T buildClient(Class<T> clientType, ListenerParameters params) {
 			try {
-				HttpClient client = null == this.httpClient ?
-						defaultClient(params) :
-						this.httpClient.addInterceptorLast(new BearerAuthInterceptor(params.getUuid())).build();
+				if (null == this.compressor && params.isCompression()) {
+					this.compressor = GzipCompressor.create(params);
+				}
+				if (HttpTransport.ASYNC == params.getHttpTransport()) {
+					CloseableHttpAsyncClient client = null == this.asyncHttpClient ? defaultAsyncClient(params) : userAsyncHttpClient(params);
+					return RestEndpoints.forInterface(clientType, buildAsyncRestEndpoint(params, client));
+				}
+				if (HttpTransport.HTTP2 == params.getHttpTransport()) {
+					return RestEndpoints.forInterface(clientType, buildHttp2RestEndpoint(params));
+				}
+
+				HttpClient client = null == this.httpClient ? defaultClient(params) : userHttpClient(params);
 
 				return RestEndpoints.forInterface(clientType, buildRestEndpoint(params, client));
 			} catch (Exception e) {
@@ -271,32 +554,165 @@ public class ReportPortal {
 
 		}
 
-		protected RestEndpoint buildRestEndpoint(ListenerParameters parameters, HttpClient client) {
-			final ObjectMapper om = new ObjectMapper();
-			om.setDateFormat(new SimpleDateFormat(DEFAULT_DATE_FORMAT));
-			om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		/* interceptors are added to the client built by the caller's builder, so the builder is not changed */
+		private CloseableHttpClient userHttpClient(ListenerParameters params) {
+			CloseableHttpClient client = null == this.builtHttpClient ? this.httpClient.build() : this.builtHttpClient;
+			BearerAuthInterceptor auth = new BearerAuthInterceptor(params.getUuid());
+			return null == this.compressor ?
+					new InterceptingHttpClient(client, auth) :
+					new InterceptingHttpClient(client, new GzipRequestInterceptor(this.compressor), auth);
+		}
+
+		private CloseableHttpAsyncClient userAsyncHttpClient(ListenerParameters params) {
+			CloseableHttpAsyncClient client = null == this.builtAsyncHttpClient ? this.asyncHttpClient.build() : this.builtAsyncHttpClient;
+			return new InterceptingHttpAsyncClient(client, new BearerAuthInterceptor(params.getUuid()));
+		}
 
+		protected RestEndpoint buildRestEndpoint(ListenerParameters parameters, HttpClient client) {
 			String baseUrl = parameters.getBaseUrl();
 			String project = parameters.getProjectName();
 
-			final JacksonSerializer jacksonSerializer = new JacksonSerializer(om);
+			final JacksonSerializer jacksonSerializer = buildJsonSerializer();
 			return new HttpClientRestEndpoint(client, new LinkedList<Serializer>() {{
 				add(jacksonSerializer);
 				add(new ByteArraySerializer());
 			}}, new ReportPortalErrorHandler(jacksonSerializer), buildEndpointUrl(baseUrl, project), executorService);
 		}
 
+		protected RestEndpoint buildAsyncRestEndpoint(ListenerParameters parameters, CloseableHttpAsyncClient client) {
+			String baseUrl = parameters.getBaseUrl();
+			String project = parameters.getProjectName();
+
+			final JacksonSerializer jacksonSerializer = buildJsonSerializer();
+			return new AsyncHttpClientRestEndpoint(client, new LinkedList<Serializer>() {{
+				add(jacksonSerializer);
+				add(new ByteArraySerializer());
+			}}, new ReportPortalErrorHandler(jacksonSerializer), buildEndpointUrl(baseUrl, project), executorService, compressor);
+		}
+
+		/**
+		 * Builds HTTP/2 endpoint. OkHttp is an optional dependency, so its types are not referenced by the builder
+		 *
+		 * @param parameters Listener parameters
+		 * @return Endpoint multiplexing all the requests over one connection
+		 * @throws MalformedURLException If base URL is malformed
+		 */
+		protected RestEndpoint buildHttp2RestEndpoint(ListenerParameters parameters) throws MalformedURLException {
+			String baseUrl = parameters.getBaseUrl();
+			String project = parameters.getProjectName();
+
+			final JacksonSerializer jacksonSerializer = buildJsonSerializer();
+			return OkHttpRestEndpointFactory.create(parameters, executorService, buildTrustManager(parameters), new LinkedList<Serializer>() {{
+				add(jacksonSerializer);
+				add(new ByteArraySerializer());
+			}}, new ReportPortalErrorHandler(jacksonSerializer), buildEndpointUrl(baseUrl, project), compressor);
+		}
+
+		protected JacksonSerializer buildJsonSerializer() {
+			final ObjectMapper om = new ObjectMapper();
+			om.setDateFormat(new SimpleDateFormat(DEFAULT_DATE_FORMAT));
+			om.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+			return new JacksonSerializer(om);
+		}
+
+		/**
+		 * Builds executor of HTTP requests. Uses virtual thread per request if enabled and supported by JVM,
+		 * otherwise fixed pool of platform threads. Non-blocking transport uses the executor to observe
+		 * responses only, so the pool is limited with count of CPUs
+		 *
+		 * @param parameters Listener parameters
+		 * @return Executor of HTTP requests
+		 */
+		protected ExecutorService buildExecutorService(ListenerParameters parameters) {
+			if (HttpTransport.ASYNC == parameters.getHttpTransport()) {
+				return Executors.newFixedThreadPool(Math.min(parameters.getIoPoolSize(), Runtime.getRuntime().availableProcessors()),
+						new ThreadFactoryBuilder().setNameFormat("rp-io-%s").setDaemon(true).build()
+				);
+			}
+			if (parameters.isIoVirtualThreads()) {
+				try {
+					//JDK 21+ only. Looked up reflectively to keep the client compatible with older JVMs
+					return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+				} catch (Exception e) {
+					LOGGER.warn("Virtual threads are not supported by current JVM. Fixed pool of {} threads is used instead",
+							parameters.getIoPoolSize()
+					);
+				}
+			}
+			return Executors.newFixedThreadPool(parameters.getIoPoolSize(), new ThreadFactoryBuilder().setNameFormat("rp-io-%s").build());
+		}
+
 		protected String buildEndpointUrl(String baseUrl, String project) {
 			return baseUrl + API_BASE + "/" + project;
 		}
 
 		protected HttpClient defaultClient(ListenerParameters parameters) throws MalformedURLException {
+			final String uuid = parameters.getUuid();
+
+			final HttpClientBuilder builder = HttpClients.custom();
+			SSLContext sslContext = buildSslContext(parameters);
+			if (null != sslContext) {
+				builder.setSSLContext(sslContext);
+			}
+			if (null != compressor) {
+				//should go before standard interceptors calculating content headers
+				builder.addInterceptorFirst(new GzipRequestInterceptor(compressor));
+			}
+
+			builder.disableAutomaticRetries()
+					.setMaxConnPerRoute(parameters.getMaxConnectionsPerRoute())
+					.setMaxConnTotal(parameters.getMaxConnectionsTotal())
+					.evictExpiredConnections();
+			return builder.addInterceptorLast(new BearerAuthInterceptor(uuid)).build();
+
+		}
+
+		protected CloseableHttpAsyncClient defaultAsyncClient(ListenerParameters parameters) throws MalformedURLException {
+			final HttpAsyncClientBuilder builder = HttpAsyncClients.custom();
+			SSLContext sslContext = buildSslContext(parameters);
+			if (null != sslContext) {
+				builder.setSSLContext(sslContext);
+			}
+
+			builder.setMaxConnPerRoute(parameters.getMaxConnectionsPerRoute())
+					.setMaxConnTotal(parameters.getMaxConnectionsTotal())
+					.setThreadFactory(new ThreadFactoryBuilder().setNameFormat("rp-io-reactor-%s").setDaemon(true).build());
+			return builder.addInterceptorLast(new BearerAuthInterceptor(parameters.getUuid())).build();
+		}
+
+		/**
+		 * @param parameters Listener parameters
+		 * @return Trust manager of configured keystore or NULL if default one should be used
+		 * @throws MalformedURLException If base URL is malformed
+		 */
+		protected X509TrustManager buildTrustManager(ListenerParameters parameters) throws MalformedURLException {
+			if (null == buildSslContext(parameters)) {
+				return null;
+			}
+			try {
+				TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+				factory.init(SslUtils.loadKeyStore(parameters.getKeystore(), parameters.getKeystorePassword()));
+				for (TrustManager trustManager : factory.getTrustManagers()) {
+					if (trustManager instanceof X509TrustManager) {
+						return (X509TrustManager) trustManager;
+					}
+				}
+				throw new InternalReportPortalClientException("Trust store doesn't contain X.509 certificates");
+			} catch (java.security.GeneralSecurityException e) {
+				throw new InternalReportPortalClientException("Unable to load trust store", e);
+			}
+		}
+
+		/**
+		 * @param parameters Listener parameters
+		 * @return SSL context trusting to configured keystore or NULL if default one should be used
+		 * @throws MalformedURLException If base URL is malformed
+		 */
+		protected SSLContext buildSslContext(ListenerParameters parameters) throws MalformedURLException {
 			String baseUrl = parameters.getBaseUrl();
 			String keyStore = parameters.getKeystore();
 			String keyStorePassword = parameters.getKeystorePassword();
-			final String uuid = parameters.getUuid();
 
-			final HttpClientBuilder builder = HttpClients.custom();
 			if (HTTPS.equals(new URL(baseUrl).getProtocol()) && keyStore != null) {
 				if (null == keyStorePassword) {
 					throw new InternalReportPortalClientException(
@@ -305,21 +721,15 @@ public class ReportPortal {
 				}
 
 				try {
-					builder.setSSLContext(SSLContextBuilder.create()
+					return SSLContextBuilder.create()
 							.loadTrustMaterial(SslUtils.loadKeyStore(keyStore, keyStorePassword), TrustSelfSignedStrategy.INSTANCE)
-							.build());
+							.build();
 				} catch (Exception e) {
 					throw new InternalReportPortalClientException("Unable to load trust store");
 				}
 
 			}
-
-			builder.disableAutomaticRetries()
-					.setMaxConnPerRoute(parameters.getMaxConnectionsPerRoute())
-					.setMaxConnTotal(parameters.getMaxConnectionsTotal())
-					.evictExpiredConnections();
-			return builder.addInterceptorLast(new BearerAuthInterceptor(uuid)).build();
-
+			return null;
 		}
 
 		protected PropertiesLoader defaultPropertiesLoader() {
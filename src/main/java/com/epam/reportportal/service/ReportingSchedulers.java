@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedulers used by reporting pipeline. Work is split into separate lanes, so reporting
+ * does not compete with each other and with other RxJava users of the JVM:
+ * <ul>
+ * <li>items - lifecycle of launch and test items</li>
+ * <li>logs - log uploads</li>
+ * <li>processing - CPU work like image conversion and serialization. Queue of the lane is bounded,
+ * producers should wait for room with {@link Lane#awaitCapacity(long, TimeUnit)} while the lane is saturated
+ * and skip the work if there is still no room</li>
+ * </ul>
+ */
+public class ReportingSchedulers {
+
+	private final Lane items;
+	private final Lane logs;
+	private final Lane processing;
+
+	public ReportingSchedulers(Lane items, Lane logs, Lane processing) {
+		this.items = Preconditions.checkNotNull(items, "Items lane shouldn't be NULL");
+		this.logs = Preconditions.checkNotNull(logs, "Logs lane shouldn't be NULL");
+		this.processing = Preconditions.checkNotNull(processing, "Processing lane shouldn't be NULL");
+	}
+
+	/**
+	 * Creates lanes with sizes taken from parameters
+	 *
+	 * @param parameters Listener parameters
+	 * @return Reporting schedulers
+	 */
+	public static ReportingSchedulers create(ListenerParameters parameters) {
+		return new ReportingSchedulers(Lane.create("items", parameters.getItemsPoolSize()),
+				Lane.create("logs", parameters.getLogsPoolSize()),
+				Lane.create("processing", parameters.getProcessingPoolSize(), parameters.getProcessingQueueSize())
+		);
+	}
+
+	/**
+	 * @return JVM-wide lanes with default sizes. They are never shut down
+	 */
+	public static ReportingSchedulers getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	/**
+	 * Shares JVM-wide lanes unless parameters ask for other sizes, so clients built with default parameters
+	 * do not start pools of their own
+	 *
+	 * @param parameters Listener parameters
+	 * @return Default lanes or new lanes with sizes taken from parameters
+	 */
+	public static ReportingSchedulers of(ListenerParameters parameters) {
+		final ListenerParameters defaults = new ListenerParameters();
+		final boolean defaultSizes = Objects.equal(defaults.getItemsPoolSize(), parameters.getItemsPoolSize()) && Objects.equal(defaults.getLogsPoolSize(),
+				parameters.getLogsPoolSize()
+		) && Objects.equal(defaults.getProcessingPoolSize(), parameters.getProcessingPoolSize()) && Objects.equal(defaults.getProcessingQueueSize(),
+				parameters.getProcessingQueueSize()
+		);
+		return defaultSizes ? getDefault() : create(parameters);
+	}
+
+	/**
+	 * Shuts executors of the lanes down. Tasks which are already queued are executed. Lanes of {@link #getDefault()}
+	 * are shared by the JVM and are not shut down
+	 */
+	public void shutdown() {
+		if (this == DefaultHolder.INSTANCE) {
+			return;
+		}
+		items.getExecutor().shutdown();
+		logs.getExecutor().shutdown();
+		processing.getExecutor().shutdown();
+	}
+
+	public Lane getItems() {
+		return items;
+	}
+
+	public Lane getLogs() {
+		return logs;
+	}
+
+	public Lane getProcessing() {
+		return processing;
+	}
+
+	@Override
+	public String toString() {
+		return "ReportingSchedulers{" + "items=" + items + ", logs=" + logs + ", processing=" + processing + '}';
+	}
+
+	/**
+	 * Lane of work backed by an executor. Exposes queue metrics of the executor
+	 */
+	public static class Lane {
+		/* max pause between checks of capacity of saturated lane */
+		private static final long MAX_CAPACITY_POLL_MILLIS = 10;
+
+		private final String name;
+		private final ExecutorService executor;
+		private final Scheduler scheduler;
+		private final int queueBound;
+		private final AtomicInteger maxQueueSize = new AtomicInteger();
+		private final AtomicLong rejectedCount = new AtomicLong();
+		private final AtomicLong waitedCount = new AtomicLong();
+
+		/**
+		 * @param name     Lane name
+		 * @param executor Executor of lane tasks. Should not reject tasks.
+		 *                 Queue metrics are available for {@link ThreadPoolExecutor} only
+		 */
+		public Lane(String name, ExecutorService executor) {
+			this(name, executor, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * @param name       Lane name
+		 * @param executor   Executor of lane tasks. Should not reject tasks.
+		 *                   Queue metrics are available for {@link ThreadPoolExecutor} only
+		 * @param queueBound Count of waiting tasks the lane is considered saturated at
+		 */
+		public Lane(String name, ExecutorService executor, int queueBound) {
+			this.name = name;
+			this.executor = Preconditions.checkNotNull(executor, "Executor shouldn't be NULL");
+			this.scheduler = Schedulers.from(executor);
+			this.queueBound = queueBound;
+		}
+
+		/**
+		 * Creates lane of fixed size with unbounded queue and daemon threads
+		 *
+		 * @param name Lane name
+		 * @param size Count of threads
+		 * @return New lane
+		 */
+		public static Lane create(String name, int size) {
+			return create(name, size, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Creates lane of fixed size with daemon threads. Queue of the lane does not reject tasks, but the lane
+		 * reports no capacity once count of waiting tasks reaches the bound
+		 *
+		 * @param name       Lane name
+		 * @param size       Count of threads
+		 * @param queueBound Count of waiting tasks the lane is considered saturated at
+		 * @return New lane
+		 */
+		public static Lane create(String name, int size, int queueBound) {
+			final Lane[] lane = new Lane[1];
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(size,
+					size,
+					0L,
+					TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>() {
+						@Override
+						public boolean offer(Runnable runnable) {
+							boolean offered = super.offer(runnable);
+							lane[0].onQueued(size());
+							return offered;
+						}
+					},
+					new ThreadFactoryBuilder().setNameFormat("rp-" + name + "-%s").setDaemon(true).build()
+			);
+			lane[0] = new Lane(name, executor, queueBound);
+			return lane[0];
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Scheduler getScheduler() {
+			return scheduler;
+		}
+
+		public ExecutorService getExecutor() {
+			return executor;
+		}
+
+		/**
+		 * @return Count of tasks waiting for execution or -1 if unknown
+		 */
+		public int getQueueSize() {
+			return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : -1;
+		}
+
+		/**
+		 * @return Max count of tasks waiting for execution observed by the lane
+		 */
+		public int getMaxQueueSize() {
+			return Math.max(maxQueueSize.get(), getQueueSize());
+		}
+
+		/**
+		 * Checks whether there is room for one more task. Tasks submitted anyway are queued
+		 *
+		 * @return FALSE if count of waiting tasks has reached the bound, which is counted as rejection
+		 */
+		public boolean hasCapacity() {
+			if (getQueueSize() < queueBound) {
+				return true;
+			}
+			rejectedCount.incrementAndGet();
+			return false;
+		}
+
+		/**
+		 * Waits until there is room for one more task, so producer is slowed down rather than piling tasks up
+		 * or doing them on its own thread. Saturated lane is polled, so waiting does not depend on the executor
+		 *
+		 * @param timeout Max time to wait
+		 * @param unit    Unit of the timeout
+		 * @return FALSE if the lane is still saturated once the timeout expires, which is counted as rejection
+		 * @throws InterruptedException If the waiting thread is interrupted
+		 */
+		public boolean awaitCapacity(long timeout, TimeUnit unit) throws InterruptedException {
+			if (getQueueSize() < queueBound) {
+				return true;
+			}
+			waitedCount.incrementAndGet();
+			final long deadline = System.nanoTime() + unit.toNanos(timeout);
+			long pause = 1;
+			while (getQueueSize() >= queueBound) {
+				final long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					rejectedCount.incrementAndGet();
+					return false;
+				}
+				Thread.sleep(Math.min(pause, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+				pause = Math.min(pause * 2, MAX_CAPACITY_POLL_MILLIS);
+			}
+			return true;
+		}
+
+		/**
+		 * @return Count of producers which have waited for capacity of the lane
+		 */
+		public long getWaitedCount() {
+			return waitedCount.get();
+		}
+
+		/**
+		 * @return Count of tasks producers have not submitted to the lane because it had no capacity
+		 */
+		public long getRejectedCount() {
+			return rejectedCount.get();
+		}
+
+		/**
+		 * @return Count of threads executing tasks or -1 if unknown
+		 */
+		public int getActiveCount() {
+			return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getActiveCount() : -1;
+		}
+
+		/**
+		 * @return Count of completed tasks or -1 if unknown
+		 */
+		public long getCompletedTaskCount() {
+			return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getCompletedTaskCount() : -1;
+		}
+
+		private void onQueued(int queueSize) {
+			int max;
+			do {
+				max = maxQueueSize.get();
+			} while (queueSize > max && !maxQueueSize.compareAndSet(max, queueSize));
+		}
+
+		@Override
+		public String toString() {
+			return name + "{queue=" + getQueueSize() + ", maxQueue=" + getMaxQueueSize() + ", active=" + getActiveCount() + ", completed="
+					+ getCompletedTaskCount() + ", waited=" + getWaitedCount() + ", rejected=" + getRejectedCount() + '}';
+		}
+	}
+
+	private static class DefaultHolder {
+		private static final ReportingSchedulers INSTANCE = create(new ListenerParameters());
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes summary of metrics to the log, so every CI run shows where reporting time went. Always enabled
+ */
+public class LoggingMetricsExporter implements MetricsExporter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LoggingMetricsExporter.class);
+
+	@Override
+	public void export(MetricsRegistry registry) {
+		LOGGER.info("Reporting metrics:{}", registry.summary());
+	}
+}
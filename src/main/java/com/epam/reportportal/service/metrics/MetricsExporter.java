@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.metrics;
+
+/**
+ * Publishes metrics of reporting, e.g. to monitoring system of CI. Exporters are looked up by {@link java.util.ServiceLoader},
+ * so they are registered in META-INF/services/com.epam.reportportal.service.metrics.MetricsExporter
+ * and need a public constructor without arguments. Metrics are exported once launch is finished
+ */
+public interface MetricsExporter {
+
+	/**
+	 * @param registry Metrics of the client. Exporter should not keep the registry, it's updated by later launches
+	 */
+	void export(MetricsRegistry registry);
+}
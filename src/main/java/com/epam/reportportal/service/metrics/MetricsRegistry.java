@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.metrics;
+
+import com.epam.reportportal.utils.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named counters, gauges and histograms of the client. Names are dot-separated and lower case,
+ * metrics of an endpoint of {@link com.epam.reportportal.service.ReportPortalClient} end with name of its method,
+ * e.g. {@code requests.latency_ms.startTestItem}. Metrics registered with a name which is already taken replace
+ * the previous ones, so the registry shows the latest launch. Durations are recorded in milliseconds
+ */
+public class MetricsRegistry {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MetricsRegistry.class);
+
+	private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+	private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+
+	/**
+	 * @param name Name of counter
+	 * @return Counter with the name. Created if there is no such counter
+	 */
+	public AtomicLong counter(String name) {
+		AtomicLong counter = counters.get(name);
+		if (null == counter) {
+			final AtomicLong created = new AtomicLong();
+			counter = counters.putIfAbsent(name, created);
+			if (null == counter) {
+				counter = created;
+			}
+		}
+		return counter;
+	}
+
+	/**
+	 * @param name Name of histogram
+	 * @return Histogram with the name. Created if there is no such histogram
+	 */
+	public Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (null == histogram) {
+			final Histogram created = new Histogram();
+			histogram = histograms.putIfAbsent(name, created);
+			if (null == histogram) {
+				histogram = created;
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Registers histogram recorded by a component of the client
+	 *
+	 * @param name      Name of histogram
+	 * @param histogram Histogram
+	 */
+	public void register(String name, Histogram histogram) {
+		histograms.put(name, histogram);
+	}
+
+	/**
+	 * @param name  Name of gauge
+	 * @param gauge Gauge
+	 */
+	public void gauge(String name, Gauge gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * @return Current values of counters by name
+	 */
+	public Map<String, Long> getCounters() {
+		final Map<String, Long> values = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> counter : counters.entrySet()) {
+			values.put(counter.getKey(), counter.getValue().get());
+		}
+		return values;
+	}
+
+	/**
+	 * @return Current values of gauges by name
+	 */
+	public Map<String, Long> getGauges() {
+		final Map<String, Long> values = new TreeMap<String, Long>();
+		for (Map.Entry<String, Gauge> gauge : gauges.entrySet()) {
+			values.put(gauge.getKey(), gauge.getValue().getValue());
+		}
+		return values;
+	}
+
+	/**
+	 * @return Histograms by name
+	 */
+	public Map<String, Histogram> getHistograms() {
+		return Collections.unmodifiableMap(new TreeMap<String, Histogram>(histograms));
+	}
+
+	/**
+	 * Passes the registry to {@link LoggingMetricsExporter} and exporters found on the classpath.
+	 * Failure of an exporter does not affect others
+	 */
+	public void export() {
+		for (MetricsExporter exporter : Exporters.EXPORTERS) {
+			try {
+				exporter.export(this);
+			} catch (RuntimeException e) {
+				LOGGER.error("Unable to export metrics by " + exporter.getClass().getName(), e);
+			}
+		}
+	}
+
+	/**
+	 * @return Metrics one per line, sorted by name
+	 */
+	public String summary() {
+		final StringBuilder summary = new StringBuilder();
+		for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+			summary.append("\n  ").append(counter.getKey()).append(": ").append(counter.getValue());
+		}
+		for (Map.Entry<String, Long> gauge : getGauges().entrySet()) {
+			summary.append("\n  ").append(gauge.getKey()).append(": ").append(gauge.getValue());
+		}
+		for (Map.Entry<String, Histogram> histogram : getHistograms().entrySet()) {
+			if (histogram.getValue().getCount() > 0) {
+				summary.append("\n  ").append(histogram.getKey()).append(": ").append(histogram.getValue());
+			}
+		}
+		return summary.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "MetricsRegistry{" + summary() + "\n}";
+	}
+
+	/* looked up on first export */
+	private static class Exporters {
+		private static final List<MetricsExporter> EXPORTERS = load();
+
+		private static List<MetricsExporter> load() {
+			final List<MetricsExporter> exporters = new ArrayList<MetricsExporter>();
+			exporters.add(new LoggingMetricsExporter());
+			for (MetricsExporter exporter : ServiceLoader.load(MetricsExporter.class, MetricsRegistry.class.getClassLoader())) {
+				exporters.add(exporter);
+			}
+			return Collections.unmodifiableList(exporters);
+		}
+	}
+}
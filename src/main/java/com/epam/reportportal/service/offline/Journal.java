@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.offline;
+
+import com.epam.reportportal.restendpoint.http.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of reporting events. Each record is framed as
+ * {@code [int length][record][int CRC32 of record]}, so a journal truncated by killed JVM
+ * is read up to the last complete record. Records are buffered in memory and written to disk
+ * in big chunks, the journal should be closed to flush the tail
+ */
+public class Journal implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(Journal.class);
+
+	/* 'RPJ1' */
+	private static final int MAGIC = 0x52504A31;
+	private static final int MAGIC_SIZE = 4;
+	/* length and checksum */
+	private static final int FRAME_OVERHEAD = 8;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File file;
+	private final DataOutputStream out;
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+	private final CRC32 crc = new CRC32();
+
+	private Journal(File file) throws IOException {
+		this.file = file;
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (null != parent && !parent.exists() && !parent.mkdirs()) {
+			throw new IOException("Unable to create directory " + parent);
+		}
+		long valid = file.exists() ? validLength(file) : 0;
+		if (file.exists() && valid < file.length()) {
+			//records appended after torn one would never be read
+			LOGGER.warn("Journal {} ends with incomplete record. It's truncated from {} to {} bytes", file, file.length(), valid);
+			RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+			try {
+				truncated.setLength(valid);
+			} finally {
+				truncated.close();
+			}
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), BUFFER_SIZE));
+		if (0 == valid) {
+			out.writeInt(MAGIC);
+		}
+	}
+
+	/**
+	 * Opens journal for appending. Creates new one if file doesn't exist. Incomplete or corrupted record
+	 * at the end of existing journal is cut off, so new records are appended right after the last valid one
+	 *
+	 * @param file Journal file
+	 * @return Journal
+	 * @throws IOException In case of I/O error or if the file is not a journal
+	 */
+	public static Journal open(File file) throws IOException {
+		return new Journal(file);
+	}
+
+	/**
+	 * Appends record to the journal
+	 *
+	 * @param journalRecord Record
+	 * @throws IOException In case of I/O error
+	 */
+	public synchronized void append(JournalRecord journalRecord) throws IOException {
+		record.reset();
+		journalRecord.writeTo(new DataOutputStream(record));
+		crc.reset();
+		crc.update(record.toByteArray(), 0, record.size());
+		out.writeInt(record.size());
+		record.writeTo(out);
+		out.writeInt((int) crc.getValue());
+	}
+
+	/**
+	 * Writes buffered records to disk
+	 *
+	 * @throws IOException In case of I/O error
+	 */
+	public synchronized void flush() throws IOException {
+		out.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		out.close();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Reads all the complete records of the journal. Reading stops on the first truncated or corrupted record
+	 *
+	 * @param file Journal file
+	 * @return Records in order of writing
+	 * @throws IOException In case of I/O error or if the file is not a journal
+	 */
+	public static List<JournalRecord> read(File file) throws IOException {
+		List<JournalRecord> records = new ArrayList<JournalRecord>();
+		Reader reader = reader(file);
+		try {
+			JournalRecord record;
+			while (null != (record = reader.next())) {
+				records.add(record);
+			}
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+		return records;
+	}
+
+	/**
+	 * Opens reader of the journal, so records are not loaded to memory all at once
+	 *
+	 * @param file Journal file
+	 * @return Reader of records
+	 * @throws IOException In case of I/O error or if the file is not a journal
+	 */
+	public static Reader reader(File file) throws IOException {
+		return new Reader(file);
+	}
+
+	/**
+	 * @return Length of the journal up to the end of the last complete record, 0 if even header is incomplete
+	 */
+	private static long validLength(File file) throws IOException {
+		if (file.length() < MAGIC_SIZE) {
+			return 0;
+		}
+		Reader reader = reader(file);
+		try {
+			while (null != reader.nextFrame()) {
+				//skipped
+			}
+			return reader.end;
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+
+	/**
+	 * Sequential reader of the journal. Records may also be read again by their offsets
+	 * from {@link #getPosition()}, so callers may keep offsets instead of records
+	 */
+	public static class Reader implements Closeable {
+		private final File file;
+		private final long length;
+		private final DataInputStream in;
+		private final CRC32 crc = new CRC32();
+		private RandomAccessFile randomAccess;
+		private int count;
+		private boolean done;
+		/* offset of the last record read */
+		private long position = -1;
+		/* offset right after the last record read */
+		private long end = MAGIC_SIZE;
+
+		private Reader(File file) throws IOException {
+			this.file = file;
+			this.length = file.length();
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+			try {
+				if (length < MAGIC_SIZE || MAGIC != in.readInt()) {
+					throw new IOException("File " + file + " is not a reporting journal");
+				}
+			} catch (IOException e) {
+				IOUtils.closeQuietly(in);
+				throw e;
+			}
+		}
+
+		/**
+		 * @return Next record or NULL if there are no more complete records
+		 * @throws IOException In case of I/O error
+		 */
+		public JournalRecord next() throws IOException {
+			byte[] body = nextFrame();
+			return null == body ? null : JournalRecord.readFrom(new DataInputStream(new ByteArrayInputStream(body)));
+		}
+
+		/**
+		 * @return Offset of the record returned by the last {@link #next()} call
+		 */
+		public long getPosition() {
+			return position;
+		}
+
+		/**
+		 * Reads record by its offset. May be called concurrently with itself, but not with {@link #next()}
+		 *
+		 * @param position Offset of the record returned by {@link #getPosition()}
+		 * @return Record
+		 * @throws IOException In case of I/O error or if there is no valid record at the offset
+		 */
+		public synchronized JournalRecord read(long position) throws IOException {
+			if (null == randomAccess) {
+				randomAccess = new RandomAccessFile(file, "r");
+			}
+			randomAccess.seek(position);
+			int size = randomAccess.readInt();
+			if (size < 0 || position + FRAME_OVERHEAD + size > length) {
+				throw new IOException("Journal " + file + " has no record at offset " + position);
+			}
+			byte[] body = new byte[size];
+			randomAccess.readFully(body);
+			if (randomAccess.readInt() != checksum(body)) {
+				throw new IOException("Journal " + file + " has corrupted record at offset " + position);
+			}
+			return JournalRecord.readFrom(new DataInputStream(new ByteArrayInputStream(body)));
+		}
+
+		private byte[] nextFrame() throws IOException {
+			if (done) {
+				return null;
+			}
+			done = true;
+			if (end == length) {
+				return null;
+			}
+			if (end + FRAME_OVERHEAD > length) {
+				LOGGER.warn("Journal {} is truncated after record #{}", file, count);
+				return null;
+			}
+			int size = in.readInt();
+			//length of torn record may be garbage, so it's checked before allocation
+			if (size < 0 || end + FRAME_OVERHEAD + size > length) {
+				LOGGER.warn("Journal {} is truncated or has corrupted record #{}. The rest of journal is ignored", file, count);
+				return null;
+			}
+			byte[] body = new byte[size];
+			in.readFully(body);
+			if (in.readInt() != checksum(body)) {
+				LOGGER.warn("Journal {} has corrupted record #{}. The rest of journal is ignored", file, count);
+				return null;
+			}
+			done = false;
+			count++;
+			position = end;
+			end += FRAME_OVERHEAD + size;
+			return body;
+		}
+
+		private int checksum(byte[] body) {
+			crc.reset();
+			crc.update(body, 0, body.length);
+			return (int) crc.getValue();
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			in.close();
+			if (null != randomAccess) {
+				randomAccess.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.offline;
+
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.reportportal.service.ClientIdStartTestItemRQ;
+import com.epam.reportportal.service.ReportPortalClient;
+import com.epam.ta.reportportal.ws.model.*;
+import com.epam.ta.reportportal.ws.model.item.ItemCreatedRS;
+import com.epam.ta.reportportal.ws.model.launch.LaunchResource;
+import com.epam.ta.reportportal.ws.model.launch.MergeLaunchesRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRS;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import io.reactivex.Maybe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link ReportPortalClient} writing all the requests to {@link Journal} instead of sending them to the server.
+ * IDs of launches and items are generated locally and returned immediately
+ */
+public class JournalClient implements ReportPortalClient {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JournalClient.class);
+
+	private final Journal journal;
+
+	public JournalClient(Journal journal) {
+		this.journal = journal;
+	}
+
+	@Override
+	public Maybe<StartLaunchRS> startLaunch(StartLaunchRQ rq) {
+		String id = UUID.randomUUID().toString();
+		return append(JournalRecord.of(JournalRecord.Type.START_LAUNCH, id, null, rq), new StartLaunchRS(id, null));
+	}
+
+	@Override
+	public Maybe<LaunchResource> mergeLaunches(MergeLaunchesRQ rq) {
+		return Maybe.error(new UnsupportedOperationException("Launches cannot be merged in offline mode"));
+	}
+
+	@Override
+	public Maybe<OperationCompletionRS> finishLaunch(String launch, FinishExecutionRQ rq) {
+		return append(JournalRecord.of(JournalRecord.Type.FINISH_LAUNCH, launch, null, rq),
+				new OperationCompletionRS("Launch " + launch + " is recorded")
+		);
+	}
+
+	@Override
+	public Maybe<ItemCreatedRS> startTestItem(StartTestItemRQ rq) {
+		return startTestItem(rq.getLaunchId(), rq);
+	}
+
+	@Override
+	public Maybe<ItemCreatedRS> startTestItem(String parent, StartTestItemRQ rq) {
+		String id = rq instanceof ClientIdStartTestItemRQ ? ((ClientIdStartTestItemRQ) rq).getUuid() : UUID.randomUUID().toString();
+		return append(JournalRecord.of(JournalRecord.Type.START_ITEM, id, parent, rq), new ItemCreatedRS(id, rq.getUniqueId()));
+	}
+
+	@Override
+	public Maybe<OperationCompletionRS> finishTestItem(String itemId, FinishTestItemRQ rq) {
+		return append(JournalRecord.of(JournalRecord.Type.FINISH_ITEM, itemId, null, rq),
+				new OperationCompletionRS("Item " + itemId + " is recorded")
+		);
+	}
+
+	@Override
+	public Maybe<EntryCreatedRS> log(SaveLogRQ rq) {
+		return append(JournalRecord.log(rq), new EntryCreatedRS());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Maybe<BatchSaveOperatingRS> log(MultiPartRequest rq) {
+		try {
+			for (MultiPartRequest.MultiPartSerialized<?> part : rq.getSerializedRQs()) {
+				for (SaveLogRQ log : (List<SaveLogRQ>) part.getRequest()) {
+					journal.append(JournalRecord.log(log));
+				}
+			}
+			return Maybe.just(new BatchSaveOperatingRS());
+		} catch (IOException e) {
+			return Maybe.error(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		try {
+			journal.close();
+		} catch (IOException e) {
+			LOGGER.error("Unable to close journal " + journal.getFile(), e);
+		}
+	}
+
+	private <T> Maybe<T> append(JournalRecord record, T rs) {
+		try {
+			journal.append(record);
+			return Maybe.just(rs);
+		} catch (IOException e) {
+			return Maybe.error(e);
+		}
+	}
+}
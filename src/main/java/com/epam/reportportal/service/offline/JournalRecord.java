@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.offline;
+
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
+
+import java.io.*;
+
+/**
+ * Reporting event stored in the journal. Requests are stored as JSON, attachments as is
+ */
+public class JournalRecord {
+
+	/**
+	 * Type of reporting event. Ordinal is stored in the journal, so new types should be added to the end only
+	 */
+	public enum Type {
+		START_LAUNCH,
+		FINISH_LAUNCH,
+		START_ITEM,
+		FINISH_ITEM,
+		LOG,
+		/**
+		 * Server ID of launch or item recorded with local ID. Written by write-ahead log only
+		 */
+		CREATED
+	}
+
+	private static final ObjectMapper MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+	private final Type type;
+	private final String id;
+	private final String parentId;
+	private final byte[] request;
+	private final String attachmentName;
+	private final String attachmentType;
+	private final byte[] attachment;
+
+	/**
+	 * @param type     Type of event
+	 * @param id       Local ID of launch or item. ID of item for logs
+	 * @param parentId Local ID of parent item or launch. NULL if there is no parent
+	 * @param request  Serialized request
+	 */
+	public JournalRecord(Type type, String id, String parentId, byte[] request) {
+		this(type, id, parentId, request, null, null, null);
+	}
+
+	/**
+	 * @param type           Type of event
+	 * @param id             Local ID of launch or item. ID of item for logs, may be NULL
+	 * @param parentId       Local ID of parent item or launch. NULL if there is no parent
+	 * @param request        Serialized request
+	 * @param attachmentName Name of attached file
+	 * @param attachmentType Content type of attached file
+	 * @param attachment     Attached file or NULL if there is no file
+	 */
+	public JournalRecord(Type type, String id, String parentId, byte[] request, String attachmentName, String attachmentType,
+			byte[] attachment) {
+		this.type = type;
+		this.id = id;
+		this.parentId = parentId;
+		this.request = request;
+		this.attachmentName = attachmentName;
+		this.attachmentType = attachmentType;
+		this.attachment = attachment;
+	}
+
+	/**
+	 * @param type     Type of event
+	 * @param id       Local ID of launch or item
+	 * @param parentId Local ID of parent item or launch. NULL if there is no parent
+	 * @param rq       Request to be serialized
+	 * @return Record of the request
+	 */
+	public static JournalRecord of(Type type, String id, String parentId, Object rq) {
+		return new JournalRecord(type, id, parentId, toJson(rq));
+	}
+
+	/**
+	 * @param id       Local ID of launch or item
+	 * @param serverId ID of launch or item assigned by the server
+	 * @return Record mapping local ID to the server one
+	 */
+	public static JournalRecord created(String id, String serverId) {
+		return of(Type.CREATED, id, null, serverId);
+	}
+
+	/**
+	 * @param rq Log request. Attached file is stored as is
+	 * @return Record of the log
+	 */
+	public static JournalRecord log(SaveLogRQ rq) {
+		SaveLogRQ.File file = rq.getFile();
+		SaveLogRQ log = new SaveLogRQ();
+		log.setTestItemId(rq.getTestItemId());
+		log.setLogTime(rq.getLogTime());
+		log.setLevel(rq.getLevel());
+		log.setMessage(rq.getMessage());
+		return null == file ?
+				new JournalRecord(Type.LOG, rq.getTestItemId(), null, toJson(log)) :
+				new JournalRecord(Type.LOG, rq.getTestItemId(), null, toJson(log), file.getName(), file.getContentType(), file.getContent());
+	}
+
+	/**
+	 * @param type Type of request
+	 * @param <T>  Type of request
+	 * @return Deserialized request
+	 */
+	public <T> T getRequest(Class<T> type) {
+		try {
+			return MAPPER.readValue(request, type);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to read " + type.getSimpleName() + " from the journal", e);
+		}
+	}
+
+	/**
+	 * @return Log request with attached file
+	 */
+	public SaveLogRQ toLog() {
+		SaveLogRQ rq = getRequest(SaveLogRQ.class);
+		if (null != attachment) {
+			SaveLogRQ.File file = new SaveLogRQ.File();
+			file.setName(attachmentName);
+			file.setContentType(attachmentType);
+			file.setContent(attachment);
+			rq.setFile(file);
+		}
+		return rq;
+	}
+
+	/**
+	 * @return Record serialized to bytes
+	 */
+	public byte[] toBytes() {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(request.length + (null == attachment ? 0 : attachment.length) + 64);
+			writeTo(new DataOutputStream(out));
+			return out.toByteArray();
+		} catch (IOException e) {
+			//should never happen with in-memory stream
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param bytes Serialized record
+	 * @return Record
+	 * @throws IOException If record is malformed
+	 */
+	public static JournalRecord fromBytes(byte[] bytes) throws IOException {
+		return readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getParentId() {
+		return parentId;
+	}
+
+	public byte[] getRequest() {
+		return request;
+	}
+
+	public String getAttachmentName() {
+		return attachmentName;
+	}
+
+	public String getAttachmentType() {
+		return attachmentType;
+	}
+
+	public byte[] getAttachment() {
+		return attachment;
+	}
+
+	void writeTo(DataOutputStream out) throws IOException {
+		out.writeByte(type.ordinal());
+		out.writeUTF(Strings.nullToEmpty(id));
+		out.writeUTF(Strings.nullToEmpty(parentId));
+		out.writeInt(request.length);
+		out.write(request);
+		out.writeUTF(Strings.nullToEmpty(attachmentName));
+		out.writeUTF(Strings.nullToEmpty(attachmentType));
+		if (null == attachment) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(attachment.length);
+			out.write(attachment);
+		}
+	}
+
+	private static byte[] toJson(Object rq) {
+		try {
+			return MAPPER.writeValueAsBytes(rq);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Unable to serialize " + rq.getClass().getSimpleName(), e);
+		}
+	}
+
+	static JournalRecord readFrom(DataInputStream in) throws IOException {
+		Type type = Type.values()[in.readUnsignedByte()];
+		String id = Strings.emptyToNull(in.readUTF());
+		String parentId = Strings.emptyToNull(in.readUTF());
+		byte[] request = new byte[in.readInt()];
+		in.readFully(request);
+		String attachmentName = Strings.emptyToNull(in.readUTF());
+		String attachmentType = Strings.emptyToNull(in.readUTF());
+		int attachmentLength = in.readInt();
+		byte[] attachment = null;
+		if (attachmentLength >= 0) {
+			attachment = new byte[attachmentLength];
+			in.readFully(attachment);
+		}
+		return new JournalRecord(type, id, parentId, request, attachmentName, attachmentType, attachment);
+	}
+}
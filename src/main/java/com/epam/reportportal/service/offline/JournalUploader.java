@@ -0,0 +1,401 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.offline;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.restendpoint.http.IOUtils;
+import com.epam.reportportal.service.LoggingContext;
+import com.epam.reportportal.service.ReportPortal;
+import com.epam.reportportal.service.ReportPortalClient;
+import com.epam.ta.reportportal.ws.model.EntryCreatedRS;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Uploads launches recorded to {@link Journal} to ReportPortal. Sibling subtrees are uploaded in parallel,
+ * logs are sent in batches. Only the tree of items is kept in memory, logs are read from the journal by their offsets
+ * right before sending. Progress is saved to checkpoint file next to the journal, so interrupted upload
+ * is resumed from the point it was stopped at. Delivery is at-least-once: entity created by the server right
+ * before interruption may be created again on resume
+ */
+public class JournalUploader {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JournalUploader.class);
+
+	private static final int DEFAULT_PARALLELISM = 16;
+	private static final String CHECKPOINT_EXTENSION = ".checkpoint";
+
+	private static final Function<EntryCreatedRS, String> TO_ID = new Function<EntryCreatedRS, String>() {
+		@Override
+		public String apply(EntryCreatedRS rs) throws Exception {
+			return rs.getId();
+		}
+	};
+
+	private final ReportPortalClient client;
+	private final int batchSize;
+	private final int parallelism;
+
+	public JournalUploader(ReportPortalClient client, ListenerParameters parameters) {
+		this(client, parameters.getBatchLogsSize(), DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * @param client      Client of ReportPortal
+	 * @param batchSize   Count of logs in one request
+	 * @param parallelism Max count of sibling items uploaded in parallel
+	 */
+	public JournalUploader(ReportPortalClient client, int batchSize, int parallelism) {
+		this.client = client;
+		this.batchSize = batchSize;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Uploads all the launches of the journal. Blocks until upload is finished
+	 *
+	 * @param journal Journal file
+	 * @throws IOException In case of I/O error with journal or checkpoint
+	 */
+	public void upload(File journal) throws IOException {
+		Journal.Reader records = Journal.reader(journal);
+		try {
+			List<Node> launches = buildTree(records);
+			Checkpoint checkpoint = new Checkpoint(checkpointFile(journal));
+			try {
+				for (Node launch : launches) {
+					uploadLaunch(launch, records, checkpoint).blockingAwait();
+				}
+			} finally {
+				checkpoint.close();
+			}
+		} finally {
+			IOUtils.closeQuietly(records);
+		}
+	}
+
+	/**
+	 * @param journal Journal file
+	 * @return File progress of journal upload is saved to
+	 */
+	public static File checkpointFile(File journal) {
+		return new File(journal.getPath() + CHECKPOINT_EXTENSION);
+	}
+
+	private Completable uploadLaunch(final Node launch, final Journal.Reader records, final Checkpoint checkpoint) {
+		if (checkpoint.isFinished(launch.id)) {
+			return Completable.complete();
+		}
+		String uploaded = checkpoint.getServerId(launch.id);
+		Maybe<String> launchId = null != uploaded ?
+				Maybe.just(uploaded) :
+				client.startLaunch(launch.start.getRequest(StartLaunchRQ.class)).map(TO_ID).doOnSuccess(checkpoint.started(launch.id));
+		return launchId.flatMapCompletable(new Function<String, Completable>() {
+			@Override
+			public Completable apply(final String id) throws Exception {
+				Completable children = uploadChildren(launch, null, id, records, checkpoint);
+				if (null == launch.finish) {
+					LOGGER.warn("Launch {} has not been finished. It's uploaded as is", launch.id);
+					return children;
+				}
+				return children.andThen(client.finishLaunch(id, launch.finish.getRequest(FinishExecutionRQ.class))
+						.ignoreElement()
+						.doOnComplete(checkpoint.finished(launch.id)));
+			}
+		});
+	}
+
+	private Completable uploadItem(final Node item, final String parentId, final String launchId, final Journal.Reader records,
+			final Checkpoint checkpoint) {
+		if (checkpoint.isFinished(item.id)) {
+			return Completable.complete();
+		}
+		String uploaded = checkpoint.getServerId(item.id);
+		Maybe<String> itemId;
+		if (null != uploaded) {
+			itemId = Maybe.just(uploaded);
+		} else {
+			StartTestItemRQ rq = item.start.getRequest(StartTestItemRQ.class);
+			rq.setLaunchId(launchId);
+			itemId = (null == parentId ? client.startTestItem(rq) : client.startTestItem(parentId, rq)).map(TO_ID)
+					.doOnSuccess(checkpoint.started(item.id));
+		}
+		return itemId.flatMapCompletable(new Function<String, Completable>() {
+			@Override
+			public Completable apply(final String id) throws Exception {
+				Completable content = Completable.mergeArray(uploadLogs(item, id, records, checkpoint),
+						uploadChildren(item, id, launchId, records, checkpoint)
+				);
+				if (null == item.finish) {
+					LOGGER.warn("Item {} has not been finished. It's uploaded as is", item.id);
+					return content;
+				}
+				return content.andThen(client.finishTestItem(id, item.finish.getRequest(FinishTestItemRQ.class))
+						.ignoreElement()
+						.doOnComplete(checkpoint.finished(item.id)));
+			}
+		});
+	}
+
+	private Completable uploadChildren(final Node parent, final String parentId, final String launchId,
+			final Journal.Reader records, final Checkpoint checkpoint) {
+		return Flowable.fromIterable(parent.children).flatMapCompletable(new Function<Node, Completable>() {
+			@Override
+			public Completable apply(Node child) throws Exception {
+				return uploadItem(child, parentId, launchId, records, checkpoint);
+			}
+		}, false, parallelism);
+	}
+
+	private Completable uploadLogs(Node item, final String itemId, final Journal.Reader records, final Checkpoint checkpoint) {
+		return Flowable.fromIterable(Lists.partition(item.logs, batchSize)).flatMapCompletable(new Function<List<Long>, Completable>() {
+			@Override
+			public Completable apply(final List<Long> batch) throws Exception {
+				if (checkpoint.isLogged(batch)) {
+					return Completable.complete();
+				}
+				List<SaveLogRQ> rqs = new ArrayList<SaveLogRQ>(batch.size());
+				for (Long position : batch) {
+					SaveLogRQ rq = records.read(position).toLog();
+					rq.setTestItemId(itemId);
+					rqs.add(rq);
+				}
+				return client.log(LoggingContext.toMultiPartRequest(rqs)).ignoreElement().doOnComplete(checkpoint.logged(batch));
+			}
+		}, false, parallelism);
+	}
+
+	/**
+	 * Builds tree of launches and items from the records. Offsets of logs are collected to their items
+	 */
+	private static List<Node> buildTree(Journal.Reader records) throws IOException {
+		List<Node> launches = new ArrayList<Node>();
+		Map<String, Node> nodes = new HashMap<String, Node>();
+		JournalRecord record;
+		for (int i = 0; null != (record = records.next()); i++) {
+			Node node = null == record.getId() ? null : nodes.get(record.getId());
+			switch (record.getType()) {
+				case START_LAUNCH:
+					node = new Node(record);
+					nodes.put(node.id, node);
+					launches.add(node);
+					break;
+				case START_ITEM:
+					Node parent = null == record.getParentId() ? null : nodes.get(record.getParentId());
+					if (null == parent) {
+						LOGGER.warn("Parent of item {} is not found in the journal. Item is skipped", record.getId());
+						break;
+					}
+					node = new Node(record);
+					nodes.put(node.id, node);
+					parent.children.add(node);
+					break;
+				case FINISH_LAUNCH:
+				case FINISH_ITEM:
+					if (null != node) {
+						node.finish = record;
+					}
+					break;
+				case LOG:
+					if (null == node) {
+						LOGGER.warn("Item {} of log #{} is not found in the journal. Log is skipped", record.getId(), i);
+					} else {
+						node.logs.add(records.getPosition());
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		return launches;
+	}
+
+	/**
+	 * Uploads journal with parameters from reportportal.properties
+	 *
+	 * @param args Path to journal. Value of 'rp.offline.journal' is used by default
+	 * @throws IOException In case of I/O error with journal or checkpoint
+	 */
+	public static void main(String[] args) throws IOException {
+		ReportPortal reportPortal = ReportPortal.builder().build();
+		File journal = new File(args.length > 0 ? args[0] : reportPortal.getParameters().getOfflineJournal());
+		try {
+			new JournalUploader(reportPortal.getClient(), reportPortal.getParameters()).upload(journal);
+			LOGGER.info("Journal {} has been uploaded", journal);
+		} finally {
+			reportPortal.getClient().close();
+		}
+	}
+
+	private static class Node {
+		private final String id;
+		private final JournalRecord start;
+		private final List<Node> children = new ArrayList<Node>();
+		private final List<Long> logs = new ArrayList<Long>();
+		private JournalRecord finish;
+
+		Node(JournalRecord start) {
+			this.id = start.getId();
+			this.start = start;
+		}
+	}
+
+	/**
+	 * Progress of upload: server IDs of started entities, finished entities and offsets of sent logs.
+	 * Stored as append-only text file, one event per line
+	 */
+	private static class Checkpoint implements Closeable {
+		private static final String STARTED = "S";
+		private static final String FINISHED = "F";
+		private static final String LOGGED = "L";
+		/* ends every record, so a record torn by interrupted write is not taken for a shorter one */
+		private static final String END = ".";
+
+		private final Map<String, String> serverIds = new ConcurrentHashMap<String, String>();
+		private final Set<String> finished = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		private final Set<Long> logged = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+		private final Writer writer;
+
+		Checkpoint(File file) throws IOException {
+			boolean torn = false;
+			if (file.exists()) {
+				BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), Charsets.UTF_8));
+				try {
+					String line;
+					while (null != (line = reader.readLine())) {
+						load(line.split(" "));
+					}
+				} finally {
+					IOUtils.closeQuietly(reader);
+				}
+				torn = !endsWithNewLine(file);
+			}
+			this.writer = new OutputStreamWriter(new FileOutputStream(file, true), Charsets.UTF_8);
+			if (torn) {
+				//records are appended on a new line after the incomplete one
+				this.writer.write('\n');
+			}
+		}
+
+		private void load(String[] event) {
+			//the last line may be incomplete if upload has been interrupted, such line has no end of record
+			if (!END.equals(event[event.length - 1])) {
+				return;
+			}
+			if (STARTED.equals(event[0]) && event.length == 4) {
+				serverIds.put(event[1], event[2]);
+			} else if (FINISHED.equals(event[0]) && event.length == 3) {
+				finished.add(event[1]);
+			} else if (LOGGED.equals(event[0]) && event.length == 3) {
+				try {
+					logged.add(Long.valueOf(event[1]));
+				} catch (NumberFormatException e) {
+					//corrupted line
+				}
+			}
+		}
+
+		private static boolean endsWithNewLine(File file) throws IOException {
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				if (0 == raf.length()) {
+					return true;
+				}
+				raf.seek(raf.length() - 1);
+				return '\n' == raf.read();
+			} finally {
+				raf.close();
+			}
+		}
+
+		String getServerId(String id) {
+			return serverIds.get(id);
+		}
+
+		boolean isFinished(String id) {
+			return finished.contains(id);
+		}
+
+		boolean isLogged(List<Long> batch) {
+			return logged.containsAll(batch);
+		}
+
+		Consumer<String> started(final String id) {
+			return new Consumer<String>() {
+				@Override
+				public void accept(String serverId) throws Exception {
+					serverIds.put(id, serverId);
+					write(STARTED + " " + id + " " + serverId + " " + END);
+				}
+			};
+		}
+
+		Action finished(final String id) {
+			return new Action() {
+				@Override
+				public void run() throws Exception {
+					finished.add(id);
+					write(FINISHED + " " + id + " " + END);
+				}
+			};
+		}
+
+		Action logged(final List<Long> batch) {
+			return new Action() {
+				@Override
+				public void run() throws Exception {
+					logged.addAll(batch);
+					StringBuilder lines = new StringBuilder();
+					for (Long position : batch) {
+						if (lines.length() > 0) {
+							lines.append('\n');
+						}
+						lines.append(LOGGED).append(' ').append(position).append(' ').append(END);
+					}
+					write(lines.toString());
+				}
+			};
+		}
+
+		private synchronized void write(String line) throws IOException {
+			writer.write(line);
+			writer.write('\n');
+			writer.flush();
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			writer.close();
+		}
+	}
+}
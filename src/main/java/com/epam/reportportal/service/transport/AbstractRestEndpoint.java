@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.restendpoint.http.*;
+import com.epam.reportportal.restendpoint.http.exception.RestEndpointIOException;
+import com.epam.reportportal.restendpoint.http.exception.SerializerException;
+import com.epam.reportportal.restendpoint.serializer.Serializer;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.io.ByteSource;
+import com.google.common.net.MediaType;
+import io.reactivex.Maybe;
+import io.reactivex.functions.Function;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Base {@link RestEndpoint} for transports other than restendpoint's blocking one. All the requests are
+ * converted to {@link RestCommand}, so implementations need to provide {@link #executeRequest(RestCommand)} only.
+ * Contains serialization and error handling shared between transports
+ */
+public abstract class AbstractRestEndpoint implements RestEndpoint {
+
+	private final List<Serializer> serializers;
+	private final ErrorHandler errorHandler;
+	private final String baseUrl;
+	private final GzipCompressor compressor;
+
+	protected AbstractRestEndpoint(List<Serializer> serializers, ErrorHandler errorHandler, String baseUrl) {
+		this(serializers, errorHandler, baseUrl, null);
+	}
+
+	/**
+	 * @param serializers  Serializers of requests and responses
+	 * @param errorHandler Handler of error responses
+	 * @param baseUrl      Base URL of all the requests
+	 * @param compressor   Compressor of request bodies or NULL if requests should be sent as is
+	 */
+	protected AbstractRestEndpoint(List<Serializer> serializers, ErrorHandler errorHandler, String baseUrl, GzipCompressor compressor) {
+		this.serializers = Preconditions.checkNotNull(serializers, "Serializers shouldn't be NULL");
+		this.errorHandler = Preconditions.checkNotNull(errorHandler, "Error handler shouldn't be NULL");
+		this.baseUrl = baseUrl;
+		this.compressor = compressor;
+	}
+
+	@Override
+	public final <RQ, RS> Maybe<Response<RS>> post(String url, RQ rq, Class<RS> clazz) throws RestEndpointIOException {
+		return executeRequest(new RestCommand<RQ, RS>(url, HttpMethod.POST, rq, clazz));
+	}
+
+	@Override
+	public final <RQ, RS> Maybe<RS> postFor(String url, RQ rq, Class<RS> clazz) throws RestEndpointIOException {
+		return body(this.<RQ, RS>post(url, rq, clazz));
+	}
+
+	@Override
+	public final <RQ, RS> Maybe<Response<RS>> post(String url, RQ rq, Type type) throws RestEndpointIOException {
+		return executeRequest(new RestCommand<RQ, RS>(url, HttpMethod.POST, rq, type, false));
+	}
+
+	@Override
+	public final <RQ, RS> Maybe<RS> postFor(String url, RQ rq, Type type) throws RestEndpointIOException {
+		return body(this.<RQ, RS>post(url, rq, type));
+	}
+
+	@Override
+	public final <RS> Maybe<Response<RS>> post(String url, MultiPartRequest rq, Class<RS> clazz) throws RestEndpointIOException {
+		return executeRequest(new RestCommand<MultiPartRequest, RS>(url, HttpMethod.POST, rq, clazz, true));
+	}
+
+	@Override
+	public final <RS> Maybe<RS> postFor(String url, MultiPartRequest rq, Class<RS> clazz) throws RestEndpointIOException {
+		return body(post(url, rq, clazz));
+	}
+
+	@Override
+	public final <RQ, RS> Maybe<Response<RS>> put(String url, RQ rq, Class<RS> clazz) throws RestEndpointIOException {
+		return executeRequest(new RestCommand<RQ, RS>(url, HttpMethod.PUT, rq, clazz));
+	}
+
+	@Override
+	public final <RQ, RS> Maybe<RS> putFor(String url, RQ rq, Class<RS> clazz) throws RestEndpointIOException {
+		return body(this.<RQ, RS>put(url, rq, clazz));
+	}
+
+	@Override
+	public final <RQ, RS> Maybe<Response<RS>> put(String url, RQ rq, Type type) throws RestEndpointIOException {
+		return executeRequest(new RestCommand<RQ, RS>(url, HttpMethod.PUT, rq, type, false));
+	}
+
+	@Override
+	public final <RQ, RS> Maybe<RS> putFor(String url, RQ rq, Type type) throws RestEndpointIOException {
+		return body(this.<RQ, RS>put(url, rq, type));
+	}
+
+	@Override
+	public final <RS> Maybe<Response<RS>> delete(String url, Class<RS> clazz) throws RestEndpointIOException {
+		return executeRequest(new RestCommand<Object, RS>(url, HttpMethod.DELETE, null, clazz));
+	}
+
+	@Override
+	public final <RS> Maybe<RS> deleteFor(String url, Class<RS> clazz) throws RestEndpointIOException {
+		return body(delete(url, clazz));
+	}
+
+	@Override
+	public final <RS> Maybe<Response<RS>> get(String url, Class<RS> clazz) throws RestEndpointIOException {
+		return get(url, Collections.<String, String>emptyMap(), clazz);
+	}
+
+	@Override
+	public final <RS> Maybe<RS> getFor(String url, Class<RS> clazz) throws RestEndpointIOException {
+		return body(get(url, clazz));
+	}
+
+	@Override
+	public final <RS> Maybe<Response<RS>> get(String url, Type type) throws RestEndpointIOException {
+		return get(url, Collections.<String, String>emptyMap(), type);
+	}
+
+	@Override
+	public final <RS> Maybe<RS> getFor(String url, Type type) throws RestEndpointIOException {
+		return body(this.<RS>get(url, type));
+	}
+
+	@Override
+	public final <RS> Maybe<Response<RS>> get(String url, Map<String, String> parameters, Class<RS> clazz)
+			throws RestEndpointIOException {
+		return executeRequest(new RestCommand<Object, RS>(withQuery(url, parameters), HttpMethod.GET, null, clazz));
+	}
+
+	@Override
+	public final <RS> Maybe<RS> getFor(String url, Map<String, String> parameters, Class<RS> clazz) throws RestEndpointIOException {
+		return body(get(url, parameters, clazz));
+	}
+
+	@Override
+	public final <RS> Maybe<Response<RS>> get(String url, Map<String, String> parameters, Type type) throws RestEndpointIOException {
+		return executeRequest(new RestCommand<Object, RS>(withQuery(url, parameters), HttpMethod.GET, null, type, false));
+	}
+
+	@Override
+	public final <RS> Maybe<RS> getFor(String url, Map<String, String> parameters, Type type) throws RestEndpointIOException {
+		return body(this.<RS>get(url, parameters, type));
+	}
+
+	/**
+	 * @param url Relative or absolute URL of the request
+	 * @return Absolute URI of the request
+	 * @throws RestEndpointIOException If URL is malformed
+	 */
+	protected URI spliceUrl(String url) throws RestEndpointIOException {
+		try {
+			return Strings.isNullOrEmpty(baseUrl) ? new URI(url) : new URI(baseUrl.concat(url));
+		} catch (URISyntaxException e) {
+			throw new RestEndpointIOException("Unable to build URL with base url '" + baseUrl + "' and resource '" + url + "'", e);
+		}
+	}
+
+	/**
+	 * Serializes body of the request
+	 *
+	 * @param rq Request
+	 * @return Serialized body
+	 * @throws SerializerException If there is no serializer supporting the request
+	 */
+	protected byte[] serialize(Object rq) throws SerializerException {
+		return getSupportedSerializer(rq).serialize(rq);
+	}
+
+	/**
+	 * @param rq Request
+	 * @return Media type of serialized request
+	 * @throws SerializerException If there is no serializer supporting the request
+	 */
+	protected MediaType getMediaType(Object rq) throws SerializerException {
+		return getSupportedSerializer(rq).getMimeType();
+	}
+
+	/**
+	 * @param body        Serialized request body
+	 * @param contentType Content type of the body
+	 * @return Body compressed with gzip or NULL if compression is disabled or skipped for the body
+	 */
+	protected byte[] compress(byte[] body, String contentType) {
+		return isCompressible(contentType) ? compressor.compress(body, contentType) : null;
+	}
+
+	/**
+	 * @param contentType Content type of request body
+	 * @return Whether compression is enabled and may be applied to such content
+	 */
+	protected boolean isCompressible(String contentType) {
+		return null != compressor && compressor.canCompress(contentType);
+	}
+
+	/**
+	 * @param contentType   Content type of request body
+	 * @param contentLength Length of request body or negative value if the length is unknown
+	 * @return Whether compression may be applied to such content and the body is small enough to be buffered for that
+	 */
+	protected boolean isCompressible(String contentType, long contentLength) {
+		return contentLength >= 0 && isCompressible(contentType) && compressor.canBuffer(contentLength);
+	}
+
+	/**
+	 * Checks response for errors and converts its body to the expected type
+	 *
+	 * @param response    Response with raw body
+	 * @param contentType Content type of the response or NULL if response has no content type
+	 * @param type        Expected type of body
+	 * @param <RS>        Expected type of body
+	 * @return Response with converted body
+	 * @throws RestEndpointIOException If server responded with error or body cannot be converted
+	 */
+	protected <RS> Response<RS> handleResponse(Response<ByteSource> response, String contentType, Type type)
+			throws RestEndpointIOException {
+		if (errorHandler.hasError(response)) {
+			errorHandler.handle(response);
+		}
+		try {
+			MediaType mediaType = null == contentType ? MediaType.ANY_TYPE : MediaType.parse(contentType);
+			RS body = getSupportedSerializer(mediaType, type).deserialize(response.getBody().read(), type);
+			return new Response<RS>(response.getUri(),
+					response.getHttpMethod(),
+					response.getStatus(),
+					response.getReason(),
+					response.getHeaders(),
+					body
+			);
+		} catch (java.io.IOException e) {
+			throw new RestEndpointIOException("Unable to read response", e);
+		}
+	}
+
+	/**
+	 * Builds response with raw body. Header names are converted to canonical form like 'Content-Type', since
+	 * error handler looks headers up by name and servers (and HTTP/2) may send them in other case
+	 */
+	protected static Response<ByteSource> rawResponse(URI uri, HttpMethod method, int status, String reason,
+			Multimap<String, String> headers, byte[] body) {
+		ImmutableMultimap.Builder<String, String> canonical = ImmutableMultimap.builder();
+		for (Map.Entry<String, String> header : headers.entries()) {
+			canonical.put(canonicalHeaderName(header.getKey()), null == header.getValue() ? "" : header.getValue());
+		}
+		return new Response<ByteSource>(uri,
+				method,
+				status,
+				reason,
+				canonical.build(),
+				ByteSource.wrap(null == body ? new byte[0] : body)
+		);
+	}
+
+	private static String canonicalHeaderName(String name) {
+		char[] chars = name.toLowerCase(Locale.US).toCharArray();
+		boolean upper = true;
+		for (int i = 0; i < chars.length; i++) {
+			if (upper) {
+				chars[i] = Character.toUpperCase(chars[i]);
+			}
+			upper = '-' == chars[i];
+		}
+		return new String(chars);
+	}
+
+	private Serializer getSupportedSerializer(Object o) throws SerializerException {
+		for (Serializer serializer : serializers) {
+			if (serializer.canWrite(o)) {
+				return serializer;
+			}
+		}
+		throw new SerializerException("Unable to find serializer for object with type '" + o.getClass() + "'");
+	}
+
+	private Serializer getSupportedSerializer(MediaType contentType, Type type) throws SerializerException {
+		for (Serializer serializer : serializers) {
+			if (serializer.canRead(contentType, type)) {
+				return serializer;
+			}
+		}
+		throw new SerializerException("Conversion media type '" + contentType + "' to type '" + type + "' is not supported");
+	}
+
+	private static String withQuery(String url, Map<String, String> parameters) throws RestEndpointIOException {
+		if (null == parameters || parameters.isEmpty()) {
+			return url;
+		}
+		StringBuilder query = new StringBuilder(url).append(url.contains("?") ? '&' : '?');
+		try {
+			boolean first = true;
+			for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+				if (!first) {
+					query.append('&');
+				}
+				query.append(URLEncoder.encode(parameter.getKey(), Charsets.UTF_8.name()))
+						.append('=')
+						.append(URLEncoder.encode(parameter.getValue(), Charsets.UTF_8.name()));
+				first = false;
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new RestEndpointIOException("Unable to encode query parameters", e);
+		}
+		return query.toString();
+	}
+
+	private static <RS> Maybe<RS> body(Maybe<Response<RS>> response) {
+		return response.map(new Function<Response<RS>, RS>() {
+			@Override
+			public RS apply(Response<RS> rs) throws Exception {
+				return rs.getBody();
+			}
+		});
+	}
+}
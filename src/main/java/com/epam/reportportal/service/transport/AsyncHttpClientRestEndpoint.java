@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.restendpoint.http.ErrorHandler;
+import com.epam.reportportal.restendpoint.http.HttpMethod;
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.reportportal.restendpoint.http.Response;
+import com.epam.reportportal.restendpoint.http.RestCommand;
+import com.epam.reportportal.restendpoint.http.exception.RestEndpointIOException;
+import com.epam.reportportal.restendpoint.serializer.Serializer;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.io.ByteStreams;
+import io.reactivex.Maybe;
+import io.reactivex.MaybeEmitter;
+import io.reactivex.MaybeOnSubscribe;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.*;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.entity.NByteArrayEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Non-blocking transport based on Apache HttpAsyncClient. Requests are sent by a few I/O reactor threads
+ * and response promises are resolved from I/O callbacks, so count of requests in flight is not limited
+ * by count of threads. Results are observed on provided executor to keep reactor threads free of
+ * downstream processing
+ */
+public class AsyncHttpClientRestEndpoint extends AbstractRestEndpoint {
+
+	private final CloseableHttpAsyncClient httpClient;
+	private final Scheduler scheduler;
+
+	/**
+	 * @param httpClient   Async HTTP client. Started by the endpoint if not started yet
+	 * @param serializers  Serializers of requests and responses
+	 * @param errorHandler Handler of error responses
+	 * @param baseUrl      Base URL of all the requests
+	 * @param executor     Executor to observe results on
+	 */
+	public AsyncHttpClientRestEndpoint(CloseableHttpAsyncClient httpClient, List<Serializer> serializers, ErrorHandler errorHandler,
+			String baseUrl, ExecutorService executor) {
+		this(httpClient, serializers, errorHandler, baseUrl, executor, null);
+	}
+
+	/**
+	 * @param httpClient   Async HTTP client. Started by the endpoint if not started yet
+	 * @param serializers  Serializers of requests and responses
+	 * @param errorHandler Handler of error responses
+	 * @param baseUrl      Base URL of all the requests
+	 * @param executor     Executor to observe results on
+	 * @param compressor   Compressor of request bodies or NULL if requests should be sent as is
+	 */
+	public AsyncHttpClientRestEndpoint(CloseableHttpAsyncClient httpClient, List<Serializer> serializers, ErrorHandler errorHandler,
+			String baseUrl, ExecutorService executor, GzipCompressor compressor) {
+		super(serializers, errorHandler, baseUrl, compressor);
+		this.httpClient = Preconditions.checkNotNull(httpClient, "HTTP client shouldn't be NULL");
+		this.scheduler = Schedulers.from(Preconditions.checkNotNull(executor, "Executor shouldn't be NULL"));
+		if (!httpClient.isRunning()) {
+			httpClient.start();
+		}
+	}
+
+	@Override
+	public <RQ, RS> Maybe<Response<RS>> executeRequest(final RestCommand<RQ, RS> command) throws RestEndpointIOException {
+		final HttpUriRequest rq = buildRequest(command);
+		return Maybe.create(new MaybeOnSubscribe<Response<RS>>() {
+			@Override
+			public void subscribe(final MaybeEmitter<Response<RS>> emitter) {
+				httpClient.execute(rq, new FutureCallback<HttpResponse>() {
+					@Override
+					public void completed(HttpResponse response) {
+						try {
+							emitter.onSuccess(AsyncHttpClientRestEndpoint.this.<RS>toResponse(rq, response, command));
+						} catch (Exception e) {
+							emitter.onError(e);
+						}
+					}
+
+					@Override
+					public void failed(Exception ex) {
+						emitter.onError(new RestEndpointIOException("Unable to execute request " + rq.getMethod() + " " + rq.getURI(), ex));
+					}
+
+					@Override
+					public void cancelled() {
+						emitter.onError(new CancellationException("Request " + rq.getMethod() + " " + rq.getURI() + " has been cancelled"));
+					}
+				});
+			}
+		}).cache().observeOn(scheduler);
+	}
+
+	@Override
+	public void close() throws IOException {
+		httpClient.close();
+	}
+
+	private <RQ, RS> HttpUriRequest buildRequest(RestCommand<RQ, RS> command) throws RestEndpointIOException {
+		final URI uri = spliceUrl(command.getUri());
+		final HttpRequestBase rq;
+		switch (command.getHttpMethod()) {
+			case GET:
+				return new HttpGet(uri);
+			case DELETE:
+				return new HttpDelete(uri);
+			case POST:
+				rq = new HttpPost(uri);
+				break;
+			case PUT:
+				rq = new HttpPut(uri);
+				break;
+			case PATCH:
+				rq = new HttpPatch(uri);
+				break;
+			default:
+				throw new IllegalArgumentException("Method '" + command.getHttpMethod() + "' is unsupported");
+		}
+		((HttpEntityEnclosingRequest) rq).setEntity(command.isMultipart() ?
+				buildMultipartEntity((MultiPartRequest) command.getRequest()) :
+				buildEntity(serialize(command.getRequest()), getMediaType(command.getRequest()).toString()));
+		return rq;
+	}
+
+	private HttpEntity buildEntity(byte[] body, String contentType) {
+		byte[] compressed = compress(body, contentType);
+		NByteArrayEntity entity = new NByteArrayEntity(null == compressed ? body : compressed);
+		entity.setContentType(contentType);
+		if (null != compressed) {
+			entity.setContentEncoding(GzipCompressor.GZIP);
+		}
+		return entity;
+	}
+
+	/**
+	 * Multipart body streams attachments from their sources. It's buffered only to be compressed,
+	 * if its length is known and small enough for that
+	 */
+	private HttpEntity buildMultipartEntity(MultiPartRequest request) throws RestEndpointIOException {
+		try {
+			StreamingMultipartEntity.Builder builder = new StreamingMultipartEntity.Builder();
+			for (MultiPartRequest.MultiPartSerialized<?> part : request.getSerializedRQs()) {
+				Object rq = part.getRequest();
+				builder.addPart(part.getPartName(), getMediaType(rq).toString(), serialize(rq));
+			}
+			for (MultiPartRequest.MultiPartBinary part : request.getBinaryRQs()) {
+				builder.addPart(part.getPartName(), part.getFilename(), part.getContentType(), part.getData());
+			}
+			StreamingMultipartEntity multipart = builder.build();
+			String contentType = multipart.getContentType().getValue();
+			if (!isCompressible(contentType, multipart.getContentLength())) {
+				return multipart;
+			}
+			ByteArrayOutputStream body = new ByteArrayOutputStream((int) multipart.getContentLength());
+			multipart.writeTo(body);
+			return buildEntity(body.toByteArray(), contentType);
+		} catch (Exception e) {
+			throw new RestEndpointIOException("Unable to build post multipart request", e);
+		}
+	}
+
+	private <RS> Response<RS> toResponse(HttpUriRequest rq, HttpResponse response, RestCommand<?, RS> command) throws IOException {
+		ImmutableMultimap.Builder<String, String> headers = ImmutableMultimap.builder();
+		for (Header header : response.getAllHeaders()) {
+			headers.put(header.getName(), Strings.nullToEmpty(header.getValue()));
+		}
+		HttpEntity entity = response.getEntity();
+		byte[] body = null == entity ? null : ByteStreams.toByteArray(entity.getContent());
+		Header contentType = null == entity ? null : entity.getContentType();
+		return handleResponse(rawResponse(rq.getURI(),
+				HttpMethod.valueOf(rq.getMethod()),
+				response.getStatusLine().getStatusCode(),
+				response.getStatusLine().getReasonPhrase(),
+				headers.build(),
+				body
+		), null == contentType ? null : contentType.getValue(), command.getResponseType());
+	}
+}
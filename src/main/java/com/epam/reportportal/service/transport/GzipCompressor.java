@@ -0,0 +1,306 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of request bodies. Request is compressed if at least half of it and not less than threshold
+ * is compressible content: JSON, XML, text. Already compressed media like PNG or ZIP is not compressed again,
+ * so multipart request consisting mostly of such attachments is sent as is. CPU time spent on compression is
+ * limited with a budget per second, requests are sent uncompressed when the budget is exhausted
+ */
+public class GzipCompressor {
+
+	public static final String GZIP = "gzip";
+	/* larger bodies are sent as is, so attachments are streamed rather than buffered in memory for compression */
+	public static final int MAX_BUFFERED_BODY = 8 * 1024 * 1024;
+
+	private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+	private static final String DEFAULT_PART_TYPE = "text/plain";
+	private static final Set<String> COMPRESSIBLE_TYPES = ImmutableSet.of("application/json",
+			"application/xml",
+			"application/javascript",
+			"application/x-javascript",
+			"application/x-www-form-urlencoded",
+			"image/svg+xml"
+	);
+
+	private final int threshold;
+	private final long budget;
+	private final Stats stats = new Stats();
+
+	private long windowStart;
+	private long windowSpent;
+
+	/**
+	 * @param threshold Minimal size in bytes of compressible content for request to be compressed
+	 * @param cpuBudget Percent of one CPU which may be spent on compression
+	 */
+	public GzipCompressor(int threshold, int cpuBudget) {
+		this.threshold = threshold;
+		this.budget = WINDOW * cpuBudget / 100;
+		this.windowStart = System.nanoTime();
+	}
+
+	public static GzipCompressor create(ListenerParameters parameters) {
+		return new GzipCompressor(parameters.getCompressionThreshold(), parameters.getCompressionCpuBudget());
+	}
+
+	/**
+	 * @param contentType Content type of request
+	 * @return Whether request of such type may be compressed. Multipart requests are checked part by part on compression
+	 */
+	public boolean canCompress(String contentType) {
+		MediaType type = parse(contentType);
+		return null != type && ("multipart".equals(type.type()) || isCompressible(type));
+	}
+
+	/**
+	 * @param contentLength Length of request body or negative value if the length is unknown
+	 * @return FALSE if body is known to be larger than {@link #MAX_BUFFERED_BODY}, so it should be sent as is
+	 */
+	public boolean canBuffer(long contentLength) {
+		if (contentLength > MAX_BUFFERED_BODY) {
+			stats.skipped.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param body        Request body
+	 * @param contentType Content type of request
+	 * @return Compressed body or NULL if request should be sent as is
+	 */
+	public byte[] compress(byte[] body, String contentType) {
+		long compressible = compressibleBytes(body, contentType);
+		if (compressible < threshold || compressible * 2 < body.length) {
+			stats.skipped.incrementAndGet();
+			return null;
+		}
+		if (!hasBudget()) {
+			stats.overBudget.incrementAndGet();
+			return null;
+		}
+
+		long start = cpuTime();
+		byte[] compressed = gzip(body);
+		long spent = cpuTime() - start;
+		spend(spent);
+		stats.compressionTime.addAndGet(spent);
+
+		if (null == compressed || compressed.length >= body.length) {
+			stats.skipped.incrementAndGet();
+			return null;
+		}
+		stats.compressed.incrementAndGet();
+		stats.bytesIn.addAndGet(body.length);
+		stats.bytesOut.addAndGet(compressed.length);
+		return compressed;
+	}
+
+	/**
+	 * @return Compression statistics
+	 */
+	public Stats getStats() {
+		return stats;
+	}
+
+	static boolean isCompressible(MediaType type) {
+		if (null == type) {
+			return false;
+		}
+		String subtype = type.subtype();
+		return "text".equals(type.type()) || subtype.endsWith("+json") || subtype.endsWith("+xml") || COMPRESSIBLE_TYPES.contains(
+				type.withoutParameters().toString());
+	}
+
+	/**
+	 * Counts bytes of compressible parts. Multipart body is scanned for part delimiters, only headers of parts are parsed
+	 */
+	static long compressibleBytes(byte[] body, String contentType) {
+		MediaType type = parse(contentType);
+		if (null == type || !"multipart".equals(type.type())) {
+			return isCompressible(type) ? body.length : 0;
+		}
+		List<String> boundary = type.parameters().get("boundary");
+		if (boundary.isEmpty()) {
+			return 0;
+		}
+
+		//ISO-8859-1 maps bytes to chars one to one, so indexes match
+		String content = new String(body, Charsets.ISO_8859_1);
+		String delimiter = "--" + boundary.get(0);
+		long compressible = 0;
+		int part = content.indexOf(delimiter);
+		while (part >= 0) {
+			int headersStart = part + delimiter.length();
+			if (content.startsWith("--", headersStart)) {
+				break;
+			}
+			int headersEnd = content.indexOf("\r\n\r\n", headersStart);
+			int next = headersEnd < 0 ? -1 : content.indexOf("\r\n" + delimiter, headersEnd);
+			if (next < 0) {
+				break;
+			}
+			if (isCompressible(parse(partContentType(content.substring(headersStart, headersEnd))))) {
+				compressible += next - headersEnd - 4;
+			}
+			part = next + 2;
+		}
+		return compressible;
+	}
+
+	private static String partContentType(String headers) {
+		for (String header : headers.split("\r\n")) {
+			if (header.toLowerCase(Locale.US).startsWith("content-type:")) {
+				return header.substring("content-type:".length()).trim();
+			}
+		}
+		return DEFAULT_PART_TYPE;
+	}
+
+	private static MediaType parse(String contentType) {
+		if (null == contentType) {
+			return null;
+		}
+		try {
+			return MediaType.parse(contentType);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static byte[] gzip(byte[] body) {
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+			GZIPOutputStream gzip = new GZIPOutputStream(out, 8192);
+			gzip.write(body);
+			gzip.close();
+			return out.toByteArray();
+		} catch (IOException e) {
+			//should never happen with in-memory streams
+			return null;
+		}
+	}
+
+	private synchronized boolean hasBudget() {
+		long now = System.nanoTime();
+		if (now - windowStart >= WINDOW) {
+			windowStart = now;
+			windowSpent = 0;
+		}
+		return windowSpent < budget;
+	}
+
+	private synchronized void spend(long nanos) {
+		windowSpent += nanos;
+	}
+
+	private static long cpuTime() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+	}
+
+	/**
+	 * Compression statistics
+	 */
+	public static class Stats {
+		private final AtomicLong compressed = new AtomicLong();
+		private final AtomicLong skipped = new AtomicLong();
+		private final AtomicLong overBudget = new AtomicLong();
+		private final AtomicLong bytesIn = new AtomicLong();
+		private final AtomicLong bytesOut = new AtomicLong();
+		private final AtomicLong compressionTime = new AtomicLong();
+
+		/**
+		 * @return Count of compressed requests
+		 */
+		public long getCompressed() {
+			return compressed.get();
+		}
+
+		/**
+		 * @return Count of requests sent as is because of size, content type or poor compression
+		 */
+		public long getSkipped() {
+			return skipped.get();
+		}
+
+		/**
+		 * @return Count of requests sent as is because CPU budget was exhausted
+		 */
+		public long getOverBudget() {
+			return overBudget.get();
+		}
+
+		/**
+		 * @return Size of compressed requests before compression
+		 */
+		public long getBytesIn() {
+			return bytesIn.get();
+		}
+
+		/**
+		 * @return Size of compressed requests after compression
+		 */
+		public long getBytesOut() {
+			return bytesOut.get();
+		}
+
+		/**
+		 * @return Ratio of original size to compressed one or 1 if nothing has been compressed yet
+		 */
+		public double getRatio() {
+			long out = bytesOut.get();
+			return 0 == out ? 1 : (double) bytesIn.get() / out;
+		}
+
+		/**
+		 * @return CPU time spent on compression, in nanoseconds
+		 */
+		public long getCompressionTime() {
+			return compressionTime.get();
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"compressed=%d, skipped=%d, overBudget=%d, ratio=%.2f, cpu=%dms",
+					getCompressed(),
+					getSkipped(),
+					getOverBudget(),
+					getRatio(),
+					TimeUnit.NANOSECONDS.toMillis(getCompressionTime())
+			);
+		}
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteSource;
+import com.google.common.io.FileBackedOutputStream;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compresses bodies of requests sent by blocking Apache HttpClient. Should be added as first interceptor,
+ * so content headers are calculated for compressed entity. Bodies known to be too large to buffer are sent as is.
+ * Multipart bodies with streamed attachments have unknown length, so they are spooled to a temporary file
+ * once they exceed {@link GzipCompressor#MAX_BUFFERED_BODY} and sent as is from there
+ */
+public class GzipRequestInterceptor implements HttpRequestInterceptor {
+
+	private final GzipCompressor compressor;
+
+	public GzipRequestInterceptor(GzipCompressor compressor) {
+		this.compressor = Preconditions.checkNotNull(compressor, "Compressor shouldn't be NULL");
+	}
+
+	@Override
+	public void process(HttpRequest request, HttpContext context) throws IOException {
+		if (!(request instanceof HttpEntityEnclosingRequest) || request.containsHeader(HTTP.CONTENT_ENCODING)) {
+			return;
+		}
+		HttpEntityEnclosingRequest rq = (HttpEntityEnclosingRequest) request;
+		HttpEntity entity = rq.getEntity();
+		if (null == entity || null == entity.getContentType() || null != entity.getContentEncoding()) {
+			return;
+		}
+		String contentType = entity.getContentType().getValue();
+		if (!compressor.canCompress(contentType) || !compressor.canBuffer(entity.getContentLength())) {
+			return;
+		}
+
+		//entity may be not repeatable, so it's replaced even if compression is skipped
+		FileBackedOutputStream raw = new FileBackedOutputStream(GzipCompressor.MAX_BUFFERED_BODY, true);
+		entity.writeTo(raw);
+		raw.close();
+		ByteSource spooled = raw.asByteSource();
+		long length = spooled.size();
+		if (!compressor.canBuffer(length)) {
+			rq.setEntity(new ByteSourceEntity(spooled, length, entity));
+			return;
+		}
+		byte[] body = spooled.read();
+		raw.reset();
+		byte[] compressed = compressor.compress(body, contentType);
+		ByteArrayEntity buffered = new ByteArrayEntity(null == compressed ? body : compressed);
+		buffered.setContentType(entity.getContentType());
+		if (null != compressed) {
+			buffered.setContentEncoding(GzipCompressor.GZIP);
+		}
+		rq.setEntity(buffered);
+	}
+
+	/**
+	 * Entity spooled to a temporary file. File is deleted once the entity is garbage collected
+	 */
+	private static class ByteSourceEntity extends AbstractHttpEntity {
+		private final ByteSource content;
+		private final long length;
+
+		ByteSourceEntity(ByteSource content, long length, HttpEntity original) {
+			this.content = content;
+			this.length = length;
+			setContentType(original.getContentType());
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return true;
+		}
+
+		@Override
+		public long getContentLength() {
+			return length;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return content.openStream();
+		}
+
+		@Override
+		public void writeTo(OutputStream outstream) throws IOException {
+			content.copyTo(outstream);
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+/**
+ * HTTP transport used by ReportPortal client
+ */
+public enum HttpTransport {
+
+	/**
+	 * Blocking Apache HttpClient executed on rp-io pool
+	 */
+	SYNC,
+	/**
+	 * Non-blocking Apache HttpAsyncClient
+	 */
+	ASYNC,
+	/**
+	 * HTTP/2 multiplexed OkHttp transport: h2 over TLS and h2c with prior knowledge over plain HTTP.
+	 * Requires OkHttp on classpath
+	 */
+	HTTP2;
+
+	/**
+	 * @param transport Name of transport, case insensitive
+	 * @return Transport or {@link #SYNC} if there is no transport with such name
+	 */
+	public static HttpTransport parse(String transport) {
+		if (null != transport) {
+			for (HttpTransport value : values()) {
+				if (value.name().equalsIgnoreCase(transport.trim())) {
+					return value;
+				}
+			}
+		}
+		return SYNC;
+	}
+}
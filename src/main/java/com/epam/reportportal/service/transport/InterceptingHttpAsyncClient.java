@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.google.common.base.Preconditions;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Future;
+
+/**
+ * Non-blocking Apache HttpClient which runs interceptors on every request generated by a request producer
+ * before the client it wraps sends it. Lets the client add its interceptors to HTTP client built by the caller
+ * without changing the caller's builder. Interceptors run before the ones of the wrapped client and may change
+ * headers only, since body of the request is produced by the producer
+ */
+public class InterceptingHttpAsyncClient extends CloseableHttpAsyncClient {
+
+	private final CloseableHttpAsyncClient delegate;
+	private final List<HttpRequestInterceptor> interceptors;
+
+	public InterceptingHttpAsyncClient(CloseableHttpAsyncClient delegate, HttpRequestInterceptor... interceptors) {
+		this.delegate = Preconditions.checkNotNull(delegate, "HTTP client shouldn't be NULL");
+		this.interceptors = Arrays.asList(interceptors);
+	}
+
+	@Override
+	public boolean isRunning() {
+		return delegate.isRunning();
+	}
+
+	@Override
+	public void start() {
+		delegate.start();
+	}
+
+	@Override
+	public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<T> responseConsumer,
+			HttpContext context, FutureCallback<T> callback) {
+		HttpContext ctx = null == context ? new BasicHttpContext() : context;
+		return delegate.execute(new InterceptedProducer(requestProducer, ctx), responseConsumer, ctx, callback);
+	}
+
+	@Override
+	public void close() throws IOException {
+		delegate.close();
+	}
+
+	private class InterceptedProducer implements HttpAsyncRequestProducer {
+		private final HttpAsyncRequestProducer producer;
+		private final HttpContext context;
+
+		InterceptedProducer(HttpAsyncRequestProducer producer, HttpContext context) {
+			this.producer = producer;
+			this.context = context;
+		}
+
+		@Override
+		public HttpHost getTarget() {
+			return producer.getTarget();
+		}
+
+		@Override
+		public HttpRequest generateRequest() throws IOException, HttpException {
+			HttpRequest request = producer.generateRequest();
+			for (HttpRequestInterceptor interceptor : interceptors) {
+				interceptor.process(request, context);
+			}
+			return request;
+		}
+
+		@Override
+		public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+			producer.produceContent(encoder, ioctrl);
+		}
+
+		@Override
+		public void requestCompleted(HttpContext context) {
+			producer.requestCompleted(context);
+		}
+
+		@Override
+		public void failed(Exception ex) {
+			producer.failed(ex);
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return producer.isRepeatable();
+		}
+
+		@Override
+		public void resetRequest() throws IOException {
+			producer.resetRequest();
+		}
+
+		@Override
+		public void close() throws IOException {
+			producer.close();
+		}
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.google.common.base.Preconditions;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Blocking Apache HttpClient which runs interceptors on every request before passing it to the client it wraps.
+ * Lets the client add its interceptors to HTTP client built by the caller without changing the caller's builder.
+ * Interceptors run before the ones of the wrapped client
+ */
+public class InterceptingHttpClient extends CloseableHttpClient {
+
+	private final CloseableHttpClient delegate;
+	private final List<HttpRequestInterceptor> interceptors;
+
+	public InterceptingHttpClient(CloseableHttpClient delegate, HttpRequestInterceptor... interceptors) {
+		this.delegate = Preconditions.checkNotNull(delegate, "HTTP client shouldn't be NULL");
+		this.interceptors = Arrays.asList(interceptors);
+	}
+
+	@Override
+	protected CloseableHttpResponse doExecute(HttpHost target, HttpRequest request, HttpContext context) throws IOException {
+		HttpContext ctx = null == context ? new BasicHttpContext() : context;
+		try {
+			for (HttpRequestInterceptor interceptor : interceptors) {
+				interceptor.process(request, ctx);
+			}
+		} catch (HttpException e) {
+			throw new ClientProtocolException(e);
+		}
+		return delegate.execute(target, request, ctx);
+	}
+
+	@Override
+	public void close() throws IOException {
+		delegate.close();
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public HttpParams getParams() {
+		return delegate.getParams();
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public ClientConnectionManager getConnectionManager() {
+		return delegate.getConnectionManager();
+	}
+}
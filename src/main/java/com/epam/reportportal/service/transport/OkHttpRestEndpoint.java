@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.restendpoint.http.ErrorHandler;
+import com.epam.reportportal.restendpoint.http.HttpMethod;
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.reportportal.restendpoint.http.Response;
+import com.epam.reportportal.restendpoint.http.RestCommand;
+import com.epam.reportportal.restendpoint.http.exception.RestEndpointIOException;
+import com.epam.reportportal.restendpoint.serializer.Serializer;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.io.ByteSource;
+import io.reactivex.Maybe;
+import io.reactivex.MaybeEmitter;
+import io.reactivex.MaybeOnSubscribe;
+import okhttp3.*;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Transport based on OkHttp. Supports HTTP/2, so all the requests of the client are multiplexed over
+ * one connection: h2 is negotiated for HTTPS via ALPN and h2c with prior knowledge is used for plain HTTP.
+ * OkHttp is an optional dependency and should be added to classpath to use this transport
+ */
+public class OkHttpRestEndpoint extends AbstractRestEndpoint {
+
+	private final OkHttpClient httpClient;
+
+	/**
+	 * @param httpClient   OkHttp client
+	 * @param serializers  Serializers of requests and responses
+	 * @param errorHandler Handler of error responses
+	 * @param baseUrl      Base URL of all the requests
+	 */
+	public OkHttpRestEndpoint(OkHttpClient httpClient, List<Serializer> serializers, ErrorHandler errorHandler, String baseUrl) {
+		this(httpClient, serializers, errorHandler, baseUrl, null);
+	}
+
+	/**
+	 * @param httpClient   OkHttp client
+	 * @param serializers  Serializers of requests and responses
+	 * @param errorHandler Handler of error responses
+	 * @param baseUrl      Base URL of all the requests
+	 * @param compressor   Compressor of request bodies or NULL if requests should be sent as is
+	 */
+	public OkHttpRestEndpoint(OkHttpClient httpClient, List<Serializer> serializers, ErrorHandler errorHandler, String baseUrl,
+			GzipCompressor compressor) {
+		super(serializers, errorHandler, baseUrl, compressor);
+		this.httpClient = Preconditions.checkNotNull(httpClient, "HTTP client shouldn't be NULL");
+	}
+
+	@Override
+	public <RQ, RS> Maybe<Response<RS>> executeRequest(final RestCommand<RQ, RS> command) throws RestEndpointIOException {
+		final Request rq = buildRequest(command);
+		return Maybe.create(new MaybeOnSubscribe<Response<RS>>() {
+			@Override
+			public void subscribe(final MaybeEmitter<Response<RS>> emitter) {
+				httpClient.newCall(rq).enqueue(new Callback() {
+					@Override
+					public void onFailure(Call call, IOException e) {
+						emitter.onError(new RestEndpointIOException("Unable to execute request " + rq.method() + " " + rq.url(), e));
+					}
+
+					@Override
+					public void onResponse(Call call, okhttp3.Response response) {
+						try {
+							emitter.onSuccess(OkHttpRestEndpoint.this.<RS>toResponse(response, command));
+						} catch (Exception e) {
+							emitter.onError(e);
+						} finally {
+							response.close();
+						}
+					}
+				});
+			}
+		}).cache();
+	}
+
+	@Override
+	public void close() {
+		httpClient.connectionPool().evictAll();
+	}
+
+	private <RQ, RS> Request buildRequest(RestCommand<RQ, RS> command) throws RestEndpointIOException {
+		Request.Builder rq = new Request.Builder().url(HttpUrl.get(spliceUrl(command.getUri())));
+		switch (command.getHttpMethod()) {
+			case GET:
+				return rq.get().build();
+			case DELETE:
+				return rq.delete().build();
+			case POST:
+			case PUT:
+			case PATCH:
+				RQ body = command.getRequest();
+				RequestBody requestBody = command.isMultipart() ?
+						buildMultipartBody((MultiPartRequest) body) :
+						RequestBody.create(MediaType.parse(getMediaType(body).toString()), serialize(body));
+				return rq.method(command.getHttpMethod().name(), compress(rq, requestBody)).build();
+			default:
+				throw new IllegalArgumentException("Method '" + command.getHttpMethod() + "' is unsupported");
+		}
+	}
+
+	/**
+	 * Replaces body with compressed one if compression is not skipped. Multipart body is buffered for that,
+	 * unless its length is unknown or too large, so large attachments are always streamed
+	 */
+	private RequestBody compress(Request.Builder rq, RequestBody body) throws RestEndpointIOException {
+		MediaType contentType = body.contentType();
+		try {
+			if (null == contentType || !isCompressible(contentType.toString(), body.contentLength())) {
+				return body;
+			}
+			Buffer buffer = new Buffer();
+			body.writeTo(buffer);
+			byte[] raw = buffer.readByteArray();
+			byte[] compressed = compress(raw, contentType.toString());
+			if (null == compressed) {
+				return RequestBody.create(contentType, raw);
+			}
+			rq.header("Content-Encoding", GzipCompressor.GZIP);
+			return RequestBody.create(contentType, compressed);
+		} catch (IOException e) {
+			throw new RestEndpointIOException("Unable to compress request body", e);
+		}
+	}
+
+	private RequestBody buildMultipartBody(MultiPartRequest request) throws RestEndpointIOException {
+		MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.FORM);
+		for (MultiPartRequest.MultiPartSerialized<?> part : request.getSerializedRQs()) {
+			Object rq = part.getRequest();
+			builder.addFormDataPart(part.getPartName(), null, RequestBody.create(MediaType.parse(getMediaType(rq).toString()), serialize(rq)));
+		}
+		for (MultiPartRequest.MultiPartBinary part : request.getBinaryRQs()) {
+			builder.addFormDataPart(part.getPartName(),
+					part.getFilename(),
+					new ByteSourceRequestBody(MediaType.parse(part.getContentType()), part.getData())
+			);
+		}
+		return builder.build();
+	}
+
+	private <RS> Response<RS> toResponse(okhttp3.Response response, RestCommand<?, RS> command) throws IOException {
+		ImmutableMultimap.Builder<String, String> headers = ImmutableMultimap.builder();
+		Headers responseHeaders = response.headers();
+		for (int i = 0; i < responseHeaders.size(); i++) {
+			headers.put(responseHeaders.name(i), responseHeaders.value(i));
+		}
+		ResponseBody body = response.body();
+		MediaType contentType = null == body ? null : body.contentType();
+		return handleResponse(rawResponse(response.request().url().uri(),
+				HttpMethod.valueOf(response.request().method()),
+				response.code(),
+				response.message(),
+				headers.build(),
+				null == body ? null : body.bytes()
+		), null == contentType ? null : contentType.toString(), command.getResponseType());
+	}
+
+	/**
+	 * Streams binary part from its source instead of copying it to memory
+	 */
+	private static class ByteSourceRequestBody extends RequestBody {
+		private final MediaType contentType;
+		private final ByteSource data;
+
+		ByteSourceRequestBody(MediaType contentType, ByteSource data) {
+			this.contentType = contentType;
+			this.data = data;
+		}
+
+		@Override
+		public MediaType contentType() {
+			return contentType;
+		}
+
+		@Override
+		public long contentLength() throws IOException {
+			return data.sizeIfKnown().or(-1L);
+		}
+
+		@Override
+		public void writeTo(BufferedSink sink) throws IOException {
+			Source source = Okio.source(data.openStream());
+			try {
+				sink.writeAll(source);
+			} finally {
+				source.close();
+			}
+		}
+	}
+}
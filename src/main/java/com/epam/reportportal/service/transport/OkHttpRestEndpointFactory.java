@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.exception.InternalReportPortalClientException;
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.restendpoint.http.ErrorHandler;
+import com.epam.reportportal.restendpoint.http.RestEndpoint;
+import com.epam.reportportal.restendpoint.serializer.Serializer;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Builds {@link OkHttpRestEndpoint}. OkHttp is an optional dependency, so all the OkHttp types are kept here
+ * and the class is loaded only when {@link HttpTransport#HTTP2} transport is used
+ */
+public final class OkHttpRestEndpointFactory {
+
+	private static final String HTTPS = "https";
+
+	private OkHttpRestEndpointFactory() {
+		//statics only
+	}
+
+	/**
+	 * @param parameters   Listener parameters
+	 * @param executor     Executor of calls
+	 * @param trustManager Trust manager of configured keystore or NULL if default one should be used
+	 * @param serializers  Serializers of requests and responses
+	 * @param errorHandler Handler of error responses
+	 * @param baseUrl      Base URL of all the requests
+	 * @param compressor   Compressor of request bodies or NULL if requests should be sent as is
+	 * @return Endpoint multiplexing all the requests over one connection
+	 * @throws MalformedURLException If base URL of parameters is malformed
+	 */
+	public static RestEndpoint create(ListenerParameters parameters, ExecutorService executor, X509TrustManager trustManager,
+			List<Serializer> serializers, ErrorHandler errorHandler, String baseUrl, GzipCompressor compressor) throws MalformedURLException {
+		return new OkHttpRestEndpoint(buildClient(parameters, executor, trustManager), serializers, errorHandler, baseUrl, compressor);
+	}
+
+	/**
+	 * HTTP/2 client. h2 is negotiated via ALPN for HTTPS, plain HTTP uses h2c with prior knowledge,
+	 * so the server should support it. Calls are executed on rp-io pool and limited by its size
+	 */
+	static OkHttpClient buildClient(ListenerParameters parameters, ExecutorService executor, X509TrustManager trustManager)
+			throws MalformedURLException {
+		final String uuid = parameters.getUuid();
+		boolean https = HTTPS.equals(new URL(parameters.getBaseUrl()).getProtocol());
+
+		Dispatcher dispatcher = new Dispatcher(executor);
+		dispatcher.setMaxRequests(parameters.getIoPoolSize());
+		dispatcher.setMaxRequestsPerHost(parameters.getIoPoolSize());
+
+		OkHttpClient.Builder builder = new OkHttpClient.Builder().dispatcher(dispatcher)
+				.protocols(https ? Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1) : Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE))
+				.retryOnConnectionFailure(false);
+		if (null != trustManager) {
+			try {
+				SSLContext sslContext = SSLContext.getInstance("TLS");
+				sslContext.init(null, new TrustManager[] { trustManager }, null);
+				builder.sslSocketFactory(sslContext.getSocketFactory(), trustManager);
+			} catch (Exception e) {
+				throw new InternalReportPortalClientException("Unable to load trust store", e);
+			}
+		}
+		return builder.addInterceptor(new Interceptor() {
+			@Override
+			public okhttp3.Response intercept(Interceptor.Chain chain) throws IOException {
+				return chain.proceed(chain.request().newBuilder().header("Authorization", "bearer " + uuid).build());
+			}
+		}).build();
+	}
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.message.FileByteSource;
+import com.epam.reportportal.message.StreamedFile;
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.io.ByteSource;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.FileContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Multipart form entity which streams binary parts from their sources as the connection accepts data,
+ * so attachments are never copied to memory as a whole. Files are transferred to the connection with
+ * {@link FileContentEncoder#transfer(FileChannel, long, long)}, which lets the kernel copy them to the socket
+ * directly when the body is sent with known length over plain HTTP. Other sources are copied by chunks.
+ * Size of every binary part is taken when the entity is built, so exactly that many bytes of the part are sent
+ * and the body always matches its Content-Length: a part which got shorter since then fails the request.
+ * Entity is repeatable unless one of the parts is a stream which may be read only once
+ */
+class StreamingMultipartEntity extends AbstractHttpEntity implements HttpAsyncContentProducer {
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final byte[] CRLF = "\r\n".getBytes(Charsets.US_ASCII);
+
+	/* byte[] for delimiters, headers and serialized parts, Part for binary ones */
+	private final List<Object> chunks;
+	private final long length;
+	private final boolean repeatable;
+
+	/* state of content production, reset on close */
+	private int current;
+	private ByteBuffer buffer;
+	private ReadableByteChannel channel;
+	private FileChannel file;
+	private long position;
+
+	private StreamingMultipartEntity(List<Object> chunks, String boundary, boolean repeatable) {
+		this.chunks = chunks;
+		this.length = lengthOf(chunks);
+		this.repeatable = repeatable;
+		setContentType("multipart/form-data; boundary=" + boundary);
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return repeatable;
+	}
+
+	@Override
+	public long getContentLength() {
+		return length;
+	}
+
+	/**
+	 * @return Body read from the sources of parts one after another as the stream is read
+	 */
+	@Override
+	public InputStream getContent() throws IOException {
+		List<ByteSource> sources = new ArrayList<ByteSource>(chunks.size());
+		for (Object chunk : chunks) {
+			sources.add(chunk instanceof byte[] ? ByteSource.wrap((byte[]) chunk) : (ByteSource) chunk);
+		}
+		return ByteSource.concat(sources).openStream();
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		for (Object chunk : chunks) {
+			if (chunk instanceof byte[]) {
+				out.write((byte[]) chunk);
+			} else {
+				((ByteSource) chunk).copyTo(out);
+			}
+		}
+		out.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	@Override
+	public void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+		while (current < chunks.size()) {
+			Object chunk = chunks.get(current);
+			boolean done;
+			if (chunk instanceof byte[]) {
+				done = produceBytes((byte[]) chunk, encoder);
+			} else {
+				Part part = (Part) chunk;
+				FileByteSource source = FileByteSource.unwrap(part.source);
+				done = null != source && part.size >= 0 && encoder instanceof FileContentEncoder ?
+						produceFile(source, part.size, (FileContentEncoder) encoder) :
+						produceStream(part, encoder);
+			}
+			if (!done) {
+				//connection does not accept more data, producer is called again once it does
+				return;
+			}
+			releaseChunk();
+			current++;
+		}
+		encoder.complete();
+	}
+
+	@Override
+	public void close() throws IOException {
+		releaseChunk();
+		current = 0;
+	}
+
+	private boolean produceBytes(byte[] chunk, ContentEncoder encoder) throws IOException {
+		if (null == buffer) {
+			buffer = ByteBuffer.wrap(chunk);
+		}
+		encoder.write(buffer);
+		return !buffer.hasRemaining();
+	}
+
+	private boolean produceFile(FileByteSource source, long size, FileContentEncoder encoder) throws IOException {
+		if (null == file) {
+			file = new FileInputStream(source.getFile()).getChannel();
+			position = 0;
+		}
+		while (position < size) {
+			long transferred = encoder.transfer(file, position, size - position);
+			if (transferred <= 0) {
+				if (file.size() < size) {
+					throw shorterThan(size);
+				}
+				return false;
+			}
+			position += transferred;
+		}
+		return true;
+	}
+
+	private boolean produceStream(ByteSource source, ContentEncoder encoder) throws IOException {
+		if (null == channel) {
+			channel = Channels.newChannel(source.openStream());
+			buffer = ByteBuffer.allocate(CHUNK_SIZE);
+			buffer.flip();
+		}
+		while (true) {
+			if (!buffer.hasRemaining()) {
+				buffer.clear();
+				int read = channel.read(buffer);
+				buffer.flip();
+				if (read < 0) {
+					return true;
+				}
+			}
+			encoder.write(buffer);
+			if (buffer.hasRemaining()) {
+				return false;
+			}
+		}
+	}
+
+	private void releaseChunk() throws IOException {
+		buffer = null;
+		try {
+			if (null != channel) {
+				channel.close();
+			}
+		} finally {
+			channel = null;
+			if (null != file) {
+				file.close();
+				file = null;
+			}
+		}
+	}
+
+	private static long lengthOf(List<Object> chunks) {
+		long length = 0;
+		for (Object chunk : chunks) {
+			if (chunk instanceof byte[]) {
+				length += ((byte[]) chunk).length;
+			} else {
+				long size = ((Part) chunk).size;
+				if (size < 0) {
+					//sent with chunked transfer encoding
+					return -1;
+				}
+				length += size;
+			}
+		}
+		return length;
+	}
+
+	static class Builder {
+		private final String boundary = "rp-" + UUID.randomUUID().toString().replace("-", "");
+		private final List<Object> chunks = new ArrayList<Object>();
+		private boolean repeatable = true;
+
+		Builder addPart(String name, String contentType, byte[] content) {
+			chunks.add(headers(name, null, contentType));
+			chunks.add(content);
+			chunks.add(CRLF);
+			return this;
+		}
+
+		Builder addPart(String name, String filename, String contentType, ByteSource content) {
+			chunks.add(headers(name, filename, contentType));
+			chunks.add(new Part(content));
+			chunks.add(CRLF);
+			repeatable &= StreamedFile.isRepeatable(content);
+			return this;
+		}
+
+		StreamingMultipartEntity build() {
+			List<Object> body = new ArrayList<Object>(chunks);
+			body.add(("--" + boundary + "--\r\n").getBytes(Charsets.US_ASCII));
+			return new StreamingMultipartEntity(body, boundary, repeatable);
+		}
+
+		private byte[] headers(String name, String filename, String contentType) {
+			StringBuilder headers = new StringBuilder("--").append(boundary).append("\r\n");
+			headers.append("Content-Disposition: form-data; name=\"").append(quote(name)).append('"');
+			if (null != filename) {
+				headers.append("; filename=\"").append(quote(filename)).append('"');
+			}
+			headers.append("\r\nContent-Type: ").append(contentType).append("\r\n\r\n");
+			return headers.toString().getBytes(Charsets.UTF_8);
+		}
+
+		private static String quote(String value) {
+			return value.replace("\\", "\\\\").replace("\"", "\\\"");
+		}
+	}
+
+	private static IOException shorterThan(long size) {
+		return new EOFException("Attachment got shorter than " + size + " bytes since the request was built");
+	}
+
+	/**
+	 * Binary part of the size known when the entity is built or -1 if the size is not known.
+	 * Reads exactly that many bytes from the source
+	 */
+	private static class Part extends ByteSource {
+		private final ByteSource source;
+		private final long size;
+
+		Part(ByteSource source) {
+			this.source = source;
+			this.size = source.sizeIfKnown().or(-1L);
+		}
+
+		@Override
+		public Optional<Long> sizeIfKnown() {
+			return size < 0 ? Optional.<Long>absent() : Optional.of(size);
+		}
+
+		@Override
+		public InputStream openStream() throws IOException {
+			InputStream stream = source.openStream();
+			return size < 0 ? stream : new ExactInputStream(stream, size);
+		}
+	}
+
+	private static class ExactInputStream extends FilterInputStream {
+		private final long size;
+		private long remaining;
+
+		ExactInputStream(InputStream in, long size) {
+			super(in);
+			this.size = size;
+			this.remaining = size;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int read = super.read();
+			if (read < 0) {
+				throw shorterThan(size);
+			}
+			remaining--;
+			return read;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (remaining <= 0) {
+				return -1;
+			}
+			int read = super.read(b, off, (int) Math.min(len, remaining));
+			if (read < 0) {
+				throw shorterThan(size);
+			}
+			remaining -= read;
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(Math.min(n, remaining));
+			remaining -= skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(super.available(), remaining);
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.wal;
+
+import com.epam.reportportal.service.LoggingContext;
+import com.epam.reportportal.service.ReportPortalClient;
+import com.epam.reportportal.service.offline.JournalRecord;
+import com.epam.ta.reportportal.ws.model.EntryCreatedRS;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import io.reactivex.Completable;
+import io.reactivex.CompletableSource;
+import io.reactivex.functions.Action;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Re-sends events of write-ahead logs left by crashed JVMs. Logs are replayed in order of appending:
+ * consecutive logs are batched, starts and finishes of items and launches are sent one by one. Events rejected by the server
+ * are considered delivered. Log is deleted once all the events are delivered, otherwise it is left for the next start
+ */
+public class WalRecovery {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WalRecovery.class);
+
+	private static final Predicate<Throwable> DELIVERED = new Predicate<Throwable>() {
+		@Override
+		public boolean test(Throwable throwable) throws Exception {
+			return WriteAheadLog.isDelivered(throwable);
+		}
+	};
+
+	private WalRecovery() {
+		//statics only
+	}
+
+	/**
+	 * Re-sends logs left by crashed JVMs. Logs which are locked by running JVMs are skipped
+	 *
+	 * @param client    Client of ReportPortal
+	 * @param own       Log of the current JVM. Its siblings are recovered
+	 * @param batchSize Size of log batches
+	 * @return Completion of recovery
+	 */
+	public static Completable recover(final ReportPortalClient client, final WriteAheadLog own, final int batchSize) {
+		return Completable.defer(new Callable<CompletableSource>() {
+			@Override
+			public CompletableSource call() throws Exception {
+				final File[] orphans = own.getDirectory().getParentFile().listFiles(new FileFilter() {
+					@Override
+					public boolean accept(File file) {
+						return file.isDirectory() && !file.equals(own.getDirectory());
+					}
+				});
+				final List<Completable> recoveries = new ArrayList<Completable>();
+				if (null != orphans) {
+					for (File orphan : orphans) {
+						recoveries.add(recover(client, orphan, batchSize));
+					}
+				}
+				return Completable.concat(recoveries);
+			}
+		});
+	}
+
+	/**
+	 * Re-sends single log if it is not locked
+	 *
+	 * @param client    Client of ReportPortal
+	 * @param directory Directory of the log
+	 * @param batchSize Size of log batches
+	 * @return Completion of recovery
+	 */
+	static Completable recover(final ReportPortalClient client, final File directory, final int batchSize) {
+		return Completable.defer(new Callable<CompletableSource>() {
+			@Override
+			public CompletableSource call() throws Exception {
+				final FileLock lock = WriteAheadLog.tryLock(directory);
+				if (null == lock) {
+					return Completable.complete();
+				}
+				final List<JournalRecord> pending;
+				try {
+					pending = WriteAheadLog.read(directory);
+				} catch (IOException e) {
+					release(lock);
+					throw e;
+				}
+				LOGGER.info("Re-sending {} events of write-ahead log {}", pending.size(), directory);
+				return replay(client, pending, batchSize).doOnComplete(new Action() {
+					@Override
+					public void run() throws Exception {
+						release(lock);
+						WriteAheadLog.delete(directory);
+					}
+				}).doOnError(new Consumer<Throwable>() {
+					@Override
+					public void accept(Throwable throwable) throws Exception {
+						release(lock);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Events refer to the launch and items by local IDs, which are mapped to server IDs by {@link JournalRecord.Type#CREATED}
+	 * events of entities started before the crash and by responses to re-sent starts. Mapping may be recorded after events
+	 * of children, so all the mappings are loaded first. IDs without mapping are sent as is
+	 */
+	private static Completable replay(ReportPortalClient client, List<JournalRecord> pending, int batchSize) {
+		final Map<String, String> ids = new ConcurrentHashMap<String, String>();
+		for (JournalRecord record : pending) {
+			if (JournalRecord.Type.CREATED == record.getType()) {
+				ids.put(record.getId(), record.getRequest(String.class));
+			}
+		}
+		final List<Completable> requests = new ArrayList<Completable>();
+		List<JournalRecord> logs = new ArrayList<JournalRecord>(batchSize);
+		for (JournalRecord record : pending) {
+			if (JournalRecord.Type.LOG == record.getType()) {
+				logs.add(record);
+				if (logs.size() == batchSize) {
+					requests.add(sendLogs(client, logs, ids));
+					logs = new ArrayList<JournalRecord>(batchSize);
+				}
+				continue;
+			}
+			if (!logs.isEmpty()) {
+				requests.add(sendLogs(client, logs, ids));
+				logs = new ArrayList<JournalRecord>(batchSize);
+			}
+			if (JournalRecord.Type.CREATED != record.getType()) {
+				requests.add(send(client, record, ids));
+			}
+		}
+		if (!logs.isEmpty()) {
+			requests.add(sendLogs(client, logs, ids));
+		}
+		return Completable.concat(requests);
+	}
+
+	/* requests are created lazily to be sent one by one in order of the log, once IDs of previous starts are known */
+	private static Completable send(final ReportPortalClient client, final JournalRecord record, final Map<String, String> ids) {
+		return Completable.defer(new Callable<CompletableSource>() {
+			@Override
+			public CompletableSource call() throws Exception {
+				switch (record.getType()) {
+					case START_LAUNCH:
+						return client.startLaunch(record.getRequest(StartLaunchRQ.class)).doOnSuccess(created(record, ids)).ignoreElement();
+					case START_ITEM:
+						final StartTestItemRQ rq = record.getRequest(StartTestItemRQ.class);
+						rq.setLaunchId(resolve(rq.getLaunchId(), ids));
+						return (null == record.getParentId() ?
+								client.startTestItem(rq) :
+								client.startTestItem(resolve(record.getParentId(), ids), rq)).doOnSuccess(created(record, ids)).ignoreElement();
+					case FINISH_ITEM:
+						return client.finishTestItem(resolve(record.getId(), ids), record.getRequest(FinishTestItemRQ.class)).ignoreElement();
+					case FINISH_LAUNCH:
+						return client.finishLaunch(resolve(record.getId(), ids), record.getRequest(FinishExecutionRQ.class)).ignoreElement();
+					default:
+						LOGGER.warn("Event {} cannot be re-sent", record.getType());
+						return Completable.complete();
+				}
+			}
+		}).onErrorComplete(DELIVERED);
+	}
+
+	private static Completable sendLogs(final ReportPortalClient client, final List<JournalRecord> records, final Map<String, String> ids) {
+		return Completable.defer(new Callable<CompletableSource>() {
+			@Override
+			public CompletableSource call() throws Exception {
+				final List<SaveLogRQ> rqs = new ArrayList<SaveLogRQ>(records.size());
+				for (JournalRecord record : records) {
+					final SaveLogRQ rq = record.toLog();
+					rq.setTestItemId(resolve(rq.getTestItemId(), ids));
+					rqs.add(rq);
+				}
+				return client.log(LoggingContext.toMultiPartRequest(rqs)).ignoreElement();
+			}
+		}).onErrorComplete(DELIVERED);
+	}
+
+	private static Consumer<EntryCreatedRS> created(final JournalRecord start, final Map<String, String> ids) {
+		return new Consumer<EntryCreatedRS>() {
+			@Override
+			public void accept(EntryCreatedRS rs) {
+				ids.put(start.getId(), rs.getId());
+			}
+		};
+	}
+
+	private static String resolve(String id, Map<String, String> ids) {
+		final String serverId = null == id ? null : ids.get(id);
+		return null == serverId ? id : serverId;
+	}
+
+	private static void release(FileLock lock) {
+		try {
+			lock.release();
+			lock.channel().close();
+		} catch (IOException e) {
+			LOGGER.warn("Unable to release lock of write-ahead log", e);
+		}
+	}
+}
@@ -0,0 +1,487 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.wal;
+
+import com.epam.reportportal.exception.ReportPortalException;
+import com.epam.reportportal.service.offline.JournalRecord;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of reporting events which are sent to the server but not acknowledged yet.
+ * Events are appended to memory-mapped segments, so they survive crash of JVM as soon as they are appended.
+ * Logs are appended by the writer thread of the log, so the thread emitting them does not pay for serialization
+ * and copying; crash of JVM may lose logs which the writer has not got to yet. Segments are forced to the disk by background group commit every sync interval, so crash of OS may lose
+ * events of the last interval only. Acknowledged events are truncated by deletion of the segments.
+ * <p>
+ * Every JVM writes to its own directory locked while the log is open. Directories left by crashed JVMs
+ * are re-sent by {@link WalRecovery}
+ * <p>
+ * Frame format: [int body length][int CRC32][byte kind][long sequence number][body]
+ */
+public class WriteAheadLog implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLog.class);
+
+	/**
+	 * Sequence number returned when event is not recorded
+	 */
+	public static final long NO_SEQ = -1L;
+
+	static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+	static final String LOCK_FILE = "wal.lock";
+	static final String SEGMENT_SUFFIX = ".wal";
+
+	private static final byte END = 0;
+	private static final byte ENTRY = 1;
+	private static final byte ACK = 2;
+	private static final int HEADER_SIZE = 4 + 4 + 1 + 8;
+	private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+	private static final FileFilter SEGMENTS = new FileFilter() {
+		@Override
+		public boolean accept(File file) {
+			return file.isFile() && file.getName().endsWith(SEGMENT_SUFFIX);
+		}
+	};
+
+	private final File directory;
+	private final int segmentSize;
+	private final RandomAccessFile lockFile;
+	private final FileLock lock;
+	private final ScheduledExecutorService syncer;
+	private final ExecutorService writer;
+
+	private final AtomicLong sequence = new AtomicLong();
+	private final Map<Long, Segment> unacknowledged = new ConcurrentHashMap<Long, Segment>();
+	/* events handed to the writer and not written yet. Removed under lock of this */
+	private final Set<Long> queued = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+	/* guarded by this */
+	private final LinkedList<Segment> segments = new LinkedList<Segment>();
+	private Segment current;
+	private boolean closed;
+
+	private volatile boolean dirty;
+
+	WriteAheadLog(File directory, int segmentSize, long syncInterval) throws IOException {
+		if (!directory.mkdirs() && !directory.isDirectory()) {
+			throw new IOException("Unable to create directory " + directory);
+		}
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+		this.lock = lockFile.getChannel().lock();
+		this.current = new Segment(directory, 0, segmentSize);
+		this.segments.add(current);
+		this.syncer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("rp-wal-sync")
+				.setDaemon(true)
+				.build());
+		this.syncer.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				sync();
+			}
+		}, syncInterval, syncInterval, TimeUnit.MILLISECONDS);
+		this.writer = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("rp-wal-writer")
+				.setDaemon(true)
+				.build());
+	}
+
+	/**
+	 * Opens new log of the current JVM
+	 *
+	 * @param root         Root directory of write-ahead logs
+	 * @param syncInterval Interval in milliseconds between group commits
+	 * @return Write-ahead log
+	 * @throws IOException If log cannot be created
+	 */
+	public static WriteAheadLog open(File root, long syncInterval) throws IOException {
+		return new WriteAheadLog(new File(root, UUID.randomUUID().toString()), DEFAULT_SEGMENT_SIZE, syncInterval);
+	}
+
+	/**
+	 * Appends event to the log. Serialization is done outside of the lock, so only copying to the segment
+	 * is serialized between threads
+	 *
+	 * @param record Event
+	 * @return Sequence number to acknowledge the event with
+	 * @throws IOException If new segment cannot be created
+	 */
+	public long append(JournalRecord record) throws IOException {
+		final byte[] body = record.toBytes();
+		final long seq = sequence.incrementAndGet();
+		final int checksum = checksum(ENTRY, seq, body);
+		synchronized (this) {
+			put(seq, checksum, body);
+		}
+		dirty = true;
+		return seq;
+	}
+
+	/**
+	 * Hands event to the writer thread of the log, which creates, serializes and appends it. Events are written
+	 * in order they are handed over. Event acknowledged before the writer gets to it is not written at all
+	 *
+	 * @param record Event, created on the writer thread
+	 * @return Sequence number to acknowledge the event with
+	 * @throws IOException If the log is closed
+	 */
+	public long appendAsync(final Supplier<JournalRecord> record) throws IOException {
+		final long seq = sequence.incrementAndGet();
+		queued.add(seq);
+		try {
+			writer.execute(new Runnable() {
+				@Override
+				public void run() {
+					write(seq, record);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			queued.remove(seq);
+			throw new IOException("Write-ahead log " + directory + " is closed");
+		}
+		return seq;
+	}
+
+	/**
+	 * Acknowledges events. Segments which have no pending events anymore are deleted
+	 *
+	 * @param seqs Sequence numbers of acknowledged events. {@link #NO_SEQ} is ignored
+	 */
+	public void ack(long... seqs) {
+		try {
+			synchronized (this) {
+				if (closed) {
+					return;
+				}
+				boolean released = false;
+				for (long seq : seqs) {
+					final Segment segment = unacknowledged.remove(seq);
+					if (null == segment) {
+						//event has not been written yet, so writer skips it
+						queued.remove(seq);
+						continue;
+					}
+					reserve(HEADER_SIZE).buffer.putInt(0).putInt(checksum(ACK, seq, new byte[0])).put(ACK).putLong(seq);
+					released |= 0 == segment.pending.decrementAndGet();
+				}
+				if (released) {
+					truncate();
+				}
+			}
+			dirty = true;
+		} catch (IOException e) {
+			LOGGER.error("Unable to write acknowledgement to write-ahead log " + directory, e);
+		}
+	}
+
+	/**
+	 * Forces current segment to the disk if there are any changes since the last sync
+	 */
+	public void sync() {
+		if (!dirty) {
+			return;
+		}
+		dirty = false;
+		final Segment segment;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			segment = current;
+		}
+		segment.buffer.force();
+	}
+
+	/**
+	 * @return Count of events which are not acknowledged yet
+	 */
+	public int getPending() {
+		return unacknowledged.size() + queued.size();
+	}
+
+	/**
+	 * @return Directory of the log
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Closes the log once the writer appends events handed to it. Log is deleted if all the events are acknowledged,
+	 * otherwise it is left to be recovered
+	 *
+	 * @throws IOException In case of I/O error
+	 */
+	@Override
+	public void close() throws IOException {
+		writer.shutdown();
+		try {
+			if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				LOGGER.warn("{} events have not been written to write-ahead log {} on close", queued.size(), directory);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		syncer.shutdown();
+		try {
+			current.buffer.force();
+		} finally {
+			for (Segment segment : segments) {
+				segment.close();
+			}
+			lock.release();
+			lockFile.close();
+		}
+		if (unacknowledged.isEmpty()) {
+			delete(directory);
+		}
+	}
+
+	/**
+	 * @param error Error of request
+	 * @return TRUE if server has received the event and responded, so it should not be sent again
+	 */
+	public static boolean isDelivered(Throwable error) {
+		return error instanceof ReportPortalException;
+	}
+
+	/**
+	 * Reads events of the log which are not acknowledged. Reading stops at the first torn or corrupted frame of a segment
+	 *
+	 * @param directory Directory of the log
+	 * @return Pending events in order of appending
+	 * @throws IOException In case of I/O error
+	 */
+	public static List<JournalRecord> read(File directory) throws IOException {
+		final SortedMap<Long, JournalRecord> entries = new TreeMap<Long, JournalRecord>();
+		final Set<Long> acks = new HashSet<Long>();
+		for (File file : segments(directory)) {
+			final RandomAccessFile segment = new RandomAccessFile(file, "r");
+			try {
+				final ByteBuffer buffer = segment.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, segment.length());
+				while (buffer.remaining() >= HEADER_SIZE) {
+					final int length = buffer.getInt();
+					final int checksum = buffer.getInt();
+					final byte kind = buffer.get();
+					final long seq = buffer.getLong();
+					if (END == kind && 0 == length) {
+						break;
+					}
+					if (length < 0 || length > buffer.remaining() || (ENTRY != kind && ACK != kind)) {
+						LOGGER.warn("Write-ahead log segment {} is truncated", file);
+						break;
+					}
+					final byte[] body = new byte[length];
+					buffer.get(body);
+					if (checksum != checksum(kind, seq, body)) {
+						LOGGER.warn("Write-ahead log segment {} is corrupted at sequence number {}", file, seq);
+						break;
+					}
+					if (ENTRY == kind) {
+						entries.put(seq, JournalRecord.fromBytes(body));
+					} else {
+						acks.add(seq);
+					}
+				}
+			} finally {
+				segment.close();
+			}
+		}
+		entries.keySet().removeAll(acks);
+		return new ArrayList<JournalRecord>(entries.values());
+	}
+
+	/**
+	 * Deletes the log with all its segments
+	 *
+	 * @param directory Directory of the log
+	 */
+	static void delete(File directory) {
+		for (File file : segments(directory)) {
+			if (!file.delete()) {
+				LOGGER.warn("Unable to delete write-ahead log segment {}", file);
+			}
+		}
+		//lock file and directory are deleted only if nobody else has the directory locked
+		if (new File(directory, LOCK_FILE).delete()) {
+			if (!directory.delete()) {
+				LOGGER.warn("Unable to delete write-ahead log directory {}", directory);
+			}
+		}
+	}
+
+	/**
+	 * Tries to lock log directory
+	 *
+	 * @param directory Directory of the log
+	 * @return Lock of the directory or NULL if directory is locked by another process or the current one
+	 * @throws IOException In case of I/O error
+	 */
+	static FileLock tryLock(File directory) throws IOException {
+		final RandomAccessFile file = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+		try {
+			final FileLock lock = file.getChannel().tryLock();
+			if (null != lock) {
+				return lock;
+			}
+		} catch (OverlappingFileLockException e) {
+			//locked by the current JVM
+		}
+		file.close();
+		return null;
+	}
+
+	private static List<File> segments(File directory) {
+		final File[] files = directory.listFiles(SEGMENTS);
+		if (null == files) {
+			return Collections.emptyList();
+		}
+		final List<File> segments = Arrays.asList(files);
+		Collections.sort(segments);
+		return segments;
+	}
+
+	private static int checksum(byte kind, long seq, byte[] body) {
+		final CRC32 crc = new CRC32();
+		crc.update(kind);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			crc.update((int) (seq >>> shift));
+		}
+		crc.update(body);
+		return (int) crc.getValue();
+	}
+
+	private void write(long seq, Supplier<JournalRecord> record) {
+		if (!queued.contains(seq)) {
+			//acknowledged already
+			return;
+		}
+		try {
+			final byte[] body = record.get().toBytes();
+			final int checksum = checksum(ENTRY, seq, body);
+			synchronized (this) {
+				if (!queued.remove(seq)) {
+					return;
+				}
+				put(seq, checksum, body);
+			}
+			dirty = true;
+		} catch (Exception e) {
+			queued.remove(seq);
+			LOGGER.error("Unable to append event to write-ahead log " + directory, e);
+		}
+	}
+
+	/* guarded by this */
+	private void put(long seq, int checksum, byte[] body) throws IOException {
+		final Segment segment = reserve(HEADER_SIZE + body.length);
+		segment.buffer.putInt(body.length).putInt(checksum).put(ENTRY).putLong(seq).put(body);
+		segment.pending.incrementAndGet();
+		unacknowledged.put(seq, segment);
+	}
+
+	/* guarded by this */
+	private Segment reserve(int length) throws IOException {
+		if (closed) {
+			throw new IOException("Write-ahead log " + directory + " is closed");
+		}
+		if (current.buffer.remaining() < length) {
+			final Segment sealed = current;
+			current = new Segment(directory, sealed.index + 1, Math.max(segmentSize, length));
+			segments.add(current);
+			//sealed segment is forced by group commit thread to keep appending thread away of the disk
+			syncer.execute(new Runnable() {
+				@Override
+				public void run() {
+					sealed.buffer.force();
+				}
+			});
+			truncate();
+		}
+		return current;
+	}
+
+	/* guarded by this. Segments are deleted in order, so acknowledgements are never deleted before their events */
+	private void truncate() {
+		final Iterator<Segment> it = segments.iterator();
+		while (it.hasNext()) {
+			final Segment segment = it.next();
+			if (segment == current || segment.pending.get() > 0) {
+				return;
+			}
+			segment.close();
+			if (!segment.file.delete()) {
+				LOGGER.warn("Unable to delete write-ahead log segment {}", segment.file);
+			}
+			it.remove();
+		}
+	}
+
+	private static class Segment {
+		private final int index;
+		private final File file;
+		private final RandomAccessFile raf;
+		private final MappedByteBuffer buffer;
+		private final AtomicInteger pending = new AtomicInteger();
+
+		Segment(File directory, int index, int size) throws IOException {
+			this.index = index;
+			this.file = new File(directory, String.format("%08d", index) + SEGMENT_SUFFIX);
+			this.raf = new RandomAccessFile(file, "rw");
+			this.raf.setLength(size);
+			this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+
+		void close() {
+			try {
+				raf.close();
+			} catch (IOException e) {
+				LOGGER.warn("Unable to close write-ahead log segment " + file, e);
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils;
+
+import com.google.common.io.ByteSource;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Detects types of data which is not recognized by {@link MimeTypeDetector} itself. Implementation is discovered with
+ * {@link java.util.ServiceLoader}, Tika based one is provided by client-java-attachments module
+ */
+public interface ContentTypeDetector {
+
+	/**
+	 * @param file File
+	 * @return Mime type of the file
+	 * @throws IOException In case file cannot be read
+	 */
+	String detect(File file) throws IOException;
+
+	/**
+	 * @param source       Data
+	 * @param resourceName Name of the data, may be NULL
+	 * @return Mime type of the data
+	 * @throws IOException In case data cannot be read
+	 */
+	String detect(ByteSource source, String resourceName) throws IOException;
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values with power-of-two buckets. Percentiles are reported
+ * as upper bound of the bucket, so they are accurate within factor of two, which is enough to tune limits against
+ */
+public class Histogram {
+
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * @param value Value to be recorded. Negative values are recorded as zero
+	 */
+	public void record(long value) {
+		final long v = Math.max(0, value);
+		//bucket is bit length of the value, so it holds values in range [2^(i-1), 2^i - 1]
+		buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(v));
+		count.incrementAndGet();
+		sum.addAndGet(v);
+		long current;
+		while ((current = max.get()) < v && !max.compareAndSet(current, v)) {
+			//retry
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return Mean of recorded values or 0 if nothing has been recorded
+	 */
+	public double getMean() {
+		final long c = count.get();
+		return 0 == c ? 0 : (double) sum.get() / c;
+	}
+
+	/**
+	 * @param percentile Percentile in range (0, 100]
+	 * @return Upper bound of the bucket the percentile falls into, but not more than the max value
+	 */
+	public long getPercentile(double percentile) {
+		final long c = count.get();
+		if (0 == c) {
+			return 0;
+		}
+		final long rank = (long) Math.ceil(c * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(0 == i ? 0 : (1L << i) - 1, max.get());
+			}
+		}
+		return max.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.US,
+				"count=%d, mean=%.1f, p50=%d, p90=%d, p99=%d, max=%d",
+				getCount(),
+				getMean(),
+				getPercentile(50),
+				getPercentile(90),
+				getPercentile(99),
+				getMax()
+		);
+	}
+}
@@ -15,48 +15,202 @@
  */
 package com.epam.reportportal.utils;
 
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.BaseEncoding;
 import com.google.common.io.ByteSource;
-import org.apache.tika.detect.Detector;
-import org.apache.tika.io.TikaInputStream;
-import org.apache.tika.metadata.Metadata;
-import org.apache.tika.parser.AutoDetectParser;
+import com.google.common.io.Files;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
 
 import static com.google.common.base.Strings.isNullOrEmpty;
 
 /**
- * Utility stuff to detect mime type of binary data
+ * Utility stuff to detect mime type of binary data. Common types of attachments are recognized by magic bytes
+ * of the header and extension of resource name, giving the same results as Tika does for them. Other data is
+ * detected by {@link ContentTypeDetector} found on the classpath, which is Tika of client-java-attachments module.
+ * Its results are cached by extension and header. Without the module such data is reported as
+ * {@link #DEFAULT_TYPE}
  *
  * @author Andrei Varabyeu
  */
 public class MimeTypeDetector {
 
-	private static Detector detector = new AutoDetectParser().getDetector();
+	public static final String DEFAULT_TYPE = "application/octet-stream";
+
+	/* the same window Tika uses to tell text from binary data */
+	static final int HEADER_SIZE = 512;
+	/* bytes of the header the cache of detector results is keyed by */
+	private static final int MAGIC_SIZE = 16;
+
+	private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+	private static final byte[] JPEG = { (byte) 0xff, (byte) 0xd8, (byte) 0xff };
+	private static final byte[] GIF87 = { 'G', 'I', 'F', '8', '7', 'a' };
+	private static final byte[] GIF89 = { 'G', 'I', 'F', '8', '9', 'a' };
+	private static final byte[] ZIP = { 'P', 'K', 3, 4 };
+	private static final byte[] FTYP = { 'f', 't', 'y', 'p' };
+	private static final byte[] XML = { '<', '?', 'x', 'm', 'l' };
+	private static final byte[] UTF8_BOM = { (byte) 0xef, (byte) 0xbb, (byte) 0xbf };
+
+	private static final Map<String, String> TEXT_EXTENSIONS = ImmutableMap.<String, String>builder().put("", "text/plain")
+			.put("txt", "text/plain")
+			.put("log", "text/x-log")
+			.put("csv", "text/csv")
+			.put("json", "application/json")
+			.put("xml", "application/xml")
+			.put("html", "text/html")
+			.put("htm", "text/html")
+			.build();
+
+	private static final Cache<String, String> CACHE = CacheBuilder.newBuilder().maximumSize(1024).build();
 
 	private MimeTypeDetector() {
 		//statics only
 	}
 
 	public static String detect(File file) throws IOException {
-		final Metadata metadata = new Metadata();
-		metadata.set(Metadata.RESOURCE_NAME_KEY, file.getName());
-		return detect(TikaInputStream.get(file), metadata);
-
+		final byte[] header = Files.asByteSource(file).slice(0, HEADER_SIZE).read();
+		final String type = detect(header, file.getName());
+		if (null != type) {
+			return type;
+		}
+		final ContentTypeDetector detector = Detectors.DETECTOR;
+		if (null == detector) {
+			return DEFAULT_TYPE;
+		}
+		return cache(cacheKey(header, file.getName()), detector.detect(file));
 	}
 
 	public static String detect(ByteSource source, String resourceName) throws IOException {
+		final byte[] header = source.slice(0, HEADER_SIZE).read();
+		final String type = detect(header, resourceName);
+		if (null != type) {
+			return type;
+		}
+		final ContentTypeDetector detector = Detectors.DETECTOR;
+		if (null == detector) {
+			return DEFAULT_TYPE;
+		}
+		return cache(cacheKey(header, resourceName), detector.detect(source, resourceName));
+	}
 
-		final Metadata metadata = new Metadata();
-		if (!isNullOrEmpty(resourceName)) {
-			metadata.set(Metadata.RESOURCE_NAME_KEY, resourceName);
+	/**
+	 * @return TRUE if types which are not recognized by header are detected by {@link ContentTypeDetector} of the classpath
+	 */
+	public static boolean isDetectorAvailable() {
+		return null != Detectors.DETECTOR;
+	}
+
+	/**
+	 * @param header       First bytes of data, up to {@link #HEADER_SIZE}
+	 * @param resourceName Name of the data, may be NULL
+	 * @return Type detected by header and extension or NULL if data should be detected by {@link ContentTypeDetector}
+	 */
+	static String detectByHeader(byte[] header, String resourceName) {
+		final String extension = extensionOf(resourceName);
+		if (startsWith(header, 0, PNG)) {
+			return "image/png";
+		}
+		if (startsWith(header, 0, JPEG)) {
+			return "image/jpeg";
+		}
+		if (startsWith(header, 0, GIF87) || startsWith(header, 0, GIF89)) {
+			return "image/gif";
+		}
+		if (startsWith(header, 0, ZIP)) {
+			//documents, archives of java and others are zip as well and are told apart by extension
+			return extension.isEmpty() || "zip".equals(extension) ? "application/zip" : null;
+		}
+		if ("mp4".equals(extension) && startsWith(header, 4, FTYP)) {
+			return "video/mp4";
 		}
-		return detect(TikaInputStream.get(source.openBufferedStream()), metadata);
+		if (!isText(header)) {
+			return null;
+		}
+		final int start = startsWith(header, 0, UTF8_BOM) ? UTF8_BOM.length : 0;
+		if (startsWith(header, start, XML)) {
+			return extension.isEmpty() || "xml".equals(extension) ? "application/xml" : null;
+		}
+		if (isHtml(header, start)) {
+			return extension.isEmpty() || extension.startsWith("htm") ? "text/html" : null;
+		}
+		return TEXT_EXTENSIONS.get(extension);
+	}
 
+	private static String detect(byte[] header, String resourceName) {
+		final String type = detectByHeader(header, resourceName);
+		if (null != type) {
+			return type;
+		}
+		return CACHE.getIfPresent(cacheKey(header, resourceName));
 	}
 
-	public static String detect(TikaInputStream is, Metadata metadata) throws IOException {
-		return detector.detect(is, metadata).toString();
+	private static String cache(String key, String type) {
+		CACHE.put(key, type);
+		return type;
+	}
+
+	private static String cacheKey(byte[] header, String resourceName) {
+		return extensionOf(resourceName) + '|' + BaseEncoding.base16().encode(header, 0, Math.min(MAGIC_SIZE, header.length)) + '|'
+				+ isText(header);
+	}
+
+	private static String extensionOf(String resourceName) {
+		if (isNullOrEmpty(resourceName)) {
+			return "";
+		}
+		final int dot = resourceName.lastIndexOf('.');
+		if (dot < 0 || dot < Math.max(resourceName.lastIndexOf('/'), resourceName.lastIndexOf('\\'))) {
+			return "";
+		}
+		return resourceName.substring(dot + 1).toLowerCase(Locale.US);
+	}
+
+	private static boolean startsWith(byte[] data, int offset, byte[] prefix) {
+		if (data.length < offset + prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (data[offset + i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* the same control bytes Tika does not expect in text */
+	private static boolean isText(byte[] header) {
+		if (0 == header.length) {
+			return false;
+		}
+		for (byte b : header) {
+			if (b >= 0 && b < 0x20 && b != '\t' && b != '\n' && b != '\f' && b != '\r' && b != 0x1b) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isHtml(byte[] header, int start) {
+		final String text = new String(header, start, Math.min(header.length - start, 16), Charsets.US_ASCII).toLowerCase(Locale.US);
+		return text.startsWith("<!doctype html") || text.startsWith("<html");
+	}
+
+	/* looked up on first data which is not recognized by header */
+	private static class Detectors {
+		private static final ContentTypeDetector DETECTOR = load();
+
+		private static ContentTypeDetector load() {
+			Iterator<ContentTypeDetector> detectors = ServiceLoader.load(ContentTypeDetector.class, MimeTypeDetector.class.getClassLoader())
+					.iterator();
+			return detectors.hasNext() ? detectors.next() : null;
+		}
 	}
 }
@@ -15,47 +15,130 @@
  */
 package com.epam.reportportal.utils;
 
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.functions.Function;
 import io.reactivex.functions.Predicate;
+import io.reactivex.schedulers.Schedulers;
+import org.reactivestreams.Publisher;
 
-import static java.lang.Thread.sleep;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Retry with Delay and attempts limits
+ * Retry with Delay and attempts limits. Should be used as handler of retryWhen operator.
+ * Re-subscription is scheduled on a timer, so no thread is blocked while waiting. Delay grows
+ * exponentially from initial up to max one and may be randomized with jitter. Retry state
+ * is tracked per subscription, so one instance may be shared between requests.
+ * Instance is still a {@link Predicate} of {@code retry} operator for compatibility, which is deprecated
  *
  * @author Andrei Varabyeu
  */
-public class RetryWithDelay implements Predicate<Throwable> {
+public class RetryWithDelay implements Function<Flowable<Throwable>, Publisher<Long>>, Predicate<Throwable> {
+
+	private static final Random RANDOM = new Random();
 
 	private final Predicate<? super Throwable> predicate;
 	private final long maxRetries;
 	private final long retryDelayMillis;
+	private final long maxRetryDelayMillis;
+	private final double jitter;
+	private final Scheduler scheduler;
+	/* retries of the deprecated predicate, shared between subscriptions */
 	private int retryCount;
 
+	/**
+	 * Retries with constant delay
+	 *
+	 * @param predicate        Whether error should be retried
+	 * @param maxRetries       Max attempts count
+	 * @param retryDelayMillis Delay between attempts
+	 */
 	public RetryWithDelay(Predicate<? super Throwable> predicate, final long maxRetries, final long retryDelayMillis) {
+		this(predicate, maxRetries, retryDelayMillis, retryDelayMillis, 0, Schedulers.computation());
+	}
+
+	/**
+	 * Retries with exponential backoff
+	 *
+	 * @param predicate           Whether error should be retried
+	 * @param maxRetries          Max attempts count
+	 * @param retryDelayMillis    Delay before the first retry. Doubles with each next retry
+	 * @param maxRetryDelayMillis Max delay between attempts
+	 * @param jitter              Fraction of delay to be randomized, from 0 (no jitter) to 1
+	 * @param scheduler           Scheduler of retry timers
+	 */
+	public RetryWithDelay(Predicate<? super Throwable> predicate, final long maxRetries, final long retryDelayMillis,
+			final long maxRetryDelayMillis, double jitter, Scheduler scheduler) {
+		this.predicate = predicate;
 		this.maxRetries = maxRetries;
 		this.retryDelayMillis = retryDelayMillis;
-		this.retryCount = 0;
-		this.predicate = predicate;
+		this.maxRetryDelayMillis = Math.max(retryDelayMillis, maxRetryDelayMillis);
+		this.jitter = Math.min(Math.max(jitter, 0), 1);
+		this.scheduler = scheduler;
 	}
 
 	@Override
-	public boolean test(final Throwable throwable) throws Exception {
-		try {
-			//check whether we should retry this exception
-			if (!predicate.test(throwable)) {
-				return false;
+	public Publisher<Long> apply(Flowable<Throwable> errors) throws Exception {
+		//called once per subscription, so retry count is not shared between subscriptions
+		final int[] retryCount = new int[1];
+		return errors.flatMap(new Function<Throwable, Publisher<Long>>() {
+			@Override
+			public Publisher<Long> apply(Throwable throwable) throws Exception {
+				if (!shouldRetry(throwable) || ++retryCount[0] >= maxRetries) {
+					// Max retries hit or error is not retriable. Just pass the error along.
+					return Flowable.error(throwable);
+				}
+				return Flowable.timer(getDelay(retryCount[0]), TimeUnit.MILLISECONDS, scheduler);
 			}
-		} catch (Exception e) {
-			//pass the error if smth goes wrong
+		});
+	}
+
+	/**
+	 * Blocks the calling thread for the delay of the retry. Retry count is shared between all the subscriptions
+	 *
+	 * @param throwable Error
+	 * @return TRUE if the error should be retried
+	 * @deprecated sleeps on the Rx thread, use the instance as handler of {@code retryWhen} operator instead
+	 */
+	@Deprecated
+	@Override
+	public boolean test(final Throwable throwable) throws Exception {
+		if (!shouldRetry(throwable)) {
 			return false;
 		}
-
-		if (++retryCount < maxRetries) {
-			sleep(retryDelayMillis);
+		final int retry;
+		synchronized (this) {
+			retry = ++retryCount;
+		}
+		if (retry < maxRetries) {
+			Thread.sleep(getDelay(retry));
 			return true;
 		}
-
 		// Max retries hit. Just pass the error along.
 		return false;
 	}
+
+	/**
+	 * @param retry Number of retry, starting from 1
+	 * @return Delay before the retry in milliseconds
+	 */
+	long getDelay(int retry) {
+		long delay = retryDelayMillis;
+		for (int i = 1; i < retry && delay < maxRetryDelayMillis; i++) {
+			delay <<= 1;
+		}
+		delay = Math.min(delay, maxRetryDelayMillis);
+		return jitter > 0 ? delay - (long) (delay * jitter * RANDOM.nextDouble()) : delay;
+	}
+
+	private boolean shouldRetry(Throwable throwable) {
+		try {
+			//check whether we should retry this exception
+			return predicate.test(throwable);
+		} catch (Exception e) {
+			//pass the error if smth goes wrong
+			return false;
+		}
+	}
 }
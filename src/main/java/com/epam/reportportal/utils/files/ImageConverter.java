@@ -16,19 +16,21 @@
 package com.epam.reportportal.utils.files;
 
 import com.epam.reportportal.exception.InternalReportPortalClientException;
+import com.epam.reportportal.listeners.ListenerParameters;
 import com.epam.reportportal.message.TypeAwareByteSource;
+import com.google.common.base.Preconditions;
 import com.google.common.io.ByteSource;
 import com.google.common.net.MediaType;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.ServiceLoader;
 
 /**
  * This class contains functionality for converting images to Black and white
- * colors
+ * colors. Conversion is done by {@link ImageProcessor} found on the classpath,
+ * which is provided by client-java-images module
  *
  * @author Aliaksei_Makayed
  */
@@ -51,16 +53,29 @@ public class ImageConverter {
 	 * @throws IOException In case of IO exception
 	 */
 	public static TypeAwareByteSource convert(ByteSource source) throws IOException {
-		BufferedImage image;
-		image = ImageIO.read(source.openBufferedStream());
-		final BufferedImage blackAndWhiteImage = new BufferedImage(image.getWidth(null),
-				image.getHeight(null),
-				BufferedImage.TYPE_BYTE_GRAY
-		);
-		final Graphics2D graphics2D = (Graphics2D) blackAndWhiteImage.getGraphics();
-		graphics2D.drawImage(image, 0, 0, null);
-		graphics2D.dispose();
-		return convertToInputStream(blackAndWhiteImage);
+		return convert(source, Options.DEFAULT);
+	}
+
+	/**
+	 * Convert image to black and white colors
+	 *
+	 * @param source  Data Source
+	 * @param options Size and encoding of converted image
+	 * @throws IOException In case of IO exception
+	 */
+	public static TypeAwareByteSource convert(ByteSource source, Options options) throws IOException {
+		final ImageProcessor processor = Processors.PROCESSOR;
+		if (null == processor) {
+			throw new InternalReportPortalClientException("Image conversion requires client-java-images module on the classpath");
+		}
+		return processor.convert(source, options);
+	}
+
+	/**
+	 * @return TRUE if there is {@link ImageProcessor} on the classpath, so images can be converted
+	 */
+	public static boolean isSupported() {
+		return null != Processors.PROCESSOR;
 	}
 
 	/**
@@ -91,19 +106,156 @@ public class ImageConverter {
 	}
 
 	/**
-	 * Convert BufferedImage to input stream
-	 *
-	 * @param image Image to be converted
+	 * Output format of converted images
 	 */
-	private static TypeAwareByteSource convertToInputStream(BufferedImage image) {
-		ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-		try {
-			ImageIO.write(image, "png", byteOutputStream);
-		} catch (IOException e) {
-			throw new InternalReportPortalClientException("Unable to transform file to byte array.", e);
+	public enum Format {
+		PNG("png", MediaType.PNG),
+		JPEG("jpeg", MediaType.JPEG);
+
+		private final String name;
+		private final MediaType mediaType;
+
+		Format(String name, MediaType mediaType) {
+			this.name = name;
+			this.mediaType = mediaType;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public MediaType getMediaType() {
+			return mediaType;
+		}
+
+		/**
+		 * @param format Name of format, case insensitive
+		 * @return Format or {@link #PNG} if there is no format with such name
+		 */
+		public static Format parse(String format) {
+			if (null != format) {
+				for (Format value : values()) {
+					if (value.name.equalsIgnoreCase(format.trim()) || value.name().equalsIgnoreCase(format.trim())) {
+						return value;
+					}
+				}
+			}
+			return PNG;
+		}
+	}
+
+	/**
+	 * Size and encoding of converted images. Default options keep the size and encode PNG with default compression
+	 */
+	public static class Options {
+
+		public static final Options DEFAULT = builder().build();
+
+		private final int maxDimension;
+		private final Format format;
+		private final float quality;
+		private final int compressionLevel;
+
+		private Options(Builder builder) {
+			this.maxDimension = builder.maxDimension;
+			this.format = builder.format;
+			this.quality = builder.quality;
+			this.compressionLevel = builder.compressionLevel;
+		}
+
+		public static Builder builder() {
+			return new Builder();
+		}
+
+		/**
+		 * @param parameters Listener parameters
+		 * @return Options of image conversion taken from parameters
+		 */
+		public static Options from(ListenerParameters parameters) {
+			return builder().maxDimension(parameters.getConvertImageMaxDimension())
+					.format(Format.parse(parameters.getConvertImageFormat()))
+					.quality(parameters.getConvertImageQuality() / 100f)
+					.compressionLevel(parameters.getConvertImageCompression())
+					.build();
+		}
+
+		/**
+		 * @return Max width and height of converted image in pixels, 0 if image is not downscaled
+		 */
+		public int getMaxDimension() {
+			return maxDimension;
+		}
+
+		public Format getFormat() {
+			return format;
+		}
+
+		/**
+		 * @return Quality of JPEG images in range [0, 1]
+		 */
+		public float getQuality() {
+			return quality;
 		}
-		return new TypeAwareByteSource(ByteSource.wrap(byteOutputStream.toByteArray()), MediaType.PNG.toString());
 
+		/**
+		 * @return Deflate level of PNG images in range [0, 9] or -1 for default level of the encoder
+		 */
+		public int getCompressionLevel() {
+			return compressionLevel;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"maxDimension=%d, format=%s, quality=%.2f, compressionLevel=%d",
+					maxDimension,
+					format,
+					quality,
+					compressionLevel
+			);
+		}
+
+		public static class Builder {
+			private int maxDimension = 0;
+			private Format format = Format.PNG;
+			private float quality = 0.85f;
+			private int compressionLevel = -1;
+
+			public Builder maxDimension(int maxDimension) {
+				this.maxDimension = maxDimension;
+				return this;
+			}
+
+			public Builder format(Format format) {
+				this.format = Preconditions.checkNotNull(format, "Format shouldn't be NULL");
+				return this;
+			}
+
+			public Builder quality(float quality) {
+				Preconditions.checkArgument(quality >= 0 && quality <= 1, "Quality should be in range [0, 1]");
+				this.quality = quality;
+				return this;
+			}
+
+			public Builder compressionLevel(int compressionLevel) {
+				Preconditions.checkArgument(compressionLevel >= -1 && compressionLevel <= 9, "Compression level should be in range [-1, 9]");
+				this.compressionLevel = compressionLevel;
+				return this;
+			}
+
+			public Options build() {
+				return new Options(this);
+			}
+		}
 	}
 
+	/* looked up on first conversion, so ImageIO is not loaded by clients which do not convert images */
+	private static class Processors {
+		private static final ImageProcessor PROCESSOR = load();
+
+		private static ImageProcessor load() {
+			Iterator<ImageProcessor> processors = ServiceLoader.load(ImageProcessor.class, ImageConverter.class.getClassLoader()).iterator();
+			return processors.hasNext() ? processors.next() : null;
+		}
+	}
 }
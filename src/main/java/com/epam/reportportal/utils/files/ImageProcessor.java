@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils.files;
+
+import com.epam.reportportal.message.TypeAwareByteSource;
+import com.google.common.io.ByteSource;
+
+import java.io.IOException;
+
+/**
+ * Converts images to black and white colors. Implementation is discovered with {@link java.util.ServiceLoader},
+ * ImageIO based one is provided by client-java-images module
+ */
+public interface ImageProcessor {
+
+	/**
+	 * @param source  Image
+	 * @param options Size and encoding of converted image
+	 * @return Converted image
+	 * @throws IOException In case image cannot be read
+	 */
+	TypeAwareByteSource convert(ByteSource source, ImageConverter.Options options) throws IOException;
+}
@@ -26,6 +26,8 @@ public enum ListenerProperty {
     LAUNCH_NAME("rp.launch", true),
     UUID("rp.uuid", true),
     BATCH_SIZE_LOGS("rp.batch.size.logs", false),
+    BATCH_SIZE_BYTES("rp.batch.size.bytes", false),
+    BATCH_LINGER("rp.batch.linger", false),
     LAUNCH_TAGS("rp.tags", false),
     DESCRIPTION("rp.description", false),
     IS_CONVERT_IMAGE("rp.convertimage", false),
@@ -37,8 +39,29 @@ public enum ListenerProperty {
     RERUN("rp.rerun", false),
     SKIPPED_AS_ISSUE("rp.skipped.issue", false),
     IO_POOL_SIZE("rp.io.pool.size", false),
+    IO_VIRTUAL_THREADS("rp.io.virtual.threads", false),
+    HTTP_TRANSPORT("rp.http.transport", false),
     MAX_CONNECTIONS_PER_ROUTE("rp.max.connections.per.route", false),
-    MAX_CONNECTIONS_TOTAL("rp.max.connections.total", false);
+    MAX_CONNECTIONS_TOTAL("rp.max.connections.total", false),
+    CLIENT_IDS("rp.client.ids", false),
+    FINISH_CONCURRENCY("rp.finish.concurrency", false),
+    ITEMS_POOL_SIZE("rp.items.pool.size", false),
+    LOGS_POOL_SIZE("rp.logs.pool.size", false),
+    PROCESSING_POOL_SIZE("rp.processing.pool.size", false),
+    PROCESSING_QUEUE_SIZE("rp.processing.queue.size", false),
+    COMPRESSION("rp.compression", false),
+    COMPRESSION_THRESHOLD("rp.compression.threshold", false),
+    COMPRESSION_CPU_BUDGET("rp.compression.cpu.budget", false),
+    OFFLINE("rp.offline", false),
+    OFFLINE_JOURNAL("rp.offline.journal", false),
+    WAL("rp.wal", false),
+    WAL_DIR("rp.wal.dir", false),
+    WAL_SYNC_INTERVAL("rp.wal.sync.interval", false),
+    ATTACHMENT_CACHE_SIZE("rp.attachment.cache.size", false),
+    CONVERT_IMAGE_MAX_DIMENSION("rp.convertimage.max.dimension", false),
+    CONVERT_IMAGE_FORMAT("rp.convertimage.format", false),
+    CONVERT_IMAGE_QUALITY("rp.convertimage.quality", false),
+    CONVERT_IMAGE_COMPRESSION("rp.convertimage.compression", false);
     //formatter:on
 
     private String propertyName;
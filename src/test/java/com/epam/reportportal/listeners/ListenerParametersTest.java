@@ -15,8 +15,14 @@
  */
 package com.epam.reportportal.listeners;
 
+import com.epam.reportportal.utils.files.ImageConverter;
+import com.epam.reportportal.utils.properties.PropertiesLoader;
 import org.junit.Test;
 
+import java.util.Properties;
+
+import static com.epam.reportportal.utils.properties.ListenerProperty.CONVERT_IMAGE_COMPRESSION;
+import static com.epam.reportportal.utils.properties.ListenerProperty.CONVERT_IMAGE_QUALITY;
 import static com.epam.ta.reportportal.ws.model.launch.Mode.DEBUG;
 import static com.epam.ta.reportportal.ws.model.launch.Mode.DEFAULT;
 import static org.junit.Assert.assertEquals;
@@ -29,4 +35,46 @@ public class ListenerParametersTest {
 		assertEquals(DEBUG, new ListenerParameters().parseLaunchMode("Debug"));
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void testParseFinishConcurrency() {
+		assertEquals(16, new ListenerParameters().parseFinishConcurrency(16));
+		assertEquals(new ListenerParameters().getFinishConcurrency(), new ListenerParameters().parseFinishConcurrency(0));
+		assertEquals(new ListenerParameters().getFinishConcurrency(), new ListenerParameters().parseFinishConcurrency(-1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetNonPositiveFinishConcurrency() {
+		new ListenerParameters().setFinishConcurrency(0);
+	}
+
+	@Test
+	public void testParseConvertImageOptions() {
+		ListenerParameters parameters = new ListenerParameters();
+		assertEquals(50, parameters.parseConvertImageQuality(50));
+		assertEquals(parameters.getConvertImageQuality().intValue(), parameters.parseConvertImageQuality(101));
+		assertEquals(parameters.getConvertImageQuality().intValue(), parameters.parseConvertImageQuality(-1));
+		assertEquals(9, parameters.parseConvertImageCompression(9));
+		assertEquals(parameters.getConvertImageCompression().intValue(), parameters.parseConvertImageCompression(10));
+		assertEquals(parameters.getConvertImageCompression().intValue(), parameters.parseConvertImageCompression(-2));
+	}
+
+	@Test
+	public void testOutOfRangeConvertImageOptionsAreIgnored() {
+		Properties properties = new Properties();
+		properties.setProperty(CONVERT_IMAGE_QUALITY.getPropertyName(), "150");
+		properties.setProperty(CONVERT_IMAGE_COMPRESSION.getPropertyName(), "12");
+		PropertiesLoader loader = PropertiesLoader.load();
+		loader.overrideWith(properties);
+		ListenerParameters parameters = new ListenerParameters(loader);
+
+		ImageConverter.Options options = ImageConverter.Options.from(parameters);
+		assertEquals(0.85f, options.getQuality(), 0.001f);
+		assertEquals(-1, options.getCompressionLevel());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetOutOfRangeConvertImageQuality() {
+		new ListenerParameters().setConvertImageQuality(101);
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.message;
+
+import com.epam.reportportal.service.offline.JournalRecord;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StreamedFileTest {
+
+	private static final byte[] CONTENT = "streamed content".getBytes(Charsets.UTF_8);
+
+	@Test
+	public void contentIsNotSerialized() throws IOException {
+		SaveLogRQ rq = new SaveLogRQ();
+		rq.setMessage("message");
+		rq.setFile(new StreamedFile("file.txt", "text/plain", ByteSource.wrap(CONTENT)));
+		String json = new ObjectMapper().writeValueAsString(rq);
+		Assert.assertFalse(json.contains("content\""));
+		Assert.assertFalse(json.contains("source"));
+	}
+
+	@Test
+	public void streamIsReadOnceToJournal() throws IOException {
+		SaveLogRQ rq = new SaveLogRQ();
+		rq.setFile(new StreamedFile("file.txt", "text/plain", StreamedFile.once(new ByteArrayInputStream(CONTENT))));
+
+		//journal reads content to memory, so it can still be sent after that
+		SaveLogRQ restored = JournalRecord.log(rq).toLog();
+		Assert.assertArrayEquals(CONTENT, restored.getFile().getContent());
+		Assert.assertArrayEquals(CONTENT, StreamedFile.sourceOf(rq.getFile()).read());
+	}
+
+	@Test
+	public void streamIsClosedOnRelease() {
+		final AtomicBoolean closed = new AtomicBoolean();
+		StreamedFile file = new StreamedFile("file.txt", "text/plain", StreamedFile.once(new ByteArrayInputStream(CONTENT) {
+			@Override
+			public void close() {
+				closed.set(true);
+			}
+		}));
+		Assert.assertFalse(StreamedFile.isRepeatable(file.getSource()));
+
+		StreamedFile.release(file);
+		Assert.assertTrue(closed.get());
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.message.StreamedFile;
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.reportportal.utils.files.ImageConverter;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Charsets;
+import com.google.common.base.Function;
+import com.google.common.io.ByteSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+public class AttachmentCacheTest {
+
+	private static final String LOGO = "<svg>company logo</svg>";
+
+	@Test
+	public void attachmentsWhichAreNotConvertedAreLeftAsIs() throws Exception {
+		AttachmentCache cache = new AttachmentCache(1024 * 1024);
+		SaveLogRQ image = log(LOGO, "image/svg+xml").apply("item");
+		SaveLogRQ.File file = image.getFile();
+		cache.process(image, null);
+		SaveLogRQ text = log(LOGO, "text/plain").apply("item");
+		cache.process(text, ImageConverter.Options.DEFAULT);
+
+		Assert.assertSame(file, image.getFile());
+		Assert.assertTrue(text.getFile() instanceof StreamedFile);
+		Assert.assertEquals(0, cache.getStats().getHits() + cache.getStats().getMisses());
+	}
+
+	@Test
+	public void hitsCountOriginalSizeAsSaved() throws Exception {
+		byte[] png = png();
+		AttachmentCache cache = new AttachmentCache(1024 * 1024);
+		for (int i = 0; i < 3; i++) {
+			cache.process(log(png, "image/png").apply("item"), ImageConverter.Options.DEFAULT);
+		}
+
+		Assert.assertEquals(1, cache.getStats().getMisses());
+		Assert.assertEquals(2, cache.getStats().getHits());
+		Assert.assertEquals(2L * png.length, cache.getStats().getBytesSaved());
+	}
+
+	@Test
+	public void everyAttachmentIsSentWithItsName() {
+		List<SaveLogRQ> rqs = new ArrayList<SaveLogRQ>();
+		for (int i = 0; i < 3; i++) {
+			rqs.add(log(LOGO, "image/svg+xml").apply("item"));
+		}
+
+		List<MultiPartRequest.MultiPartBinary> parts = LoggingContext.toMultiPartRequest(rqs).getBinaryRQs();
+		Assert.assertEquals(3, parts.size());
+		for (int i = 0; i < parts.size(); i++) {
+			Assert.assertEquals(rqs.get(i).getFile().getName(), parts.get(i).getFilename());
+		}
+	}
+
+	private static byte[] png() throws IOException {
+		BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(8, 8, 0xff0000);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", os);
+		return os.toByteArray();
+	}
+
+	private static Function<String, SaveLogRQ> log(String attachment, String contentType) {
+		return log(attachment.getBytes(Charsets.UTF_8), contentType);
+	}
+
+	private static Function<String, SaveLogRQ> log(final byte[] attachment, final String contentType) {
+		return new Function<String, SaveLogRQ>() {
+			@Override
+			public SaveLogRQ apply(String itemId) {
+				SaveLogRQ rq = new SaveLogRQ();
+				rq.setTestItemId(itemId);
+				rq.setLogTime(new Date());
+				rq.setLevel("INFO");
+				rq.setFile(new StreamedFile(UUID.randomUUID().toString(),
+						contentType,
+						ByteSource.wrap(attachment)
+				));
+				return rq;
+			}
+		};
+	}
+}
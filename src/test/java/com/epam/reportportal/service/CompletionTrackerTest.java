@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import io.reactivex.Completable;
+import io.reactivex.subjects.CompletableSubject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class CompletionTrackerTest {
+
+	@Test
+	public void drainWaitsForPending() {
+		CompletionTracker tracker = new CompletionTracker();
+		CompletableSubject first = CompletableSubject.create();
+		CompletableSubject second = CompletableSubject.create();
+		tracker.track(first);
+		tracker.track(second);
+		tracker.track(Completable.complete());
+		Assert.assertEquals(2, tracker.getPending());
+
+		Completable drained = tracker.drain().cache();
+		drained.subscribe();
+		first.onComplete();
+		Assert.assertFalse(drained.blockingAwait(10, TimeUnit.MILLISECONDS));
+
+		second.onError(new IllegalStateException("Failed operation is done too"));
+		Assert.assertTrue(drained.blockingAwait(10, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(0, tracker.getPending());
+	}
+
+	@Test
+	public void drainWithoutOperations() {
+		Assert.assertNull(new CompletionTracker().drain().blockingGet());
+	}
+}
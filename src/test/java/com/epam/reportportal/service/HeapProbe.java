@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures allocations and live objects of the JVM with HotSpot management beans
+ */
+class HeapProbe {
+
+	/* "   1:         12345         123456  java.lang.String (java.base@11)" */
+	private static final Pattern HISTOGRAM_LINE = Pattern.compile("\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+).*");
+
+	private HeapProbe() {
+		//statics only
+	}
+
+	/**
+	 * @return TRUE if the JVM provides allocation counters of threads and class histogram, which is the case for HotSpot
+	 */
+	static boolean isSupported() {
+		try {
+			final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			return threads instanceof com.sun.management.ThreadMXBean
+					&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+					&& ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName("com.sun.management:type=DiagnosticCommand"));
+		} catch (LinkageError e) {
+			return false;
+		} catch (Exception e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return Bytes allocated by live threads of the JVM since they were started. Allocations of threads which
+	 * have died are not counted, so pooled threads of the client are measured, but short-living ones are not
+	 */
+	static long allocatedBytes() {
+		final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		final long[] allocated = ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threads.getAllThreadIds());
+		long total = 0;
+		for (long bytes : allocated) {
+			total += Math.max(0, bytes);
+		}
+		return total;
+	}
+
+	/**
+	 * Collects garbage and counts objects left
+	 *
+	 * @return Live objects by class
+	 * @throws Exception If the JVM has no diagnostic commands
+	 */
+	static LiveObjects liveObjects() throws Exception {
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		final String histogram = (String) server.invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"),
+				"gcClassHistogram",
+				new Object[] { new String[0] },
+				new String[] { String[].class.getName() }
+		);
+		final LiveObjects live = new LiveObjects();
+		for (String line : histogram.split("\\r?\\n")) {
+			final Matcher matcher = HISTOGRAM_LINE.matcher(line);
+			if (matcher.matches()) {
+				live.add(matcher.group(3), Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)));
+			}
+		}
+		return live;
+	}
+
+	/**
+	 * Count and size of live objects by class
+	 */
+	static class LiveObjects {
+		private final Map<String, Long> instances = new HashMap<String, Long>();
+		private long bytes;
+
+		private void add(String className, long count, long size) {
+			instances.put(className, count);
+			bytes += size;
+		}
+
+		/**
+		 * @return Live instances by name of class
+		 */
+		Map<String, Long> getInstances() {
+			return instances;
+		}
+
+		long getInstances(String className) {
+			final Long count = instances.get(className);
+			return null == count ? 0 : count;
+		}
+
+		/**
+		 * @return Size of all live objects
+		 */
+		long getBytes() {
+			return bytes;
+		}
+	}
+}
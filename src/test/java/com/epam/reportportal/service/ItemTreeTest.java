@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import io.reactivex.Completable;
+import io.reactivex.Maybe;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ItemTreeTest {
+
+	private static final int ITEMS_COUNT = 100000;
+	/* bytes per item the tree is allowed to retain, keys are not counted */
+	private static final long MAX_BYTES_PER_ITEM = 64;
+
+	@Test
+	public void findAndRemove() {
+		ItemTree tree = new ItemTree(2);
+		Maybe<String> launch = Maybe.just("launch");
+		Maybe<String> suite = Maybe.just("suite");
+		Maybe<String> test = Maybe.just("test");
+
+		int root = tree.add(ItemTree.NO_ITEM, launch);
+		int suiteHandle = tree.add(root, suite);
+		int testHandle = tree.add(suiteHandle, test);
+
+		Assert.assertEquals(suiteHandle, tree.find(suite));
+		Assert.assertEquals(suiteHandle, tree.getParent(testHandle));
+		Assert.assertEquals(1, tree.getChildren(root).size());
+		Assert.assertEquals(ItemTree.NO_ITEM, tree.find(Maybe.just("unknown")));
+
+		Assert.assertTrue(tree.remove(suiteHandle, suite));
+		Assert.assertEquals("Subtree should be removed", 1, tree.size());
+		Assert.assertEquals(ItemTree.NO_ITEM, tree.find(test));
+		Assert.assertTrue(tree.getChildren(root).isEmpty());
+		Assert.assertFalse("Already removed item should not be removed twice", tree.remove(suiteHandle, suite));
+	}
+
+	@Test
+	public void completionOfReusedHandle() {
+		ItemTree tree = new ItemTree();
+		int root = tree.add(ItemTree.NO_ITEM, Maybe.just("launch"));
+		Maybe<String> first = Maybe.just("first");
+		int handle = tree.add(root, first);
+		tree.remove(handle, first);
+
+		Maybe<String> second = Maybe.just("second");
+		Assert.assertEquals("Handle should be reused", handle, tree.add(root, second));
+
+		tree.setCompletion(handle, first, Completable.error(new IllegalStateException()));
+		Assert.assertNull("Stale completion should be ignored", tree.getChildren(root).get(0).blockingGet());
+	}
+
+	@Test
+	public void heapFootprint() {
+		Object[] keys = new Object[ITEMS_COUNT];
+		for (int i = 0; i < ITEMS_COUNT; i++) {
+			keys[i] = new Object();
+		}
+		Object launch = new Object();
+
+		long before = usedHeap();
+		ItemTree tree = new ItemTree();
+		int root = tree.add(ItemTree.NO_ITEM, launch);
+		int suite = root;
+		for (int i = 0; i < ITEMS_COUNT; i++) {
+			/* suites of 100 tests */
+			if (i % 100 == 0) {
+				suite = tree.add(root, keys[i]);
+			} else {
+				tree.add(suite, keys[i]);
+			}
+		}
+		long perItem = (usedHeap() - before) / ITEMS_COUNT;
+		Assert.assertEquals(ITEMS_COUNT + 1, tree.size());
+		Assert.assertTrue("Item tree retains " + perItem + " bytes per item", perItem <= MAX_BYTES_PER_ITEM);
+
+		for (int i = 0; i < ITEMS_COUNT; i += 100) {
+			Assert.assertTrue(tree.remove(tree.find(keys[i]), keys[i]));
+		}
+		Assert.assertEquals("Finished subtrees should be reclaimed", 1, tree.size());
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
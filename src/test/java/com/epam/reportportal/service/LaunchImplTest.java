@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.exception.ReportPortalException;
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.service.metrics.MetricsRegistry;
+import com.epam.ta.reportportal.ws.model.ErrorRS;
+import com.epam.ta.reportportal.ws.model.ErrorType;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.OperationCompletionRS;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import io.reactivex.Maybe;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LaunchImplTest {
+
+	private static final long LATENCY = 200;
+	private static final int DEPTH = 5;
+
+	@Test
+	public void clientIdsDoNotWaitForParent() {
+		StandInReportPortalClient client = new StandInReportPortalClient(LATENCY);
+		List<Maybe<String>> items = reportNestedItems(client, true);
+
+		List<StandInReportPortalClient.Call> starts = itemStarts(client);
+		Assert.assertEquals(DEPTH, starts.size());
+		Assert.assertTrue("Items should be started without waiting for parents", spreadMillis(starts) < LATENCY);
+
+		List<String> requests = new ArrayList<String>();
+		for (StandInReportPortalClient.Call call : starts) {
+			requests.add(call.getRequest());
+		}
+		for (int i = 1; i < DEPTH; i++) {
+			Assert.assertTrue("Child should be started under client-side ID of the parent",
+					requests.contains("POST /item/" + items.get(i - 1).blockingGet())
+			);
+		}
+	}
+
+	@Test
+	public void serverIdsWaitForParent() {
+		StandInReportPortalClient client = new StandInReportPortalClient(LATENCY);
+		reportNestedItems(client, false);
+
+		List<StandInReportPortalClient.Call> starts = itemStarts(client);
+		Assert.assertEquals(DEPTH, starts.size());
+		Assert.assertTrue(spreadMillis(starts) >= (DEPTH - 1) * LATENCY);
+	}
+
+	@Test
+	public void logsOfShortTestsShareBatches() {
+		StandInReportPortalClient client = new StandInReportPortalClient();
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setBatchLogsSize(10);
+
+		StartLaunchRQ launchRq = new StartLaunchRQ();
+		launchRq.setName("Short tests");
+		launchRq.setStartTime(Calendar.getInstance().getTime());
+		Launch launch = ReportPortal.create(client, parameters).newLaunch(launchRq);
+		launch.start();
+
+		Maybe<String> suite = launch.startTestItem(item("Suite", "SUITE"));
+		for (int i = 0; i < 25; i++) {
+			Maybe<String> test = launch.startTestItem(suite, item("Test " + i, "STEP"));
+			ReportPortal.emitLog("Log " + i, "INFO", Calendar.getInstance().getTime());
+			launch.finishTestItem(test, finish());
+		}
+		launch.finishTestItem(suite, finish());
+		FinishExecutionRQ finishRq = new FinishExecutionRQ();
+		finishRq.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(finishRq);
+
+		List<StandInReportPortalClient.Call> calls = client.getCalls();
+		int batches = 0;
+		for (StandInReportPortalClient.Call call : calls) {
+			if (call.getRequest().startsWith("POST /log/")) {
+				batches++;
+			}
+		}
+		Assert.assertEquals("Two full batches and the rest on launch finish", 3, batches);
+		Assert.assertTrue("Launch should be finished after all the logs", calls.get(calls.size() - 1).getRequest().startsWith("PUT /launch/"));
+	}
+
+	@Test
+	public void metricsAreRecordedUntilFinish() {
+		StandInReportPortalClient client = new StandInReportPortalClient();
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+
+		StartLaunchRQ launchRq = new StartLaunchRQ();
+		launchRq.setName("Metrics");
+		launchRq.setStartTime(Calendar.getInstance().getTime());
+		ReportPortal rp = ReportPortal.create(client, parameters);
+		Launch launch = rp.newLaunch(launchRq);
+		launch.start();
+
+		Maybe<String> suite = launch.startTestItem(item("Suite", "SUITE"));
+		for (int i = 0; i < 3; i++) {
+			Maybe<String> test = launch.startTestItem(suite, item("Test " + i, "STEP"));
+			ReportPortal.emitLog("Log " + i, "INFO", Calendar.getInstance().getTime());
+			launch.finishTestItem(test, finish());
+		}
+		launch.finishTestItem(suite, finish());
+		FinishExecutionRQ finishRq = new FinishExecutionRQ();
+		finishRq.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(finishRq);
+
+		MetricsRegistry metrics = rp.getMetrics();
+		Assert.assertEquals(4, metrics.getHistograms().get("requests.latency_ms.startTestItem").getCount());
+		Assert.assertEquals(4, metrics.getHistograms().get("requests.latency_ms.finishTestItem").getCount());
+		Assert.assertEquals(1, metrics.getHistograms().get("requests.latency_ms.finishLaunch").getCount());
+		Assert.assertEquals(3, metrics.getHistograms().get("logs.queue_depth").getCount());
+		Assert.assertEquals(1, metrics.getHistograms().get("launch.finish.drain_ms").getCount());
+		Assert.assertEquals(Long.valueOf(0), metrics.getGauges().get("items.pending"));
+		Assert.assertEquals(Long.valueOf(0), metrics.getGauges().get("requests.in_flight.log"));
+		Assert.assertEquals(Long.valueOf(0), metrics.getGauges().get("logs.dropped"));
+		Assert.assertEquals(Long.valueOf(0), metrics.getGauges().get("attachments.cache.bytes_saved"));
+		Assert.assertEquals(Long.valueOf(0), metrics.getCounters().get("requests.errors.startTestItem"));
+	}
+
+	@Test
+	public void finishRetriesAreCountedPerLaunch() {
+		final AtomicInteger finishes = new AtomicInteger();
+		StandInReportPortalClient client = new StandInReportPortalClient() {
+			@Override
+			public Maybe<OperationCompletionRS> finishTestItem(String itemId, FinishTestItemRQ rq) {
+				if (finishes.incrementAndGet() == 1) {
+					ErrorRS error = new ErrorRS();
+					error.setErrorType(ErrorType.FINISH_ITEM_NOT_ALLOWED);
+					return Maybe.error(new ReportPortalException(406, "Not Acceptable", error));
+				}
+				return super.finishTestItem(itemId, rq);
+			}
+		};
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		ReportPortal rp = ReportPortal.create(client, parameters);
+
+		//launches run at the same time, the first one retries finish of its item
+		List<Launch> launches = new ArrayList<Launch>();
+		for (int i = 0; i < 2; i++) {
+			StartLaunchRQ launchRq = new StartLaunchRQ();
+			launchRq.setName("Retries " + i);
+			launchRq.setStartTime(Calendar.getInstance().getTime());
+			Launch launch = rp.newLaunch(launchRq);
+			launch.start();
+			launches.add(launch);
+		}
+		for (Launch launch : launches) {
+			launch.finishTestItem(launch.startTestItem(item("Suite", "SUITE")), finish());
+			FinishExecutionRQ finishRq = new FinishExecutionRQ();
+			finishRq.setEndTime(Calendar.getInstance().getTime());
+			launch.finish(finishRq);
+		}
+
+		Assert.assertEquals(3, finishes.get());
+		//gauge of the second launch, registered last
+		Assert.assertEquals(Long.valueOf(0), rp.getMetrics().getGauges().get("requests.retries.finishTestItem"));
+	}
+
+	private static StartTestItemRQ item(String name, String type) {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName(name);
+		rq.setType(type);
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static FinishTestItemRQ finish() {
+		FinishTestItemRQ rq = new FinishTestItemRQ();
+		rq.setStatus("PASSED");
+		rq.setEndTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static List<Maybe<String>> reportNestedItems(StandInReportPortalClient client, boolean clientIds) {
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setClientIds(clientIds);
+
+		StartLaunchRQ launchRq = new StartLaunchRQ();
+		launchRq.setName("Nested items");
+		launchRq.setStartTime(Calendar.getInstance().getTime());
+		Launch launch = ReportPortal.create(client, parameters).newLaunch(launchRq);
+		launch.start();
+
+		List<Maybe<String>> items = new ArrayList<Maybe<String>>();
+		Maybe<String> parent = null;
+		for (int i = 0; i < DEPTH; i++) {
+			StartTestItemRQ rq = new StartTestItemRQ();
+			rq.setName("Item " + i);
+			rq.setType(i == DEPTH - 1 ? "STEP" : "SUITE");
+			rq.setStartTime(Calendar.getInstance().getTime());
+			parent = launch.startTestItem(parent, rq);
+			items.add(parent);
+		}
+		for (int i = DEPTH - 1; i >= 0; i--) {
+			FinishTestItemRQ rq = new FinishTestItemRQ();
+			rq.setStatus("PASSED");
+			rq.setEndTime(Calendar.getInstance().getTime());
+			launch.finishTestItem(items.get(i), rq);
+		}
+
+		FinishExecutionRQ finishRq = new FinishExecutionRQ();
+		finishRq.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(finishRq);
+
+		List<StandInReportPortalClient.Call> calls = client.getCalls();
+		Assert.assertTrue("Launch should be finished after all the items",
+				calls.get(calls.size() - 1).getRequest().startsWith("PUT /launch/")
+		);
+		return items;
+	}
+
+	private static List<StandInReportPortalClient.Call> itemStarts(StandInReportPortalClient client) {
+		List<StandInReportPortalClient.Call> starts = new ArrayList<StandInReportPortalClient.Call>();
+		for (StandInReportPortalClient.Call call : client.getCalls()) {
+			if (call.getRequest().startsWith("POST /item/")) {
+				starts.add(call);
+			}
+		}
+		return starts;
+	}
+
+	private static long spreadMillis(List<StandInReportPortalClient.Call> calls) {
+		long first = Long.MAX_VALUE;
+		long last = Long.MIN_VALUE;
+		for (StandInReportPortalClient.Call call : calls) {
+			first = Math.min(first, call.getNanoTime());
+			last = Math.max(last, call.getNanoTime());
+		}
+		return TimeUnit.NANOSECONDS.toMillis(last - first);
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import io.reactivex.Maybe;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Heap regression suite: reports scripted launches to the in-memory stand-in and fails once the client allocates
+ * or retains more than it used to. Launch of every scale is reported twice, without logs and with
+ * {@link #LOGS_PER_ITEM} logs per step, so allocations of logs are told apart from allocations of items.
+ * Scales are taken from {@code memory.items} property. The suite is run by {@code gradle memoryTest} only
+ * and is skipped on JVMs without HotSpot management beans
+ */
+@RunWith(Parameterized.class)
+public class LaunchMemoryTest {
+
+	private static final int STEPS_PER_SUITE = 100;
+	private static final int LOGS_PER_ITEM = 2;
+
+	/* measured 5.7KB per item, 1.2KB per log and 1MB retained by launch of 1M items. Thresholds are about
+	 twice as much, so noise of GC and JIT does not fail the suite */
+	private static final long MAX_ALLOCATED_BYTES_PER_ITEM = 12 * 1024;
+	private static final long MAX_ALLOCATED_BYTES_PER_LOG = 3 * 1024;
+	private static final long MAX_RETAINED_BYTES_PER_ITEM = 4;
+	private static final long MAX_RETAINED_BYTES = 4 * 1024 * 1024;
+	/* classes of the client, which instances are left after finish of the launch */
+	private static final long MAX_LIVE_INSTANCES = 1000;
+	private static final String[] CLIENT_PACKAGES = { "com.epam.reportportal.", "com.epam.ta.reportportal.", "io.reactivex." };
+
+	@Parameterized.Parameters(name = "{0} items")
+	public static Collection<Object[]> scales() {
+		final List<Object[]> scales = new ArrayList<Object[]>();
+		for (String scale : System.getProperty("memory.items", "10000").split(",")) {
+			scales.add(new Object[] { Integer.parseInt(scale.trim()) });
+		}
+		return scales;
+	}
+
+	private final int items;
+
+	public LaunchMemoryTest(int items) {
+		this.items = items;
+	}
+
+	@Before
+	public void checkProbe() {
+		Assume.assumeTrue("HotSpot management beans are not available", HeapProbe.isSupported());
+	}
+
+	@Test
+	public void launchFitsHeapBudget() throws Exception {
+		//warm up, so classes and caches of the client are not counted
+		report(Math.min(items, 10 * STEPS_PER_SUITE), LOGS_PER_ITEM);
+
+		final HeapProbe.LiveObjects before = HeapProbe.liveObjects();
+		final Footprint items = report(this.items, 0);
+		final Footprint logs = report(this.items, LOGS_PER_ITEM);
+		final long allocatedPerItem = items.allocated / items.items;
+		final long allocatedPerLog = Math.max(0, logs.allocated - items.allocated) / logs.logs;
+		final long retained = Math.max(items.live.getBytes(), logs.live.getBytes()) - before.getBytes();
+
+		System.out.println(String.format(Locale.US,
+				"%d items: allocated %d bytes per item, %d bytes per log, retained after finish %d bytes",
+				this.items,
+				allocatedPerItem,
+				allocatedPerLog,
+				retained
+		));
+		Assert.assertTrue("Allocated per item: " + allocatedPerItem, allocatedPerItem <= MAX_ALLOCATED_BYTES_PER_ITEM);
+		Assert.assertTrue("Allocated per log: " + allocatedPerLog, allocatedPerLog <= MAX_ALLOCATED_BYTES_PER_LOG);
+		Assert.assertTrue("Retained after finish: " + retained,
+				retained <= MAX_RETAINED_BYTES + MAX_RETAINED_BYTES_PER_ITEM * this.items
+		);
+		for (Map.Entry<String, Long> entry : logs.live.getInstances().entrySet()) {
+			if (isClientClass(entry.getKey())) {
+				long grown = entry.getValue() - before.getInstances(entry.getKey());
+				Assert.assertTrue("Live instances of " + entry.getKey() + ": " + grown, grown <= MAX_LIVE_INSTANCES);
+			}
+		}
+	}
+
+	/**
+	 * Reports launch of suites with {@link #STEPS_PER_SUITE} steps each and keeps it referenced,
+	 * the way a test framework keeps its launch, until live objects are counted
+	 */
+	private static Footprint report(int steps, int logsPerStep) throws Exception {
+		final ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setClientIds(true);
+		final ReportPortal reportPortal = ReportPortal.create(new StandInReportPortalClient(0, 0, false), parameters);
+
+		final long allocatedBefore = HeapProbe.allocatedBytes();
+		StartLaunchRQ launchRq = new StartLaunchRQ();
+		launchRq.setName("Memory regression");
+		launchRq.setStartTime(Calendar.getInstance().getTime());
+		final Launch launch = reportPortal.newLaunch(launchRq);
+		launch.start();
+		int reported = 0;
+		for (int s = 0; reported < steps; s++) {
+			final Maybe<String> suite = launch.startTestItem(item("Suite " + s, "SUITE"));
+			for (int i = 0; i < STEPS_PER_SUITE && reported < steps; i++, reported++) {
+				final Maybe<String> step = launch.startTestItem(suite, item("Step " + i, "STEP"));
+				for (int l = 0; l < logsPerStep; l++) {
+					ReportPortal.emitLog("Step " + i + " log " + l, "INFO", Calendar.getInstance().getTime());
+				}
+				launch.finishTestItem(step, finish());
+			}
+			launch.finishTestItem(suite, finish());
+		}
+		FinishExecutionRQ finishRq = new FinishExecutionRQ();
+		finishRq.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(finishRq);
+		final long allocated = HeapProbe.allocatedBytes() - allocatedBefore;
+
+		final Footprint footprint = new Footprint(steps + (steps + STEPS_PER_SUITE - 1) / STEPS_PER_SUITE,
+				steps * logsPerStep,
+				allocated,
+				HeapProbe.liveObjects()
+		);
+		//launch is reachable until live objects are counted
+		Assert.assertNotNull(launch);
+		return footprint;
+	}
+
+	private static boolean isClientClass(String className) {
+		for (String clientPackage : CLIENT_PACKAGES) {
+			if (className.startsWith(clientPackage)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static StartTestItemRQ item(String name, String type) {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName(name);
+		rq.setType(type);
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static FinishTestItemRQ finish() {
+		FinishTestItemRQ rq = new FinishTestItemRQ();
+		rq.setStatus("PASSED");
+		rq.setEndTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static class Footprint {
+		private final int items;
+		private final int logs;
+		private final long allocated;
+		private final HeapProbe.LiveObjects live;
+
+		Footprint(int items, int logs, long allocated, HeapProbe.LiveObjects live) {
+			this.items = items;
+			this.logs = logs;
+			this.allocated = allocated;
+			this.live = live;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.service.transport.HttpTransport;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRS;
+import com.google.common.base.Supplier;
+import com.google.common.net.HttpHeaders;
+import io.reactivex.Maybe;
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.protocol.HttpContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LazyReportPortalClientTest {
+
+	@Test
+	public void clientIsBuiltOnFirstSubscription() {
+		final AtomicInteger builds = new AtomicInteger();
+		LazyReportPortalClient client = new LazyReportPortalClient(new Supplier<ReportPortalClient>() {
+			@Override
+			public ReportPortalClient get() {
+				builds.incrementAndGet();
+				return new StandInReportPortalClient();
+			}
+		});
+		//closing client without requests does not build it
+		client.close();
+
+		Maybe<StartLaunchRS> launch = client.startLaunch(new StartLaunchRQ());
+		Assert.assertEquals(0, builds.get());
+		Assert.assertFalse(client.isBuilt());
+
+		Assert.assertNotNull(launch.blockingGet().getId());
+		Assert.assertNotNull(client.startLaunch(new StartLaunchRQ()).blockingGet().getId());
+		Assert.assertEquals(1, builds.get());
+		Assert.assertTrue(client.isBuilt());
+	}
+
+	@Test
+	public void failedBuildIsNotRetried() {
+		final AtomicInteger builds = new AtomicInteger();
+		LazyReportPortalClient client = new LazyReportPortalClient(new Supplier<ReportPortalClient>() {
+			@Override
+			public ReportPortalClient get() {
+				builds.incrementAndGet();
+				throw new IllegalStateException("Unable to load trust store");
+			}
+		});
+
+		Throwable error = client.startLaunch(new StartLaunchRQ()).ignoreElement().blockingGet();
+		Assert.assertTrue(error instanceof IllegalStateException);
+		Assert.assertFalse(client.isBuilt());
+		Assert.assertSame(error, client.startLaunch(new StartLaunchRQ()).ignoreElement().blockingGet());
+		Assert.assertEquals(1, builds.get());
+	}
+
+	@Test
+	public void executorOfFailedBuildIsShutDown() {
+		final List<ExecutorService> executors = Collections.synchronizedList(new ArrayList<ExecutorService>());
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setBaseUrl("https://localhost:8443");
+		//keystore without password fails the build
+		parameters.setKeystore("reportportal.jks");
+		ReportPortal.Builder builder = new ReportPortal.Builder() {
+			@Override
+			protected ExecutorService buildExecutorService(ListenerParameters parameters) {
+				ExecutorService executor = super.buildExecutorService(parameters);
+				executors.add(executor);
+				return executor;
+			}
+		}.withParameters(parameters);
+		ReportPortalClient client = builder.build().getClient();
+
+		Assert.assertNotNull(client.startLaunch(new StartLaunchRQ()).ignoreElement().blockingGet());
+		Assert.assertNotNull(client.startLaunch(new StartLaunchRQ()).ignoreElement().blockingGet());
+		Assert.assertEquals(1, executors.size());
+		Assert.assertTrue(executors.get(0).isShutdown());
+	}
+
+	@Test
+	public void httpClientBuilderChangedAfterBuildDoesNotAffectClient() throws Exception {
+		StandInReportPortalServer server = StandInReportPortalServer.builder().start();
+		try {
+			List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+			HttpClientBuilder http = HttpClients.custom().addInterceptorLast(new RecordingInterceptor("built", requests));
+			ReportPortal rp = ReportPortal.builder().withHttpClient(http).withParameters(parameters(server, HttpTransport.SYNC)).build();
+			//interceptors of the same class are added once, so the late one is of its own class
+			http.addInterceptorLast(new RecordingInterceptor("added after build", requests) {
+			});
+
+			Assert.assertNotNull(rp.getClient().startLaunch(new StartLaunchRQ()).blockingGet().getId());
+			Assert.assertEquals(Collections.singletonList("built bearer builder-test"), requests);
+
+			//interceptors of the client are not added to the builder of the caller
+			requests.clear();
+			CloseableHttpClient client = http.build();
+			try {
+				client.execute(new HttpGet(server.getBaseUrl())).close();
+			} finally {
+				client.close();
+			}
+			Assert.assertEquals(Arrays.asList("built null", "added after build null"), requests);
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void asyncHttpClientBuilderChangedAfterBuildDoesNotAffectClient() throws Exception {
+		StandInReportPortalServer server = StandInReportPortalServer.builder().start();
+		try {
+			List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+			HttpAsyncClientBuilder http = HttpAsyncClients.custom().addInterceptorLast(new RecordingInterceptor("built", requests));
+			ReportPortal rp = ReportPortal.builder()
+					.withAsyncHttpClient(http)
+					.withParameters(parameters(server, HttpTransport.ASYNC))
+					.build();
+			//interceptors of the same class are added once, so the late one is of its own class
+			http.addInterceptorLast(new RecordingInterceptor("added after build", requests) {
+			});
+
+			Assert.assertNotNull(rp.getClient().startLaunch(new StartLaunchRQ()).blockingGet().getId());
+			Assert.assertEquals(Collections.singletonList("built bearer builder-test"), requests);
+
+			requests.clear();
+			CloseableHttpAsyncClient client = http.build();
+			try {
+				client.start();
+				client.execute(new HttpGet(server.getBaseUrl()), null).get();
+			} finally {
+				client.close();
+			}
+			Assert.assertEquals(Arrays.asList("built null", "added after build null"), requests);
+		} finally {
+			server.stop();
+		}
+	}
+
+	private static ListenerParameters parameters(StandInReportPortalServer server, HttpTransport transport) {
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setBaseUrl(server.getBaseUrl());
+		parameters.setProjectName(StandInReportPortalServer.PROJECT);
+		parameters.setUuid("builder-test");
+		parameters.setHttpTransport(transport);
+		return parameters;
+	}
+
+	/* records its name with authorization header of every request */
+	private static class RecordingInterceptor implements HttpRequestInterceptor {
+		private final String name;
+		private final List<String> requests;
+
+		RecordingInterceptor(String name, List<String> requests) {
+			this.name = name;
+			this.requests = requests;
+		}
+
+		@Override
+		public void process(HttpRequest request, HttpContext context) {
+			Header auth = request.getFirstHeader(HttpHeaders.AUTHORIZATION);
+			requests.add(name + " " + (null == auth ? null : auth.getValue()));
+		}
+	}
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.service.transport.HttpTransport;
+import com.epam.reportportal.utils.Histogram;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.reactivex.Maybe;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives {@link Launch} with a synthetic tree of items the way a test framework does: suites are started
+ * and finished on the main thread, leaves are run by a pool of test threads which emit logs and attachments.
+ * Every call of the client on test threads is timed, since that is the overhead tests pay for reporting.
+ * Run against {@link StandInReportPortalServer} by {@code gradle loadTest -Dload.width=10 -Dload.latency=20 ...}
+ */
+public class LoadGenerator {
+
+	private static final String[] LEVELS = { "DEBUG", "INFO", "WARN", "ERROR" };
+	/* distinct attachments of each type, so cache of attachments does not serve all of them */
+	private static final int ATTACHMENT_VARIANTS = 16;
+	private static final long HEAP_SAMPLE_MILLIS = 10;
+
+	private final ListenerParameters parameters;
+	private final int width;
+	private final int depth;
+	private final int threads;
+	private final int logsPerItem;
+	private final long logIntervalMillis;
+	private final double attachmentRatio;
+	private final byte[][] attachments;
+	private final String[] attachmentTypes;
+
+	private LoadGenerator(Builder builder) {
+		this.parameters = builder.parameters;
+		this.width = builder.width;
+		this.depth = builder.depth;
+		this.threads = builder.threads;
+		this.logsPerItem = builder.logsPerItem;
+		this.logIntervalMillis = builder.logIntervalMillis;
+		this.attachmentRatio = builder.attachmentRatio;
+
+		final Random random = new Random(42);
+		this.attachmentTypes = builder.attachmentTypes;
+		this.attachments = new byte[ATTACHMENT_VARIANTS * attachmentTypes.length][];
+		for (int i = 0; i < attachments.length; i++) {
+			attachments[i] = new byte[builder.attachmentBytes];
+			random.nextBytes(attachments[i]);
+		}
+	}
+
+	/**
+	 * @param parameters Parameters of the client, which point it to the server
+	 * @return Builder of load generator
+	 */
+	public static Builder builder(ListenerParameters parameters) {
+		return new Builder(parameters);
+	}
+
+	/**
+	 * Reports launch and waits for it to be finished
+	 *
+	 * @return Overhead of the client
+	 * @throws Exception If test thread fails
+	 */
+	public Report run() throws Exception {
+		System.gc();
+		final HeapSampler heap = new HeapSampler();
+		final Histogram calls = new Histogram();
+		final long started = System.nanoTime();
+
+		final ReportPortal reportPortal = ReportPortal.builder().withParameters(parameters).build();
+		StartLaunchRQ launchRq = new StartLaunchRQ();
+		launchRq.setName("Load test");
+		launchRq.setStartTime(Calendar.getInstance().getTime());
+		final Launch launch = reportPortal.newLaunch(launchRq);
+		launch.start();
+
+		final List<Maybe<String>> suites = new ArrayList<Maybe<String>>();
+		final List<Maybe<String>> parents = startSuites(launch, suites);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new ThreadFactoryBuilder().setNameFormat("load-test-%d").setDaemon(true).build()
+		);
+		final List<Future<?>> leaves = new ArrayList<Future<?>>();
+		for (int i = 0; i < parents.size() * width; i++) {
+			final Maybe<String> parent = parents.get(i / width);
+			final int leaf = i;
+			leaves.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					runLeaf(launch, parent, leaf, calls);
+				}
+			}));
+		}
+		for (Future<?> leaf : leaves) {
+			leaf.get();
+		}
+		executor.shutdown();
+
+		//suites are started parent first, so they are finished in reverse order
+		for (int i = suites.size() - 1; i >= 0; i--) {
+			launch.finishTestItem(suites.get(i), finish());
+		}
+		final long finishing = System.nanoTime();
+		FinishExecutionRQ finishRq = new FinishExecutionRQ();
+		finishRq.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(finishRq);
+		final long finished = System.nanoTime();
+
+		return new Report(leaves.size(), calls, finished - started, finished - finishing, heap.stop());
+	}
+
+	/* starts suites level by level and returns suites of the last level, leaves are started in them */
+	private List<Maybe<String>> startSuites(Launch launch, List<Maybe<String>> suites) {
+		List<Maybe<String>> level = new ArrayList<Maybe<String>>();
+		for (int i = 0; i < width; i++) {
+			level.add(launch.startTestItem(item("Suite " + i, "SUITE")));
+		}
+		suites.addAll(level);
+		for (int d = 1; d < depth; d++) {
+			final List<Maybe<String>> next = new ArrayList<Maybe<String>>(level.size() * width);
+			for (Maybe<String> parent : level) {
+				for (int i = 0; i < width; i++) {
+					next.add(launch.startTestItem(parent, item("Test " + i, "TEST")));
+				}
+			}
+			suites.addAll(next);
+			level = next;
+		}
+		return level;
+	}
+
+	private void runLeaf(Launch launch, Maybe<String> parent, int leaf, Histogram calls) {
+		final Random random = new Random(leaf);
+		long start = System.nanoTime();
+		final Maybe<String> step = launch.startTestItem(parent, item("Step " + leaf, "STEP"));
+		calls.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+
+		for (int i = 0; i < logsPerItem; i++) {
+			pause();
+			final String level = LEVELS[random.nextInt(LEVELS.length)];
+			final String message = "Step " + leaf + " log " + i + ": expected element to be visible within 10 seconds";
+			final boolean attach = random.nextDouble() < attachmentRatio;
+			final int variant = random.nextInt(attachments.length);
+			start = System.nanoTime();
+			if (attach) {
+				ReportPortal.emitLog(message,
+						level,
+						Calendar.getInstance().getTime(),
+						new ByteArrayInputStream(attachments[variant]),
+						attachmentTypes[variant % attachmentTypes.length]
+				);
+			} else {
+				ReportPortal.emitLog(message, level, Calendar.getInstance().getTime());
+			}
+			calls.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+		}
+
+		pause();
+		start = System.nanoTime();
+		launch.finishTestItem(step, finish());
+		calls.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+	}
+
+	private void pause() {
+		if (logIntervalMillis <= 0) {
+			return;
+		}
+		try {
+			TimeUnit.MILLISECONDS.sleep(logIntervalMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static StartTestItemRQ item(String name, String type) {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName(name);
+		rq.setType(type);
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static FinishTestItemRQ finish() {
+		FinishTestItemRQ rq = new FinishTestItemRQ();
+		rq.setStatus("PASSED");
+		rq.setEndTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	/**
+	 * Runs stand-in server and load generator configured by system properties with prefix {@code load.}
+	 */
+	public static void main(String[] args) throws Exception {
+		final StandInReportPortalServer server = StandInReportPortalServer.builder()
+				.latency(Long.getLong("load.latency", 10))
+				.jitter(Long.getLong("load.jitter", 10))
+				.errorRate(Double.parseDouble(System.getProperty("load.errorRate", "0")))
+				.maxRequestsPerSecond(Double.parseDouble(System.getProperty("load.maxRequestsPerSecond", "0")))
+				.http2(HttpTransport.HTTP2.name().equalsIgnoreCase(System.getProperty("load.transport")))
+				.start();
+		try {
+			ListenerParameters parameters = new ListenerParameters();
+			parameters.setEnable(true);
+			parameters.setBaseUrl(server.getBaseUrl());
+			parameters.setProjectName(StandInReportPortalServer.PROJECT);
+			parameters.setUuid("load-test");
+			parameters.setHttpTransport(HttpTransport.valueOf(System.getProperty("load.transport", HttpTransport.SYNC.name())
+					.toUpperCase(Locale.US)));
+
+			final Report report = builder(parameters).width(Integer.getInteger("load.width", 10))
+					.depth(Integer.getInteger("load.depth", 2))
+					.threads(Integer.getInteger("load.threads", 4))
+					.logsPerItem(Integer.getInteger("load.logs", 10))
+					.logIntervalMillis(Long.getLong("load.logInterval", 0))
+					.attachmentRatio(Double.parseDouble(System.getProperty("load.attachmentRatio", "0.1")))
+					.attachmentBytes(Integer.getInteger("load.attachmentBytes", 64 * 1024))
+					.build()
+					.run();
+			System.out.println(report);
+			System.out.println("Server: requests=" + server.getRequests() + ", errors=" + server.getErrors() + ", bytes="
+					+ server.getBytesReceived());
+			System.out.println("Requests per second: " + String.format(Locale.US,
+					"%.1f",
+					server.getTotalRequests() * 1e9 / report.getElapsedNanos()
+			));
+		} finally {
+			server.stop();
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * Overhead of the client measured by the load generator
+	 */
+	/**
+	 * Samples total heap usage, since peaks of separate heap pools happen at different times and do not add up.
+	 * Usage between samples is not seen, so high-water is a lower bound
+	 */
+	private static class HeapSampler implements Runnable {
+		private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		private final AtomicLong max = new AtomicLong();
+		private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat(
+				"load-test-heap")
+				.setDaemon(true)
+				.build());
+
+		HeapSampler() {
+			sampler.scheduleAtFixedRate(this, 0, HEAP_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void run() {
+			long used = memory.getHeapMemoryUsage().getUsed();
+			long current;
+			while (used > (current = max.get()) && !max.compareAndSet(current, used)) {
+				//retry until max is updated
+			}
+		}
+
+		long stop() throws InterruptedException {
+			sampler.shutdown();
+			sampler.awaitTermination(1, TimeUnit.SECONDS);
+			run();
+			return max.get();
+		}
+	}
+
+	public static class Report {
+		private final int leaves;
+		private final Histogram calls;
+		private final long elapsedNanos;
+		private final long drainNanos;
+		private final long heapPeak;
+
+		Report(int leaves, Histogram calls, long elapsedNanos, long drainNanos, long heapPeak) {
+			this.leaves = leaves;
+			this.calls = calls;
+			this.elapsedNanos = elapsedNanos;
+			this.drainNanos = drainNanos;
+			this.heapPeak = heapPeak;
+		}
+
+		public int getLeaves() {
+			return leaves;
+		}
+
+		/**
+		 * @return Time of client calls on test threads in microseconds
+		 */
+		public Histogram getCalls() {
+			return calls;
+		}
+
+		/**
+		 * @return Time from start of the launch to its finish
+		 */
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		/**
+		 * @return Time {@link Launch#finish(FinishExecutionRQ)} waits for requests of the launch to be sent
+		 */
+		public long getDrainNanos() {
+			return drainNanos;
+		}
+
+		/**
+		 * @return Max of total heap usage in bytes sampled during the run
+		 */
+		public long getHeapPeak() {
+			return heapPeak;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"Leaves: %d, elapsed: %d ms, drain on finish: %d ms, heap high-water: %d MB%nClient calls on test threads, us: %s",
+					leaves,
+					TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+					TimeUnit.NANOSECONDS.toMillis(drainNanos),
+					heapPeak / (1024 * 1024),
+					calls
+			);
+		}
+	}
+
+	public static class Builder {
+		private final ListenerParameters parameters;
+		private int width = 10;
+		private int depth = 2;
+		private int threads = 4;
+		private int logsPerItem = 10;
+		private long logIntervalMillis;
+		private double attachmentRatio = 0.1;
+		private int attachmentBytes = 64 * 1024;
+		private String[] attachmentTypes = { "text/plain", "image/png", "application/zip" };
+
+		private Builder(ListenerParameters parameters) {
+			this.parameters = Preconditions.checkNotNull(parameters, "Parameters shouldn't be NULL");
+		}
+
+		/**
+		 * @param width Count of children of every suite and count of root suites
+		 * @return This builder
+		 */
+		public Builder width(int width) {
+			Preconditions.checkArgument(width > 0, "Width should be positive");
+			this.width = width;
+			return this;
+		}
+
+		/**
+		 * @param depth Levels of suites above leaves
+		 * @return This builder
+		 */
+		public Builder depth(int depth) {
+			Preconditions.checkArgument(depth > 0, "Depth should be positive");
+			this.depth = depth;
+			return this;
+		}
+
+		/**
+		 * @param threads Count of test threads leaves are run by
+		 * @return This builder
+		 */
+		public Builder threads(int threads) {
+			Preconditions.checkArgument(threads > 0, "Count of threads should be positive");
+			this.threads = threads;
+			return this;
+		}
+
+		public Builder logsPerItem(int logsPerItem) {
+			this.logsPerItem = logsPerItem;
+			return this;
+		}
+
+		/**
+		 * @param logIntervalMillis Pause of test thread before every log, which sets log rate of a leaf
+		 * @return This builder
+		 */
+		public Builder logIntervalMillis(long logIntervalMillis) {
+			this.logIntervalMillis = logIntervalMillis;
+			return this;
+		}
+
+		/**
+		 * @param attachmentRatio Share of logs with attachment in range [0, 1]
+		 * @return This builder
+		 */
+		public Builder attachmentRatio(double attachmentRatio) {
+			Preconditions.checkArgument(attachmentRatio >= 0 && attachmentRatio <= 1, "Attachment ratio should be in range [0, 1]");
+			this.attachmentRatio = attachmentRatio;
+			return this;
+		}
+
+		public Builder attachmentBytes(int attachmentBytes) {
+			this.attachmentBytes = attachmentBytes;
+			return this;
+		}
+
+		/**
+		 * @param attachmentTypes Content types attachments are evenly spread among
+		 * @return This builder
+		 */
+		public Builder attachmentTypes(String... attachmentTypes) {
+			Preconditions.checkArgument(attachmentTypes.length > 0, "There should be at least one attachment type");
+			this.attachmentTypes = attachmentTypes;
+			return this;
+		}
+
+		public LoadGenerator build() {
+			return new LoadGenerator(this);
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.service.transport.HttpTransport;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoadGeneratorTest {
+
+	private StandInReportPortalServer server;
+
+	@Before
+	public void startServer() throws Exception {
+		server = StandInReportPortalServer.builder().latency(1).jitter(2).start();
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		server.stop();
+	}
+
+	@Test
+	public void endpointsAreRecognized() {
+		Assert.assertEquals("POST /launch", StandInReportPortalServer.endpointOf("POST", "/api/v1/load/launch"));
+		Assert.assertEquals("POST /launch/merge", StandInReportPortalServer.endpointOf("POST", "/api/v1/load/launch/merge"));
+		Assert.assertEquals("PUT /launch/finish", StandInReportPortalServer.endpointOf("PUT", "/api/v1/load/launch/42/finish"));
+		Assert.assertEquals("POST /item", StandInReportPortalServer.endpointOf("POST", "/api/v1/load/item/"));
+		Assert.assertEquals("POST /item", StandInReportPortalServer.endpointOf("POST", "/api/v1/load/item/42"));
+		Assert.assertEquals("PUT /item", StandInReportPortalServer.endpointOf("PUT", "/api/v1/load/item/42"));
+		Assert.assertEquals("POST /log", StandInReportPortalServer.endpointOf("POST", "/api/v1/load/log/"));
+		Assert.assertNull(StandInReportPortalServer.endpointOf("GET", "/api/v1/load/launch/42"));
+		Assert.assertNull(StandInReportPortalServer.endpointOf("POST", "/api/v2/load/item"));
+	}
+
+	@Test
+	public void treeIsReported() throws Exception {
+		LoadGenerator.Report report = LoadGenerator.builder(parameters(HttpTransport.SYNC))
+				.width(2)
+				.depth(2)
+				.threads(2)
+				.logsPerItem(3)
+				.attachmentRatio(0.5)
+				.attachmentBytes(1024)
+				.build()
+				.run();
+
+		//2 root suites, 4 tests and 8 steps
+		Assert.assertEquals(8, report.getLeaves());
+		Assert.assertEquals(1, server.getRequests("POST /launch"));
+		Assert.assertEquals(14, server.getRequests("POST /item"));
+		Assert.assertEquals(14, server.getRequests("PUT /item"));
+		Assert.assertEquals(1, server.getRequests("PUT /launch/finish"));
+		Assert.assertTrue(server.getRequests("POST /log") > 0);
+		Assert.assertTrue(server.getBytesReceived() > 0);
+		//start and finish of every step and its logs
+		Assert.assertEquals(8 * 5, report.getCalls().getCount());
+		Assert.assertTrue(report.getHeapPeak() > 0);
+	}
+
+	private ListenerParameters parameters(HttpTransport transport) {
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setBaseUrl(server.getBaseUrl());
+		parameters.setProjectName(StandInReportPortalServer.PROJECT);
+		parameters.setUuid("load-test");
+		parameters.setHttpTransport(transport);
+		return parameters;
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Function;
+import io.reactivex.Maybe;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+public class LogBatcherTest {
+
+	@Test
+	public void partialBatchIsSentAfterLinger() {
+		StandInReportPortalClient client = new StandInReportPortalClient();
+		LogBatcher batcher = new LogBatcher(client, 10, Long.MAX_VALUE, 100, ReportingSchedulers.getDefault().getLogs().getScheduler(), null, null);
+		LoggingContext context = context(batcher);
+		for (int i = 0; i < 3; i++) {
+			context.emit(log(0));
+		}
+		Assert.assertTrue(client.getCalls().isEmpty());
+
+		//context completes once its logs are sent by the linger timer
+		Assert.assertTrue(context.completed().blockingAwait(5, TimeUnit.SECONDS));
+		Assert.assertEquals(1, client.getCalls().size());
+		Assert.assertEquals(3, batcher.getStats().getSize().getMax());
+		Assert.assertTrue(batcher.getStats().getLinger().getMax() >= 100);
+	}
+
+	@Test
+	public void batchIsClosedBySize() {
+		StandInReportPortalClient client = new StandInReportPortalClient();
+		LogBatcher batcher = new LogBatcher(client, 10, 100, 0, ReportingSchedulers.getDefault().getLogs().getScheduler(), null, null);
+		LoggingContext context = context(batcher);
+		context.emit(log(40));
+		context.emit(log(40));
+		//does not fit into the first batch
+		context.emit(log(40));
+		//bigger than the limit, so it is sent alone
+		context.emit(log(500));
+		batcher.close();
+
+		Assert.assertTrue(context.completed().blockingAwait(5, TimeUnit.SECONDS));
+		Assert.assertEquals(3, client.getCalls().size());
+		Assert.assertEquals(3, batcher.getStats().getSize().getCount());
+		Assert.assertEquals(500, batcher.getStats().getBytes().getMax());
+	}
+
+	private static LoggingContext context(LogBatcher batcher) {
+		return new LoggingContext(Maybe.just("item"), batcher, false, null, ReportingSchedulers.getDefault());
+	}
+
+	private static Function<String, SaveLogRQ> log(final int attachmentSize) {
+		return new Function<String, SaveLogRQ>() {
+			@Override
+			public SaveLogRQ apply(String itemId) {
+				SaveLogRQ rq = new SaveLogRQ();
+				rq.setTestItemId(itemId);
+				rq.setLogTime(new Date());
+				rq.setLevel("INFO");
+				if (attachmentSize > 0) {
+					SaveLogRQ.File file = new SaveLogRQ.File();
+					file.setName("file");
+					file.setContentType("text/plain");
+					file.setContent(new byte[attachmentSize]);
+					rq.setFile(file);
+				}
+				return rq;
+			}
+		};
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.service.transport.HttpTransport;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Client is built in class loader of test classpath without OkHttp, the way it's used by agents not depending on it
+ */
+public class OptionalDependenciesTest {
+
+	@Test
+	public void clientIsBuiltWithoutOkHttp() throws Exception {
+		for (HttpTransport transport : new HttpTransport[] { HttpTransport.SYNC, HttpTransport.ASYNC }) {
+			ClassLoader loader = classLoaderWithout("okhttp", "okio");
+			Class<?> build = loader.loadClass(BuildClient.class.getName());
+			Assert.assertNotSame("Client should be loaded apart from test classes", BuildClient.class, build);
+			@SuppressWarnings("unchecked")
+			Callable<String> task = (Callable<String>) build.getConstructor(String.class).newInstance(transport.name());
+			Assert.assertEquals(transport.name(), task.call());
+		}
+	}
+
+	private static ClassLoader classLoaderWithout(String... excluded) throws Exception {
+		List<URL> urls = new ArrayList<URL>();
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			boolean skip = false;
+			for (String name : excluded) {
+				skip |= entry.contains(name);
+			}
+			if (!skip) {
+				urls.add(new File(entry).toURI().toURL());
+			}
+		}
+		//parent is extension (platform) loader, so classes of the classpath are not shared with the test
+		return new URLClassLoader(urls.toArray(new URL[0]), ClassLoader.getSystemClassLoader().getParent());
+	}
+
+	public static class BuildClient implements Callable<String> {
+		private final String transport;
+
+		public BuildClient(String transport) {
+			this.transport = transport;
+		}
+
+		@Override
+		public String call() throws Exception {
+			try {
+				Class.forName("okhttp3.OkHttpClient");
+				throw new AssertionError("OkHttp should not be on classpath");
+			} catch (ClassNotFoundException e) {
+				//expected
+			}
+			ListenerParameters parameters = new ListenerParameters();
+			parameters.setEnable(true);
+			parameters.setBaseUrl("http://localhost:8080");
+			parameters.setProjectName("optional");
+			parameters.setUuid("optional-dependencies");
+			parameters.setHttpTransport(HttpTransport.valueOf(transport));
+			ReportPortal reportPortal = ReportPortal.builder().withParameters(parameters).build();
+			LazyReportPortalClient client = (LazyReportPortalClient) reportPortal.getClient();
+			client.build();
+			client.close();
+			return parameters.getHttpTransport().name();
+		}
+	}
+}
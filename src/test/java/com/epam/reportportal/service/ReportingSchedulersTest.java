@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.message.StreamedFile;
+import com.epam.reportportal.utils.files.ImageConverter;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.io.ByteSource;
+import io.reactivex.Maybe;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ReportingSchedulersTest {
+
+	@Test
+	public void laneMetrics() throws InterruptedException {
+		ReportingSchedulers.Lane lane = ReportingSchedulers.Lane.create("test", 1);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		lane.getExecutor().submit(new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+		for (int i = 0; i < 3; i++) {
+			lane.getScheduler().scheduleDirect(new Runnable() {
+				@Override
+				public void run() {
+				}
+			});
+		}
+		Assert.assertEquals(1, lane.getActiveCount());
+		Assert.assertEquals(3, lane.getQueueSize());
+
+		release.countDown();
+		lane.getExecutor().shutdown();
+		Assert.assertTrue(lane.getExecutor().awaitTermination(5, TimeUnit.SECONDS));
+		Assert.assertEquals(0, lane.getQueueSize());
+		Assert.assertEquals("High-water mark of queue should be kept", 3, lane.getMaxQueueSize());
+		Assert.assertEquals(4, lane.getCompletedTaskCount());
+	}
+
+	@Test
+	public void laneThreads() {
+		ReportingSchedulers.Lane lane = ReportingSchedulers.Lane.create("test", 1);
+		String thread = Maybe.fromCallable(new Callable<String>() {
+			@Override
+			public String call() {
+				return Thread.currentThread().getName();
+			}
+		}).subscribeOn(lane.getScheduler()).blockingGet();
+		Assert.assertEquals("rp-test-0", thread);
+		lane.getExecutor().shutdown();
+	}
+
+	@Test
+	public void defaultLanesAreShared() {
+		Assert.assertSame(ReportingSchedulers.getDefault(), ReportingSchedulers.of(new ListenerParameters()));
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setLogsPoolSize(1);
+		Assert.assertNotSame(ReportingSchedulers.getDefault(), ReportingSchedulers.of(parameters));
+
+		ReportingSchedulers.getDefault().shutdown();
+		Assert.assertFalse("Default lanes should never be shut down", ReportingSchedulers.getDefault().getLogs().getExecutor().isShutdown());
+	}
+
+	@Test
+	public void ownLanesAreShutDownWithLaunch() {
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setItemsPoolSize(1);
+		ReportingSchedulers schedulers = ReportingSchedulers.of(parameters);
+		Launch launch = new ReportPortal(new StandInReportPortalClient(), parameters, schedulers, true).newLaunch(new StartLaunchRQ());
+		launch.start();
+		FinishExecutionRQ rq = new FinishExecutionRQ();
+		launch.finish(rq);
+
+		//client is closed right after the launch is finished
+		for (long deadline = System.currentTimeMillis() + 5000;
+				!schedulers.getItems().getExecutor().isShutdown() && System.currentTimeMillis() < deadline; ) {
+			Thread.yield();
+		}
+		Assert.assertTrue(schedulers.getItems().getExecutor().isShutdown());
+		Assert.assertTrue(schedulers.getLogs().getExecutor().isShutdown());
+		Assert.assertTrue(schedulers.getProcessing().getExecutor().isShutdown());
+	}
+
+	@Test
+	public void saturatedLaneHasNoCapacity() throws InterruptedException {
+		ReportingSchedulers.Lane lane = ReportingSchedulers.Lane.create("test", 1, 2);
+		final CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 3; i++) {
+			Assert.assertTrue(lane.hasCapacity());
+			lane.getScheduler().scheduleDirect(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+		//one task is running and two are waiting
+		Assert.assertFalse(lane.hasCapacity());
+		Assert.assertEquals(1, lane.getRejectedCount());
+
+		release.countDown();
+		lane.getExecutor().shutdown();
+		Assert.assertTrue(lane.getExecutor().awaitTermination(5, TimeUnit.SECONDS));
+		Assert.assertTrue(lane.hasCapacity());
+	}
+
+	@Test
+	public void imagesAreProcessedOnProcessingLane() throws InterruptedException {
+		ReportingSchedulers.Lane processing = ReportingSchedulers.Lane.create("test-processing", 2, 10);
+		Set<String> threads = emitImages(processing);
+		Assert.assertFalse(threads.isEmpty());
+		for (String thread : threads) {
+			Assert.assertTrue(thread, thread.startsWith("rp-test-processing"));
+		}
+		//failed conversion completes the context before its task is counted as completed
+		processing.getExecutor().shutdown();
+		Assert.assertTrue(processing.getExecutor().awaitTermination(5, TimeUnit.SECONDS));
+		Assert.assertEquals(5, processing.getCompletedTaskCount());
+	}
+
+	@Test
+	public void emitterWaitsForRoomOnSaturatedLane() throws InterruptedException {
+		final ReportingSchedulers.Lane processing = ReportingSchedulers.Lane.create("test-processing", 1, 1);
+		final CountDownLatch release = new CountDownLatch(1);
+		//one task is running or both are waiting, so the lane is saturated
+		for (int i = 0; i < 2; i++) {
+			processing.getScheduler().scheduleDirect(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+		final AtomicReference<Set<String>> threads = new AtomicReference<Set<String>>();
+		Thread emitter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				threads.set(emitImages(processing));
+			}
+		});
+		emitter.start();
+		emitter.join(200);
+		Assert.assertTrue("Emitter should wait for room on the lane", emitter.isAlive());
+
+		release.countDown();
+		emitter.join(TimeUnit.SECONDS.toMillis(10));
+		Assert.assertFalse(emitter.isAlive());
+		Assert.assertNotNull(threads.get());
+		Assert.assertFalse(threads.get().isEmpty());
+		for (String thread : threads.get()) {
+			Assert.assertTrue(thread, thread.startsWith("rp-test-processing"));
+		}
+		Assert.assertTrue(processing.getWaitedCount() > 0);
+		Assert.assertEquals(0, processing.getRejectedCount());
+	}
+
+	/* emits 5 images and returns names of the threads they are read by */
+	private static Set<String> emitImages(ReportingSchedulers.Lane processing) {
+		ReportingSchedulers schedulers = new ReportingSchedulers(ReportingSchedulers.Lane.create("test-items", 1),
+				ReportingSchedulers.Lane.create("test-logs", 1),
+				processing
+		);
+		LogBatcher batcher = new LogBatcher(new StandInReportPortalClient(),
+				10,
+				Long.MAX_VALUE,
+				0,
+				schedulers.getLogs().getScheduler(),
+				null,
+				new AttachmentCache(1024)
+		);
+		final Set<String> threads = Collections.synchronizedSet(new HashSet<String>());
+		LoggingContext context = new LoggingContext(Maybe.just("item"), batcher, true, ImageConverter.Options.DEFAULT, schedulers);
+		for (int i = 0; i < 5; i++) {
+			context.emit(new Function<String, SaveLogRQ>() {
+				@Override
+				public SaveLogRQ apply(String itemId) {
+					SaveLogRQ rq = new SaveLogRQ();
+					rq.setTestItemId(itemId);
+					rq.setFile(new StreamedFile("file", "image/png", new ByteSource() {
+						@Override
+						public InputStream openStream() {
+							threads.add(Thread.currentThread().getName());
+							return new ByteArrayInputStream(new byte[] { 1 });
+						}
+
+						@Override
+						public Optional<Long> sizeIfKnown() {
+							return Optional.of(1L);
+						}
+					}));
+					return rq;
+				}
+			});
+		}
+		//content is not a valid image, so conversion fails once the image is read
+		Assert.assertTrue(context.completed().blockingAwait(5, TimeUnit.SECONDS));
+		return threads;
+	}
+}
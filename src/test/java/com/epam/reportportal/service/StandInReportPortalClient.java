@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.ta.reportportal.ws.model.*;
+import com.epam.ta.reportportal.ws.model.item.ItemCreatedRS;
+import com.epam.ta.reportportal.ws.model.launch.LaunchResource;
+import com.epam.ta.reportportal.ws.model.launch.MergeLaunchesRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRS;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import io.reactivex.Maybe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in of ReportPortal server. Accepts IDs generated on client side,
+ * records all the requests and responds with configurable latency and jitter.
+ * Requests are only counted if the client does not record them, so it does not take heap of large launches
+ */
+public class StandInReportPortalClient implements ReportPortalClient {
+
+	private final long latencyMillis;
+	private final long jitterMillis;
+	private final boolean recordCalls;
+	private final Random random = new Random();
+	private final List<Call> calls = new ArrayList<Call>();
+	private final AtomicLong callCount = new AtomicLong();
+	private final AtomicLong launchNumber = new AtomicLong();
+
+	public StandInReportPortalClient() {
+		this(0);
+	}
+
+	public StandInReportPortalClient(long latencyMillis) {
+		this(latencyMillis, 0);
+	}
+
+	/**
+	 * @param latencyMillis Base response latency
+	 * @param jitterMillis  Max random addition to the latency
+	 */
+	public StandInReportPortalClient(long latencyMillis, long jitterMillis) {
+		this(latencyMillis, jitterMillis, true);
+	}
+
+	/**
+	 * @param latencyMillis Base response latency
+	 * @param jitterMillis  Max random addition to the latency
+	 * @param recordCalls   FALSE if requests are only counted
+	 */
+	public StandInReportPortalClient(long latencyMillis, long jitterMillis, boolean recordCalls) {
+		this.latencyMillis = latencyMillis;
+		this.jitterMillis = jitterMillis;
+		this.recordCalls = recordCalls;
+	}
+
+	@Override
+	public Maybe<StartLaunchRS> startLaunch(StartLaunchRQ rq) {
+		return respond("POST /launch", new Callable<StartLaunchRS>() {
+			@Override
+			public StartLaunchRS call() {
+				return new StartLaunchRS(UUID.randomUUID().toString(), launchNumber.incrementAndGet());
+			}
+		});
+	}
+
+	@Override
+	public Maybe<LaunchResource> mergeLaunches(MergeLaunchesRQ rq) {
+		return respond("POST /launch/merge", new Callable<LaunchResource>() {
+			@Override
+			public LaunchResource call() {
+				return new LaunchResource();
+			}
+		});
+	}
+
+	@Override
+	public Maybe<OperationCompletionRS> finishLaunch(String launch, FinishExecutionRQ rq) {
+		return respond("PUT /launch/" + launch + "/finish", completion());
+	}
+
+	@Override
+	public Maybe<ItemCreatedRS> startTestItem(StartTestItemRQ rq) {
+		return respond("POST /item/", created(rq));
+	}
+
+	@Override
+	public Maybe<ItemCreatedRS> startTestItem(String parent, StartTestItemRQ rq) {
+		return respond("POST /item/" + parent, created(rq));
+	}
+
+	@Override
+	public Maybe<OperationCompletionRS> finishTestItem(String itemId, FinishTestItemRQ rq) {
+		return respond("PUT /item/" + itemId, completion());
+	}
+
+	@Override
+	public Maybe<EntryCreatedRS> log(SaveLogRQ rq) {
+		return respond("POST /log/", new Callable<EntryCreatedRS>() {
+			@Override
+			public EntryCreatedRS call() {
+				return new EntryCreatedRS(UUID.randomUUID().toString());
+			}
+		});
+	}
+
+	@Override
+	public Maybe<BatchSaveOperatingRS> log(MultiPartRequest rq) {
+		return respond("POST /log/", new Callable<BatchSaveOperatingRS>() {
+			@Override
+			public BatchSaveOperatingRS call() {
+				return new BatchSaveOperatingRS();
+			}
+		});
+	}
+
+	@Override
+	public void close() {
+		//nothing to close
+	}
+
+	/**
+	 * @return All the requests received by the server in order of arrival
+	 */
+	public List<Call> getCalls() {
+		synchronized (calls) {
+			return new ArrayList<Call>(calls);
+		}
+	}
+
+	/**
+	 * @return Count of requests received by the server
+	 */
+	public long getCallCount() {
+		return callCount.get();
+	}
+
+	private <T> Maybe<T> respond(final String request, final Callable<T> response) {
+		return Maybe.defer(new Callable<Maybe<T>>() {
+			@Override
+			public Maybe<T> call() throws Exception {
+				callCount.incrementAndGet();
+				if (recordCalls) {
+					synchronized (calls) {
+						calls.add(new Call(request, System.nanoTime()));
+					}
+				}
+				Maybe<T> rs = Maybe.fromCallable(response);
+				long latency = latencyMillis + (jitterMillis > 0 ? (long) (random.nextDouble() * jitterMillis) : 0);
+				return latency > 0 ? rs.delay(latency, TimeUnit.MILLISECONDS) : rs;
+			}
+		});
+	}
+
+	private static Callable<ItemCreatedRS> created(final StartTestItemRQ rq) {
+		return new Callable<ItemCreatedRS>() {
+			@Override
+			public ItemCreatedRS call() {
+				String id = rq instanceof ClientIdStartTestItemRQ ?
+						((ClientIdStartTestItemRQ) rq).getUuid() :
+						UUID.randomUUID().toString();
+				return new ItemCreatedRS(id, rq.getUniqueId());
+			}
+		};
+	}
+
+	private static Callable<OperationCompletionRS> completion() {
+		return new Callable<OperationCompletionRS>() {
+			@Override
+			public OperationCompletionRS call() {
+				return new OperationCompletionRS("OK");
+			}
+		};
+	}
+
+	/**
+	 * Request received by the server
+	 */
+	public static class Call {
+		private final String request;
+		private final long nanoTime;
+
+		Call(String request, long nanoTime) {
+			this.request = request;
+			this.nanoTime = nanoTime;
+		}
+
+		public String getRequest() {
+			return request;
+		}
+
+		public long getNanoTime() {
+			return nanoTime;
+		}
+	}
+}
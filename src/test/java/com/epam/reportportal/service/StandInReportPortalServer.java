@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service;
+
+import com.epam.ta.reportportal.ws.model.BatchElementCreatedRS;
+import com.epam.ta.reportportal.ws.model.BatchSaveOperatingRS;
+import com.epam.ta.reportportal.ws.model.EntryCreatedRS;
+import com.epam.ta.reportportal.ws.model.ErrorRS;
+import com.epam.ta.reportportal.ws.model.ErrorType;
+import com.epam.ta.reportportal.ws.model.OperationCompletionRS;
+import com.epam.ta.reportportal.ws.model.item.ItemCreatedRS;
+import com.epam.ta.reportportal.ws.model.launch.LaunchResource;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRS;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.RateLimiter;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-process HTTP server answering endpoints of {@link ReportPortalClient}, so real transports can be loaded
+ * without ReportPortal instance. Responses are delayed by latency with random jitter, fail with given probability
+ * and are limited by count per second. Bodies are counted, but not kept, so the server does not take heap of load tests
+ */
+public class StandInReportPortalServer {
+
+	public static final String PROJECT = "load";
+
+	/* logs every request otherwise, which limits throughput of the server. Kept, so the level is not lost on GC of the logger */
+	private static final Logger MOCK_WEB_SERVER_LOGGER = Logger.getLogger(MockWebServer.class.getName());
+
+	static {
+		MOCK_WEB_SERVER_LOGGER.setLevel(Level.WARNING);
+	}
+
+	private static final Pattern PATH = Pattern.compile(ReportPortal.Builder.API_BASE + "/[^/]+/(launch|item|log)(/[^/?]+)?(/finish)?/?(\\?.*)?");
+
+	private final MockWebServer server = new MockWebServer();
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final Random random = new Random();
+	private final long latencyMillis;
+	private final long jitterMillis;
+	private final double errorRate;
+	private final RateLimiter limiter;
+
+	private final ConcurrentMap<String, AtomicLong> requests = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong launchNumber = new AtomicLong();
+
+	private StandInReportPortalServer(Builder builder) throws IOException {
+		this.latencyMillis = builder.latencyMillis;
+		this.jitterMillis = builder.jitterMillis;
+		this.errorRate = builder.errorRate;
+		this.limiter = builder.maxRequestsPerSecond > 0 ? RateLimiter.create(builder.maxRequestsPerSecond) : null;
+		this.server.setBodyLimit(0);
+		if (builder.http2) {
+			this.server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+		} else {
+			this.server.setProtocols(Arrays.asList(Protocol.HTTP_1_1));
+		}
+		this.server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+				//requests are taken right away, the server keeps all of them otherwise
+				server.takeRequest(0, TimeUnit.MILLISECONDS);
+				return respond(request);
+			}
+		});
+		this.server.start();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return Base URL of the server to be used as rp.endpoint
+	 */
+	public String getBaseUrl() {
+		return "http://" + server.getHostName() + ":" + server.getPort();
+	}
+
+	/**
+	 * @param endpoint Method and path without IDs, e.g. "POST /item" or "PUT /launch/finish"
+	 * @return Count of requests received by the endpoint, including failed ones
+	 */
+	public long getRequests(String endpoint) {
+		AtomicLong count = requests.get(endpoint);
+		return null == count ? 0 : count.get();
+	}
+
+	/**
+	 * @return Count of requests by endpoint
+	 */
+	public Map<String, Long> getRequests() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : requests.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().get());
+		}
+		return counts;
+	}
+
+	public long getTotalRequests() {
+		long total = 0;
+		for (AtomicLong count : requests.values()) {
+			total += count.get();
+		}
+		return total;
+	}
+
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
+	/**
+	 * @return Count of injected failures
+	 */
+	public long getErrors() {
+		return errors.get();
+	}
+
+	public void stop() throws IOException {
+		server.shutdown();
+	}
+
+	private MockResponse respond(RecordedRequest request) throws InterruptedException {
+		bytesReceived.addAndGet(request.getBodySize());
+		if (null != limiter) {
+			limiter.acquire();
+		}
+		final long delay = latencyMillis + (jitterMillis > 0 ? (long) (random.nextDouble() * jitterMillis) : 0);
+		if (delay > 0) {
+			TimeUnit.MILLISECONDS.sleep(delay);
+		}
+
+		final String endpoint = endpointOf(request.getMethod(), request.getPath());
+		if (null == endpoint) {
+			return json(404, error("Unknown endpoint " + request.getRequestLine()));
+		}
+		count(endpoint);
+		if (errorRate > 0 && random.nextDouble() < errorRate) {
+			errors.incrementAndGet();
+			return json(500, error("Injected failure"));
+		}
+		return json(200, responseOf(endpoint, request.getHeader("Content-Type")));
+	}
+
+	private Object responseOf(String endpoint, String contentType) {
+		if ("POST /launch".equals(endpoint)) {
+			return new StartLaunchRS(UUID.randomUUID().toString(), launchNumber.incrementAndGet());
+		}
+		if ("POST /launch/merge".equals(endpoint)) {
+			return new LaunchResource();
+		}
+		if ("POST /item".equals(endpoint)) {
+			ItemCreatedRS rs = new ItemCreatedRS();
+			rs.setId(UUID.randomUUID().toString());
+			return rs;
+		}
+		if ("POST /log".equals(endpoint)) {
+			if (null != contentType && contentType.startsWith("multipart/")) {
+				BatchSaveOperatingRS rs = new BatchSaveOperatingRS();
+				rs.setResponses(Collections.<BatchElementCreatedRS>emptyList());
+				return rs;
+			}
+			return new EntryCreatedRS(UUID.randomUUID().toString());
+		}
+		OperationCompletionRS rs = new OperationCompletionRS();
+		rs.setResultMessage("OK");
+		return rs;
+	}
+
+	/**
+	 * @param method HTTP method
+	 * @param path   Path of request
+	 * @return Endpoint of {@link ReportPortalClient} without project and IDs or NULL if there is no such endpoint
+	 */
+	static String endpointOf(String method, String path) {
+		final Matcher matcher = PATH.matcher(path);
+		if (!matcher.matches()) {
+			return null;
+		}
+		final String resource = matcher.group(1);
+		final String id = matcher.group(2);
+		final boolean finish = null != matcher.group(3);
+		if ("launch".equals(resource)) {
+			if ("POST".equals(method) && null == id) {
+				return "POST /launch";
+			}
+			if ("POST".equals(method) && "/merge".equals(id)) {
+				return "POST /launch/merge";
+			}
+			return "PUT".equals(method) && finish ? "PUT /launch/finish" : null;
+		}
+		if ("item".equals(resource) && !finish) {
+			return "POST".equals(method) ? "POST /item" : "PUT".equals(method) && null != id ? "PUT /item" : null;
+		}
+		return "POST".equals(method) && "log".equals(resource) && null == id ? "POST /log" : null;
+	}
+
+	private void count(String endpoint) {
+		AtomicLong count = requests.get(endpoint);
+		if (null == count) {
+			AtomicLong created = new AtomicLong();
+			count = requests.putIfAbsent(endpoint, created);
+			if (null == count) {
+				count = created;
+			}
+		}
+		count.incrementAndGet();
+	}
+
+	private static ErrorRS error(String message) {
+		ErrorRS rs = new ErrorRS();
+		rs.setErrorType(ErrorType.UNCLASSIFIED_REPORT_PORTAL_ERROR);
+		rs.setMessage(message);
+		return rs;
+	}
+
+	private MockResponse json(int status, Object body) {
+		try {
+			return new MockResponse().setResponseCode(status)
+					.setHeader("Content-Type", "application/json")
+					.setBody(mapper.writeValueAsString(body));
+		} catch (JsonProcessingException e) {
+			return new MockResponse().setResponseCode(500);
+		}
+	}
+
+	public static class Builder {
+		private long latencyMillis;
+		private long jitterMillis;
+		private double errorRate;
+		private double maxRequestsPerSecond;
+		private boolean http2;
+
+		/**
+		 * @param latencyMillis Delay of every response
+		 * @return This builder
+		 */
+		public Builder latency(long latencyMillis) {
+			this.latencyMillis = latencyMillis;
+			return this;
+		}
+
+		/**
+		 * @param jitterMillis Max random addition to the latency
+		 * @return This builder
+		 */
+		public Builder jitter(long jitterMillis) {
+			this.jitterMillis = jitterMillis;
+			return this;
+		}
+
+		/**
+		 * @param errorRate Probability of response with status 500 in range [0, 1]
+		 * @return This builder
+		 */
+		public Builder errorRate(double errorRate) {
+			this.errorRate = errorRate;
+			return this;
+		}
+
+		/**
+		 * @param maxRequestsPerSecond Max count of responses per second, 0 for unlimited
+		 * @return This builder
+		 */
+		public Builder maxRequestsPerSecond(double maxRequestsPerSecond) {
+			this.maxRequestsPerSecond = maxRequestsPerSecond;
+			return this;
+		}
+
+		/**
+		 * @param http2 TRUE to serve HTTP/2 with prior knowledge the way {@link com.epam.reportportal.service.transport.HttpTransport#HTTP2}
+		 *              transport talks to plain text endpoints. Streams of a connection are answered one by one,
+		 *              so latency of HTTP/2 responses adds up
+		 * @return This builder
+		 */
+		public Builder http2(boolean http2) {
+			this.http2 = http2;
+			return this;
+		}
+
+		public StandInReportPortalServer start() throws IOException {
+			return new StandInReportPortalServer(this);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricsRegistryTest {
+
+	@Test
+	public void metricsAreCreatedOnce() {
+		MetricsRegistry metrics = new MetricsRegistry();
+		metrics.counter("requests.errors.log").incrementAndGet();
+		metrics.counter("requests.errors.log").incrementAndGet();
+		metrics.histogram("requests.latency_ms.log").record(10);
+		metrics.histogram("requests.latency_ms.log").record(30);
+
+		Assert.assertEquals(Long.valueOf(2), metrics.getCounters().get("requests.errors.log"));
+		Assert.assertEquals(2, metrics.getHistograms().get("requests.latency_ms.log").getCount());
+		Assert.assertEquals(30, metrics.getHistograms().get("requests.latency_ms.log").getMax());
+	}
+
+	@Test
+	public void gaugesAreSampledOnRead() {
+		MetricsRegistry metrics = new MetricsRegistry();
+		final long[] value = { 1 };
+		metrics.gauge("items.pending", new Gauge() {
+			@Override
+			public long getValue() {
+				return value[0];
+			}
+		});
+		Assert.assertEquals(Long.valueOf(1), metrics.getGauges().get("items.pending"));
+		value[0] = 5;
+		Assert.assertEquals(Long.valueOf(5), metrics.getGauges().get("items.pending"));
+	}
+
+	@Test
+	public void summaryIsPassedToExporters() {
+		MetricsRegistry metrics = new MetricsRegistry();
+		metrics.counter("requests.errors.log").incrementAndGet();
+		metrics.histogram("logs.queue_depth");
+		metrics.export();
+
+		Assert.assertSame("Exporter should be found on the classpath", metrics, RecordingExporter.exported);
+		Assert.assertTrue(metrics.summary().contains("requests.errors.log: 1"));
+		Assert.assertFalse("Empty histograms should be omitted", metrics.summary().contains("logs.queue_depth"));
+	}
+
+	public static class RecordingExporter implements MetricsExporter {
+
+		private static volatile MetricsRegistry exported;
+
+		@Override
+		public void export(MetricsRegistry registry) {
+			exported = registry;
+		}
+	}
+}
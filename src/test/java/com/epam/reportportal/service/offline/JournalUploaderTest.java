@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.offline;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.service.Launch;
+import com.epam.reportportal.service.OfflineLaunch;
+import com.epam.reportportal.service.ReportPortal;
+import com.epam.reportportal.service.StandInReportPortalClient;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.OperationCompletionRS;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import io.reactivex.Maybe;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JournalUploaderTest {
+
+	private static final int TESTS = 3;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File journal;
+
+	@Before
+	public void recordLaunch() {
+		journal = new File(folder.getRoot(), "launch.journal");
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setOffline(true);
+		parameters.setOfflineJournal(journal.getPath());
+
+		Launch launch = ReportPortal.create(new StandInReportPortalClient(), parameters).newLaunch(new StartLaunchRQ());
+		Assert.assertTrue(launch instanceof OfflineLaunch);
+		launch.start();
+		Maybe<String> suite = launch.startTestItem(startRq("suite"));
+		for (int i = 0; i < TESTS; i++) {
+			Maybe<String> test = launch.startTestItem(suite, startRq("test " + i));
+			final boolean attach = 0 == i;
+			ReportPortal.emitLog(new com.google.common.base.Function<String, SaveLogRQ>() {
+				@Override
+				public SaveLogRQ apply(String itemId) {
+					SaveLogRQ rq = new SaveLogRQ();
+					rq.setTestItemId(itemId);
+					rq.setLogTime(Calendar.getInstance().getTime());
+					rq.setMessage("log");
+					if (attach) {
+						SaveLogRQ.File file = new SaveLogRQ.File();
+						file.setName("file");
+						file.setContentType("text/plain");
+						file.setContent("attachment".getBytes());
+						rq.setFile(file);
+					}
+					return rq;
+				}
+			});
+			launch.finishTestItem(test, finishRq());
+		}
+		launch.finishTestItem(suite, finishRq());
+		FinishExecutionRQ finish = new FinishExecutionRQ();
+		finish.setEndTime(Calendar.getInstance().getTime());
+		launch.finish(finish);
+	}
+
+	@Test
+	public void journalContainsAllEvents() throws IOException {
+		List<JournalRecord> records = Journal.read(journal);
+		Assert.assertEquals(1, count(records, JournalRecord.Type.START_LAUNCH));
+		Assert.assertEquals(TESTS + 1, count(records, JournalRecord.Type.START_ITEM));
+		Assert.assertEquals(TESTS + 1, count(records, JournalRecord.Type.FINISH_ITEM));
+		Assert.assertEquals(TESTS, count(records, JournalRecord.Type.LOG));
+		Assert.assertEquals(1, count(records, JournalRecord.Type.FINISH_LAUNCH));
+
+		int attachments = 0;
+		for (JournalRecord record : records) {
+			if (null != record.getAttachment()) {
+				Assert.assertEquals("attachment", new String(record.getAttachment()));
+				attachments++;
+			}
+		}
+		Assert.assertEquals(1, attachments);
+	}
+
+	@Test
+	public void truncatedJournalIsReadUpToLastCompleteRecord() throws IOException {
+		int total = Journal.read(journal).size();
+		RandomAccessFile file = new RandomAccessFile(journal, "rw");
+		try {
+			file.setLength(file.length() - 3);
+		} finally {
+			file.close();
+		}
+		Assert.assertEquals(total - 1, Journal.read(journal).size());
+	}
+
+	@Test
+	public void recordsAreAppendedAfterLastCompleteRecord() throws IOException {
+		int total = Journal.read(journal).size();
+		RandomAccessFile file = new RandomAccessFile(journal, "rw");
+		try {
+			file.setLength(file.length() - 3);
+		} finally {
+			file.close();
+		}
+
+		Journal reopened = Journal.open(journal);
+		try {
+			reopened.append(JournalRecord.of(JournalRecord.Type.FINISH_LAUNCH, "appended", null, new FinishExecutionRQ()));
+		} finally {
+			reopened.close();
+		}
+		List<JournalRecord> records = Journal.read(journal);
+		Assert.assertEquals(total, records.size());
+		Assert.assertEquals("appended", records.get(total - 1).getId());
+	}
+
+	@Test
+	public void interruptedUploadIsResumed() throws IOException {
+		final AtomicInteger finishes = new AtomicInteger();
+		StandInReportPortalClient unavailable = new StandInReportPortalClient() {
+			@Override
+			public Maybe<OperationCompletionRS> finishTestItem(String itemId, FinishTestItemRQ rq) {
+				if (finishes.incrementAndGet() > 2) {
+					return Maybe.error(new IllegalStateException("Server is unavailable"));
+				}
+				return super.finishTestItem(itemId, rq);
+			}
+		};
+		try {
+			new JournalUploader(unavailable, 10, 1).upload(journal);
+			Assert.fail("Upload should fail");
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("Server is unavailable", e.getMessage());
+		}
+		Assert.assertTrue(JournalUploader.checkpointFile(journal).exists());
+
+		StandInReportPortalClient available = new StandInReportPortalClient();
+		new JournalUploader(available, 10, 1).upload(journal);
+
+		Assert.assertEquals(1, count(unavailable, available, "POST /launch"));
+		Assert.assertEquals(TESTS + 1, count(unavailable, available, "POST /item/"));
+		Assert.assertEquals(TESTS + 1, count(unavailable, available, "PUT /item/"));
+		Assert.assertEquals(1, count(unavailable, available, "PUT /launch/"));
+
+		//uploaded journal is not uploaded again
+		StandInReportPortalClient again = new StandInReportPortalClient();
+		new JournalUploader(again, 10, 1).upload(journal);
+		Assert.assertTrue(again.getCalls().isEmpty());
+	}
+
+	@Test
+	public void tornCheckpointRecordIsIgnored() throws IOException {
+		StandInReportPortalClient unavailable = new StandInReportPortalClient() {
+			@Override
+			public Maybe<OperationCompletionRS> finishTestItem(String itemId, FinishTestItemRQ rq) {
+				return Maybe.error(new IllegalStateException("Server is unavailable"));
+			}
+		};
+		try {
+			new JournalUploader(unavailable, 10, 1).upload(journal);
+			Assert.fail("Upload should fail");
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("Server is unavailable", e.getMessage());
+		}
+		//last record is cut in the middle, so it holds a shorter offset or server ID
+		File checkpoint = JournalUploader.checkpointFile(journal);
+		RandomAccessFile file = new RandomAccessFile(checkpoint, "rw");
+		try {
+			file.setLength(file.length() - 5);
+		} finally {
+			file.close();
+		}
+
+		StandInReportPortalClient available = new StandInReportPortalClient();
+		new JournalUploader(available, 10, 1).upload(journal);
+		Assert.assertEquals(TESTS + 1, count(unavailable, available, "PUT /item/"));
+		Assert.assertEquals(1, count(unavailable, available, "PUT /launch/"));
+
+		//records appended after the torn one are read back
+		StandInReportPortalClient again = new StandInReportPortalClient();
+		new JournalUploader(again, 10, 1).upload(journal);
+		Assert.assertTrue(again.getCalls().isEmpty());
+	}
+
+	private static StartTestItemRQ startRq(String name) {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName(name);
+		rq.setType("STEP");
+		rq.setStartTime(Calendar.getInstance().getTime());
+		return rq;
+	}
+
+	private static FinishTestItemRQ finishRq() {
+		FinishTestItemRQ rq = new FinishTestItemRQ();
+		rq.setEndTime(new Date());
+		rq.setStatus("PASSED");
+		return rq;
+	}
+
+	private static int count(List<JournalRecord> records, JournalRecord.Type type) {
+		int count = 0;
+		for (JournalRecord record : records) {
+			if (type == record.getType()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static int count(StandInReportPortalClient first, StandInReportPortalClient second, String request) {
+		int count = 0;
+		for (StandInReportPortalClient client : new StandInReportPortalClient[] { first, second }) {
+			for (StandInReportPortalClient.Call call : client.getCalls()) {
+				if (call.getRequest().startsWith(request) && !(request.equals("POST /launch") && call.getRequest().contains("merge"))) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
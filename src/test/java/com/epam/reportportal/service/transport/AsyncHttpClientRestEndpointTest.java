@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.exception.ReportPortalException;
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.message.FileByteSource;
+import com.epam.reportportal.message.StreamedFile;
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.reportportal.service.LoggingContext;
+import com.epam.reportportal.service.ReportPortal;
+import com.epam.reportportal.service.ReportPortalClient;
+import com.epam.ta.reportportal.ws.model.BatchSaveOperatingRS;
+import com.epam.ta.reportportal.ws.model.Constants;
+import com.epam.ta.reportportal.ws.model.ErrorType;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRS;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.primitives.Bytes;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.reactivex.Maybe;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class AsyncHttpClientRestEndpointTest {
+
+	private static final int IN_FLIGHT = 200;
+	private static final long LATENCY = 300;
+
+	private final AtomicReference<String> contentLength = new AtomicReference<String>();
+	private final AtomicReference<byte[]> received = new AtomicReference<byte[]>();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private ListenerParameters parameters;
+	private ReportPortalClient client;
+
+	@Before
+	public void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), IN_FLIGHT);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/api/v1/test/launch", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				ByteStreams.toByteArray(exchange.getRequestBody());
+				if (!"bearer uuid".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+					respond(exchange, 401, "{\"error_code\":40102,\"message\":\"Unauthorized\"}");
+				} else {
+					respond(exchange, 201, "{\"id\":\"launch-id\",\"number\":1}");
+				}
+			}
+		});
+		server.createContext("/api/v1/test/log/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				String body = new String(ByteStreams.toByteArray(exchange.getRequestBody()), Charsets.UTF_8);
+				try {
+					Thread.sleep(LATENCY);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				if (exchange.getRequestHeaders().getFirst("Content-Type").startsWith("multipart/form-data") && body.contains(
+						Constants.LOG_REQUEST_JSON_PART) && body.contains("binary content")) {
+					respond(exchange, 201, "{\"responses\":[]}");
+				} else {
+					respond(exchange, 400, "{\"error_code\":4001,\"message\":\"Incorrect Request\"}");
+				}
+			}
+		});
+		server.createContext("/api/v1/stream/log/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				contentLength.set(exchange.getRequestHeaders().getFirst("Content-Length"));
+				received.set(ByteStreams.toByteArray(exchange.getRequestBody()));
+				respond(exchange, 201, "{\"responses\":[]}");
+			}
+		});
+		server.start();
+
+		parameters = new ListenerParameters();
+		parameters.setBaseUrl("http://localhost:" + server.getAddress().getPort());
+		parameters.setProjectName("test");
+		parameters.setUuid("uuid");
+		parameters.setEnable(true);
+		parameters.setHttpTransport(HttpTransport.ASYNC);
+		parameters.setMaxConnectionsPerRoute(IN_FLIGHT);
+		parameters.setMaxConnectionsTotal(IN_FLIGHT);
+		client = ReportPortal.builder().withParameters(parameters).build().getClient();
+	}
+
+	@After
+	public void stopServer() {
+		client.close();
+		server.stop(0);
+	}
+
+	@Test
+	public void concurrentRequestsDoNotNeedThreadPerRequest() {
+		//client is built on the first request, so its threads are counted after that
+		Assert.assertNotNull(client.startLaunch(new StartLaunchRQ()).blockingGet());
+		int threadsBefore = countClientThreads();
+		List<Maybe<BatchSaveOperatingRS>> responses = new ArrayList<Maybe<BatchSaveOperatingRS>>();
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < IN_FLIGHT; i++) {
+			SaveLogRQ rq = new SaveLogRQ();
+			rq.setMessage("log " + i);
+			MultiPartRequest.Builder builder = new MultiPartRequest.Builder();
+			builder.addSerializedPart(Constants.LOG_REQUEST_JSON_PART, Collections.singletonList(rq));
+			builder.addBinaryPart(Constants.LOG_REQUEST_BINARY_PART, "file", "text/plain", ByteSource.wrap("binary content".getBytes()));
+			responses.add(client.log(builder.build()).cache());
+			responses.get(i).subscribe();
+		}
+		for (Maybe<BatchSaveOperatingRS> response : responses) {
+			Assert.assertNotNull(response.blockingGet());
+		}
+		long duration = System.currentTimeMillis() - start;
+		Assert.assertTrue("Requests should be executed concurrently, took " + duration + "ms", duration < IN_FLIGHT * LATENCY / 4);
+
+		int clientThreads = countClientThreads() - threadsBefore;
+		//I/O dispatchers and callback executor are sized by count of CPUs
+		Assert.assertTrue("Too many client threads: " + clientThreads, clientThreads <= 2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	@Test
+	public void fileAttachmentIsStreamed() throws IOException {
+		byte[] content = new byte[16 * 1024 * 1024];
+		new Random(42).nextBytes(content);
+		File file = folder.newFile("video.mp4");
+		Files.write(content, file);
+
+		SaveLogRQ rq = new SaveLogRQ();
+		rq.setMessage("video");
+		rq.setFile(new StreamedFile("video.mp4", "video/mp4", new FileByteSource(file)));
+		parameters.setProjectName("stream");
+		ReportPortalClient streaming = ReportPortal.builder().withParameters(parameters).build().getClient();
+		try {
+			Assert.assertNotNull(streaming.log(LoggingContext.toMultiPartRequest(Collections.singletonList(rq))).blockingGet());
+		} finally {
+			streaming.close();
+		}
+
+		byte[] body = received.get();
+		//length of attachment is known, so the body is not sent chunked
+		Assert.assertEquals(String.valueOf(body.length), contentLength.get());
+		Assert.assertTrue(Bytes.indexOf(body, content) > 0);
+		Assert.assertTrue(new String(body, Charsets.UTF_8).contains("\"message\":\"video\""));
+	}
+
+	@Test
+	public void responseConversion() {
+		StartLaunchRS rs = client.startLaunch(new StartLaunchRQ()).blockingGet();
+		Assert.assertEquals("launch-id", rs.getId());
+		Assert.assertEquals(Long.valueOf(1), rs.getNumber());
+	}
+
+	@Test
+	public void errorConversion() {
+		try {
+			client.log(new MultiPartRequest.Builder().build()).blockingGet();
+			Assert.fail("Error is expected");
+		} catch (ReportPortalException e) {
+			Assert.assertEquals(ErrorType.INCORRECT_REQUEST, e.getError().getErrorType());
+		}
+	}
+
+	private static int countClientThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().startsWith("rp-io")) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(Charsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		exchange.getResponseBody().write(bytes);
+		exchange.close();
+	}
+}
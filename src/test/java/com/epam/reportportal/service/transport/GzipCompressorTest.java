@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.reportportal.service.ReportPortal;
+import com.epam.reportportal.service.ReportPortalClient;
+import com.epam.ta.reportportal.ws.model.Constants;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+public class GzipCompressorTest {
+
+	private static final String STACK_TRACE = Strings.repeat("\tat com.epam.reportportal.service.LaunchImpl.startTestItem(LaunchImpl.java:42)\n",
+			100
+	);
+
+	@Test
+	public void jsonIsCompressed() throws IOException {
+		GzipCompressor compressor = new GzipCompressor(1024, 100);
+		byte[] body = ("{\"message\":\"" + STACK_TRACE + "\"}").getBytes(Charsets.UTF_8);
+
+		byte[] compressed = compressor.compress(body, "application/json; charset=UTF-8");
+		Assert.assertNotNull(compressed);
+		Assert.assertArrayEquals(body, gunzip(compressed));
+		Assert.assertEquals(1, compressor.getStats().getCompressed());
+		Assert.assertTrue(compressor.getStats().getRatio() > 10);
+	}
+
+	@Test
+	public void smallBodyIsNotCompressed() {
+		GzipCompressor compressor = new GzipCompressor(1024, 100);
+		Assert.assertNull(compressor.compress("{\"message\":\"short\"}".getBytes(Charsets.UTF_8), "application/json"));
+		Assert.assertEquals(1, compressor.getStats().getSkipped());
+	}
+
+	@Test
+	public void compressedMediaIsNotCompressed() throws IOException {
+		GzipCompressor compressor = new GzipCompressor(1024, 100);
+		Assert.assertFalse(compressor.canCompress("image/png"));
+
+		byte[] png = new byte[64 * 1024];
+		new Random(1).nextBytes(png);
+		HttpEntity multipart = MultipartEntityBuilder.create()
+				.addTextBody(Constants.LOG_REQUEST_JSON_PART, "[{\"message\":\"screenshot\"}]", ContentType.APPLICATION_JSON)
+				.addBinaryBody(Constants.LOG_REQUEST_BINARY_PART, png, ContentType.create("image/png"), "screenshot.png")
+				.build();
+		Assert.assertNull(compressor.compress(toByteArray(multipart), multipart.getContentType().getValue()));
+		Assert.assertEquals(0, compressor.getStats().getCompressed());
+	}
+
+	@Test
+	public void textMultipartIsCompressed() throws IOException {
+		GzipCompressor compressor = new GzipCompressor(1024, 100);
+		HttpEntity multipart = MultipartEntityBuilder.create()
+				.addTextBody(Constants.LOG_REQUEST_JSON_PART, "[{\"message\":\"page\"}]", ContentType.APPLICATION_JSON)
+				.addBinaryBody(Constants.LOG_REQUEST_BINARY_PART,
+						STACK_TRACE.getBytes(Charsets.UTF_8),
+						ContentType.create("text/html"),
+						"page.html"
+				)
+				.build();
+		byte[] body = toByteArray(multipart);
+		Assert.assertEquals(STACK_TRACE.length() + "[{\"message\":\"page\"}]".length(),
+				GzipCompressor.compressibleBytes(body, multipart.getContentType().getValue())
+		);
+		Assert.assertNotNull(compressor.compress(body, multipart.getContentType().getValue()));
+	}
+
+	@Test
+	public void exhaustedBudgetSkipsCompression() {
+		GzipCompressor compressor = new GzipCompressor(1024, 0);
+		Assert.assertNull(compressor.compress(STACK_TRACE.getBytes(Charsets.UTF_8), "text/plain"));
+		Assert.assertEquals(1, compressor.getStats().getOverBudget());
+	}
+
+	@Test
+	public void logsAreSentCompressed() throws Exception {
+		MockWebServer server = new MockWebServer();
+		server.enqueue(new MockResponse().setResponseCode(201).setHeader("Content-Type", "application/json").setBody("{\"responses\":[]}"));
+		server.start();
+
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setBaseUrl("http://" + server.getHostName() + ":" + server.getPort());
+		parameters.setProjectName("test");
+		parameters.setUuid("uuid");
+		parameters.setEnable(true);
+		parameters.setCompression(true);
+		GzipCompressor compressor = GzipCompressor.create(parameters);
+		ReportPortalClient client = ReportPortal.builder().withParameters(parameters).withCompressor(compressor).build().getClient();
+		try {
+			SaveLogRQ rq = new SaveLogRQ();
+			rq.setMessage(STACK_TRACE);
+			MultiPartRequest.Builder builder = new MultiPartRequest.Builder();
+			builder.addSerializedPart(Constants.LOG_REQUEST_JSON_PART, Collections.singletonList(rq));
+			builder.addBinaryPart(Constants.LOG_REQUEST_BINARY_PART,
+					"trace.txt",
+					"text/plain",
+					ByteSource.wrap(STACK_TRACE.getBytes(Charsets.UTF_8))
+			);
+			client.log(builder.build()).blockingGet();
+		} finally {
+			client.close();
+		}
+
+		RecordedRequest request = server.takeRequest();
+		server.shutdown();
+		Assert.assertEquals(GzipCompressor.GZIP, request.getHeader("Content-Encoding"));
+		Assert.assertTrue(new String(gunzip(request.getBody().readByteArray()), Charsets.UTF_8).contains("LaunchImpl.java:42"));
+		Assert.assertEquals(1, compressor.getStats().getCompressed());
+	}
+
+	private static byte[] toByteArray(HttpEntity entity) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		entity.writeTo(out);
+		return out.toByteArray();
+	}
+
+	private static byte[] gunzip(byte[] compressed) throws IOException {
+		return ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+	}
+}
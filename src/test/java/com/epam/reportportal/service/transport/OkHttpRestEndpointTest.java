@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.exception.ReportPortalException;
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.restendpoint.http.MultiPartRequest;
+import com.epam.reportportal.service.ReportPortal;
+import com.epam.reportportal.service.ReportPortalClient;
+import com.epam.ta.reportportal.ws.model.BatchSaveOperatingRS;
+import com.epam.ta.reportportal.ws.model.Constants;
+import com.epam.ta.reportportal.ws.model.ErrorType;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRS;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteSource;
+import io.reactivex.Maybe;
+import okhttp3.Protocol;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+public class OkHttpRestEndpointTest {
+
+	private static final int IN_FLIGHT = 50;
+	private static final long LATENCY = 300;
+
+	private MockWebServer server;
+	private ReportPortalClient client;
+
+	@Before
+	public void startServer() throws IOException {
+		server = new MockWebServer();
+		//h2c with prior knowledge, the same the client uses for plain HTTP
+		server.setProtocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(RecordedRequest request) {
+				if (!"bearer uuid".equals(request.getHeader("Authorization"))) {
+					return respond(401, "{\"error_code\":40102,\"message\":\"Unauthorized\"}");
+				}
+				if (request.getPath().startsWith("/api/v1/test/launch")) {
+					return respond(201, "{\"id\":\"launch-id\",\"number\":1}");
+				}
+				String body = request.getBody().readString(Charsets.UTF_8);
+				if (request.getHeader("Content-Type").startsWith("multipart/form-data") && body.contains(Constants.LOG_REQUEST_JSON_PART)
+						&& body.contains("binary content")) {
+					return respond(201, "{\"responses\":[]}").setHeadersDelay(LATENCY, TimeUnit.MILLISECONDS);
+				}
+				return respond(400, "{\"error_code\":4001,\"message\":\"Incorrect Request\"}");
+			}
+		});
+		server.start();
+
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setBaseUrl("http://localhost:" + server.getPort());
+		parameters.setProjectName("test");
+		parameters.setUuid("uuid");
+		parameters.setEnable(true);
+		parameters.setHttpTransport(HttpTransport.HTTP2);
+		parameters.setIoPoolSize(IN_FLIGHT);
+		client = ReportPortal.builder().withParameters(parameters).build().getClient();
+	}
+
+	@After
+	public void stopServer() throws IOException {
+		client.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void concurrentRequestsAreMultiplexed() throws InterruptedException {
+		List<Maybe<BatchSaveOperatingRS>> responses = new ArrayList<Maybe<BatchSaveOperatingRS>>();
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < IN_FLIGHT; i++) {
+			SaveLogRQ rq = new SaveLogRQ();
+			rq.setMessage("log " + i);
+			MultiPartRequest.Builder builder = new MultiPartRequest.Builder();
+			builder.addSerializedPart(Constants.LOG_REQUEST_JSON_PART, Collections.singletonList(rq));
+			builder.addBinaryPart(Constants.LOG_REQUEST_BINARY_PART, "file", "text/plain", ByteSource.wrap("binary content".getBytes()));
+			responses.add(client.log(builder.build()).cache());
+			responses.get(i).subscribe();
+		}
+		for (Maybe<BatchSaveOperatingRS> response : responses) {
+			Assert.assertNotNull(response.blockingGet());
+		}
+		long duration = System.currentTimeMillis() - start;
+		Assert.assertTrue("Requests should be executed concurrently, took " + duration + "ms", duration < IN_FLIGHT * LATENCY / 4);
+
+		//sequence number is index of request on its connection, so they are unique if there is one connection only
+		Set<Integer> sequenceNumbers = new HashSet<Integer>();
+		for (int i = 0; i < IN_FLIGHT; i++) {
+			sequenceNumbers.add(server.takeRequest().getSequenceNumber());
+		}
+		Assert.assertEquals("All the requests should share one connection", IN_FLIGHT, sequenceNumbers.size());
+	}
+
+	@Test
+	public void responseConversion() {
+		StartLaunchRS rs = client.startLaunch(new StartLaunchRQ()).blockingGet();
+		Assert.assertEquals("launch-id", rs.getId());
+		Assert.assertEquals(Long.valueOf(1), rs.getNumber());
+	}
+
+	@Test
+	public void errorConversion() {
+		try {
+			MultiPartRequest.Builder builder = new MultiPartRequest.Builder();
+			builder.addSerializedPart(Constants.LOG_REQUEST_JSON_PART, Collections.singletonList(new SaveLogRQ()));
+			client.log(builder.build()).blockingGet();
+			Assert.fail("Error is expected");
+		} catch (ReportPortalException e) {
+			Assert.assertEquals(ErrorType.INCORRECT_REQUEST, e.getError().getErrorType());
+		}
+	}
+
+	private static MockResponse respond(int status, String body) {
+		return new MockResponse().setResponseCode(status).setHeader("Content-Type", "application/json").setBody(body);
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.transport;
+
+import com.epam.reportportal.message.FileByteSource;
+import com.epam.reportportal.message.StreamedFile;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.apache.http.nio.FileContentEncoder;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class StreamingMultipartEntityTest {
+
+	private static final byte[] CONTENT = "multipart content".getBytes(Charsets.UTF_8);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void contentIsTheSameAsWrittenBody() throws IOException {
+		File file = folder.newFile("attachment.txt");
+		Files.write(CONTENT, file);
+		StreamingMultipartEntity entity = new StreamingMultipartEntity.Builder().addPart("json", "application/json", CONTENT)
+				.addPart("file", "attachment.txt", "text/plain", new FileByteSource(file))
+				.addPart("file", "array.txt", "text/plain", ByteSource.wrap(CONTENT))
+				.build();
+
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		entity.writeTo(written);
+		Assert.assertTrue(entity.isRepeatable());
+		Assert.assertArrayEquals(written.toByteArray(), ByteStreams.toByteArray(entity.getContent()));
+		Assert.assertArrayEquals(written.toByteArray(), ByteStreams.toByteArray(entity.getContent()));
+		Assert.assertEquals(written.size(), entity.getContentLength());
+	}
+
+	@Test
+	public void entityWithStreamReadOnceIsNotRepeatable() {
+		StreamingMultipartEntity entity = new StreamingMultipartEntity.Builder().addPart("json", "application/json", CONTENT)
+				.addPart("file", "stream.txt", "text/plain", StreamedFile.once(new ByteArrayInputStream(CONTENT)))
+				.build();
+		Assert.assertFalse(entity.isRepeatable());
+	}
+
+	@Test
+	public void fileIsSentWithSizeTakenWhenEntityIsBuilt() throws IOException {
+		File file = folder.newFile("growing.txt");
+		Files.write(CONTENT, file);
+		StreamingMultipartEntity entity = new StreamingMultipartEntity.Builder().addPart("file", "growing.txt", "text/plain",
+				new FileByteSource(file)
+		).build();
+		Files.append("appended later", file, Charsets.UTF_8);
+
+		RecordingEncoder encoder = new RecordingEncoder();
+		entity.produceContent(encoder, null);
+		Assert.assertTrue(encoder.isCompleted());
+		Assert.assertEquals(entity.getContentLength(), encoder.content.size());
+		Assert.assertEquals(entity.getContentLength(), ByteStreams.toByteArray(entity.getContent()).length);
+	}
+
+	@Test(expected = EOFException.class)
+	public void fileWhichGotShorterFailsTransfer() throws IOException {
+		File file = folder.newFile("truncated.txt");
+		Files.write(CONTENT, file);
+		StreamingMultipartEntity entity = new StreamingMultipartEntity.Builder().addPart("file", "truncated.txt", "text/plain",
+				new FileByteSource(file)
+		).build();
+		Files.write(Arrays.copyOf(CONTENT, 3), file);
+
+		entity.produceContent(new RecordingEncoder(), null);
+	}
+
+	@Test(expected = EOFException.class)
+	public void fileWhichGotShorterFailsWriting() throws IOException {
+		File file = folder.newFile("truncated.txt");
+		Files.write(CONTENT, file);
+		StreamingMultipartEntity entity = new StreamingMultipartEntity.Builder().addPart("file", "truncated.txt", "text/plain",
+				new FileByteSource(file)
+		).build();
+		Files.write(Arrays.copyOf(CONTENT, 3), file);
+
+		entity.writeTo(new ByteArrayOutputStream());
+	}
+
+	private static class RecordingEncoder implements FileContentEncoder {
+		private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+		private boolean completed;
+
+		@Override
+		public long transfer(FileChannel src, long position, long count) throws IOException {
+			ByteBuffer buffer = ByteBuffer.allocate((int) count);
+			int read = src.read(buffer, position);
+			if (read <= 0) {
+				return 0;
+			}
+			content.write(buffer.array(), 0, read);
+			return read;
+		}
+
+		@Override
+		public int write(ByteBuffer src) {
+			int written = src.remaining();
+			byte[] bytes = new byte[written];
+			src.get(bytes);
+			content.write(bytes, 0, written);
+			return written;
+		}
+
+		@Override
+		public void complete() {
+			completed = true;
+		}
+
+		@Override
+		public boolean isCompleted() {
+			return completed;
+		}
+	}
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.service.wal;
+
+import com.epam.reportportal.listeners.ListenerParameters;
+import com.epam.reportportal.service.Launch;
+import com.epam.reportportal.service.ReportPortal;
+import com.epam.reportportal.service.StandInReportPortalClient;
+import com.epam.reportportal.service.offline.JournalRecord;
+import com.epam.ta.reportportal.ws.model.FinishExecutionRQ;
+import com.epam.ta.reportportal.ws.model.FinishTestItemRQ;
+import com.epam.ta.reportportal.ws.model.StartTestItemRQ;
+import com.epam.ta.reportportal.ws.model.item.ItemCreatedRS;
+import com.epam.ta.reportportal.ws.model.launch.StartLaunchRQ;
+import com.epam.ta.reportportal.ws.model.log.SaveLogRQ;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.reactivex.Maybe;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriteAheadLogTest {
+
+	private static final int SEGMENT_SIZE = 4096;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void pendingEventsAreReadInOrder() throws IOException {
+		WriteAheadLog wal = open();
+		long[] seqs = new long[100];
+		for (int i = 0; i < seqs.length; i++) {
+			seqs[i] = wal.append(JournalRecord.log(log("item", "log " + i)));
+		}
+		for (int i = 0; i < seqs.length; i += 2) {
+			wal.ack(seqs[i]);
+		}
+		Assert.assertEquals(50, wal.getPending());
+		wal.close();
+
+		List<JournalRecord> pending = WriteAheadLog.read(wal.getDirectory());
+		Assert.assertEquals(50, pending.size());
+		for (int i = 0; i < pending.size(); i++) {
+			Assert.assertEquals("log " + (2 * i + 1), pending.get(i).toLog().getMessage());
+		}
+	}
+
+	@Test
+	public void eventsHandedToWriterAreAppendedInOrder() throws IOException {
+		WriteAheadLog wal = open();
+		long[] seqs = new long[100];
+		for (int i = 0; i < seqs.length; i++) {
+			seqs[i] = wal.appendAsync(record(log("item", "log " + i)));
+		}
+		for (int i = 0; i < seqs.length; i += 2) {
+			wal.ack(seqs[i]);
+		}
+		Assert.assertEquals(50, wal.getPending());
+		wal.close();
+
+		List<JournalRecord> pending = WriteAheadLog.read(wal.getDirectory());
+		Assert.assertEquals(50, pending.size());
+		for (int i = 0; i < pending.size(); i++) {
+			Assert.assertEquals("log " + (2 * i + 1), pending.get(i).toLog().getMessage());
+		}
+	}
+
+	@Test
+	public void eventAcknowledgedBeforeWriterGetsToItIsNotWritten() throws Exception {
+		WriteAheadLog wal = open();
+		final CountDownLatch writing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		wal.appendAsync(new Supplier<JournalRecord>() {
+			@Override
+			public JournalRecord get() {
+				writing.countDown();
+				Uninterruptibles.awaitUninterruptibly(release);
+				return JournalRecord.log(log("item", "blocking"));
+			}
+		});
+		Assert.assertTrue(writing.await(10, TimeUnit.SECONDS));
+		final AtomicInteger created = new AtomicInteger();
+		long seq = wal.appendAsync(new Supplier<JournalRecord>() {
+			@Override
+			public JournalRecord get() {
+				created.incrementAndGet();
+				return JournalRecord.log(log("item", "acknowledged"));
+			}
+		});
+		wal.ack(seq);
+		release.countDown();
+		wal.close();
+
+		Assert.assertEquals(0, created.get());
+		List<JournalRecord> pending = WriteAheadLog.read(wal.getDirectory());
+		Assert.assertEquals(1, pending.size());
+		Assert.assertEquals("blocking", pending.get(0).toLog().getMessage());
+	}
+
+	@Test
+	public void acknowledgedSegmentsAreDeleted() throws IOException {
+		WriteAheadLog wal = open();
+		for (int i = 0; i < 1000; i++) {
+			wal.ack(wal.append(JournalRecord.log(log("item", "log " + i))));
+		}
+		Assert.assertTrue(segments(wal) <= 2);
+		wal.close();
+		Assert.assertFalse(wal.getDirectory().exists());
+	}
+
+	@Test
+	public void tornSegmentIsReadUpToLastCompleteFrame() throws IOException {
+		WriteAheadLog wal = open();
+		wal.append(JournalRecord.log(log("item", "first")));
+		wal.append(JournalRecord.log(log("item", "second")));
+		wal.close();
+
+		List<JournalRecord> records = WriteAheadLog.read(wal.getDirectory());
+		File segment = new File(wal.getDirectory(), "00000000" + WriteAheadLog.SEGMENT_SUFFIX);
+		RandomAccessFile file = new RandomAccessFile(segment, "rw");
+		try {
+			//damage the last byte of the second frame
+			file.seek(17 + records.get(0).toBytes().length + 17 + records.get(1).toBytes().length - 1);
+			file.write(0);
+		} finally {
+			file.close();
+		}
+		List<JournalRecord> pending = WriteAheadLog.read(wal.getDirectory());
+		Assert.assertEquals(1, pending.size());
+		Assert.assertEquals("first", pending.get(0).toLog().getMessage());
+	}
+
+	@Test
+	public void orphanLogIsResent() throws IOException {
+		WriteAheadLog orphan = open();
+		orphan.append(JournalRecord.log(log("item", "lost")));
+		orphan.append(JournalRecord.of(JournalRecord.Type.FINISH_ITEM, "item", null, new FinishTestItemRQ()));
+		orphan.append(JournalRecord.of(JournalRecord.Type.FINISH_LAUNCH, "launch", null, new FinishExecutionRQ()));
+		orphan.close();
+
+		WriteAheadLog own = open();
+		StandInReportPortalClient client = new StandInReportPortalClient();
+		WalRecovery.recover(client, own, 10).blockingAwait();
+
+		List<StandInReportPortalClient.Call> calls = client.getCalls();
+		Assert.assertEquals(3, calls.size());
+		Assert.assertEquals("POST /log/", calls.get(0).getRequest());
+		Assert.assertEquals("PUT /item/item", calls.get(1).getRequest());
+		Assert.assertEquals("PUT /launch/launch/finish", calls.get(2).getRequest());
+		Assert.assertFalse(orphan.getDirectory().exists());
+
+		//log of running JVM is not recovered
+		StandInReportPortalClient again = new StandInReportPortalClient();
+		WalRecovery.recover(again, open(), 10).blockingAwait();
+		Assert.assertTrue(again.getCalls().isEmpty());
+		Assert.assertTrue(own.getDirectory().exists());
+		own.close();
+	}
+
+	@Test
+	public void eventsOfItemsNotStartedByServerAreResent() throws IOException {
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setWal(true);
+		parameters.setWalDir(folder.getRoot().getPath());
+
+		//server starts the launch and crashes before it responds to the first item
+		ReportPortal rp = ReportPortal.create(new StandInReportPortalClient() {
+			@Override
+			public Maybe<ItemCreatedRS> startTestItem(StartTestItemRQ rq) {
+				return Maybe.never();
+			}
+		}, parameters);
+		Launch launch = rp.newLaunch(new StartLaunchRQ());
+		String launchId = launch.start().blockingGet();
+		Maybe<String> suite = launch.startTestItem(startRq("suite"));
+		Maybe<String> test = launch.startTestItem(suite, startRq("test"));
+		for (int i = 0; i < 3; i++) {
+			ReportPortal.emitLog("log " + i, "INFO", new Date());
+		}
+		launch.finishTestItem(test, finishRq());
+		launch.finishTestItem(suite, finishRq());
+		WriteAheadLog crashed = rp.getWriteAheadLog();
+		crashed.close();
+		Assert.assertTrue(crashed.getDirectory().exists());
+
+		final List<String> launches = new ArrayList<String>();
+		StandInReportPortalClient client = new StandInReportPortalClient() {
+			@Override
+			public Maybe<ItemCreatedRS> startTestItem(StartTestItemRQ rq) {
+				launches.add(rq.getLaunchId());
+				return super.startTestItem(rq);
+			}
+
+			@Override
+			public Maybe<ItemCreatedRS> startTestItem(String parent, StartTestItemRQ rq) {
+				launches.add(rq.getLaunchId());
+				return super.startTestItem(parent, rq);
+			}
+		};
+		WriteAheadLog own = open();
+		WalRecovery.recover(client, own, 10).blockingAwait();
+		own.close();
+
+		List<StandInReportPortalClient.Call> calls = client.getCalls();
+		Assert.assertEquals(5, calls.size());
+		Assert.assertEquals("POST /item/", calls.get(0).getRequest());
+		String suiteId = calls.get(1).getRequest().substring("POST /item/".length());
+		Assert.assertFalse(suiteId.isEmpty());
+		Assert.assertEquals("POST /log/", calls.get(2).getRequest());
+		Assert.assertTrue(calls.get(3).getRequest().startsWith("PUT /item/"));
+		Assert.assertEquals("PUT /item/" + suiteId, calls.get(4).getRequest());
+		//items are started in the launch started before the crash
+		Assert.assertEquals(Arrays.asList(launchId, launchId), launches);
+		Assert.assertFalse(crashed.getDirectory().exists());
+	}
+
+	@Test
+	public void reportedEventsAreAcknowledged() {
+		ListenerParameters parameters = new ListenerParameters();
+		parameters.setEnable(true);
+		parameters.setWal(true);
+		parameters.setWalDir(folder.getRoot().getPath());
+
+		ReportPortal rp = ReportPortal.create(new StandInReportPortalClient(), parameters);
+		WriteAheadLog wal = rp.getWriteAheadLog();
+		Assert.assertNotNull(wal);
+
+		Launch launch = rp.newLaunch(new StartLaunchRQ());
+		launch.start();
+		Maybe<String> suite = launch.startTestItem(startRq("suite"));
+		Maybe<String> test = launch.startTestItem(suite, startRq("test"));
+		for (int i = 0; i < 25; i++) {
+			ReportPortal.emitLog("log " + i, "INFO", new Date());
+		}
+		launch.finishTestItem(test, finishRq());
+		launch.finishTestItem(suite, finishRq());
+		launch.finish(new FinishExecutionRQ());
+
+		Assert.assertEquals(0, wal.getPending());
+	}
+
+	private WriteAheadLog open() throws IOException {
+		return new WriteAheadLog(new File(folder.getRoot(), UUID.randomUUID().toString()), SEGMENT_SIZE, 10);
+	}
+
+	private static int segments(WriteAheadLog wal) {
+		int count = 0;
+		for (File file : wal.getDirectory().listFiles()) {
+			if (file.getName().endsWith(WriteAheadLog.SEGMENT_SUFFIX)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static Supplier<JournalRecord> record(final SaveLogRQ rq) {
+		return new Supplier<JournalRecord>() {
+			@Override
+			public JournalRecord get() {
+				return JournalRecord.log(rq);
+			}
+		};
+	}
+
+	private static SaveLogRQ log(String itemId, String message) {
+		SaveLogRQ rq = new SaveLogRQ();
+		rq.setTestItemId(itemId);
+		rq.setLogTime(new Date());
+		rq.setLevel("INFO");
+		rq.setMessage(message);
+		return rq;
+	}
+
+	private static StartTestItemRQ startRq(String name) {
+		StartTestItemRQ rq = new StartTestItemRQ();
+		rq.setName(name);
+		rq.setType("STEP");
+		rq.setStartTime(new Date());
+		return rq;
+	}
+
+	private static FinishTestItemRQ finishRq() {
+		FinishTestItemRQ rq = new FinishTestItemRQ();
+		rq.setEndTime(new Date());
+		rq.setStatus("PASSED");
+		return rq;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+	@Test
+	public void percentilesAreAccurateWithinFactorOfTwo() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		Assert.assertEquals(1000, histogram.getCount());
+		Assert.assertEquals(1000, histogram.getMax());
+		Assert.assertEquals(500.5, histogram.getMean(), 0.001);
+
+		long p50 = histogram.getPercentile(50);
+		Assert.assertTrue(p50 >= 500 && p50 < 1000);
+		Assert.assertEquals(1000, histogram.getPercentile(99));
+	}
+
+	@Test
+	public void emptyHistogram() {
+		Histogram histogram = new Histogram();
+		Assert.assertEquals(0, histogram.getPercentile(99));
+		Assert.assertEquals(0, histogram.getMean(), 0);
+	}
+}
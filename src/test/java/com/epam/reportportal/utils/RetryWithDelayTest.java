@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2018 EPAM Systems
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.epam.reportportal.utils;
+
+import io.reactivex.Maybe;
+import io.reactivex.functions.Predicate;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.TestScheduler;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RetryWithDelayTest {
+
+	private static final Predicate<Throwable> ALWAYS = new Predicate<Throwable>() {
+		@Override
+		public boolean test(Throwable throwable) {
+			return true;
+		}
+	};
+
+	@Test
+	public void retriesOnTimerWithBackoff() {
+		TestScheduler scheduler = new TestScheduler();
+		RetryWithDelay retry = new RetryWithDelay(ALWAYS, 4, 100, 250, 0, scheduler);
+		AtomicInteger subscriptions = new AtomicInteger();
+
+		TestObserver<String> observer = failing(subscriptions).retryWhen(retry).test();
+		Assert.assertEquals(1, subscriptions.get());
+
+		scheduler.advanceTimeBy(99, TimeUnit.MILLISECONDS);
+		Assert.assertEquals("Retry should wait for timer", 1, subscriptions.get());
+		scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+		Assert.assertEquals(2, subscriptions.get());
+		scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+		Assert.assertEquals("Delay should be doubled", 3, subscriptions.get());
+		scheduler.advanceTimeBy(250, TimeUnit.MILLISECONDS);
+		Assert.assertEquals("Delay should be limited with max one", 4, subscriptions.get());
+		observer.assertError(IllegalStateException.class);
+
+		failing(subscriptions).retryWhen(retry).test();
+		scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+		Assert.assertEquals("Retry count should not be shared between subscriptions", 6, subscriptions.get());
+	}
+
+	@Test
+	public void notRetriableError() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		failing(subscriptions).retryWhen(new RetryWithDelay(new Predicate<Throwable>() {
+			@Override
+			public boolean test(Throwable throwable) {
+				return false;
+			}
+		}, 10, 100)).test().assertError(IllegalStateException.class);
+		Assert.assertEquals(1, subscriptions.get());
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void predicateOfRetryOperator() {
+		AtomicInteger subscriptions = new AtomicInteger();
+		failing(subscriptions).retry(new RetryWithDelay(ALWAYS, 3, 1)).test().assertError(IllegalStateException.class);
+		Assert.assertEquals(3, subscriptions.get());
+	}
+
+	@Test
+	public void jitter() {
+		RetryWithDelay retry = new RetryWithDelay(ALWAYS, 10, 1000, 10000, 0.5, new TestScheduler());
+		for (int i = 0; i < 100; i++) {
+			long delay = retry.getDelay(2);
+			Assert.assertTrue(delay > 1000 && delay <= 2000);
+		}
+	}
+
+	private static Maybe<String> failing(final AtomicInteger subscriptions) {
+		return Maybe.defer(new Callable<Maybe<String>>() {
+			@Override
+			public Maybe<String> call() {
+				subscriptions.incrementAndGet();
+				return Maybe.error(new IllegalStateException());
+			}
+		});
+	}
+}